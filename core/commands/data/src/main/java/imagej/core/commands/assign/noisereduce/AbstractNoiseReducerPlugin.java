@@ -105,6 +105,15 @@ public enum NeighborhoodType {RADIAL, RECTANGULAR}
 	public abstract Function<PointSet,DoubleType> getFunction(
 		Function<long[],DoubleType> otherFunc);
 
+	/**
+	 * Returns the rank statistic computed by this plugin's function, if any.
+	 * Plugins that return one are run with a {@link RankFilter} whenever it
+	 * supports the input and neighborhood.
+	 */
+	public RankFilter.Rank getRank() {
+		return null;
+	}
+
 	@Override
 	public void run() {
 		Neighborhood neighborhood = determineNeighborhood(input.numDimensions());
@@ -116,6 +125,12 @@ public void run() {
 		Function<long[],DoubleType> otherFunc =
 				new RealImageFunction<U,DoubleType>(inputImg, oobFactory, new DoubleType());
 		PointSet ps = neighborhood.getPoints();
+		if (getRank() != null) {
+			RankFilter<U> filter =
+					new RankFilter<U>(context, inputImg, ps, getRank());
+			output = filter.filter(neighborhood.getDescription());
+			if (output != null) return;
+		}
 		Reducer<U,DoubleType> reducer =
 				new Reducer<U,DoubleType>(context, inputImg, getFunction(otherFunc), ps);
 		output = reducer.reduceNoise(neighborhood.getDescription());
@@ -66,4 +66,9 @@ public Function<PointSet, DoubleType> getFunction(
 		return new RealMaxFunction<DoubleType>(otherFunc);
 	}
 
+	@Override
+	public RankFilter.Rank getRank() {
+		return RankFilter.Rank.MAXIMUM;
+	}
+
 }
@@ -66,4 +66,9 @@ public Function<PointSet, DoubleType> getFunction(
 		return new RealMinFunction<DoubleType>(otherFunc);
 	}
 
+	@Override
+	public RankFilter.Rank getRank() {
+		return RankFilter.Rank.MINIMUM;
+	}
+
 }
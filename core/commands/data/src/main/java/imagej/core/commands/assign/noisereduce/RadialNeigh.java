@@ -35,7 +35,6 @@
 
 package imagej.core.commands.assign.noisereduce;
 
-import net.imglib2.ops.condition.Condition;
 import net.imglib2.ops.pointset.ConditionalPointSet;
 import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.ops.pointset.PointSet;
@@ -54,16 +53,7 @@ public class RadialNeigh implements Neighborhood {
 	public RadialNeigh(final int numDims, final long radius) {
 		this.numDims = numDims;
 		this.radius = radius;
-		final long[] posOff = new long[numDims];
-		final long[] negOff = new long[numDims];
-		for (int i = 0; i < numDims; i++) {
-			posOff[i] = negOff[i] = radius - 1;
-		}
-		final PointSet space =
-			new HyperVolumePointSet(new long[numDims], posOff, negOff);
-		final Condition<long[]> condition =
-			new WithinRadiusOfPointSetOriginCondition(radius, space);
-		this.points = new ConditionalPointSet(space, condition);
+		this.points = new RadialPointSet(numDims, radius);
 	}
 
 	@Override
@@ -77,4 +67,47 @@ public String getDescription() {
 			" pixel radial neighborhood";
 	}
 
+	// -- helper classes --
+
+	/**
+	 * A {@link ConditionalPointSet} whose radius condition always refers to its
+	 * own space. A plain ConditionalPointSet copies its condition along with its
+	 * space, leaving the copied condition measuring distances from the origin of
+	 * the original space. Copies of a RadialPointSet can instead be moved
+	 * independently, so they can be used from multiple threads at once.
+	 */
+	private static class RadialPointSet extends ConditionalPointSet {
+
+		private final int numDims;
+		private final long radius;
+
+		public RadialPointSet(final int numDims, final long radius) {
+			this(space(numDims, radius), numDims, radius);
+		}
+
+		private RadialPointSet(final PointSet space, final int numDims,
+			final long radius)
+		{
+			super(space, new WithinRadiusOfPointSetOriginCondition(radius, space));
+			this.numDims = numDims;
+			this.radius = radius;
+		}
+
+		@Override
+		public RadialPointSet copy() {
+			final RadialPointSet copy = new RadialPointSet(numDims, radius);
+			copy.translate(getOrigin());
+			return copy;
+		}
+
+		private static PointSet space(final int numDims, final long radius) {
+			final long[] posOff = new long[numDims];
+			final long[] negOff = new long[numDims];
+			for (int i = 0; i < numDims; i++) {
+				posOff[i] = negOff[i] = radius - 1;
+			}
+			return new HyperVolumePointSet(new long[numDims], posOff, negOff);
+		}
+	}
+
 }
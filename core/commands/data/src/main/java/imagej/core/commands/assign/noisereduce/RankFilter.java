@@ -0,0 +1,556 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.assign.noisereduce;
+
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DefaultDataset;
+import imagej.data.PrimitivePlane;
+import imagej.data.measure.StatisticsAccumulator;
+import imagej.event.StatusService;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * RankFilter replaces each value of an image by a rank statistic (minimum,
+ * median or maximum) of the values within a neighborhood around it. It
+ * computes the same results as evaluating a RealMinFunction, RealMedianFunction
+ * or RealMaxFunction over the neighborhood (with mirrored boundaries) but much
+ * faster.
+ * <p>
+ * For integer data whose range fits a histogram of at most 65536 bins the
+ * window is slid along each row, updating a running two level histogram with
+ * only the values that enter and leave the neighborhood (after Huang and
+ * Perreault-Hebert). Other data is handled by gathering the neighborhood of
+ * each pixel and selecting the rank in linear time. Rows are processed in
+ * parallel in both cases.
+ * </p>
+ * <p>
+ * The neighborhood may have any number of dimensions but must be convex along
+ * X (every line of the neighborhood parallel to the X axis is contiguous), as
+ * rectangular and radial neighborhoods are. Otherwise, or when the image
+ * planes are not backed by primitive arrays, {@link #filter} returns null and
+ * the caller should fall back to a {@link Reducer}.
+ * </p>
+ * 
+ * @author agent
+ */
+public class RankFilter<U extends RealType<U>> {
+
+	// -- constants --
+
+	/** The rank statistics a RankFilter can compute. */
+	public enum Rank {
+		MINIMUM, MEDIAN, MAXIMUM
+	}
+
+	/** Largest number of histogram bins used for integer data. */
+	private static final long MAX_BINS = 1 << 16;
+
+	// -- instance variables --
+
+	private final ImageJ context;
+	private final ImgPlus<U> input;
+	private final PointSet neighborhood;
+	private final Rank rank;
+	private final StatusService statusService;
+
+	// kernel lines parallel to the X axis
+	private int[] lineDy;
+	private long[][] lineHigherOffsets;
+	private int[] lineMinX;
+	private int[] lineMaxX;
+	private int kernelSize;
+
+	// -- constructor --
+
+	public RankFilter(final ImageJ context, final ImgPlus<U> input,
+		final PointSet neighborhood, final Rank rank)
+	{
+		this.context = context;
+		this.input = input;
+		this.neighborhood = neighborhood;
+		this.rank = rank;
+		this.statusService = context.getService(StatusService.class);
+	}
+
+	// -- public interface --
+
+	/**
+	 * Filters the input image, returning a new Dataset containing the result,
+	 * or null if this filter cannot handle the input and neighborhood.
+	 */
+	public Dataset filter(final String neighDescrip) {
+		if (input.numDimensions() < 2) return null;
+		if (!buildKernel()) return null;
+
+		final int w = (int) input.dimension(0);
+		final long planeCount = PrimitivePlane.planeCount(input);
+		if (planeCount > Integer.MAX_VALUE) return null;
+		if (planeCount * input.dimension(1) > Integer.MAX_VALUE) return null;
+		final int rowCount = (int) (planeCount * input.dimension(1));
+		final int workerCount =
+			Math.max(1, Math.min(rowCount, Runtime.getRuntime()
+				.availableProcessors()));
+
+		final ImgPlus<U> newImg = input.copy();
+		final PrimitivePlane[] srcPlanes = planes(input.getImg(), planeCount);
+		final PrimitivePlane[] dstPlanes = planes(newImg.getImg(), planeCount);
+		if (srcPlanes == null || dstPlanes == null) return null;
+
+		notifyUserAtStart(neighDescrip);
+
+		// choose between histogram and selection windows
+		long binOffset = 0;
+		long binCount = 0;
+		if (input.firstElement() instanceof IntegerType) {
+			final double[] range = valueRange(srcPlanes, rowCount, w, workerCount);
+			if (range[0] >= Integer.MIN_VALUE && range[1] <= Integer.MAX_VALUE) {
+				binOffset = (long) range[0];
+				binCount = (long) range[1] - binOffset + 1;
+			}
+		}
+		final boolean useHistogram = binCount > 0 && binCount <= MAX_BINS;
+
+		final List<Runnable> workers = new ArrayList<Runnable>();
+		for (int k = 0; k < workerCount; k++) {
+			final RowFilter rowFilter =
+				useHistogram ? new HistogramRowFilter(srcPlanes, dstPlanes,
+					(int) binOffset, (int) binCount) : new SelectionRowFilter(
+					srcPlanes, dstPlanes);
+			workers.add(new RowWorker(rowFilter, k, workerCount, rowCount, w));
+		}
+		runAll(workers);
+
+		notifyUserAtEnd(neighDescrip);
+		return new DefaultDataset(context, newImg);
+	}
+
+	// -- private interface --
+
+	/**
+	 * Breaks the neighborhood into lines parallel to the X axis. Returns false
+	 * if some line is not contiguous.
+	 */
+	private boolean buildKernel() {
+		final long[] origin = neighborhood.getOrigin();
+		final Map<String, long[]> lines = new LinkedHashMap<String, long[]>();
+		final Map<String, long[]> ranges = new LinkedHashMap<String, long[]>();
+		final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		final PointSetIterator iter = neighborhood.iterator();
+		int total = 0;
+		while (iter.hasNext()) {
+			final long[] pos = iter.next();
+			final long[] offsets = new long[pos.length];
+			for (int i = 0; i < pos.length; i++) {
+				offsets[i] = pos[i] - origin[i];
+			}
+			final long dx = offsets[0];
+			offsets[0] = 0;
+			final String key = Arrays.toString(offsets);
+			long[] range = ranges.get(key);
+			if (range == null) {
+				range = new long[] { dx, dx };
+				ranges.put(key, range);
+				lines.put(key, offsets);
+				counts.put(key, 0);
+			}
+			if (dx < range[0]) range[0] = dx;
+			if (dx > range[1]) range[1] = dx;
+			counts.put(key, counts.get(key) + 1);
+			total++;
+		}
+		if (total == 0) return false;
+		final int lineCount = lines.size();
+		lineDy = new int[lineCount];
+		lineHigherOffsets = new long[lineCount][];
+		lineMinX = new int[lineCount];
+		lineMaxX = new int[lineCount];
+		int l = 0;
+		for (final String key : lines.keySet()) {
+			final long[] offsets = lines.get(key);
+			final long[] range = ranges.get(key);
+			if (range[1] - range[0] + 1 != counts.get(key)) return false;
+			lineDy[l] = (int) offsets[1];
+			lineHigherOffsets[l] = new long[offsets.length - 2];
+			for (int d = 2; d < offsets.length; d++) {
+				lineHigherOffsets[l][d - 2] = offsets[d];
+			}
+			lineMinX[l] = (int) range[0];
+			lineMaxX[l] = (int) range[1];
+			l++;
+		}
+		kernelSize = total;
+		return true;
+	}
+
+	/**
+	 * Finds the smallest and largest values of the given planes, scanning
+	 * contiguous blocks of rows in parallel.
+	 */
+	private double[] valueRange(final PrimitivePlane[] planes,
+		final int rowCount, final int w, final int workerCount)
+	{
+		final int h = (int) input.dimension(1);
+		final double[][] ranges = new double[workerCount][];
+		final List<Runnable> workers = new ArrayList<Runnable>();
+		for (int k = 0; k < workerCount; k++) {
+			final int worker = k;
+			final int firstRow = (int) ((long) k * rowCount / workerCount);
+			final int endRow = (int) ((long) (k + 1) * rowCount / workerCount);
+			workers.add(new Runnable() {
+
+				@Override
+				public void run() {
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					for (int row = firstRow; row < endRow; row++) {
+						final PrimitivePlane plane = planes[row / h];
+						final int start = (row % h) * w;
+						for (int i = start; i < start + w; i++) {
+							final double value = plane.getReal(i);
+							if (value < min) min = value;
+							if (value > max) max = value;
+						}
+					}
+					ranges[worker] = new double[] { min, max };
+				}
+			});
+		}
+		runAll(workers);
+		final double[] range = ranges[0];
+		for (int k = 1; k < workerCount; k++) {
+			if (ranges[k][0] < range[0]) range[0] = ranges[k][0];
+			if (ranges[k][1] > range[1]) range[1] = ranges[k][1];
+		}
+		return range;
+	}
+
+	private void runAll(final List<Runnable> workers) {
+		final ThreadService threadService =
+			context.getService(ThreadService.class);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (final Runnable worker : workers) {
+			futures.add(threadService.compute(worker));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Rank filter interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Rank filter failed", e.getCause());
+		}
+	}
+
+	private void notifyUserAtStart(final String neighDescrip) {
+		if (statusService != null) statusService.showStatus(neighDescrip +
+			" ... beginning processing");
+	}
+
+	private void notifyUserAtEnd(final String neighDescrip) {
+		if (statusService != null) statusService.showStatus(neighDescrip +
+			" ... completed processing");
+	}
+
+	private static PrimitivePlane[] planes(final Img<? extends RealType<?>> img,
+		final long planeCount)
+	{
+		final PrimitivePlane[] planes = new PrimitivePlane[(int) planeCount];
+		for (int p = 0; p < planes.length; p++) {
+			planes[p] = PrimitivePlane.get(img, p);
+			if (planes[p] == null) return null;
+		}
+		return planes;
+	}
+
+	/**
+	 * Mirrors an index into the range [0, n) the way an
+	 * OutOfBoundsMirrorFactory with a DOUBLE boundary does.
+	 */
+	private static int mirror(final long i, final long n) {
+		final long period = 2 * n;
+		long m = i % period;
+		if (m < 0) m += period;
+		if (m >= n) m = period - 1 - m;
+		return (int) m;
+	}
+
+	// -- helper classes --
+
+	/** Filters the rows with indices k, k + step, k + 2*step, etc. */
+	private class RowWorker implements Runnable {
+
+		private final RowFilter rowFilter;
+		private final int first;
+		private final int step;
+		private final int rowCount;
+		private final double[] output;
+
+		public RowWorker(final RowFilter rowFilter, final int first,
+			final int step, final int rowCount, final int w)
+		{
+			this.rowFilter = rowFilter;
+			this.first = first;
+			this.step = step;
+			this.rowCount = rowCount;
+			this.output = new double[w];
+		}
+
+		@Override
+		public void run() {
+			for (int row = first; row < rowCount; row += step) {
+				rowFilter.filterRow(row, output);
+			}
+		}
+	}
+
+	/**
+	 * Filters one row of the image at a time. Not thread safe: each thread
+	 * needs its own instance.
+	 */
+	private abstract class RowFilter {
+
+		protected final PrimitivePlane[] srcPlanes;
+		protected final PrimitivePlane[] dstPlanes;
+		protected final int w, h;
+		private final long[] planeDims;
+		private final long[] planePos;
+		private final long[] srcPlanePos;
+
+		// source data of each kernel line for the current row
+		protected final PrimitivePlane[] lineSrc;
+		protected final int[] lineStart;
+
+		public RowFilter(final PrimitivePlane[] srcPlanes,
+			final PrimitivePlane[] dstPlanes)
+		{
+			this.srcPlanes = srcPlanes;
+			this.dstPlanes = dstPlanes;
+			w = (int) input.dimension(0);
+			h = (int) input.dimension(1);
+			planeDims = new long[input.numDimensions() - 2];
+			for (int d = 0; d < planeDims.length; d++) {
+				planeDims[d] = input.dimension(d + 2);
+			}
+			planePos = new long[planeDims.length];
+			srcPlanePos = new long[planeDims.length];
+			lineSrc = new PrimitivePlane[lineDy.length];
+			lineStart = new int[lineDy.length];
+		}
+
+		/** Filters the given row (counted across all planes). */
+		public void filterRow(final int row, final double[] output) {
+			final int y = row % h;
+			int planeIndex = row / h;
+			for (int d = 0; d < planeDims.length; d++) {
+				planePos[d] = planeIndex % planeDims[d];
+				planeIndex /= planeDims[d];
+			}
+			for (int l = 0; l < lineDy.length; l++) {
+				for (int d = 0; d < planeDims.length; d++) {
+					srcPlanePos[d] =
+						mirror(planePos[d] + lineHigherOffsets[l][d], planeDims[d]);
+				}
+				lineSrc[l] = srcPlanes[index(srcPlanePos)];
+				lineStart[l] = mirror(y + lineDy[l], h) * w;
+			}
+			filterRow(output);
+			dstPlanes[row / h].write(y * w, output, 0, w);
+		}
+
+		/** Fills the output with the filtered values of the current row. */
+		protected abstract void filterRow(double[] output);
+
+		/** Gets the source value of kernel line l at column x. */
+		protected double value(final int l, final int x) {
+			return lineSrc[l].getReal(lineStart[l] + mirror(x, w));
+		}
+
+		private int index(final long[] pos) {
+			long index = 0;
+			for (int d = pos.length - 1; d >= 0; d--) {
+				index = index * planeDims[d] + pos[d];
+			}
+			return (int) index;
+		}
+	}
+
+	/** Slides a running histogram along each row. */
+	private class HistogramRowFilter extends RowFilter {
+
+		private final int binOffset;
+		private final int shift;
+		private final int[] fine;
+		private final int[] coarse;
+
+		public HistogramRowFilter(final PrimitivePlane[] srcPlanes,
+			final PrimitivePlane[] dstPlanes, final int binOffset,
+			final int binCount)
+		{
+			super(srcPlanes, dstPlanes);
+			this.binOffset = binOffset;
+			int bits = 0;
+			while ((1 << bits) < binCount) {
+				bits++;
+			}
+			shift = (bits + 1) / 2;
+			fine = new int[1 << bits];
+			coarse = new int[((1 << bits) >> shift) + 1];
+		}
+
+		@Override
+		protected void filterRow(final double[] output) {
+			Arrays.fill(fine, 0);
+			Arrays.fill(coarse, 0);
+			for (int l = 0; l < lineDy.length; l++) {
+				for (int dx = lineMinX[l]; dx <= lineMaxX[l]; dx++) {
+					add(value(l, dx));
+				}
+			}
+			for (int x = 0; x < w; x++) {
+				output[x] = rankValue();
+				if (x + 1 == w) break;
+				for (int l = 0; l < lineDy.length; l++) {
+					remove(value(l, x + lineMinX[l]));
+					add(value(l, x + 1 + lineMaxX[l]));
+				}
+			}
+		}
+
+		private void add(final double value) {
+			final int bin = (int) value - binOffset;
+			fine[bin]++;
+			coarse[bin >> shift]++;
+		}
+
+		private void remove(final double value) {
+			final int bin = (int) value - binOffset;
+			fine[bin]--;
+			coarse[bin >> shift]--;
+		}
+
+		private double rankValue() {
+			switch (rank) {
+				case MINIMUM:
+					return find(0);
+				case MAXIMUM:
+					return find(kernelSize - 1);
+				default:
+					if (kernelSize % 2 == 1) return find(kernelSize / 2);
+					return (find(kernelSize / 2 - 1) + find(kernelSize / 2)) / 2;
+			}
+		}
+
+		/** Finds the value of the given 0-based rank in the histogram. */
+		private double find(final int k) {
+			int remaining = k;
+			int c = 0;
+			while (remaining >= coarse[c]) {
+				remaining -= coarse[c++];
+			}
+			int bin = c << shift;
+			while (remaining >= fine[bin]) {
+				remaining -= fine[bin++];
+			}
+			return bin + binOffset;
+		}
+	}
+
+	/** Gathers the neighborhood of each pixel and selects the rank value. */
+	private class SelectionRowFilter extends RowFilter {
+
+		private final double[] values;
+
+		public SelectionRowFilter(final PrimitivePlane[] srcPlanes,
+			final PrimitivePlane[] dstPlanes)
+		{
+			super(srcPlanes, dstPlanes);
+			values = new double[kernelSize];
+		}
+
+		@Override
+		protected void filterRow(final double[] output) {
+			for (int x = 0; x < w; x++) {
+				int n = 0;
+				for (int l = 0; l < lineDy.length; l++) {
+					for (int dx = lineMinX[l]; dx <= lineMaxX[l]; dx++) {
+						values[n++] = value(l, x + dx);
+					}
+				}
+				output[x] = rankValue();
+			}
+		}
+
+		private double rankValue() {
+			switch (rank) {
+				case MINIMUM:
+					double min = values[0];
+					for (int i = 1; i < kernelSize; i++) {
+						if (values[i] < min) min = values[i];
+					}
+					return min;
+				case MAXIMUM:
+					double max = values[0];
+					for (int i = 1; i < kernelSize; i++) {
+						if (values[i] > max) max = values[i];
+					}
+					return max;
+				default:
+					return StatisticsAccumulator.median(values, kernelSize);
+			}
+		}
+	}
+
+}
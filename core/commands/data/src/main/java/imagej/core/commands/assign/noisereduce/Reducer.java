@@ -43,10 +43,7 @@
 import net.imglib2.img.ImgPlus;
 import net.imglib2.ops.function.Function;
 import net.imglib2.ops.img.ImageAssignment;
-import net.imglib2.ops.img.SerialImageAssignment;
-import net.imglib2.ops.input.PointSetInputIterator;
 import net.imglib2.ops.input.PointSetInputIteratorFactory;
-import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.ops.pointset.PointSet;
 import net.imglib2.type.numeric.RealType;
 
@@ -80,33 +77,26 @@ public Reducer(ImageJ context, ImgPlus<U> input, Function<PointSet,V> func,
 		this.statusService = context.getService(StatusService.class);
 	}
 
-	// NOTE - because the neighborhood could be a spherical neighborhood that
-	// relies on a WithinRadiusOfPointCondition we cannot parallelize this
-	// algorithm. If we did we'd get one point per Thread with only one being
-	// updated correctly. One can see by trial that using a regular
-	// ImageAssignment here results in only a portion of the image getting noise
-	// reduced.
-	
+	// NOTE - the neighborhood is copied once per thread by the assignment. This
+	// is safe for radial neighborhoods since RadialNeigh's point sets bind their
+	// radius condition to their own copy of the space.
+
 	public Dataset reduceNoise(String neighDescrip) {
 		notifyUserAtStart(neighDescrip);
 		ImgPlus<U> newImg = input.copy();
-		long[] dims = new long[newImg.numDimensions()];
-		newImg.dimensions(dims);
-		PointSet space = new HyperVolumePointSet(dims);
-		PointSetInputIterator inputIterator =
-				new PointSetInputIterator(space, neighborhood);
 		long[] outputOrigin = new long[input.numDimensions()];
 		long[] outputSpan = outputOrigin.clone();
 		input.dimensions(outputSpan);
-		// NB - regular ImageAssignement won't work here for radial neighborhood due
-		// to the duplication of neighborhoods for parallelization and its
-		// interference with the WithinRadiusOfPointSetOriginCondition.
-		SerialImageAssignment<U,V,PointSet> assigner =
-				new SerialImageAssignment<U,V,PointSet>(
+		PointSetInputIteratorFactory inputFactory =
+				new PointSetInputIteratorFactory(neighborhood);
+		ImageAssignment<U,V,PointSet> assigner =
+				new ImageAssignment<U,V,PointSet>(
 					newImg,
+					outputOrigin,
+					outputSpan,
 					inputFunction,
-					inputIterator,
-					null);
+					null,
+					inputFactory);
 		assigner.assign();
 		notifyUserAtEnd(neighDescrip);
 		return new DefaultDataset(context, newImg);
@@ -35,6 +35,7 @@
 
 package imagej.core.commands.convolve;
 
+import imagej.core.commands.neigh.Neighborhood3x3Function;
 import imagej.core.commands.neigh.Neighborhood3x3Operation;
 import imagej.core.commands.neigh.Neighborhood3x3Watcher;
 import imagej.data.Dataset;
@@ -100,27 +101,31 @@ public void run() {
 	 * ConvolveWatcher tallies that information and returns appropriate values as
 	 * necessary.
 	 */
-	private class ConvolveWatcher implements Neighborhood3x3Watcher {
+	private class ConvolveWatcher implements Neighborhood3x3Watcher,
+		Neighborhood3x3Function
+	{
 
-		private double scale;
+		private final double scale;
 		private double sum;
 		private final boolean integerDataset;
 		private final double typeMinValue;
 		private final double typeMaxValue;
 
+		/** Precalculates the kernel scale for use later. */
 		public ConvolveWatcher(final Dataset ds) {
 			integerDataset = ds.isInteger();
 			typeMinValue = ds.getType().getMinValue();
 			typeMaxValue = ds.getType().getMaxValue();
+			double kernelSum = 0;
+			for (int i = 0; i < kernel.length; i++)
+				kernelSum += kernel[i];
+			scale = kernelSum == 0 ? 1 : kernelSum;
 		}
 
-		/** Precalculates the kernel scale for use later. */
+		/** Nothing to do: the kernel scale is calculated at construction. */
 		@Override
 		public void setup() {
-			scale = 0;
-			for (int i = 0; i < kernel.length; i++)
-				scale += kernel[i];
-			if (scale == 0) scale = 1;
+			// nothing to do
 		}
 
 		/** At each new neighborhood reset its value sum to 0. */
@@ -145,15 +150,32 @@ public void visitLocation(final int dx, final int dy, final double value) {
 		 */
 		@Override
 		public double calcOutputValue() {
+			return scaledValue(sum);
+		}
+
+		/** Convolves a whole neighborhood at once from rows of data. */
+		@Override
+		public double calcOutputValue(final double[] above, final double[] row,
+			final double[] below, final int x)
+		{
+			final double neighSum =
+				kernel[0] * above[x - 1] + kernel[1] * above[x] + kernel[2] *
+					above[x + 1] + kernel[3] * row[x - 1] + kernel[4] * row[x] +
+					kernel[5] * row[x + 1] + kernel[6] * below[x - 1] + kernel[7] *
+					below[x] + kernel[8] * below[x + 1];
+			return scaledValue(neighSum);
+		}
+
+		private double scaledValue(final double total) {
 			double value;
 
 			if (integerDataset) {
-				value = (sum + (scale / 2)) / scale;
+				value = (total + (scale / 2)) / scale;
 				if (value < typeMinValue) value = typeMinValue;
 				if (value > typeMaxValue) value = typeMaxValue;
 			}
 			else {
-				value = sum / scale;
+				value = total / scale;
 			}
 			return value;
 		}
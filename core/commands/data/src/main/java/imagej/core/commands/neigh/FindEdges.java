@@ -95,7 +95,9 @@ public ImageDisplay getDisplay() {
 
 	// -- private interface --
 
-	private class FindEdgesWatcher implements Neighborhood3x3Watcher {
+	private class FindEdgesWatcher implements Neighborhood3x3Watcher,
+		Neighborhood3x3Function
+	{
 
 		/**
 		 * n - contains a local copy of the 9 values of a 3x3 neighborhood
@@ -143,10 +145,27 @@ public void visitLocation(final int dx, final int dy, final double value) {
 		 */
 		@Override
 		public double calcOutputValue() {
+			return edgeValue(n[0], n[1], n[2], n[3], n[5], n[6], n[7], n[8]);
+		}
+
+		/**
+		 * Calculates the value of a pixel from rows of data surrounding it.
+		 */
+		@Override
+		public double calcOutputValue(final double[] above, final double[] row,
+			final double[] below, final int x)
+		{
+			return edgeValue(above[x - 1], above[x], above[x + 1], row[x - 1],
+				row[x + 1], below[x - 1], below[x], below[x + 1]);
+		}
 
-			final double sum1 = n[0] + 2 * n[1] + n[2] - n[6] - 2 * n[7] - n[8];
+		private double edgeValue(final double n0, final double n1,
+			final double n2, final double n3, final double n5, final double n6,
+			final double n7, final double n8)
+		{
+			final double sum1 = n0 + 2 * n1 + n2 - n6 - 2 * n7 - n8;
 
-			final double sum2 = n[0] + 2 * n[3] + n[6] - n[2] - 2 * n[5] - n[8];
+			final double sum2 = n0 + 2 * n3 + n6 - n2 - 2 * n5 - n8;
 
 			double value = Math.sqrt(sum1 * sum1 + sum2 * sum2);
 
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.neigh;
+
+/**
+ * This interface is implemented by {@link Neighborhood3x3Watcher}s whose output
+ * value depends only upon the nine values of a 3x3 neighborhood. Such watchers
+ * can be evaluated by {@link Neighborhood3x3Operation} directly upon rows of
+ * primitive data and from multiple threads at once, so implementations must
+ * not modify any state in {@link #calcOutputValue(double[], double[], double[],
+ * int)}.
+ * 
+ * @author agent
+ */
+public interface Neighborhood3x3Function {
+
+	/**
+	 * Calculates the output value of the neighborhood centered at index x of the
+	 * middle row. The rows contain the data values of three consecutive image
+	 * rows. Indices x-1 and x+1 are always valid within each row.
+	 * 
+	 * @param above The row above the center of the neighborhood (dy = -1)
+	 * @param row The row containing the center of the neighborhood (dy = 0)
+	 * @param below The row below the center of the neighborhood (dy = +1)
+	 * @param x The index of the neighborhood center within the rows
+	 */
+	double calcOutputValue(double[] above, double[] row, double[] below, int x);
+
+}
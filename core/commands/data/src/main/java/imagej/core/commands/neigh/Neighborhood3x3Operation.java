@@ -38,7 +38,15 @@
 import imagej.data.Dataset;
 import imagej.data.Extents;
 import imagej.data.Position;
+import imagej.data.PrimitivePlane;
+import imagej.thread.ThreadService;
 import imagej.util.RealRect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import net.imglib2.Cursor;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
@@ -50,6 +58,13 @@
  * Neighborhood3x3Operation - a helper class for 3x3 neighborhood operation
  * plugins such as SmoothDataValues, SharpenDataValues, and FindEdges. Does the
  * work of communicating with a Neighborhood3x3Watcher.
+ * <p>
+ * If the watcher is also a {@link Neighborhood3x3Function} and the planes of
+ * the input Dataset are backed by primitive arrays, the operation is run
+ * directly upon the plane arrays using a rolling buffer of three rows, with
+ * planes (or bands of rows) processed in parallel. Otherwise a copy of the
+ * input is made and the watcher is visited pixel by pixel.
+ * </p>
  * 
  * @author Barry DeZonia
  */
@@ -80,6 +95,8 @@ public Neighborhood3x3Operation(final Dataset input,
 
 	public void run() {
 		checkInput();
+		initSelection();
+		if (runPrimitiveAssignment()) return;
 		setupWorkingData();
 		runAssignment();
 	}
@@ -101,6 +118,12 @@ private void checkInput() {
 		// input.getImage().numDimensions() + " dimensions");
 	}
 
+	/** Makes an empty selection span the whole XY plane. */
+	private void initSelection() {
+		if (selection.width == 0) selection.width = (int) input.dimension(0);
+		if (selection.height == 0) selection.height = (int) input.dimension(1);
+	}
+
 	private void setupWorkingData() {
 		inputImage = input.getImgPlus();
 		inputImageCopy = cloneImage(inputImage);
@@ -129,10 +152,6 @@ private void applyOperationToPlane(final Position planePos) {
 		final long[] imageDims = new long[inputImage.numDimensions()];
 		inputImage.dimensions(imageDims);
 
-		if (selection.width == 0) selection.width = (int) imageDims[0];
-
-		if (selection.height == 0) selection.height = (int) imageDims[1];
-
 		// output is done by changin input image in place
 		final RandomAccess<? extends RealType<?>> outputAccessor =
 			inputImage.randomAccess();
@@ -181,6 +200,84 @@ private void applyOperationToPlane(final Position planePos) {
 		}
 	}
 
+	/**
+	 * Runs the operation directly upon the primitive plane arrays of the input.
+	 * Returns false (having done nothing) if that is not possible.
+	 */
+	private boolean runPrimitiveAssignment() {
+		if (!(watcher instanceof Neighborhood3x3Function)) return false;
+		final Neighborhood3x3Function func = (Neighborhood3x3Function) watcher;
+
+		final long w = input.dimension(0);
+		final long h = input.dimension(1);
+		final long minX = (long) selection.x;
+		final long minY = (long) selection.y;
+		final long maxX = minX + (long) selection.width;
+		final long maxY = minY + (long) selection.height;
+		if (minX < 0 || minY < 0 || maxX > w || maxY > h) return false;
+
+		final long planeCount = PrimitivePlane.planeCount(input);
+		if (planeCount > Integer.MAX_VALUE) return false;
+		final PrimitivePlane[] planes = new PrimitivePlane[(int) planeCount];
+		for (int p = 0; p < planes.length; p++) {
+			planes[p] = PrimitivePlane.get(input, p);
+			if (planes[p] == null) return false;
+		}
+
+		// split planes into bands of rows to keep all processors busy
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		final long rows = maxY - minY;
+		final long bandsPerPlane =
+			Math.max(1, Math.min(rows, (cpus + planes.length - 1) / planes.length));
+
+		// NB - create all bands before any runs, since each band snapshots the
+		// original rows bordering it
+		watcher.setup();
+		final List<PlaneBand> bands = new ArrayList<PlaneBand>();
+		for (final PrimitivePlane plane : planes) {
+			for (long b = 0; b < bandsPerPlane; b++) {
+				final int start = (int) (minY + b * rows / bandsPerPlane);
+				final int end = (int) (minY + (b + 1) * rows / bandsPerPlane);
+				if (start == end) continue;
+				bands.add(new PlaneBand(func, plane, (int) w, (int) h, (int) minX,
+					(int) (maxX - minX), start, end));
+			}
+		}
+
+		final ThreadService threadService =
+			input.getContext().getService(ThreadService.class);
+		final int workerCount = Math.min(cpus, bands.size());
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int k = 0; k < workerCount; k++) {
+			final int first = k;
+			futures.add(threadService.compute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int b = first; b < bands.size(); b += workerCount) {
+						bands.get(b).run();
+					}
+				}
+			}));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Neighborhood operation interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Neighborhood operation failed", e
+				.getCause());
+		}
+
+		input.update();
+		return true;
+	}
+
 	// TODO - eliminate when ImgLib allows ability to duplicate/clone an Img
 	// TODO - find a way to eliminate use of raw types here
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -211,4 +308,75 @@ private Img<? extends RealType<?>> cloneImage(final Img image) {
 
 		return copyOfImg;
 	}
+
+	// -- helper classes --
+
+	/**
+	 * Applies a {@link Neighborhood3x3Function} to a band of rows of one plane,
+	 * keeping only three rows of original values in memory at a time. Values
+	 * outside the plane are mirrored as with {@link Views#extendMirrorSingle}.
+	 */
+	private static class PlaneBand implements Runnable {
+
+		private final Neighborhood3x3Function func;
+		private final PrimitivePlane plane;
+		private final int w, h;
+		private final int minX, width;
+		private final int startY, endY;
+		private final double[] topRow;
+		private final double[] bottomRow;
+
+		public PlaneBand(final Neighborhood3x3Function func,
+			final PrimitivePlane plane, final int w, final int h, final int minX,
+			final int width, final int startY, final int endY)
+		{
+			this.func = func;
+			this.plane = plane;
+			this.w = w;
+			this.h = h;
+			this.minX = minX;
+			this.width = width;
+			this.startY = startY;
+			this.endY = endY;
+			// the rows bordering the band may be changed by neighboring bands
+			topRow = new double[w + 2];
+			bottomRow = new double[w + 2];
+			readRow(startY - 1, topRow);
+			readRow(endY, bottomRow);
+		}
+
+		@Override
+		public void run() {
+			double[] above = topRow;
+			double[] row = new double[w + 2];
+			double[] below = new double[w + 2];
+			final double[] output = new double[width];
+			readRow(startY, row);
+			for (int y = startY; y < endY; y++) {
+				if (y + 1 == endY) System.arraycopy(bottomRow, 0, below, 0, w + 2);
+				else readRow(y + 1, below);
+				for (int i = 0; i < width; i++) {
+					output[i] = func.calcOutputValue(above, row, below, minX + i + 1);
+				}
+				plane.write(y * w + minX, output, 0, width);
+				final double[] tmp = above;
+				above = row;
+				row = below;
+				below = tmp;
+			}
+		}
+
+		/** Reads a row into a buffer padded by one mirrored value at each end. */
+		private void readRow(final int y, final double[] buffer) {
+			final int mirrorY;
+			if (y < 0) mirrorY = Math.min(1, h - 1);
+			else if (y >= h) mirrorY = Math.max(0, h - 2);
+			else mirrorY = y;
+			plane.read(mirrorY * w, buffer, 1, w);
+			buffer[0] = buffer[Math.min(2, w)];
+			buffer[w + 1] = buffer[Math.max(1, w - 1)];
+		}
+
+	}
+
 }
@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.assign.noisereduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.thread.ThreadService;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.ops.function.Function;
+import net.imglib2.ops.function.real.RealImageFunction;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link RankFilter} computes the same results as a
+ * {@link Reducer} evaluating the corresponding rank function.
+ * 
+ * @author agent
+ */
+public class RankFilterTest {
+
+	private final ImageJ context = ImageJ.createContext(ThreadService.class);
+
+	@Test
+	public void testUnsignedByte() {
+		// histogram window
+		final Img<UnsignedByteType> img =
+			new PlanarImgFactory<UnsignedByteType>().create(new long[] { 23, 17, 3 },
+				new UnsignedByteType());
+		fill(img, 0, 255);
+		assertAllRanks(img);
+	}
+
+	@Test
+	public void testShort() {
+		// histogram window over a range of signed values
+		final Img<ShortType> img =
+			new ArrayImgFactory<ShortType>().create(new long[] { 19, 21 },
+				new ShortType());
+		fill(img, -1000, 1000);
+		assertAllRanks(img);
+	}
+
+	@Test
+	public void testFloat() {
+		// selection window
+		final Img<FloatType> img =
+			new ArrayImgFactory<FloatType>().create(new long[] { 17, 13, 2 },
+				new FloatType());
+		fill(img, -1, 1);
+		assertAllRanks(img);
+	}
+
+	// -- helper methods --
+
+	private <T extends RealType<T>> void assertAllRanks(final Img<T> img) {
+		final int numDims = img.numDimensions();
+		final long[] offsets = new long[numDims];
+		offsets[0] = 2;
+		offsets[1] = 1;
+		final Neighborhood[] neighborhoods =
+			{ new RectangularNeigh(offsets, offsets), new RadialNeigh(numDims, 1),
+				new RadialNeigh(numDims, 2) };
+		for (final Neighborhood neighborhood : neighborhoods) {
+			assertSameResult(img, new NoiseReductionMin<T>(), neighborhood);
+			assertSameResult(img, new NoiseReductionMedian<T>(), neighborhood);
+			assertSameResult(img, new NoiseReductionMax<T>(), neighborhood);
+		}
+	}
+
+	private <T extends RealType<T>> void assertSameResult(final Img<T> img,
+		final AbstractNoiseReducerPlugin<T> plugin, final Neighborhood neighborhood)
+	{
+		final ImgPlus<T> input = new ImgPlus<T>(img);
+		final PointSet points = neighborhood.getPoints();
+		final String label =
+			plugin.getRank() + ", " + neighborhood.getDescription() + ", " +
+				img.firstElement().getClass().getSimpleName();
+
+		final Dataset expected =
+			new Reducer<T, DoubleType>(context, input, plugin
+				.getFunction(imageFunction(input)), points).reduceNoise(label);
+		final Dataset actual =
+			new RankFilter<T>(context, input, points, plugin.getRank())
+				.filter(label);
+		assertNotNull(label, actual);
+
+		final Cursor<? extends RealType<?>> e =
+			expected.getImgPlus().cursor();
+		final Cursor<? extends RealType<?>> a =
+			actual.getImgPlus().cursor();
+		while (e.hasNext()) {
+			e.fwd();
+			a.fwd();
+			assertEquals(label, e.get().getRealDouble(), a.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private <T extends RealType<T>> Function<long[], DoubleType> imageFunction(
+		final ImgPlus<T> input)
+	{
+		final OutOfBoundsMirrorFactory<T, RandomAccessibleInterval<T>> oobFactory =
+			new OutOfBoundsMirrorFactory<T, RandomAccessibleInterval<T>>(
+				Boundary.DOUBLE);
+		return new RealImageFunction<T, DoubleType>(input, oobFactory,
+			new DoubleType());
+	}
+
+	private <T extends RealType<T>> void fill(final Img<T> img,
+		final double min, final double max)
+	{
+		final Random random = new Random(42);
+		final boolean integer = img.firstElement() instanceof IntegerType;
+		for (final T t : img) {
+			final double value = min + (max - min) * random.nextDouble();
+			t.setReal(integer ? Math.round(value) : value);
+		}
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.neigh;
+
+import static org.junit.Assert.assertEquals;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DefaultDataset;
+import imagej.thread.ThreadService;
+import imagej.util.RealRect;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link Neighborhood3x3Operation} computes the same results upon
+ * primitive plane arrays as when visiting each pixel, including at the edges
+ * of the image and of the selection.
+ * 
+ * @author agent
+ */
+public class Neighborhood3x3OperationTest {
+
+	private final ImageJ context = ImageJ.createContext(ThreadService.class);
+
+	@Test
+	public void testUnsignedByte() {
+		final Img<UnsignedByteType> img =
+			new PlanarImgFactory<UnsignedByteType>().create(new long[] { 11, 7, 2 },
+				new UnsignedByteType());
+		fill(img, 255);
+		assertSameResults(img);
+	}
+
+	@Test
+	public void testFloat() {
+		final Img<FloatType> img =
+			new ArrayImgFactory<FloatType>().create(new long[] { 9, 13 },
+				new FloatType());
+		fill(img, 1000);
+		assertSameResults(img);
+	}
+
+	@Test
+	public void testTwoRows() {
+		final Img<FloatType> img =
+			new ArrayImgFactory<FloatType>().create(new long[] { 8, 2 },
+				new FloatType());
+		fill(img, 1);
+		assertSameResults(img);
+	}
+
+	// -- helper methods --
+
+	private <T extends RealType<T>> void assertSameResults(final Img<T> img) {
+		final int w = (int) img.dimension(0);
+		final int h = (int) img.dimension(1);
+		// whole image, then bordering each edge
+		final RealRect[] selections =
+			{ new RealRect(), new RealRect(0, 0, 2, h), new RealRect(w - 2, 0, 2, h),
+				new RealRect(0, 0, w, 1), new RealRect(0, h - 1, w, 1),
+				new RealRect(1, 0, w - 2, h) };
+		for (final RealRect selection : selections) {
+			final Dataset expected = dataset(img);
+			final Dataset actual = dataset(img);
+			final WeightedSum sum = new WeightedSum();
+			new Neighborhood3x3Operation(expected, copy(selection),
+				new VisitingWatcher(sum)).run();
+			new Neighborhood3x3Operation(actual, copy(selection), sum).run();
+
+			final Cursor<? extends RealType<?>> e =
+				expected.getImgPlus().cursor();
+			final Cursor<? extends RealType<?>> a = actual.getImgPlus().cursor();
+			while (e.hasNext()) {
+				assertEquals(selection.toString(), e.next().getRealDouble(), a.next()
+					.getRealDouble(), 0);
+			}
+		}
+	}
+
+	private <T extends RealType<T>> Dataset dataset(final Img<T> img) {
+		return new DefaultDataset(context, new ImgPlus<T>(img.copy()));
+	}
+
+	private RealRect copy(final RealRect rect) {
+		return new RealRect(rect.x, rect.y, rect.width, rect.height);
+	}
+
+	private <T extends RealType<T>> void fill(final Img<T> img,
+		final double max)
+	{
+		final Random random = new Random(7);
+		for (final T t : img) {
+			t.setReal(max * random.nextDouble());
+		}
+	}
+
+	// -- helper classes --
+
+	/**
+	 * A weighted average whose weights differ at every neighbor, so that any
+	 * misplaced neighbor changes the result.
+	 */
+	private static class WeightedSum implements Neighborhood3x3Watcher,
+		Neighborhood3x3Function
+	{
+
+		private double sum;
+
+		@Override
+		public void setup() {
+			// nothing to do
+		}
+
+		@Override
+		public void initializeNeighborhood(final long[] position) {
+			sum = 0;
+		}
+
+		@Override
+		public void visitLocation(final int dx, final int dy, final double value)
+		{
+			sum += weight(dx, dy) * value;
+		}
+
+		@Override
+		public double calcOutputValue() {
+			return sum / 45;
+		}
+
+		@Override
+		public double calcOutputValue(final double[] above, final double[] row,
+			final double[] below, final int x)
+		{
+			// NB - sum in the same order as the visits, for identical rounding
+			double s = 0;
+			for (int dx = -1; dx <= 1; dx++) {
+				s += weight(dx, -1) * above[x + dx];
+			}
+			for (int dx = -1; dx <= 1; dx++) {
+				s += weight(dx, 0) * row[x + dx];
+			}
+			for (int dx = -1; dx <= 1; dx++) {
+				s += weight(dx, 1) * below[x + dx];
+			}
+			return s / 45;
+		}
+
+		private int weight(final int dx, final int dy) {
+			return (dy + 1) * 3 + dx + 2;
+		}
+
+	}
+
+	/** Hides the {@link Neighborhood3x3Function} of a watcher. */
+	private static class VisitingWatcher implements Neighborhood3x3Watcher {
+
+		private final Neighborhood3x3Watcher watcher;
+
+		public VisitingWatcher(final Neighborhood3x3Watcher watcher) {
+			this.watcher = watcher;
+		}
+
+		@Override
+		public void setup() {
+			watcher.setup();
+		}
+
+		@Override
+		public void initializeNeighborhood(final long[] position) {
+			watcher.initializeNeighborhood(position);
+		}
+
+		@Override
+		public void visitLocation(final int dx, final int dy, final double value)
+		{
+			watcher.visitLocation(dx, dy, value);
+		}
+
+		@Override
+		public double calcOutputValue() {
+			return watcher.calcOutputValue();
+		}
+
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.debug;
+
+import imagej.command.Command;
+import imagej.command.CommandInfo;
+import imagej.command.CommandModuleItem;
+import imagej.command.CommandService;
+import imagej.log.LogService;
+import imagej.module.ItemIO;
+import imagej.module.Module;
+import imagej.module.ModuleException;
+import imagej.module.ModuleService;
+import imagej.plugin.Parameter;
+import imagej.plugin.Plugin;
+import imagej.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the per-execution overhead of running a small command many times,
+ * as scripts do when (e.g.) invoking a measurement for every ROI. It times the
+ * creation of modules, the population of their inputs, and complete executions
+ * through the {@link CommandService}, including pre- and postprocessing.
+ * 
+ * @author agent
+ */
+@Plugin(menuPath = "Plugins>Debug>Module Benchmark", headless = true)
+public class ModuleBenchmark implements Command {
+
+	// -- Constants --
+
+	private static final String NL = System.getProperty("line.separator");
+
+	// -- Parameters --
+
+	@Parameter
+	private CommandService commandService;
+
+	@Parameter
+	private ModuleService moduleService;
+
+	@Parameter
+	private LogService log;
+
+	@Parameter(label = "Iterations", min = "1")
+	private int iterations = 10000;
+
+	@Parameter(label = "Module Benchmark", type = ItemIO.OUTPUT)
+	private String report;
+
+	// -- ModuleBenchmark methods --
+
+	public String getReport() {
+		return report;
+	}
+
+	// -- Runnable methods --
+
+	@Override
+	public void run() {
+		final CommandInfo info = new CommandInfo(Measure.class);
+		final String[] names = { "x", "y", "name", "enabled" };
+		final Object[] values = { 3, 4.5, "area", true };
+		final List<CommandModuleItem<?>> inputs =
+			new ArrayList<CommandModuleItem<?>>();
+		for (final String name : names) {
+			inputs.add(info.getInput(name));
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		try {
+			// warm up
+			createModules(info, iterations);
+			populateInputs(info, inputs, values, iterations, false);
+			populateInputs(info, inputs, values, iterations, true);
+
+			long start = System.nanoTime();
+			createModules(info, iterations);
+			append(sb, "Module creation", System.nanoTime() - start);
+
+			start = System.nanoTime();
+			populateInputs(info, inputs, values, iterations, false);
+			append(sb, "Creation + inputs (module)", System.nanoTime() - start);
+
+			start = System.nanoTime();
+			populateInputs(info, inputs, values, iterations, true);
+			append(sb, "Creation + inputs (reflection)", System.nanoTime() - start);
+		}
+		catch (final ModuleException e) {
+			log.error(e);
+			report = "Could not create module: " + e.getMessage();
+			return;
+		}
+
+		final int runs = Math.max(1, iterations / 10);
+		final long start = System.nanoTime();
+		for (int i = 0; i < runs; i++) {
+			moduleService.waitFor(commandService.run(Measure.class, "x", i, "y",
+				4.5, "name", "area", "enabled", true));
+		}
+		append(sb, "Complete execution", (System.nanoTime() - start) *
+			iterations / runs);
+
+		report = sb.toString();
+	}
+
+	// -- Helper methods --
+
+	private void createModules(final CommandInfo info, final int count)
+		throws ModuleException
+	{
+		for (int i = 0; i < count; i++) {
+			info.createModule();
+		}
+	}
+
+	private void populateInputs(final CommandInfo info,
+		final List<CommandModuleItem<?>> inputs, final Object[] values,
+		final int count, final boolean reflect) throws ModuleException
+	{
+		for (int i = 0; i < count; i++) {
+			final Module module = info.createModule();
+			for (int j = 0; j < values.length; j++) {
+				final CommandModuleItem<?> input = inputs.get(j);
+				if (reflect) {
+					// NB: The generic field access used before accessors were cached.
+					ClassUtils.setValue(input.getField(), module.getDelegateObject(),
+						values[j]);
+				}
+				else module.setInput(input.getName(), values[j]);
+			}
+		}
+	}
+
+	private void append(final StringBuilder sb, final String label,
+		final long nanos)
+	{
+		final double perModule = (double) nanos / iterations / 1000;
+		sb.append(String.format("%-32s %9.3f us/module", label, perModule) + NL);
+	}
+
+	// -- Helper classes --
+
+	/** A small command with a few inputs, standing in for a measurement. */
+	public static class Measure implements Command {
+
+		@Parameter
+		private int x;
+
+		@Parameter
+		private double y;
+
+		@Parameter
+		private String name;
+
+		@Parameter
+		private boolean enabled;
+
+		@Parameter(type = ItemIO.OUTPUT)
+		private double result;
+
+		@Override
+		public void run() {
+			result = enabled ? x * y : 0;
+		}
+
+	}
+
+}
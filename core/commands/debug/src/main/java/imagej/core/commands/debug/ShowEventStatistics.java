@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.debug;
+
+import imagej.command.Command;
+import imagej.event.EventService;
+import imagej.event.EventStatistics;
+import imagej.module.ItemIO;
+import imagej.plugin.Parameter;
+import imagej.plugin.Plugin;
+
+/**
+ * For EventBus diagnostics: reports how often each type of event is published,
+ * how long events take to reach their subscribers, and how long each event
+ * handler takes.
+ * 
+ * @author agent
+ */
+@Plugin(menuPath = "Plugins>Debug>Event Statistics", headless = true)
+public class ShowEventStatistics implements Command {
+
+	@Parameter
+	private EventService eventService;
+
+	@Parameter(label = "Collect event timings",
+		description = "Whether to keep collecting statistics after this report")
+	private boolean enabled = true;
+
+	@Parameter(label = "Reset statistics",
+		description = "Whether to discard the statistics after this report")
+	private boolean reset;
+
+	@Parameter(label = "Event Statistics", type = ItemIO.OUTPUT)
+	private String report;
+
+	// -- ShowEventStatistics methods --
+
+	public String getReport() {
+		return report;
+	}
+
+	// -- Runnable methods --
+
+	@Override
+	public void run() {
+		final EventStatistics statistics = eventService.getStatistics();
+		report = statistics.report();
+		if (reset) statistics.reset();
+		statistics.setEnabled(enabled);
+	}
+
+}
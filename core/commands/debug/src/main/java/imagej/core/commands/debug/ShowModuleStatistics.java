@@ -0,0 +1,104 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.debug;
+
+import imagej.command.Command;
+import imagej.log.LogService;
+import imagej.module.ItemIO;
+import imagej.module.ModuleService;
+import imagej.module.ModuleStatistics;
+import imagej.plugin.Parameter;
+import imagej.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * For module diagnostics: reports how long each command takes to run, and how
+ * long each pre- and postprocessor in the chain takes, optionally exporting
+ * the statistics to a tab-separated file.
+ * 
+ * @author agent
+ */
+@Plugin(menuPath = "Plugins>Debug>Module Statistics", headless = true)
+public class ShowModuleStatistics implements Command {
+
+	@Parameter
+	private ModuleService moduleService;
+
+	@Parameter
+	private LogService log;
+
+	@Parameter(label = "Collect module timings",
+		description = "Whether to keep collecting statistics after this report")
+	private boolean enabled = true;
+
+	@Parameter(label = "Reset statistics",
+		description = "Whether to discard the statistics after this report")
+	private boolean reset;
+
+	@Parameter(label = "Export to file", required = false,
+		description = "Tab-separated file to which the statistics are written")
+	private File exportFile;
+
+	@Parameter(label = "Module Statistics", type = ItemIO.OUTPUT)
+	private String report;
+
+	// -- ShowModuleStatistics methods --
+
+	public String getReport() {
+		return report;
+	}
+
+	// -- Runnable methods --
+
+	@Override
+	public void run() {
+		final ModuleStatistics statistics = moduleService.getStatistics();
+		report = statistics.report();
+		if (exportFile != null) {
+			try {
+				statistics.export(exportFile);
+			}
+			catch (final IOException exc) {
+				log.error("Cannot export module statistics", exc);
+			}
+		}
+		if (reset) statistics.reset();
+		statistics.setEnabled(enabled);
+	}
+
+}
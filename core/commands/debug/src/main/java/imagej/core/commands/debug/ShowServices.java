@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.debug;
+
+import imagej.ImageJ;
+import imagej.command.Command;
+import imagej.module.ItemIO;
+import imagej.plugin.Parameter;
+import imagej.plugin.Plugin;
+import imagej.service.Service;
+import imagej.service.ServiceHelper;
+
+import java.util.Map;
+
+/**
+ * Reports which services have been created in the application context, and
+ * how long each took to create, followed by the available services which have
+ * not been created (e.g., because the context is lazy and nothing has asked
+ * for them yet).
+ * 
+ * @author agent
+ */
+@Plugin(menuPath = "Plugins>Debug>Services", headless = true)
+public class ShowServices implements Command {
+
+	// -- Constants --
+
+	private static final String NL = System.getProperty("line.separator");
+
+	// -- Parameters --
+
+	@Parameter
+	private ImageJ context;
+
+	@Parameter(label = "Services", type = ItemIO.OUTPUT)
+	private String report;
+
+	// -- ShowServices methods --
+
+	public String getReport() {
+		return report;
+	}
+
+	// -- Runnable methods --
+
+	@Override
+	public void run() {
+		final ServiceHelper serviceHelper = context.getServiceHelper();
+		if (serviceHelper == null) {
+			report = "No service information available.";
+			return;
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		final Map<Class<? extends Service>, Long> loadTimes =
+			serviceHelper.getLoadTimes();
+		sb.append("-- Created services --" + NL);
+		for (final Class<? extends Service> c : loadTimes.keySet()) {
+			final long time = loadTimes.get(c);
+			sb.append(String.format("%9.3f ms  %s", time / 1e6, c.getName()) + NL);
+		}
+		sb.append(loadTimes.size() + " services created "
+			+ "(times include creating any services depended upon)" + NL);
+
+		sb.append(NL);
+		sb.append("-- Available services not created --" + NL);
+		int available = 0;
+		for (final Class<? extends Service> c : serviceHelper.getServiceClasses())
+		{
+			if (context.getServiceIndex().getService(c) != null) continue;
+			sb.append(c.getName() + NL);
+			available++;
+		}
+		sb.append(available + " services not created" + NL);
+
+		report = sb.toString();
+	}
+
+}
@@ -38,14 +38,13 @@
 import imagej.command.ContextCommand;
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.measure.HistogramService;
 import imagej.menu.MenuConstants;
 import imagej.module.ItemIO;
 import imagej.plugin.Menu;
 import imagej.plugin.Parameter;
 import imagej.plugin.Plugin;
-import net.imglib2.Cursor;
 import net.imglib2.meta.AxisType;
-import net.imglib2.type.numeric.RealType;
 
 /**
  * Plugin that auto-thresholds each channel.
@@ -78,20 +77,23 @@ public class AutoContrast extends ContextCommand {
 	@Parameter(type = ItemIO.BOTH)
 	private DatasetView view;
 
+	@Parameter
+	private HistogramService histogramService;
+
 	@Override
 	public void run() {
 		final Dataset dataset = view.getData();
 
-		final int[] histogram = computeHistogram(dataset);
-		final int pixelCount = countPixels(histogram);
+		final long[] histogram = computeHistogram(dataset);
+		final long pixelCount = countPixels(histogram);
 
 		if (autoThreshold < 10) autoThreshold = AUTO_THRESHOLD;
 		else autoThreshold /= 2;
-		final int threshold = pixelCount / autoThreshold;
-		final int limit = pixelCount / 10;
+		final long threshold = pixelCount / autoThreshold;
+		final long limit = pixelCount / 10;
 		int i = -1;
 		boolean found = false;
-		int count;
+		long count;
 		do {
 			i++;
 			count = histogram[i];
@@ -155,38 +157,18 @@ public DatasetView getDatasetView() {
 
 	// -- Helper methods --
 
-	private int[] computeHistogram(final Dataset dataset) {
+	private long[] computeHistogram(final Dataset dataset) {
 		//
 		// afraser TODO: Not sure how to handle RGB images here
 		//
 		// CTR FIXME - Autoscaling needs to be reworked.
 		//
-		final double histMin = dataset.getType().getMinValue();
-		final double histMax = dataset.getType().getMaxValue();
-
-		final Cursor<? extends RealType<?>> c = dataset.getImgPlus().cursor();
-		final int[] histogram = new int[BINS];
-		while (c.hasNext()) {
-			final double value = c.next().getRealDouble();
-			final int bin = computeBin(value, histMin, histMax);
-			histogram[bin]++;
-		}
-		return histogram;
-	}
-
-	private int computeBin(final double value, final double histMin,
-		final double histMax)
-	{
-		double v = value;
-		if (v < histMin) v = histMin;
-		if (v > histMax) v = histMax;
-		final int bin = (int) ((BINS - 1) * (v - histMin) / (histMax - histMin));
-		return bin;
+		return histogramService.getHistogram(dataset, BINS).getCounts();
 	}
 
-	private int countPixels(final int[] histogram) {
-		int sum = 0;
-		for (final int v : histogram) {
+	private long countPixels(final long[] histogram) {
+		long sum = 0;
+		for (final long v : histogram) {
 			sum += v;
 		}
 		return sum;
@@ -39,6 +39,8 @@
 import imagej.command.ContextCommand;
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.measure.HistogramResult;
+import imagej.data.measure.HistogramService;
 import imagej.log.LogService;
 import imagej.menu.MenuConstants;
 import imagej.module.ItemIO;
@@ -46,9 +48,6 @@
 import imagej.plugin.Parameter;
 import imagej.plugin.Plugin;
 import imagej.widget.NumberWidget;
-import net.imglib2.algorithm.stats.ComputeMinMax;
-import net.imglib2.img.Img;
-import net.imglib2.type.numeric.RealType;
 
 /**
  * Plugin that sets the minimum and maximum for scaling of display values. Sets
@@ -82,6 +81,9 @@ public class BrightnessContrast extends ContextCommand implements Previewable {
 	@Parameter
 	private LogService log;
 
+	@Parameter
+	private HistogramService histogramService;
+
 	@Parameter(type = ItemIO.BOTH)
 	private DatasetView view;
 
@@ -170,11 +172,9 @@ public void setContrast(final int contrast) {
 
 	// -- Initializers --
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected void initValues() {
 		final Dataset dataset = view.getData();
-		final Img img = dataset.getImgPlus();
-		computeDataMinMax(img);
+		computeDataMinMax(dataset);
 		computeInitialMinMax();
 		if (Double.isNaN(min)) min = initialMin;
 		if (Double.isNaN(max)) max = initialMax;
@@ -195,11 +195,10 @@ protected void brightnessContrastChanged() {
 
 	// -- Helper methods --
 
-	private <T extends RealType<T>> void computeDataMinMax(final Img<T> img) {
-		final ComputeMinMax<T> computeMinMax = new ComputeMinMax<T>(img);
-		computeMinMax.process();
-		dataMin = computeMinMax.getMin().getRealDouble();
-		dataMax = computeMinMax.getMax().getRealDouble();
+	private void computeDataMinMax(final Dataset dataset) {
+		final HistogramResult histogram = histogramService.getHistogram(dataset);
+		dataMin = histogram.getMin();
+		dataMax = histogram.getMax();
 		log.debug("computeDataMinMax: dataMin=" + dataMin + ", dataMax=" + dataMax);
 	}
 
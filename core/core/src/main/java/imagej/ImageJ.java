@@ -66,19 +66,35 @@ public class ImageJ {
 
 	/** Creates a new ImageJ application context with all available services. */
 	public static ImageJ createContext() {
-		try {
-			if (!CheckSezpoz.check(false)) {
-				// SezPoz uses ClassLoader.getResources() which will now pick up the
-				// apt-generated annotations.
-				System.err.println("SezPoz generated annotations."); // no log service
-			}
-		}
-		catch (final IOException e) {
-			e.printStackTrace();
-		}
+		checkSezpoz();
 		return createContext((List<Class<? extends Service>>) null);
 	}
 
+	/**
+	 * Creates a new ImageJ application context whose services are instantiated
+	 * on demand. No services are created up front; instead, each service (along
+	 * with the services it depends upon) is created the first time it is
+	 * requested with {@link #getService(Class)}. This keeps startup time and
+	 * memory use down for programs needing only a few services, such as headless
+	 * batch workers.
+	 * <p>
+	 * Note that a service which has not been created yet does not respond to
+	 * events, and that no
+	 * {@link imagej.service.event.ServicesLoadedEvent} is published. The
+	 * services actually created can be listed with
+	 * {@link ServiceHelper#getLoadTimes()}.
+	 * </p>
+	 */
+	public static ImageJ createLazyContext() {
+		checkSezpoz();
+		final ImageJ context = new ImageJ();
+		staticContext = context; // TEMP
+		context.serviceHelper =
+			new ServiceHelper(context, new ArrayList<Class<? extends Service>>());
+		context.lazy = true;
+		return context;
+	}
+
 	/** Creates a new ImageJ application context with no services. */
 	public static ImageJ createEmptyContext() {
 		return createContext(new ArrayList<Class<? extends Service>>());
@@ -132,6 +148,7 @@ public static ImageJ createContext(
 		staticContext = context; // TEMP
 		final ServiceHelper serviceHelper =
 			new ServiceHelper(context, serviceClasses);
+		context.serviceHelper = serviceHelper;
 		serviceHelper.loadServices();
 		return context;
 	}
@@ -181,6 +198,15 @@ public static <S extends Service> S get(final Class<S> serviceClass) {
 	/** Index of the application context's services. */
 	private final ServiceIndex serviceIndex;
 
+	/** Helper which created the application context's services, if any. */
+	private ServiceHelper serviceHelper;
+
+	/** Whether services are created on demand by the service helper. */
+	private boolean lazy;
+
+	/** Time taken by each phase of the application context's startup. */
+	private final StartupProfile startupProfile;
+
 	/** Master index of all plugins known to the application context. */
 	private final PluginIndex pluginIndex;
 
@@ -193,9 +219,10 @@ public static <S extends Service> S get(final Class<S> serviceClass) {
 	/** Creates a new ImageJ context. */
 	public ImageJ() {
 		serviceIndex = new ServiceIndex();
+		startupProfile = new StartupProfile();
 
 		pluginIndex = new PluginIndex();
-		pluginIndex.discover();
+		pluginIndex.discover(startupProfile);
 
 		pom = POM.getPOM(ImageJ.class, "net.imagej", "ij-core");
 		manifest = Manifest.getManifest(ImageJ.class);
@@ -272,9 +299,31 @@ public PluginIndex getPluginIndex() {
 		return pluginIndex;
 	}
 
-	/** Gets the service of the given class. */
+	/**
+	 * Gets the time taken by each phase of the application context's startup,
+	 * such as plugin discovery and service initialization.
+	 */
+	public StartupProfile getStartupProfile() {
+		return startupProfile;
+	}
+
+	/**
+	 * Gets the helper which created the application context's services, or null
+	 * if the context was not created by one of the {@code createContext}
+	 * methods.
+	 */
+	public ServiceHelper getServiceHelper() {
+		return serviceHelper;
+	}
+
+	/**
+	 * Gets the service of the given class. If this context was created with
+	 * {@link #createLazyContext()}, the service is created if needed.
+	 */
 	public <S extends Service> S getService(final Class<S> c) {
-		return serviceIndex.getService(c);
+		final S service = serviceIndex.getService(c);
+		if (service != null || !lazy) return service;
+		return serviceHelper.loadAvailableService(c);
 	}
 
 	/** Gets the service of the given class name (useful for scripts). */
@@ -303,4 +352,19 @@ public boolean inject(final Object o) {
 		return true;
 	}
 
+	// -- Helper methods --
+
+	private static void checkSezpoz() {
+		try {
+			if (!CheckSezpoz.check(false)) {
+				// SezPoz uses ClassLoader.getResources() which will now pick up the
+				// apt-generated annotations.
+				System.err.println("SezPoz generated annotations."); // no log service
+			}
+		}
+		catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 }
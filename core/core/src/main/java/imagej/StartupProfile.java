@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each phase of creating an application context took.
+ * <p>
+ * Note that phases may nest: for example, the menus are constructed and the
+ * legacy hooks injected while services are being initialized, so the
+ * {@link #SERVICE_INITIALIZATION} time includes both.
+ * </p>
+ * 
+ * @author agent
+ * @see ImageJ#getStartupProfile()
+ */
+public class StartupProfile {
+
+	/** Scanning the classpath for plugins (or reading the plugin cache). */
+	public static final String PLUGIN_DISCOVERY = "Plugin discovery";
+
+	/** Adding the discovered plugins to the plugin index. */
+	public static final String PLUGIN_INDEXING = "Plugin indexing";
+
+	/** Creating and initializing the services. */
+	public static final String SERVICE_INITIALIZATION = "Service initialization";
+
+	/** Building the menu structure from the available modules. */
+	public static final String MENU_CONSTRUCTION = "Menu construction";
+
+	/** Injecting the hooks into the legacy ImageJ classes. */
+	public static final String LEGACY_INJECTION = "Legacy injection";
+
+	private static final String NL = System.getProperty("line.separator");
+
+	/** Time spent in each phase, in order of first occurrence. */
+	private final Map<String, Long> times = new LinkedHashMap<String, Long>();
+
+	// -- StartupProfile methods --
+
+	/**
+	 * Records the given amount of time as spent in the given phase. If time was
+	 * already recorded for the phase, the new time is added to it.
+	 * 
+	 * @param phase The name of the phase; e.g., {@link #PLUGIN_DISCOVERY}.
+	 * @param nanos The time spent, in nanoseconds.
+	 */
+	public synchronized void record(final String phase, final long nanos) {
+		final Long time = times.get(phase);
+		times.put(phase, time == null ? nanos : time + nanos);
+	}
+
+	/**
+	 * Gets the time spent in the given phase, in nanoseconds, or 0 if no time
+	 * was recorded for it.
+	 */
+	public synchronized long getTime(final String phase) {
+		final Long time = times.get(phase);
+		return time == null ? 0 : time;
+	}
+
+	/** Gets the time spent in each phase, in nanoseconds. */
+	public synchronized Map<String, Long> getTimes() {
+		return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(times));
+	}
+
+	/** Gets a human-readable table of the time spent in each phase. */
+	public String report() {
+		final StringBuilder sb = new StringBuilder();
+		for (final Map.Entry<String, Long> entry : getTimes().entrySet()) {
+			final double ms = entry.getValue() / 1e6;
+			sb.append(String.format("%9.3f ms  %s", ms, entry.getKey()) + NL);
+		}
+		return sb.toString();
+	}
+
+}
@@ -41,7 +41,6 @@
 import imagej.module.AbstractModule;
 import imagej.module.ModuleException;
 import imagej.plugin.PluginInfo;
-import imagej.util.ClassUtils;
 import imagej.util.Log;
 
 import java.util.Map;
@@ -124,26 +123,22 @@ public Object getDelegateObject() {
 
 	@Override
 	public Object getInput(final String name) {
-		final CommandModuleItem<?> item = info.getInput(name);
-		return ClassUtils.getValue(item.getField(), command);
+		return info.getInput(name).getFieldValue(command);
 	}
 
 	@Override
 	public Object getOutput(final String name) {
-		final CommandModuleItem<?> item = info.getOutput(name);
-		return ClassUtils.getValue(item.getField(), command);
+		return info.getOutput(name).getFieldValue(command);
 	}
 
 	@Override
 	public void setInput(final String name, final Object value) {
-		final CommandModuleItem<?> item = info.getInput(name);
-		ClassUtils.setValue(item.getField(), command, value);
+		info.getInput(name).setFieldValue(command, value);
 	}
 
 	@Override
 	public void setOutput(final String name, final Object value) {
-		final CommandModuleItem<?> item = info.getOutput(name);
-		ClassUtils.setValue(item.getField(), command, value);
+		info.getOutput(name).setFieldValue(command, value);
 	}
 
 	// -- Object methods --
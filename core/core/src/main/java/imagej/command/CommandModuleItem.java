@@ -57,9 +57,18 @@
 
 	private final Field field;
 
+	/** The field's @{@link Parameter} annotation, looked up once. */
+	private final Parameter parameter;
+
+	/** The field's type, with primitive types replaced by their wrappers. */
+	private final Class<?> saneType;
+
 	public CommandModuleItem(final ModuleInfo info, final Field field) {
 		super(info);
 		this.field = field;
+		field.setAccessible(true); // expose private fields
+		parameter = field.getAnnotation(Parameter.class);
+		saneType = ClassUtils.getNonprimitiveType(field.getType());
 	}
 
 	// -- CommandModuleItem methods --
@@ -69,7 +78,40 @@ public Field getField() {
 	}
 
 	public Parameter getParameter() {
-		return field.getAnnotation(Parameter.class);
+		return parameter;
+	}
+
+	/**
+	 * Gets the value of the item's field from the given command instance, or
+	 * null if the value cannot be obtained.
+	 */
+	public Object getFieldValue(final Object command) {
+		try {
+			return field.get(command);
+		}
+		catch (final IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Sets the value of the item's field on the given command instance,
+	 * converting the value to the field's type if needed.
+	 * 
+	 * @throws IllegalArgumentException if the value cannot be set.
+	 */
+	public void setFieldValue(final Object command, final Object value) {
+		// NB: Avoid conversion when the value already has a compatible type.
+		final Object fieldValue;
+		if (value != null && saneType.isInstance(value)) fieldValue = value;
+		else fieldValue = ClassUtils.convert(value, field.getType());
+		try {
+			field.set(command, fieldValue);
+		}
+		catch (final IllegalAccessException e) {
+			throw new IllegalArgumentException("No access to field: " +
+				field.getName(), e);
+		}
 	}
 
 	// -- ModuleItem methods --
@@ -37,6 +37,7 @@
 
 import imagej.event.EventService;
 import imagej.module.Module;
+import imagej.module.ModuleBatch;
 import imagej.module.ModuleInfo;
 import imagej.module.ModuleService;
 import imagej.plugin.ImageJPlugin;
@@ -232,6 +233,28 @@ <C extends Command> Future<CommandModule> run(Class<C> commandClass,
 	 */
 	Future<Module> run(ModuleInfo info, Map<String, Object> inputMap);
 
+	/**
+	 * Executes the given module once for each of the given input maps, with
+	 * pre- and postprocessing steps from all available
+	 * {@link PreprocessorPlugin}s and {@link PostprocessorPlugin}s in the plugin
+	 * index, except for the {@link imagej.display.DisplayPostprocessor}: the
+	 * outputs of a batch are not displayed, but read from the modules it returns,
+	 * so that they need not all be held in memory at once. Each worker thread
+	 * creates the pre- and postprocessors once, and reuses them for all of its
+	 * executions.
+	 * 
+	 * @param info The module to instantiate and run.
+	 * @param inputMaps Tables of input parameter values, one per execution.
+	 * @param publishEvents Whether each execution publishes the usual module
+	 *          events and status updates.
+	 * @return The running batch, an {@link java.util.Iterator} over the modules
+	 *         in order of completion. It must be iterated to the end, or
+	 *         canceled, or finished.
+	 * @see ModuleService#runBatch
+	 */
+	ModuleBatch runBatch(ModuleInfo info,
+		Iterable<? extends Map<String, Object>> inputMaps, boolean publishEvents);
+
 	/**
 	 * Executes the given module, with pre- and postprocessing steps from all
 	 * available {@link PreprocessorPlugin}s and {@link PostprocessorPlugin}s in
@@ -35,11 +35,15 @@
 
 package imagej.command;
 
+import imagej.display.DisplayPostprocessor;
 import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.log.LogService;
 import imagej.module.Module;
+import imagej.module.ModuleBatch;
 import imagej.module.ModuleInfo;
+import imagej.module.ModulePostprocessor;
+import imagej.module.ModulePreprocessor;
 import imagej.module.ModuleService;
 import imagej.plugin.ImageJPlugin;
 import imagej.plugin.Parameter;
@@ -57,8 +61,10 @@
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 /**
@@ -89,6 +95,21 @@ public class DefaultCommandService extends AbstractService implements
 	/** Mapping from vanilla plugin metadata to command metadata objects. */
 	private HashMap<PluginInfo<?>, CommandInfo> commandMap;
 
+	/**
+	 * Metadata of the registered command for each class name passed to
+	 * {@link #run}, so that commands run repeatedly are looked up (and their
+	 * parameters parsed) once. Commands which are not registered are not cached,
+	 * so that their classes (e.g., compiled from scripts) can be unloaded.
+	 */
+	private final Map<String, CommandInfo> commandsByName =
+		new ConcurrentHashMap<String, CommandInfo>();
+
+	/**
+	 * Metadata of the registered command for each class passed to {@link #run}.
+	 */
+	private final Map<Class<?>, CommandInfo> commandsByClass =
+		new ConcurrentHashMap<Class<?>, CommandInfo>();
+
 	// -- CommandService methods --
 
 	@Override
@@ -229,6 +250,29 @@ public <M extends Module> Future<M> run(final M module,
 		return moduleService.run(module, pre(), post(), inputMap);
 	}
 
+	@Override
+	public ModuleBatch runBatch(final ModuleInfo info,
+		final Iterable<? extends Map<String, Object>> inputMaps,
+		final boolean publishEvents)
+	{
+		final ModuleBatch batch = new ModuleBatch(getContext(), info, inputMaps) {
+
+			@Override
+			protected List<? extends ModulePreprocessor> createPreprocessors() {
+				return pre();
+			}
+
+			@Override
+			protected List<? extends ModulePostprocessor> createPostprocessors() {
+				return batchPost();
+			}
+
+		};
+		batch.setPublishingEvents(publishEvents);
+		batch.start();
+		return batch;
+	}
+
 	// -- Service methods --
 
 	@Override
@@ -248,6 +292,7 @@ public void initialize() {
 	@EventHandler
 	protected void onEvent(final PluginsRemovedEvent event) {
 		removeCommands(event.getItems());
+		clearCache();
 	}
 
 	@EventHandler
@@ -256,6 +301,7 @@ protected void onEvent(final PluginsAddedEvent event) {
 			new ArrayList<PluginInfo<Command>>();
 		findCommandPlugins(event.getItems(), commands);
 		addCommands(commands);
+		clearCache();
 	}
 
 	// -- Helper methods --
@@ -270,14 +316,32 @@ private List<? extends PostprocessorPlugin> post() {
 		return pluginService.createInstancesOfType(PostprocessorPlugin.class);
 	}
 
+	/**
+	 * Creates the postprocessor chain for batches, which do not display their
+	 * outputs.
+	 */
+	private List<PostprocessorPlugin> batchPost() {
+		final List<PostprocessorPlugin> post =
+			new ArrayList<PostprocessorPlugin>(post());
+		for (final Iterator<PostprocessorPlugin> iter = post.iterator();
+			iter.hasNext(); )
+		{
+			if (iter.next() instanceof DisplayPostprocessor) iter.remove();
+		}
+		return post;
+	}
+
 	/**
 	 * Gets a {@link CommandInfo} for the given class name, creating a new one if
 	 * none are registered with the service.
 	 */
 	private CommandInfo getOrCreate(String className) {
-		final CommandInfo command = getCommand(className);
+		CommandInfo command = commandsByName.get(className);
 		if (command != null) return command;
-		return new CommandInfo(className);
+		command = getCommand(className);
+		if (command == null) return new CommandInfo(className);
+		commandsByName.put(className, command);
+		return command;
 	}
 
 	/**
@@ -285,9 +349,18 @@ private CommandInfo getOrCreate(String className) {
 	 * none are registered with the service.
 	 */
 	private <C extends Command> CommandInfo getOrCreate(Class<C> commandClass) {
-		final CommandInfo command = getCommand(commandClass);
+		CommandInfo command = commandsByClass.get(commandClass);
 		if (command != null) return command;
-		return new CommandInfo(commandClass);
+		command = getCommand(commandClass);
+		if (command == null) return new CommandInfo(commandClass);
+		commandsByClass.put(commandClass, command);
+		return command;
+	}
+
+	/** Forgets the commands looked up by {@link #getOrCreate}. */
+	private void clearCache() {
+		commandsByName.clear();
+		commandsByClass.clear();
 	}
 
 	/** Adds new commands to the module service. */
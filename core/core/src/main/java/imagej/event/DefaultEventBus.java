@@ -41,8 +41,13 @@
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bushe.swing.event.CleanupEvent;
 import org.bushe.swing.event.ThreadSafeEventService;
@@ -55,6 +60,22 @@
  * {@link org.bushe.swing.event.EventService} but rather an ImageJ
  * {@link Service} implementation.
  * </p>
+ * <p>
+ * Events published with {@link #publishNow} are delivered directly on the
+ * publishing thread to subscribers which do not require the dispatch thread
+ * (see {@link EventSubscriber#isDispatchThreadRequired()}); only the remaining
+ * subscribers are handed off to the dispatch thread, so that they remain
+ * serialized on a single thread even when running headless. Events published
+ * with {@link #publishLater} are queued on the dispatch thread, and are
+ * coalesced with any pending event sharing the same
+ * {@link ImageJEvent#getCoalescingKey() coalescing key}.
+ * </p>
+ * <p>
+ * The subscribers of each event class are cached, already partitioned by
+ * thread requirements, so that publishing an event does not need to search the
+ * subscriber tables. The cache is cleared whenever a subscriber is added or
+ * removed, and each time stale subscriber references are cleaned up.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -62,6 +83,15 @@ public class DefaultEventBus extends ThreadSafeEventService {
 
 	private final ThreadService threadService;
 	private final LogService log;
+	private final EventStatistics statistics;
+
+	/** Table of queued events not yet delivered, keyed on coalescing key. */
+	private final Map<Object, Object> pendingEvents =
+		new HashMap<Object, Object>();
+
+	/** Cached subscribers of each event class. */
+	private final Map<Class<?>, Subscribers> subscriberCache =
+		new ConcurrentHashMap<Class<?>, Subscribers>();
 
 	// TODO - Think more about how publishing events should work.
 	// Unfortunately, without further care elsewhere in the code (subject to
@@ -71,11 +101,12 @@ public class DefaultEventBus extends ThreadSafeEventService {
 	// See ticket #719: http://trac.imagej.net/ticket/719
 
 	public DefaultEventBus(final ThreadService threadService,
-		final LogService log)
+		final LogService log, final EventStatistics statistics)
 	{
 		super(200L, false, null, null, null);
 		this.threadService = threadService;
 		this.log = log;
+		this.statistics = statistics;
 	}
 
 	// -- DefaultEventBus methods --
@@ -84,7 +115,7 @@ public void publishNow(final Object event) {
 		if (event == null) {
 			throw new IllegalArgumentException("Cannot publish null event.");
 		}
-		publishNow(event, null, null, getSubscribers(event.getClass()),
+		publishNow(event, null, null, getCachedSubscribers(event.getClass()),
 			getVetoSubscribers(event.getClass()), null);
 	}
 
@@ -95,19 +126,21 @@ public void publishNow(final Type genericType, final Object event) {
 		if (event == null) {
 			throw new IllegalArgumentException("Cannot publish null event.");
 		}
-		publishNow(event, null, null, getSubscribers(genericType), null, null);
+		publishNow(event, null, null, new Subscribers(getSubscribers(genericType)),
+			null, null);
 	}
 
 	public void publishNow(final String topicName, final Object eventObj) {
-		publishNow(null, topicName, eventObj, getSubscribers(topicName),
-			getVetoEventListeners(topicName), null);
+		publishNow(null, topicName, eventObj, new Subscribers(
+			getSubscribers(topicName)), getVetoEventListeners(topicName), null);
 	}
 
 	public void publishLater(final Object event) {
 		if (event == null) {
 			throw new IllegalArgumentException("Cannot publish null event.");
 		}
-		publishLater(event, null, null, getSubscribers(event.getClass()),
+		if (!enqueue(event)) return; // coalesced with a pending event
+		publishLater(event, null, null, getCachedSubscribers(event.getClass()).all,
 			getVetoSubscribers(event.getClass()), null);
 	}
 
@@ -118,6 +151,7 @@ public void publishLater(final Type genericType, final Object event) {
 		if (event == null) {
 			throw new IllegalArgumentException("Cannot publish null event.");
 		}
+		if (!enqueue(event)) return; // coalesced with a pending event
 		publishLater(event, null, null, getSubscribers(genericType), null, null);
 	}
 
@@ -128,6 +162,26 @@ public void publishLater(final String topicName, final Object eventObj) {
 
 	// -- org.bushe.swing.event.EventService methods --
 
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean subscribe(final Class c,
+		final org.bushe.swing.event.EventSubscriber subscriber)
+	{
+		final boolean result = super.subscribe(c, subscriber);
+		clearSubscriberCache();
+		return result;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean unsubscribe(final Class c,
+		final org.bushe.swing.event.EventSubscriber subscriber)
+	{
+		final boolean result = super.unsubscribe(c, subscriber);
+		clearSubscriberCache();
+		return result;
+	}
+
 	@Override
 	public void publish(final Object event) {
 		// HACK: Work around a deadlock problem caused by ThreadSafeEventService:
@@ -153,6 +207,8 @@ public void publish(final Object event) {
 		// CleanupEvents, since no one really cares about them anyway. ;-)
 
 		if (event instanceof CleanupEvent) {
+			// stale references may have been removed from the subscriber tables
+			clearSubscriberCache();
 			publishLater(event);
 			return;
 		}
@@ -179,27 +235,49 @@ protected void publish(final Object event, final String topic,
 		@SuppressWarnings("rawtypes") final List vetoSubscribers,
 		final StackTraceElement[] callingStack)
 	{
-		publishNow(event, topic, eventObj, subscribers, vetoSubscribers,
-			callingStack);
+		publishNow(event, topic, eventObj, new Subscribers(subscribers),
+			vetoSubscribers, callingStack);
 	}
 
 	// -- Helper methods --
 
 	private void publishNow(final Object event, final String topic,
-		final Object eventObj,
-		@SuppressWarnings("rawtypes") final List subscribers,
+		final Object eventObj, final Subscribers subscribers,
 		@SuppressWarnings("rawtypes") final List vetoSubscribers,
 		final StackTraceElement[] callingStack)
 	{
+		final long publishTime = timestamp();
+		if (threadService.isDispatchThread()) {
+			deliver(event, topic, eventObj, subscribers.all, vetoSubscribers,
+				callingStack, publishTime);
+			return;
+		}
+
+		final List<?> toDispatch;
+		if (vetoSubscribers == null || vetoSubscribers.isEmpty()) {
+			// deliver to subscribers that do not need the dispatch thread first
+			if (!subscribers.anyThread.isEmpty()) {
+				deliver(event, topic, eventObj, subscribers.anyThread, null,
+					callingStack, publishTime);
+				if (subscribers.dispatchThread.isEmpty()) return;
+			}
+			toDispatch =
+				subscribers.anyThread.isEmpty() ? subscribers.all
+					: subscribers.dispatchThread;
+		}
+		else {
+			// NB: When there are veto subscribers, everything is delivered on the
+			// dispatch thread, so that a veto applies to all subscribers at once.
+			toDispatch = subscribers.all;
+		}
+
 		try {
 			threadService.invoke(new Runnable() {
 
 				@Override
 				public void run() {
-					log.debug("publish(" + event + "," + topic + "," + eventObj +
-						"), called from non-EDT Thread:" + Arrays.toString(callingStack));
-					DefaultEventBus.super.publish(event, topic, eventObj, subscribers,
-						vetoSubscribers, callingStack);
+					deliver(event, topic, eventObj, toDispatch, vetoSubscribers,
+						callingStack, publishTime);
 				}
 			});
 		}
@@ -217,16 +295,148 @@ private void publishLater(final Object event, final String topic,
 		@SuppressWarnings("rawtypes") final List vetoSubscribers,
 		final StackTraceElement[] callingStack)
 	{
+		final long publishTime = timestamp();
+		statistics.queued();
 		threadService.queue(new Runnable() {
 
 			@Override
 			public void run() {
-				log.debug("publish(" + event + "," + topic + "," + eventObj +
-					"), called from non-EDT Thread:" + Arrays.toString(callingStack));
-				DefaultEventBus.super.publish(event, topic, eventObj, subscribers,
-					vetoSubscribers, callingStack);
+				statistics.dequeued();
+				dequeue(event);
+				deliver(event, topic, eventObj, subscribers, vetoSubscribers,
+					callingStack, publishTime);
 			}
 		});
 	}
 
+	/**
+	 * Delivers the event to the given subscribers on the current thread.
+	 * 
+	 * @param publishTime The {@link #timestamp()} at which the event was
+	 *          published, or 0 if statistics are not being collected.
+	 */
+	private void deliver(final Object event, final String topic,
+		final Object eventObj,
+		@SuppressWarnings("rawtypes") final List subscribers,
+		@SuppressWarnings("rawtypes") final List vetoSubscribers,
+		final StackTraceElement[] callingStack, final long publishTime)
+	{
+		if (log.isDebug()) {
+			log.debug("publish(" + event + "," + topic + "," + eventObj +
+				"), called from non-EDT Thread:" + Arrays.toString(callingStack));
+		}
+		if (publishTime == 0) {
+			DefaultEventBus.super.publish(event, topic, eventObj, subscribers,
+				vetoSubscribers, callingStack);
+			return;
+		}
+		final long previous = statistics.startDelivery(publishTime);
+		try {
+			DefaultEventBus.super.publish(event, topic, eventObj, subscribers,
+				vetoSubscribers, callingStack);
+		}
+		finally {
+			statistics.endDelivery(previous);
+		}
+	}
+
+	/** Gets the current time for event statistics, or 0 if not collecting. */
+	private long timestamp() {
+		return statistics.isEnabled() ? System.nanoTime() : 0;
+	}
+
+	/** Gets the subscribers of the given event class, from the cache if able. */
+	private Subscribers getCachedSubscribers(final Class<?> c) {
+		Subscribers subscribers = subscriberCache.get(c);
+		if (subscribers != null) return subscribers;
+		synchronized (subscriberCache) {
+			subscribers = subscriberCache.get(c);
+			if (subscribers == null) {
+				subscribers = new Subscribers(getSubscribers(c));
+				subscriberCache.put(c, subscribers);
+			}
+		}
+		return subscribers;
+	}
+
+	private void clearSubscriberCache() {
+		synchronized (subscriberCache) {
+			subscriberCache.clear();
+		}
+	}
+
+	private static boolean isDispatchThreadRequired(final Object subscriber) {
+		if (subscriber instanceof EventSubscriber) {
+			return ((EventSubscriber<?>) subscriber).isDispatchThreadRequired();
+		}
+		// subscribers registered directly with EventBus are assumed to be UI code
+		return true;
+	}
+
+	/**
+	 * Records the given event as pending delivery.
+	 * 
+	 * @return False if the event was coalesced with an already pending event,
+	 *         and hence should not be queued.
+	 */
+	private boolean enqueue(final Object event) {
+		final Object key = getCoalescingKey(event);
+		if (key == null) return true;
+		synchronized (pendingEvents) {
+			if (pendingEvents.containsKey(key)) {
+				statistics.coalesced();
+				return false;
+			}
+			pendingEvents.put(key, event);
+		}
+		return true;
+	}
+
+	/** Clears the given event's pending status, just before delivering it. */
+	private void dequeue(final Object event) {
+		final Object key = getCoalescingKey(event);
+		if (key == null) return;
+		synchronized (pendingEvents) {
+			if (pendingEvents.get(key) == event) pendingEvents.remove(key);
+		}
+	}
+
+	private Object getCoalescingKey(final Object event) {
+		if (!(event instanceof ImageJEvent)) return null;
+		return ((ImageJEvent) event).getCoalescingKey();
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Snapshot of an event's subscribers, partitioned by whether they require
+	 * the dispatch thread.
+	 */
+	private static class Subscribers {
+
+		/** All subscribers, as returned by the subscriber tables. */
+		private final List<?> all;
+
+		private final List<Object> anyThread;
+		private final List<Object> dispatchThread;
+
+		public Subscribers(final List<?> all) {
+			this.all = all;
+			if (all == null || all.isEmpty()) {
+				anyThread = Collections.emptyList();
+				dispatchThread = Collections.emptyList();
+				return;
+			}
+			final List<Object> any = new ArrayList<Object>();
+			final List<Object> dispatch = new ArrayList<Object>();
+			for (final Object subscriber : all) {
+				if (isDispatchThreadRequired(subscriber)) dispatch.add(subscriber);
+				else any.add(subscriber);
+			}
+			anyThread = Collections.unmodifiableList(any);
+			dispatchThread = Collections.unmodifiableList(dispatch);
+		}
+
+	}
+
 }
@@ -41,10 +41,17 @@
 import imagej.service.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Default service for keeping a history of ImageJ events.
+ * <p>
+ * Events are recorded on the thread which publishes them, so that recording
+ * does not require every event to be delivered on the dispatch thread.
+ * Listeners are likewise notified on the publishing thread.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -57,11 +64,11 @@ public class DefaultEventHistory extends AbstractService implements
 	private EventService eventService;
 
 	/** Event details that have been recorded. */
-	private ArrayList<EventDetails> history;
+	private List<EventDetails> history;
 
 	private ArrayList<EventHistoryListener> listeners;
 
-	private boolean active;
+	private volatile boolean active;
 
 	// -- EventHistory methods --
 
@@ -85,15 +92,17 @@ public String toHTML(final Set<Class<? extends ImageJEvent>> filtered,
 		final Set<Class<? extends ImageJEvent>> highlighted)
 	{
 		final StringBuilder sb = new StringBuilder();
-		for (final EventDetails details : history) {
-			final Class<? extends ImageJEvent> eventType = details.getEventType();
-			if (filtered != null && filtered.contains(eventType)) {
-				// skip filtered event type
-				continue;
+		synchronized (history) {
+			for (final EventDetails details : history) {
+				final Class<? extends ImageJEvent> eventType = details.getEventType();
+				if (filtered != null && filtered.contains(eventType)) {
+					// skip filtered event type
+					continue;
+				}
+				final boolean bold =
+					highlighted != null && highlighted.contains(eventType);
+				sb.append(details.toHTML(bold));
 			}
-			final boolean bold =
-				highlighted != null && highlighted.contains(eventType);
-			sb.append(details.toHTML(bold));
 		}
 		return sb.toString();
 	}
@@ -111,10 +120,10 @@ public void addListener(final EventHistoryListener l) {
 	public void removeListener(final EventHistoryListener l) {
 		synchronized (listeners) {
 			listeners.remove(l);
-		}
-		if (listeners.isEmpty()) {
-			// if no one is listening, stop recording
-			setActive(false);
+			if (listeners.isEmpty()) {
+				// if no one is listening, stop recording
+				setActive(false);
+			}
 		}
 	}
 
@@ -122,14 +131,17 @@ public void removeListener(final EventHistoryListener l) {
 
 	@Override
 	public void initialize() {
-		history = new ArrayList<EventDetails>();
+		history = Collections.synchronizedList(new ArrayList<EventDetails>());
 		listeners = new ArrayList<EventHistoryListener>();
 		subscribeToEvents(eventService);
 	}
 
 	// -- Event handlers --
 
-	@EventHandler
+	// NB: This handler receives every event, so it must not require the
+	// dispatch thread; otherwise no event could ever bypass it.
+
+	@EventHandler(dispatchThread = false)
 	protected void onEvent(final ImageJEvent event) {
 		if (!active) return; // only record events while active
 		final EventDetails details = new EventDetails(event);
@@ -71,17 +71,21 @@ public class DefaultEventService extends AbstractService implements
 
 	private DefaultEventBus eventBus;
 
+	private EventStatistics statistics;
+
 	// -- EventService methods --
 
 	@Override
 	public <E extends ImageJEvent> void publish(final E e) {
 		e.setContext(getContext());
+		statistics.published(e.getClass());
 		eventBus.publishNow(e);
 	}
 
 	@Override
 	public <E extends ImageJEvent> void publishLater(final E e) {
 		e.setContext(getContext());
+		statistics.published(e.getClass());
 		eventBus.publishLater(e);
 	}
 
@@ -115,11 +119,17 @@ public <E extends ImageJEvent> List<EventSubscriber<E>> getSubscribers(
 		return typedList;
 	}
 
+	@Override
+	public EventStatistics getStatistics() {
+		return statistics;
+	}
+
 	// -- Service methods --
 
 	@Override
 	public void initialize() {
-		eventBus = new DefaultEventBus(threadService, log);
+		statistics = new EventStatistics();
+		eventBus = new DefaultEventBus(threadService, log, statistics);
 	}
 
 	// -- Helper methods --
@@ -203,10 +213,16 @@ private Class<? extends ImageJEvent> getEventClass(final Method m) {
 	{
 
 		private final Class<E> c;
+		private final Method method;
+		private final String handlerName;
+		private final boolean dispatchThread;
 
 		public ProxySubscriber(final Class<E> c, final Object o, final Method m) {
 			super(o, m, ReferenceStrength.WEAK, eventBus, false);
 			this.c = c;
+			method = m;
+			handlerName = m.getDeclaringClass().getName() + "." + m.getName();
+			dispatchThread = m.getAnnotation(EventHandler.class).dispatchThread();
 
 			// allow calling of non-public methods
 			m.setAccessible(true);
@@ -220,22 +236,24 @@ public ProxySubscriber(final Class<E> c, final Object o, final Method m) {
 		 */
 		@Override
 		public void onEvent(final E event) {
+			final Object obj = getProxiedSubscriber();
+			if (obj == null) return; // has been garbage collected
+			final boolean timed = statistics.isEnabled();
+			final long start = timed ? System.nanoTime() : 0;
 			try {
-				final Object obj = getProxiedSubscriber();
-				if (obj == null) return; // has been garbage collected
-				getSubscriptionMethod().invoke(obj, event);
+				method.invoke(obj, event);
 			}
 			catch (final IllegalAccessException exc) {
-				log.error("Exception during event handling:\n\t[Event] " +
-					event.getClass().getName() + ":" + event + "\n\t[Subscriber] " +
-					getProxiedSubscriber() + "\n\t[Method] " + getSubscriptionMethod(),
-					exc);
+				logError(event, obj, exc);
 			}
 			catch (final InvocationTargetException exc) {
-				log.error("Exception during event handling:\n\t[Event] " +
-					event.getClass().getName() + event + "\n\t[Subscriber] " +
-					getProxiedSubscriber() + "\n\t[Method] " + getSubscriptionMethod(),
-					exc.getCause());
+				logError(event, obj, exc.getCause());
+			}
+			finally {
+				if (timed) {
+					statistics.delivered(event.getClass(), handlerName, start, System
+						.nanoTime());
+				}
 			}
 		}
 
@@ -244,6 +262,24 @@ public Class<E> getEventClass() {
 			return c;
 		}
 
+		@Override
+		public boolean isDispatchThreadRequired() {
+			return dispatchThread;
+		}
+
+		// -- Helper methods --
+
+		/**
+		 * Reports an exception thrown during event handling. Kept out of
+		 * {@link #onEvent}, to keep the delivery path short.
+		 */
+		private void logError(final E event, final Object obj, final Throwable t)
+		{
+			log.error("Exception during event handling:\n\t[Event] " +
+				event.getClass().getName() + ":" + event + "\n\t[Subscriber] " +
+				obj + "\n\t[Method] " + method, t);
+		}
+
 	}
 
 }
@@ -63,5 +63,15 @@
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface EventHandler {
-	// no attributes
+
+	/**
+	 * Whether the handler must be invoked on the dispatch thread (e.g., the AWT
+	 * Event Dispatch Thread), as is the case for handlers that manipulate user
+	 * interface components. Handlers that do not should set this to false, so
+	 * that threads publishing their events need not block on the dispatch
+	 * thread; such handlers are invoked directly on the publishing thread and
+	 * must therefore be thread safe.
+	 */
+	boolean dispatchThread() default true;
+
 }
@@ -36,7 +36,8 @@
 package imagej.event;
 
 /**
- * Listener for event history changes.
+ * Listener for event history changes. Listeners are notified on the thread
+ * which published the event, which need not be the dispatch thread.
  * 
  * @author Curtis Rueden
  */
@@ -74,6 +74,13 @@ public interface EventService extends Service {
 	 * means that a chain of events published with a mixture of {@link #publish}
 	 * and {@link #publishLater} may result in event delivery in an unintuitive
 	 * order.
+	 * <p>
+	 * Subscribers whose handlers do not require the dispatch thread (see
+	 * {@link EventHandler#dispatchThread()}) are always invoked directly on the
+	 * calling thread, so publishing threads only block on the dispatch thread
+	 * when some subscriber actually needs it. The remaining subscribers are
+	 * invoked on the dispatch thread even in a headless environment.
+	 * </p>
 	 */
 	<E extends ImageJEvent> void publish(E e);
 
@@ -96,6 +103,10 @@ public interface EventService extends Service {
 	 * {@link imagej.menu.event.MenusUpdatedEvent} will receive the former first,
 	 * since it was already queued by the time the latter was published.</li>
 	 * </ol>
+	 * <p>
+	 * If an event with the same {@link ImageJEvent#getCoalescingKey() coalescing
+	 * key} is already queued and not yet delivered, the given event is dropped.
+	 * </p>
 	 */
 	<E extends ImageJEvent> void publishLater(E e);
 
@@ -124,4 +135,10 @@ public interface EventService extends Service {
 	 */
 	<E extends ImageJEvent> List<EventSubscriber<E>> getSubscribers(Class<E> c);
 
+	/**
+	 * Gets the throughput and latency statistics of the events published by
+	 * this service.
+	 */
+	EventStatistics getStatistics();
+
 }
@@ -0,0 +1,307 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import imagej.util.LongHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency statistics of the events published by an
+ * {@link EventService}. For each event class, it counts publications and
+ * measures the time from publication until delivery to each subscriber; for
+ * each subscriber, it measures how long the event handler takes. It also
+ * tracks the number of events queued by {@link EventService#publishLater} but
+ * not yet delivered.
+ * <p>
+ * Collection of counts and timings is disabled by default, since it adds a
+ * little overhead to every event delivery; see {@link #setEnabled}. Queue
+ * depth is always tracked.
+ * </p>
+ * 
+ * @author agent
+ */
+public class EventStatistics {
+
+	private static final String NL = System.getProperty("line.separator");
+
+	private volatile boolean enabled;
+
+	private final ConcurrentMap<Class<?>, EventTiming> eventTimings =
+		new ConcurrentHashMap<Class<?>, EventTiming>();
+
+	private final ConcurrentMap<String, LongHistogram> handlerTimings =
+		new ConcurrentHashMap<String, LongHistogram>();
+
+	private final AtomicLong queueDepth = new AtomicLong();
+	private final AtomicLong maxQueueDepth = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/** Publication time of the event being delivered on each thread. */
+	private final ThreadLocal<long[]> deliveryPublishTime =
+		new ThreadLocal<long[]>() {
+
+			@Override
+			protected long[] initialValue() {
+				return new long[1];
+			}
+		};
+
+	// -- EventStatistics methods --
+
+	/** Gets whether event counts and timings are being collected. */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Sets whether to collect event counts and timings. */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/** Gets the number of queued events not yet delivered. */
+	public long getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/** Gets the largest number of queued events awaiting delivery at once. */
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/** Gets the number of queued events dropped by coalescing. */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	/**
+	 * Gets the statistics of each event class. The histogram of each entry is
+	 * of the latency from publication until delivery to a subscriber, in
+	 * nanoseconds.
+	 */
+	public Map<Class<?>, EventTiming> getEventTimings() {
+		return Collections.unmodifiableMap(eventTimings);
+	}
+
+	/**
+	 * Gets the execution time statistics of each event handler, in nanoseconds,
+	 * keyed on the name of the handler method.
+	 */
+	public Map<String, LongHistogram> getHandlerTimings() {
+		return Collections.unmodifiableMap(handlerTimings);
+	}
+
+	/** Discards all counts and timings collected so far. */
+	public void reset() {
+		eventTimings.clear();
+		handlerTimings.clear();
+		coalesced.set(0);
+		maxQueueDepth.set(queueDepth.get());
+	}
+
+	/**
+	 * Gets a human readable report of the statistics, listing the busiest event
+	 * classes and the slowest event handlers first.
+	 */
+	public String report() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Queue depth: " + getQueueDepth() + " (max " +
+			getMaxQueueDepth() + ", coalesced " + getCoalescedCount() + ")" + NL);
+		if (!isEnabled()) {
+			sb.append("Event timing collection is disabled." + NL);
+		}
+
+		sb.append(NL + "Events (publish to delivery latency):" + NL);
+		final List<Map.Entry<Class<?>, EventTiming>> events =
+			new ArrayList<Map.Entry<Class<?>, EventTiming>>(eventTimings.entrySet());
+		Collections.sort(events, new Comparator<Map.Entry<Class<?>, EventTiming>>()
+		{
+
+			@Override
+			public int compare(final Map.Entry<Class<?>, EventTiming> e1,
+				final Map.Entry<Class<?>, EventTiming> e2)
+			{
+				return compareLongs(e2.getValue().getPublishCount(), e1.getValue()
+					.getPublishCount());
+			}
+		});
+		for (final Map.Entry<Class<?>, EventTiming> entry : events) {
+			sb.append("\t" + entry.getKey().getName() + ": published " +
+				entry.getValue().getPublishCount() + ", " + format(entry.getValue()) +
+				NL);
+		}
+
+		sb.append(NL + "Event handlers (execution time):" + NL);
+		final List<Map.Entry<String, LongHistogram>> handlers =
+			new ArrayList<Map.Entry<String, LongHistogram>>(handlerTimings
+				.entrySet());
+		Collections.sort(handlers,
+			new Comparator<Map.Entry<String, LongHistogram>>() {
+
+				@Override
+				public int compare(final Map.Entry<String, LongHistogram> e1,
+					final Map.Entry<String, LongHistogram> e2)
+				{
+					return compareLongs(e2.getValue().getTotal(), e1.getValue()
+						.getTotal());
+				}
+			});
+		for (final Map.Entry<String, LongHistogram> entry : handlers) {
+			sb.append("\t" + entry.getKey() + ": " + format(entry.getValue()) + NL);
+		}
+		return sb.toString();
+	}
+
+	// -- Internal methods --
+
+	/** Records the publication of an event. */
+	void published(final Class<?> eventClass) {
+		if (!enabled) return;
+		getEventTiming(eventClass).publishCount.incrementAndGet();
+	}
+
+	/** Records that an event was queued for later delivery. */
+	void queued() {
+		final long depth = queueDepth.incrementAndGet();
+		long max = maxQueueDepth.get();
+		while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+			max = maxQueueDepth.get();
+		}
+	}
+
+	/** Records that a queued event was dropped in favor of a pending one. */
+	void coalesced() {
+		coalesced.incrementAndGet();
+	}
+
+	/** Records that a queued event was taken off the queue for delivery. */
+	void dequeued() {
+		queueDepth.decrementAndGet();
+	}
+
+	/**
+	 * Notes the publication time of the event about to be delivered on the
+	 * current thread, for use by {@link #delivered}.
+	 * 
+	 * @return The publication time of the event previously being delivered on
+	 *         this thread, to be restored by {@link #endDelivery} once done.
+	 */
+	long startDelivery(final long publishTime) {
+		final long[] time = deliveryPublishTime.get();
+		final long previous = time[0];
+		time[0] = publishTime;
+		return previous;
+	}
+
+	/** Restores the publication time noted before {@link #startDelivery}. */
+	void endDelivery(final long previous) {
+		deliveryPublishTime.get()[0] = previous;
+	}
+
+	/**
+	 * Records the delivery of an event to a handler.
+	 * 
+	 * @param eventClass The class of the delivered event.
+	 * @param handler The name of the handler method.
+	 * @param start The {@link System#nanoTime()} at which the handler started.
+	 * @param end The {@link System#nanoTime()} at which the handler finished.
+	 */
+	void delivered(final Class<?> eventClass, final String handler,
+		final long start, final long end)
+	{
+		final long publishTime = deliveryPublishTime.get()[0];
+		if (publishTime != 0) {
+			getEventTiming(eventClass).record(start - publishTime);
+		}
+		LongHistogram timing = handlerTimings.get(handler);
+		if (timing == null) {
+			final LongHistogram fresh = new LongHistogram();
+			final LongHistogram prev = handlerTimings.putIfAbsent(handler, fresh);
+			timing = prev == null ? fresh : prev;
+		}
+		timing.record(end - start);
+	}
+
+	// -- Helper methods --
+
+	private EventTiming getEventTiming(final Class<?> eventClass) {
+		EventTiming timing = eventTimings.get(eventClass);
+		if (timing == null) {
+			final EventTiming fresh = new EventTiming();
+			final EventTiming prev = eventTimings.putIfAbsent(eventClass, fresh);
+			timing = prev == null ? fresh : prev;
+		}
+		return timing;
+	}
+
+	/** Describes the given histogram of durations in nanoseconds. */
+	private static String format(final LongHistogram timing) {
+		return "count " + timing.getCount() + ", mean " +
+			micros(timing.getMean()) + ", p50 " + micros(timing.getQuantile(0.5)) +
+			", p99 " + micros(timing.getQuantile(0.99)) + ", max " +
+			micros(timing.getMax()) + ", total " + micros(timing.getTotal());
+	}
+
+	private static String micros(final double nanos) {
+		return String.format("%.1fus", nanos / 1000);
+	}
+
+	private static int compareLongs(final long l1, final long l2) {
+		return l1 < l2 ? -1 : l1 > l2 ? 1 : 0;
+	}
+
+	// -- Helper classes --
+
+	/** Statistics of an event class: its publications and delivery latency. */
+	public static class EventTiming extends LongHistogram {
+
+		private final AtomicLong publishCount = new AtomicLong();
+
+		/** Gets the number of times an event of the class was published. */
+		public long getPublishCount() {
+			return publishCount.get();
+		}
+
+	}
+
+}
@@ -58,4 +58,12 @@
 
 	Class<E> getEventClass();
 
+	/**
+	 * Gets whether events must be delivered to this subscriber on the dispatch
+	 * thread.
+	 * 
+	 * @see EventHandler#dispatchThread()
+	 */
+	boolean isDispatchThreadRequired();
+
 }
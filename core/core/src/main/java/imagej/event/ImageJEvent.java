@@ -60,6 +60,21 @@ public void consume() {
 		setConsumed(true);
 	}
 
+	/**
+	 * Gets a key identifying the events with which this event may be coalesced.
+	 * When an event is queued with {@link EventService#publishLater} while an
+	 * event with an equal key is still awaiting delivery, the new event is
+	 * dropped and only the pending one is delivered. This is useful for
+	 * notifications that something changed, which subscribers handle by
+	 * inspecting the current state of the changed object.
+	 * 
+	 * @return The coalescing key, or null (the default) if this event must
+	 *         always be delivered.
+	 */
+	public Object getCoalescingKey() {
+		return null;
+	}
+
 	// Object methods --
 
 	@Override
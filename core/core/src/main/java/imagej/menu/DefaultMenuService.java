@@ -35,6 +35,7 @@
 
 package imagej.menu;
 
+import imagej.StartupProfile;
 import imagej.command.Command;
 import imagej.command.CommandService;
 import imagej.event.EventHandler;
@@ -144,9 +145,12 @@ public void setSelected(final ModuleInfo info, final boolean selected) {
 	public void initialize() {
 		rootMenus = new HashMap<String, ShadowMenu>();
 
+		final long start = System.nanoTime();
 		final List<ModuleInfo> allModules =
 			getCommandService().getModuleService().getModules();
 		addModules(allModules);
+		getContext().getStartupProfile().record(
+			StartupProfile.MENU_CONSTRUCTION, System.nanoTime() - start);
 
 		subscribeToEvents(eventService);
 	}
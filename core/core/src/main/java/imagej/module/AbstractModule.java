@@ -49,20 +49,17 @@
  */
 public abstract class AbstractModule implements Module {
 
-	private final HashMap<String, Object> inputs;
-	private final HashMap<String, Object> outputs;
+	// NB: The tables are created on demand, since subclasses which store their
+	// inputs and outputs elsewhere (e.g., CommandModule) never need them.
+
+	private HashMap<String, Object> inputs;
+	private HashMap<String, Object> outputs;
 
 	/** Table indicating resolved inputs. */
-	private final HashSet<String> resolvedInputs;
+	private HashSet<String> resolvedInputs;
 
 	private MethodRef initializerRef;
 
-	public AbstractModule() {
-		inputs = new HashMap<String, Object>();
-		outputs = new HashMap<String, Object>();
-		resolvedInputs = new HashSet<String>();
-	}
-
 	// -- Module methods --
 
 	@Override
@@ -92,12 +89,12 @@ public Object getDelegateObject() {
 
 	@Override
 	public Object getInput(final String name) {
-		return inputs.get(name);
+		return inputs == null ? null : inputs.get(name);
 	}
 
 	@Override
 	public Object getOutput(final String name) {
-		return outputs.get(name);
+		return outputs == null ? null : outputs.get(name);
 	}
 
 	@Override
@@ -112,11 +109,13 @@ public Map<String, Object> getOutputs() {
 
 	@Override
 	public void setInput(final String name, final Object value) {
+		if (inputs == null) inputs = new HashMap<String, Object>();
 		inputs.put(name, value);
 	}
 
 	@Override
 	public void setOutput(final String name, final Object value) {
+		if (outputs == null) outputs = new HashMap<String, Object>();
 		outputs.put(name, value);
 	}
 
@@ -136,13 +135,16 @@ public void setOutputs(final Map<String, Object> outputs) {
 
 	@Override
 	public boolean isResolved(final String name) {
-		return resolvedInputs.contains(name);
+		return resolvedInputs != null && resolvedInputs.contains(name);
 	}
 
 	@Override
 	public void setResolved(final String name, final boolean resolved) {
-		if (resolved) resolvedInputs.add(name);
-		else resolvedInputs.remove(name);
+		if (resolved) {
+			if (resolvedInputs == null) resolvedInputs = new HashSet<String>();
+			resolvedInputs.add(name);
+		}
+		else if (resolvedInputs != null) resolvedInputs.remove(name);
 	}
 
 	// -- Helper methods --
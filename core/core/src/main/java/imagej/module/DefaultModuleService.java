@@ -81,6 +81,9 @@ public class DefaultModuleService extends AbstractService implements
 	/** Index of registered modules. */
 	private ModuleIndex moduleIndex;
 
+	/** Execution statistics of the modules run by the service. */
+	private ModuleStatistics statistics;
+
 	// -- ModuleService methods --
 
 	@Override
@@ -195,10 +198,56 @@ public <M extends Module> Future<M> run(final M module,
 			new ModuleRunner(getContext(), module, pre, post);
 		@SuppressWarnings("unchecked")
 		final Callable<M> callable = (Callable<M>) runner;
-		final Future<M> future = threadService.run(callable);
+		// NB: Modules launched from the dispatch thread were most likely
+		// requested by the user, so they are queued ahead of other modules.
+		final ThreadService.Priority priority =
+			threadService.isDispatchThread() ? ThreadService.Priority.INTERACTIVE
+				: ThreadService.Priority.BATCH;
+		final Future<M> future = threadService.run(callable, priority);
 		return future;
 	}
 
+	@Override
+	public ModuleBatch runBatch(final ModuleInfo info,
+		final Iterable<? extends Map<String, Object>> inputMaps,
+		final boolean publishEvents)
+	{
+		final ModuleBatch batch = new ModuleBatch(getContext(), info, inputMaps);
+		batch.setPublishingEvents(publishEvents);
+		batch.start();
+		return batch;
+	}
+
+	@Override
+	public void assignInputs(final Module module,
+		final Map<String, Object> inputMap)
+	{
+		if (inputMap == null) return; // no inputs to assign
+
+		for (final String name : inputMap.keySet()) {
+			final ModuleItem<?> input = module.getInfo().getInput(name);
+			if (input == null) {
+				log.error("No such input: " + name);
+				continue;
+			}
+			final Object value = inputMap.get(name);
+			final Class<?> type = input.getType();
+			final Object converted = ClassUtils.convert(value, type);
+			if (value != null && converted == null) {
+				log.error("For input " + name + ": incompatible object " +
+					value.getClass().getName() + " for type " + type.getName());
+				continue;
+			}
+			module.setInput(name, converted);
+			module.setResolved(name, true);
+		}
+	}
+
+	@Override
+	public ModuleStatistics getStatistics() {
+		return statistics;
+	}
+
 	@Override
 	public <M extends Module> M waitFor(final Future<M> future) {
 		try {
@@ -232,6 +281,7 @@ public <T> ModuleItem<T> getSingleOutput(final Module module,
 	@Override
 	public void initialize() {
 		moduleIndex = new ModuleIndex();
+		statistics = new ModuleStatistics();
 	}
 
 	// -- Helper methods --
@@ -262,31 +312,6 @@ private Map<String, Object> createMap(final Object[] values) {
 		return inputMap;
 	}
 
-	/** Sets the given module's input values to those in the given map. */
-	private void assignInputs(final Module module,
-		final Map<String, Object> inputMap)
-	{
-		if (inputMap == null) return; // no inputs to assign
-
-		for (final String name : inputMap.keySet()) {
-			final ModuleItem<?> input = module.getInfo().getInput(name);
-			if (input == null) {
-				log.error("No such input: " + name);
-				continue;
-			}
-			final Object value = inputMap.get(name);
-			final Class<?> type = input.getType();
-			final Object converted = ClassUtils.convert(value, type);
-			if (value != null && converted == null) {
-				log.error("For input " + name + ": incompatible object " +
-					value.getClass().getName() + " for type " + type.getName());
-				continue;
-			}
-			module.setInput(name, converted);
-			module.setResolved(name, true);
-		}
-	}
-
 	private <T> ModuleItem<T> getSingleItem(final Module module,
 		final Class<T> type, final Iterable<ModuleItem<?>> items)
 	{
@@ -0,0 +1,406 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.module;
+
+import imagej.AbstractContextual;
+import imagej.Cancelable;
+import imagej.ImageJ;
+import imagej.log.LogService;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes one kind of module many times, once for each of a sequence of input
+ * maps, on a fixed number of worker threads.
+ * <p>
+ * Compared to calling {@link ModuleService#run} once per input map, a batch
+ * saves most of the per-execution overhead:
+ * </p>
+ * <ul>
+ * <li>Each worker creates its pre- and postprocessor chains once, and reuses
+ * them for every module it executes (unless a preprocessor cancels an
+ * execution, in which case fresh chains are created for the next module).</li>
+ * <li>Events and status updates for the individual executions can be
+ * suppressed.</li>
+ * <li>Input maps are consumed lazily, and at most a few finished modules are
+ * buffered: when the consumer falls behind, the workers wait for it. Hence, a
+ * batch over thousands of datasets never holds more than a handful of them in
+ * memory at once.</li>
+ * </ul>
+ * <p>
+ * The batch is an {@link Iterator} over the finished modules, in order of
+ * completion, from which the outputs can be read as they become available.
+ * Modules which were canceled (see {@link Cancelable}) are included. Executions
+ * which failed, because the module could not be created or threw an exception,
+ * are not; they are reported by {@link #getFailures()} instead. The batch must
+ * either be iterated to the end, or {@link #cancel() canceled}, or
+ * {@link #finish() finished}; otherwise the workers wait forever.
+ * </p>
+ * <p>
+ * Subclasses provide the pre- and postprocessors by overriding
+ * {@link #createPreprocessors()} and {@link #createPostprocessors()}.
+ * </p>
+ * 
+ * @author agent
+ * @see ModuleService#runBatch
+ */
+public class ModuleBatch extends AbstractContextual implements
+	Iterator<Module>
+{
+
+	private final ModuleInfo info;
+	private final Iterator<? extends Map<String, Object>> inputMaps;
+	private final int threadCount;
+	private final BlockingQueue<Module> results;
+
+	private boolean publishingEvents = true;
+	private boolean started;
+	private volatile boolean canceled;
+
+	/** Number of workers which have not finished yet. */
+	private final AtomicInteger runningWorkers;
+
+	/** The next finished module, or null if not yet retrieved. */
+	private Module next;
+
+	private final AtomicInteger completed = new AtomicInteger();
+
+	/** Executions which failed so far. */
+	private final List<Failure> failures = new ArrayList<Failure>();
+
+	/**
+	 * Creates a batch of executions of the given module, using one worker thread
+	 * per available processor.
+	 */
+	public ModuleBatch(final ImageJ context, final ModuleInfo info,
+		final Iterable<? extends Map<String, Object>> inputMaps)
+	{
+		this(context, info, inputMaps, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a batch of executions of the given module.
+	 * 
+	 * @param context The application context.
+	 * @param info The module to execute.
+	 * @param inputMaps The input values for each execution.
+	 * @param threadCount The number of worker threads.
+	 */
+	public ModuleBatch(final ImageJ context, final ModuleInfo info,
+		final Iterable<? extends Map<String, Object>> inputMaps,
+		final int threadCount)
+	{
+		setContext(context);
+		this.info = info;
+		this.inputMaps = inputMaps.iterator();
+		this.threadCount = Math.max(1, threadCount);
+		results = new ArrayBlockingQueue<Module>(2 * this.threadCount);
+		runningWorkers = new AtomicInteger(this.threadCount);
+	}
+
+	// -- ModuleBatch methods --
+
+	/** Gets the module being executed. */
+	public ModuleInfo getInfo() {
+		return info;
+	}
+
+	/**
+	 * Sets whether each execution publishes the usual module events and status
+	 * updates. This is true by default. Must be called before {@link #start()}.
+	 */
+	public void setPublishingEvents(final boolean publishingEvents) {
+		this.publishingEvents = publishingEvents;
+	}
+
+	/** Gets whether each execution publishes events and status updates. */
+	public boolean isPublishingEvents() {
+		return publishingEvents;
+	}
+
+	/** Starts the worker threads. Does nothing if already started. */
+	public synchronized void start() {
+		if (started) return;
+		started = true;
+		final ThreadService threadService =
+			getContext().getService(ThreadService.class);
+		for (int i = 0; i < threadCount; i++) {
+			// NB: Workers get dedicated threads, since they wait for the consumer,
+			// who may well be running on one of the thread service's own threads.
+			threadService.newThread(new Worker()).start();
+		}
+	}
+
+	/**
+	 * Stops the batch: no further executions are started, and the modules
+	 * already finished are discarded. Executions already under way are not
+	 * interrupted; {@link #finish()} waits for them.
+	 */
+	public void cancel() {
+		canceled = true;
+		results.clear();
+	}
+
+	/** Gets whether the batch has been canceled. */
+	public boolean isCanceled() {
+		return canceled;
+	}
+
+	/**
+	 * Waits for all executions to finish, discarding the modules not yet
+	 * retrieved.
+	 * 
+	 * @return The total number of modules executed.
+	 */
+	public int finish() {
+		while (hasNext()) {
+			next();
+		}
+		return completed.get();
+	}
+
+	/** Gets the number of modules executed so far. */
+	public int getCompletedCount() {
+		return completed.get();
+	}
+
+	/** Gets the number of executions which have failed so far. */
+	public int getFailedCount() {
+		synchronized (failures) {
+			return failures.size();
+		}
+	}
+
+	/** Gets the executions which have failed so far, in order of failure. */
+	public List<Failure> getFailures() {
+		synchronized (failures) {
+			return new ArrayList<Failure>(failures);
+		}
+	}
+
+	// -- Internal methods --
+
+	/**
+	 * Creates a chain of preprocessors for one worker. By default, there are
+	 * none.
+	 */
+	protected List<? extends ModulePreprocessor> createPreprocessors() {
+		return null;
+	}
+
+	/**
+	 * Creates a chain of postprocessors for one worker. By default, there are
+	 * none.
+	 */
+	protected List<? extends ModulePostprocessor> createPostprocessors() {
+		return null;
+	}
+
+	// -- Iterator methods --
+
+	/**
+	 * Waits until another module has finished, or all have.
+	 * 
+	 * @return true if another finished module is available
+	 */
+	@Override
+	public boolean hasNext() {
+		start();
+		while (next == null) {
+			// NB: Workers queue all their modules before they finish.
+			final boolean finished = runningWorkers.get() == 0;
+			try {
+				next =
+					finished ? results.poll() : results.poll(100, TimeUnit.MILLISECONDS);
+			}
+			catch (final InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			// discard modules which finish after the batch is canceled
+			if (canceled) next = null;
+			if (next == null && finished) return false;
+		}
+		return true;
+	}
+
+	/** Gets the next module to finish, waiting for it if necessary. */
+	@Override
+	public Module next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		final Module module = next;
+		next = null;
+		return module;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	// -- Helper methods --
+
+	/** Gets the next input map, or null if there are no more. */
+	private Map<String, Object> nextInputs() {
+		synchronized (inputMaps) {
+			if (canceled || !inputMaps.hasNext()) return null;
+			final Map<String, Object> inputMap = inputMaps.next();
+			// NB: A null input map is allowed, and means no inputs.
+			return inputMap == null ? new HashMap<String, Object>() : inputMap;
+		}
+	}
+
+	private boolean isCanceled(final List<? extends ModulePreprocessor> pre) {
+		if (pre == null) return false;
+		for (final ModulePreprocessor p : pre) {
+			if (p.isCanceled()) return true;
+		}
+		return false;
+	}
+
+	/** Records the failure of an execution. */
+	private void failed(final Map<String, Object> inputMap, final Throwable error)
+	{
+		synchronized (failures) {
+			failures.add(new Failure(inputMap, error));
+		}
+	}
+
+	/** Waits for room in the results queue, unless the batch is canceled. */
+	private void put(final Module result) throws InterruptedException {
+		while (!canceled) {
+			if (results.offer(result, 100, TimeUnit.MILLISECONDS)) return;
+		}
+	}
+
+	// -- Helper classes --
+
+	/** An execution of the batch which failed. */
+	public static class Failure {
+
+		private final Map<String, Object> inputs;
+		private final Throwable error;
+
+		public Failure(final Map<String, Object> inputs, final Throwable error) {
+			this.inputs = inputs;
+			this.error = error;
+		}
+
+		/** Gets the input map of the failed execution. */
+		public Map<String, Object> getInputs() {
+			return inputs;
+		}
+
+		/**
+		 * Gets the exception thrown by the module, or null if the module could
+		 * not be created.
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+	}
+
+	/** Executes modules, one after another, until the input maps run out. */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			final ModuleService moduleService =
+				getContext().getService(ModuleService.class);
+			final LogService log = getContext().getService(LogService.class);
+			List<? extends ModulePreprocessor> pre = null;
+			List<? extends ModulePostprocessor> post = null;
+			try {
+				while (true) {
+					final Map<String, Object> inputMap = nextInputs();
+					if (inputMap == null) break;
+					if (pre == null && post == null) {
+						pre = createPreprocessors();
+						post = createPostprocessors();
+					}
+
+					final Module module = moduleService.createModule(info);
+					if (module == null) {
+						if (log != null) log.error("Cannot create module: " + info);
+						failed(inputMap, null);
+						continue;
+					}
+					moduleService.assignInputs(module, inputMap);
+					final ModuleRunner runner =
+						new ModuleRunner(getContext(), module, pre, post);
+					runner.setPublishingEvents(publishingEvents);
+					try {
+						runner.run();
+					}
+					catch (final RuntimeException e) {
+						if (log != null) log.error("Module threw exception", e);
+						failed(inputMap, e);
+						continue;
+					}
+					finally {
+						// NB: Preprocessors do not reset their canceled state.
+						if (isCanceled(pre)) {
+							pre = null;
+							post = null;
+						}
+					}
+					completed.incrementAndGet();
+					put(module);
+				}
+			}
+			catch (final InterruptedException e) {
+				canceled = true;
+			}
+			finally {
+				runningWorkers.decrementAndGet();
+			}
+		}
+
+	}
+
+}
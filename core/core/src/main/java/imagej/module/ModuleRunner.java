@@ -60,6 +60,11 @@
  * easier to invoke in a variety of ways, such as with the
  * {@link java.util.concurrent} package.
  * </p>
+ * <p>
+ * When collection is enabled, the time taken by the module and by each of its
+ * pre- and postprocessors is recorded in the {@link ModuleStatistics} of the
+ * {@link ModuleService}.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -71,6 +76,9 @@ public class ModuleRunner extends AbstractContextual implements
 	private final List<? extends ModulePreprocessor> pre;
 	private final List<? extends ModulePostprocessor> post;
 
+	/** Whether to publish events and status updates during execution. */
+	private boolean publishingEvents = true;
+
 	public ModuleRunner(final ImageJ context, final Module module,
 		final List<? extends ModulePreprocessor> pre,
 		final List<? extends ModulePostprocessor> post)
@@ -83,6 +91,21 @@ public ModuleRunner(final ImageJ context, final Module module,
 
 	// -- ModuleRunner methods --
 
+	/**
+	 * Sets whether the runner publishes events (such as
+	 * {@link ModuleStartedEvent}) and status updates during execution. This is
+	 * true by default; batch executions may turn it off to avoid the overhead of
+	 * notifying subscribers about each of many modules.
+	 */
+	public void setPublishingEvents(final boolean publishingEvents) {
+		this.publishingEvents = publishingEvents;
+	}
+
+	/** Gets whether the runner publishes events during execution. */
+	public boolean isPublishingEvents() {
+		return publishingEvents;
+	}
+
 	/**
 	 * Feeds the module through the {@link ModulePreprocessor}s.
 	 * 
@@ -92,10 +115,14 @@ public ModuleRunner(final ImageJ context, final Module module,
 	public ModulePreprocessor preProcess() {
 		if (pre == null) return null; // no preprocessors
 
-		final EventService es = getContext().getService(EventService.class);
+		final EventService es = getEventService();
+		final ModuleStatistics stats = getStatistics();
 
 		for (final ModulePreprocessor p : pre) {
+			final ModuleStatistics.Sample start =
+				stats == null ? null : stats.start();
 			p.process(module);
+			if (stats != null) stats.preprocessed(p, start);
 			if (es != null) es.publish(new ModulePreprocessEvent(module, p));
 			if (p.isCanceled()) return p;
 		}
@@ -105,10 +132,14 @@ public ModulePreprocessor preProcess() {
 	/** Feeds the module through the {@link ModulePostprocessor}s. */
 	public void postProcess() {
 		if (post == null) return; // no postprocessors
-		final EventService es = getContext().getService(EventService.class);
+		final EventService es = getEventService();
+		final ModuleStatistics stats = getStatistics();
 
 		for (final ModulePostprocessor p : post) {
+			final ModuleStatistics.Sample start =
+				stats == null ? null : stats.start();
 			p.process(module);
+			if (stats != null) stats.postprocessed(p, start);
 			if (es != null) es.publish(new ModulePostprocessEvent(module, p));
 		}
 	}
@@ -138,8 +169,9 @@ public Module call() {
 	public void run() {
 		if (module == null) return;
 
-		final EventService es = getContext().getService(EventService.class);
-		final StatusService ss = getContext().getService(StatusService.class);
+		final EventService es = getEventService();
+		final StatusService ss =
+			publishingEvents ? getContext().getService(StatusService.class) : null;
 		final String title = module.getInfo().getTitle();
 
 		// announce start of execution process
@@ -156,7 +188,10 @@ public void run() {
 
 		// execute module
 		if (es != null) es.publish(new ModuleExecutingEvent(module));
+		final ModuleStatistics stats = getStatistics();
+		final ModuleStatistics.Sample start = stats == null ? null : stats.start();
 		module.run();
+		if (stats != null) stats.executed(module, start);
 		if (module instanceof Cancelable) {
 			final Cancelable cancelable = (Cancelable) module;
 			if (cancelable.isCanceled()) {
@@ -177,6 +212,18 @@ public void run() {
 
 	// -- Helper methods --
 
+	private EventService getEventService() {
+		if (!publishingEvents) return null;
+		return getContext().getService(EventService.class);
+	}
+
+	/** Gets the module statistics to update, or null if there are none. */
+	private ModuleStatistics getStatistics() {
+		final ModuleService moduleService =
+			getContext().getService(ModuleService.class);
+		return moduleService == null ? null : moduleService.getStatistics();
+	}
+
 	private void cancel(final EventService es, final StatusService ss,
 		final String title, final String reason)
 	{
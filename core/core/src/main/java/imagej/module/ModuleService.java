@@ -211,6 +211,37 @@ <M extends Module> Future<M> run(M module,
 		List<? extends ModulePreprocessor> pre,
 		List<? extends ModulePostprocessor> post, Map<String, Object> inputMap);
 
+	/**
+	 * Executes the given module once for each of the given input maps, without
+	 * any pre- or postprocessing, on one worker thread per available processor.
+	 * 
+	 * @param info The module to instantiate and run.
+	 * @param inputMaps Tables of input parameter values, one per execution. The
+	 *          tables are retrieved lazily, as workers become available.
+	 * @param publishEvents Whether each execution publishes the usual module
+	 *          events and status updates.
+	 * @return The running batch, an {@link java.util.Iterator} over the modules
+	 *         in order of completion. It must be iterated to the end, or
+	 *         canceled, or finished.
+	 * @see ModuleBatch
+	 */
+	ModuleBatch runBatch(ModuleInfo info,
+		Iterable<? extends Map<String, Object>> inputMaps, boolean publishEvents);
+
+	/**
+	 * Sets the given module's inputs to the values in the given map, converting
+	 * each value to its input's type and marking the input as resolved. Names of
+	 * inputs that are not valid for the module, and values of incompatible type,
+	 * issue an error and are ignored.
+	 */
+	void assignInputs(Module module, Map<String, Object> inputMap);
+
+	/**
+	 * Gets the execution statistics of the modules run by this service,
+	 * including the time spent in each pre- and postprocessor.
+	 */
+	ModuleStatistics getStatistics();
+
 	/** Blocks until the given module is finished executing. */
 	<M extends Module> M waitFor(Future<M> future);
 
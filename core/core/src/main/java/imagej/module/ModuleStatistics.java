@@ -0,0 +1,420 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.module;
+
+import imagej.util.LongHistogram;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Execution statistics of the modules run by {@link ModuleRunner}. For each
+ * module, and for each {@link ModulePreprocessor} and
+ * {@link ModulePostprocessor} in the chain, it measures the elapsed (wall
+ * clock) time, the CPU time and the number of bytes allocated by the executing
+ * thread.
+ * <p>
+ * Collection is disabled by default, since it adds a little overhead to every
+ * module execution; see {@link #setEnabled}, or set the
+ * {@link #ENABLED_PROPERTY} system property to true. CPU time and allocated
+ * bytes are only measured when the Java runtime supports it.
+ * </p>
+ * 
+ * @author agent
+ */
+public class ModuleStatistics {
+
+	/** System property which, when true, enables collection at startup. */
+	public static final String ENABLED_PROPERTY = "imagej.module.statistics";
+
+	private static final String NL = System.getProperty("line.separator");
+
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	/** Method measuring a thread's allocations, or null if unsupported. */
+	private final Method allocatedBytes = findAllocatedBytesMethod();
+
+	private volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	private final ConcurrentMap<String, ExecutionTiming> moduleTimings =
+		new ConcurrentHashMap<String, ExecutionTiming>();
+
+	private final ConcurrentMap<String, ExecutionTiming> preprocessorTimings =
+		new ConcurrentHashMap<String, ExecutionTiming>();
+
+	private final ConcurrentMap<String, ExecutionTiming> postprocessorTimings =
+		new ConcurrentHashMap<String, ExecutionTiming>();
+
+	// -- ModuleStatistics methods --
+
+	/** Gets whether execution timings are being collected. */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Sets whether to collect execution timings. */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the execution statistics of each module, keyed on the name of the
+	 * module's delegate class (see {@link ModuleInfo#getDelegateClassName()}),
+	 * followed by the module's title in brackets unless the title is just the
+	 * class name. The title tells apart modules which share a delegate class,
+	 * such as legacy commands or scripts. Pre- and postprocessing are not
+	 * included.
+	 */
+	public Map<String, ExecutionTiming> getModuleTimings() {
+		return Collections.unmodifiableMap(moduleTimings);
+	}
+
+	/** Gets the execution statistics of each preprocessor class. */
+	public Map<String, ExecutionTiming> getPreprocessorTimings() {
+		return Collections.unmodifiableMap(preprocessorTimings);
+	}
+
+	/** Gets the execution statistics of each postprocessor class. */
+	public Map<String, ExecutionTiming> getPostprocessorTimings() {
+		return Collections.unmodifiableMap(postprocessorTimings);
+	}
+
+	/** Discards all timings collected so far. */
+	public void reset() {
+		moduleTimings.clear();
+		preprocessorTimings.clear();
+		postprocessorTimings.clear();
+	}
+
+	/**
+	 * Gets a human readable report of the statistics, listing the modules and
+	 * processors with the most total elapsed time first.
+	 */
+	public String report() {
+		final StringBuilder sb = new StringBuilder();
+		if (!isEnabled()) {
+			sb.append("Module timing collection is disabled." + NL);
+		}
+		report(sb, "Modules", moduleTimings);
+		report(sb, "Preprocessors", preprocessorTimings);
+		report(sb, "Postprocessors", postprocessorTimings);
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the statistics to the given file as tab-separated values, one row
+	 * per module or processor. Times are given in nanoseconds, allocations in
+	 * bytes; a value of -1 means the quantity was not measured.
+	 */
+	public void export(final File file) throws IOException {
+		final PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.print("kind\tname\tcount");
+			for (final String column : new String[] { "wall", "cpu", "alloc" }) {
+				for (final String stat : new String[] { "mean", "p50", "p95", "p99",
+					"max", "total" })
+				{
+					out.print("\t" + column + "_" + stat);
+				}
+			}
+			out.println();
+			export(out, "module", moduleTimings);
+			export(out, "preprocessor", preprocessorTimings);
+			export(out, "postprocessor", postprocessorTimings);
+		}
+		finally {
+			out.close();
+		}
+		if (out.checkError()) {
+			throw new IOException("Error writing module statistics to " + file);
+		}
+	}
+
+	// -- Internal methods --
+
+	/**
+	 * Takes a sample of the current thread's clocks, for use as the start of a
+	 * measurement.
+	 * 
+	 * @return The sample, or null if collection is disabled.
+	 */
+	Sample start() {
+		if (!enabled) return null;
+		return new Sample();
+	}
+
+	/** Records the execution of a module which began at the given sample. */
+	void executed(final Module module, final Sample start) {
+		if (start == null) return;
+		record(moduleTimings, getName(module.getInfo()), start);
+	}
+
+	/**
+	 * Records the execution of a preprocessor which began at the given sample.
+	 */
+	void preprocessed(final ModulePreprocessor p, final Sample start) {
+		if (start == null) return;
+		record(preprocessorTimings, p.getClass().getName(), start);
+	}
+
+	/**
+	 * Records the execution of a postprocessor which began at the given sample.
+	 */
+	void postprocessed(final ModulePostprocessor p, final Sample start) {
+		if (start == null) return;
+		record(postprocessorTimings, p.getClass().getName(), start);
+	}
+
+	// -- Helper methods --
+
+	/** Gets the name under which the executions of a module are recorded. */
+	private String getName(final ModuleInfo info) {
+		final String className = info.getDelegateClassName();
+		final String title = info.getTitle();
+		if (title == null || title.equals(className) ||
+			className.endsWith("." + title))
+		{
+			return className;
+		}
+		return className + " [" + title + "]";
+	}
+
+	private void record(final ConcurrentMap<String, ExecutionTiming> timings,
+		final String name, final Sample start)
+	{
+		final Sample end = new Sample();
+		ExecutionTiming timing = timings.get(name);
+		if (timing == null) {
+			final ExecutionTiming fresh = new ExecutionTiming();
+			final ExecutionTiming prev = timings.putIfAbsent(name, fresh);
+			timing = prev == null ? fresh : prev;
+		}
+		timing.wall.record(end.wall - start.wall);
+		if (start.cpu >= 0 && end.cpu >= 0) timing.cpu.record(end.cpu - start.cpu);
+		if (start.allocated >= 0 && end.allocated >= 0) {
+			timing.allocated.record(end.allocated - start.allocated);
+		}
+	}
+
+	private long getCpuTime() {
+		try {
+			if (threadBean.isCurrentThreadCpuTimeSupported()) {
+				return threadBean.getCurrentThreadCpuTime();
+			}
+		}
+		catch (final UnsupportedOperationException exc) {
+			// NB: CPU time measurement is disabled.
+		}
+		return -1;
+	}
+
+	private long getAllocatedBytes() {
+		if (allocatedBytes == null) return -1;
+		try {
+			final Object bytes =
+				allocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+			return ((Number) bytes).longValue();
+		}
+		catch (final Exception exc) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Looks up the method of HotSpot's extended {@link ThreadMXBean} which
+	 * reports the bytes allocated by a thread; other runtimes may lack it.
+	 */
+	private Method findAllocatedBytesMethod() {
+		try {
+			final Class<?> c =
+				Class.forName("com.sun.management.ThreadMXBean", false,
+					ThreadMXBean.class.getClassLoader());
+			if (!c.isInstance(threadBean)) return null;
+			final Method m = c.getMethod("getThreadAllocatedBytes", long.class);
+			final Method supported =
+				c.getMethod("isThreadAllocatedMemorySupported");
+			if (!Boolean.TRUE.equals(supported.invoke(threadBean))) return null;
+			return m;
+		}
+		catch (final Exception exc) {
+			return null;
+		}
+	}
+
+	private void report(final StringBuilder sb, final String label,
+		final Map<String, ExecutionTiming> timings)
+	{
+		sb.append(NL + label + ":" + NL);
+		for (final Map.Entry<String, ExecutionTiming> entry : sort(timings)) {
+			sb.append("\t" + entry.getKey() + ": " + entry.getValue() + NL);
+		}
+	}
+
+	private void export(final PrintWriter out, final String kind,
+		final Map<String, ExecutionTiming> timings)
+	{
+		for (final Map.Entry<String, ExecutionTiming> entry : sort(timings)) {
+			final ExecutionTiming timing = entry.getValue();
+			out.print(kind + "\t" + entry.getKey() + "\t" + timing.getCount());
+			export(out, timing.getWallTime());
+			export(out, timing.getCpuTime());
+			export(out, timing.getAllocatedBytes());
+			out.println();
+		}
+	}
+
+	private void export(final PrintWriter out, final LongHistogram timing) {
+		final boolean measured = timing.getCount() > 0;
+		out.print("\t" + (measured ? Math.round(timing.getMean()) : -1));
+		for (final double q : new double[] { 0.5, 0.95, 0.99 }) {
+			out.print("\t" + (measured ? timing.getQuantile(q) : -1));
+		}
+		out.print("\t" + (measured ? timing.getMax() : -1));
+		out.print("\t" + (measured ? timing.getTotal() : -1));
+	}
+
+	/** Sorts the given timings by total elapsed time, largest first. */
+	private List<Map.Entry<String, ExecutionTiming>> sort(
+		final Map<String, ExecutionTiming> timings)
+	{
+		final List<Map.Entry<String, ExecutionTiming>> entries =
+			new ArrayList<Map.Entry<String, ExecutionTiming>>(timings.entrySet());
+		Collections.sort(entries,
+			new Comparator<Map.Entry<String, ExecutionTiming>>() {
+
+				@Override
+				public int compare(final Map.Entry<String, ExecutionTiming> e1,
+					final Map.Entry<String, ExecutionTiming> e2)
+				{
+					final long t1 = e1.getValue().getWallTime().getTotal();
+					final long t2 = e2.getValue().getWallTime().getTotal();
+					return t1 < t2 ? 1 : t1 > t2 ? -1 : 0;
+				}
+			});
+		return entries;
+	}
+
+	// -- Helper classes --
+
+	/** A snapshot of the current thread's clocks. */
+	class Sample {
+
+		private final long wall = System.nanoTime();
+		private final long cpu = getCpuTime();
+		private final long allocated = getAllocatedBytes();
+
+	}
+
+	/**
+	 * Statistics of the executions of a module or processor: elapsed time, CPU
+	 * time and allocated bytes.
+	 */
+	public static class ExecutionTiming {
+
+		private final LongHistogram wall = new LongHistogram();
+		private final LongHistogram cpu = new LongHistogram();
+		private final LongHistogram allocated = new LongHistogram();
+
+		/** Gets the number of recorded executions. */
+		public long getCount() {
+			return wall.getCount();
+		}
+
+		/** Gets the elapsed (wall clock) time of the executions. */
+		public LongHistogram getWallTime() {
+			return wall;
+		}
+
+		/**
+		 * Gets the CPU time used by the executing thread. Empty if the Java
+		 * runtime cannot measure CPU time.
+		 */
+		public LongHistogram getCpuTime() {
+			return cpu;
+		}
+
+		/**
+		 * Gets the number of bytes allocated by the executing thread. Empty if the
+		 * Java runtime cannot measure allocations.
+		 */
+		public LongHistogram getAllocatedBytes() {
+			return allocated;
+		}
+
+		// -- Object methods --
+
+		@Override
+		public String toString() {
+			final StringBuilder sb = new StringBuilder();
+			sb.append("count " + getCount());
+			sb.append("; wall " + format(wall, "ms", 1e6));
+			if (cpu.getCount() > 0) sb.append("; cpu " + format(cpu, "ms", 1e6));
+			if (allocated.getCount() > 0) {
+				sb.append("; alloc " + format(allocated, "KB", 1024));
+			}
+			return sb.toString();
+		}
+
+		private static String format(final LongHistogram timing,
+			final String unit, final double scale)
+		{
+			return "p50 " + format(timing.getQuantile(0.5), unit, scale) +
+				", p95 " + format(timing.getQuantile(0.95), unit, scale) +
+				", p99 " + format(timing.getQuantile(0.99), unit, scale) +
+				", max " + format(timing.getMax(), unit, scale);
+		}
+
+		private static String format(final long value, final String unit,
+			final double scale)
+		{
+			return String.format("%.2f%s", value / scale, unit);
+		}
+
+	}
+
+}
@@ -113,12 +113,15 @@ public void initialize() {
 
 	// -- Event handlers --
 
-	@EventHandler
+	// NB: The object index is thread safe, so objects are indexed directly on
+	// the publishing thread.
+
+	@EventHandler(dispatchThread = false)
 	protected void onEvent(final ObjectCreatedEvent event) {
 		addObject(event.getObject());
 	}
 
-	@EventHandler
+	@EventHandler(dispatchThread = false)
 	protected void onEvent(final ObjectDeletedEvent event) {
 		removeObject(event.getObject());
 	}
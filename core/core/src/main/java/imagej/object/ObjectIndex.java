@@ -38,10 +38,12 @@
 import imagej.util.ClassUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -63,13 +65,17 @@
  * </p>
  * <p>
  * Note that similar to {@link List}, it is possible for the same object to be
- * added to the index more than once, in which case it will appear on relevant
+ * added to the index more than once, in which case it will appear on compatible
  * type lists multiple times.
  * </p>
  * <p>
- * Note that similar to {@link List}, it is possible for the same object to be
- * added to the index more than once, in which case it will appear on compatible
- * type lists multiple times.
+ * Objects are identified by identity rather than by {@link Object#equals}:
+ * each type list is a linked list of entries with an identity hash table of
+ * the entries of each object, so adding, removing and testing membership take
+ * constant time per type list. The type hierarchy of each class is computed
+ * only once. The lists returned by {@link #get(Class)} are immutable
+ * snapshots, built when first requested after a change and then shared by all
+ * readers, so the index can safely be read while other threads modify it.
  * </p>
  * 
  * @author Curtis Rueden
@@ -80,8 +86,15 @@
 	 * "Them as counts counts moren them as dont count." <br>
 	 * &mdash;Russell Hoban, <em>Riddley Walker</em>
 	 */
-	protected final Map<Class<?>, List<E>> hoard =
-		new ConcurrentHashMap<Class<?>, List<E>>();
+	private final Map<Class<?>, TypeList> hoard =
+		new ConcurrentHashMap<Class<?>, TypeList>();
+
+	/** Cached type hierarchy of each class, including {@link All}. */
+	private final Map<Class<?>, Class<?>[]> typeCache =
+		new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+	/** Lock guarding all modifications of the type lists. */
+	private final Object lock = new Object();
 
 	private final Class<E> baseClass;
 
@@ -121,29 +134,36 @@ public List<E> getAll() {
 	/**
 	 * Gets a list of registered objects compatible with the given type.
 	 * 
-	 * @return Read-only list of registered objects of the given type, or an empty
-	 *         list if no such objects exist (this method never returns null).
+	 * @return Read-only snapshot of the registered objects of the given type, or
+	 *         an empty list if no such objects exist (this method never returns
+	 *         null).
 	 */
 	public List<E> get(final Class<?> type) {
-		final List<E> list = retrieveList(type);
-		return Collections.unmodifiableList(list);
+		final TypeList list = hoard.get(type);
+		if (list == null) return Collections.emptyList();
+		return list.snapshot();
 	}
 
 	// -- Collection methods --
 
 	@Override
 	public int size() {
-		return getAll().size();
+		final TypeList all = hoard.get(All.class);
+		return all == null ? 0 : all.size();
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return getAll().isEmpty();
+		return size() == 0;
 	}
 
 	@Override
 	public boolean contains(final Object o) {
-		return get(o.getClass()).contains(o);
+		final TypeList all = hoard.get(All.class);
+		if (all == null) return false;
+		synchronized (lock) {
+			return all.contains(o);
+		}
 	}
 
 	@Override
@@ -173,7 +193,10 @@ public boolean remove(final Object o) {
 
 	@Override
 	public boolean containsAll(final Collection<?> c) {
-		return getAll().containsAll(c);
+		for (final Object o : c) {
+			if (!contains(o)) return false;
+		}
+		return true;
 	}
 
 	@Override
@@ -203,7 +226,9 @@ public boolean retainAll(final Collection<?> c) {
 
 	@Override
 	public void clear() {
-		hoard.clear();
+		synchronized (lock) {
+			hoard.clear();
+		}
 	}
 
 	// -- Object methods --
@@ -224,7 +249,7 @@ public int compare(final Class<?> c1, final Class<?> c2) {
 		final StringBuilder sb = new StringBuilder();
 		for (final Class<?> c : classes) {
 			sb.append(c.getName() + ": {");
-			final List<E> list = hoard.get(c);
+			final List<E> list = get(c);
 			boolean first = true;
 			for (final E element : list) {
 				if (first) first = false;
@@ -250,51 +275,61 @@ protected boolean remove(final Object o, final boolean batch) {
 	}
 
 	/** Adds an object to type lists beneath the given type hierarchy. */
-	protected boolean add(final E o, final Class<?> type, final boolean batch) {
-		boolean result = false;
-		final Set<Class<?>> types = getTypes(type);
-		for (final Class<?> c : types) {
-			if (addToList(o, retrieveList(c), batch)) result = true;
+	protected boolean add(final E o, final Class<?> type,
+		@SuppressWarnings("unused") final boolean batch)
+	{
+		final Class<?>[] types = getTypes(type);
+		synchronized (lock) {
+			for (final Class<?> c : types) {
+				retrieveList(c).add(o);
+			}
 		}
-		return result;
+		return true;
 	}
 
 	/** Removes an object from type lists beneath the given type hierarchy. */
 	protected boolean remove(final Object o, final Class<?> type,
-		final boolean batch)
+		@SuppressWarnings("unused") final boolean batch)
 	{
 		boolean result = false;
-		final Set<Class<?>> types = getTypes(type);
-		for (final Class<?> c : types) {
-			if (removeFromList(o, retrieveList(c), batch)) result = true;
+		final Class<?>[] types = getTypes(type);
+		synchronized (lock) {
+			for (final Class<?> c : types) {
+				final TypeList list = hoard.get(c);
+				if (list != null && list.remove(o)) result = true;
+			}
 		}
 		return result;
 	}
 
-	protected boolean addToList(final E obj, final List<E> list,
-		@SuppressWarnings("unused") final boolean batch)
-	{
-		return list.add(obj);
-	}
-
-	protected boolean removeFromList(final Object obj, final List<E> list,
-		@SuppressWarnings("unused") final boolean batch)
-	{
-		return list.remove(obj);
+	/**
+	 * Puts a snapshot of a type list into the order in which it is reported by
+	 * {@link #get(Class)}. By default, objects are kept in the order they were
+	 * added, so this method does nothing.
+	 * 
+	 * @param list The snapshot to reorder, in insertion order.
+	 */
+	protected void sort(@SuppressWarnings("unused") final List<E> list) {
+		// NB: Keep insertion order by default.
 	}
 
 	// -- Helper methods --
 
-	/** Gets a new set containing the type and all its supertypes. */
-	private HashSet<Class<?>> getTypes(final Class<?> type) {
-		final HashSet<Class<?>> types = new HashSet<Class<?>>();
-		types.add(All.class); // NB: Always include the "All" class.
-		getTypes(type, types);
+	/** Gets the type and all its supertypes, computing them if necessary. */
+	private Class<?>[] getTypes(final Class<?> type) {
+		Class<?>[] types = typeCache.get(type);
+		if (types == null) {
+			final HashSet<Class<?>> typeSet = new HashSet<Class<?>>();
+			typeSet.add(All.class); // NB: Always include the "All" class.
+			getTypes(type, typeSet);
+			types = typeSet.toArray(new Class<?>[typeSet.size()]);
+			typeCache.put(type, types);
+		}
 		return types;
 	}
 
 	/** Recursively adds the type and all its supertypes to the given set. */
-	private void getTypes(final Class<?> type, final HashSet<Class<?>> types) {
+	private void getTypes(final Class<?> type, final Set<Class<?>> types) {
 		if (type == null) return;
 		types.add(type);
 
@@ -305,18 +340,121 @@ private void getTypes(final Class<?> type, final HashSet<Class<?>> types) {
 		}
 	}
 
-	/** Retrieves the type list for the given type, creating it if necessary. */
-	private List<E> retrieveList(final Class<?> type) {
-		List<E> list = hoard.get(type);
+	/**
+	 * Retrieves the type list for the given type, creating it if necessary. Must
+	 * be called while holding the lock.
+	 */
+	private TypeList retrieveList(final Class<?> type) {
+		TypeList list = hoard.get(type);
 		if (list == null) {
-			list = new ArrayList<E>();
+			list = new TypeList();
 			hoard.put(type, list);
 		}
 		return list;
 	}
 
+	// -- Helper classes --
+
 	private static class All {
 		// NB: A special class beneath which *all* elements of the index are listed.
 	}
 
+	/** A linked list entry of a {@link TypeList}. */
+	private static class Entry<E> {
+
+		private final E value;
+		private Entry<E> prev, next;
+
+		/** The next entry of the same object, for objects added repeatedly. */
+		private Entry<E> same;
+
+		public Entry(final E value) {
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * The objects of one type, in insertion order. Modifications must be made
+	 * while holding the index's lock; snapshots may be taken at any time.
+	 */
+	private class TypeList {
+
+		private Entry<E> head, tail;
+		private volatile int size;
+
+		/** First entry of each object in the list, by identity. */
+		private final IdentityHashMap<Object, Entry<E>> entries =
+			new IdentityHashMap<Object, Entry<E>>();
+
+		/** Immutable snapshot of the list, or null if it has changed since. */
+		private volatile List<E> snapshot;
+
+		public int size() {
+			return size;
+		}
+
+		public boolean contains(final Object o) {
+			return entries.containsKey(o);
+		}
+
+		public void add(final E o) {
+			final Entry<E> entry = new Entry<E>(o);
+			entry.prev = tail;
+			if (tail == null) head = entry;
+			else tail.next = entry;
+			tail = entry;
+
+			final Entry<E> first = entries.get(o);
+			if (first == null) entries.put(o, entry);
+			else {
+				Entry<E> last = first;
+				while (last.same != null) {
+					last = last.same;
+				}
+				last.same = entry;
+			}
+			size++;
+			snapshot = null;
+		}
+
+		/** Removes the first occurrence of the given object. */
+		public boolean remove(final Object o) {
+			final Entry<E> entry = entries.get(o);
+			if (entry == null) return false;
+			if (entry.same == null) entries.remove(o);
+			else entries.put(o, entry.same);
+
+			if (entry.prev == null) head = entry.next;
+			else entry.prev.next = entry.next;
+			if (entry.next == null) tail = entry.prev;
+			else entry.next.prev = entry.prev;
+			size--;
+			snapshot = null;
+			return true;
+		}
+
+		public List<E> snapshot() {
+			List<E> list = snapshot;
+			if (list != null) return list;
+			synchronized (lock) {
+				list = snapshot;
+				if (list == null) {
+					@SuppressWarnings("unchecked")
+					final E[] array = (E[]) new Object[size];
+					int i = 0;
+					for (Entry<E> e = head; e != null; e = e.next) {
+						array[i++] = e.value;
+					}
+					list = Arrays.asList(array);
+					sort(list);
+					list = Collections.unmodifiableList(list);
+					snapshot = list;
+				}
+			}
+			return list;
+		}
+
+	}
+
 }
@@ -35,7 +35,6 @@
 
 package imagej.object;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -43,12 +42,11 @@
  * Data structure for managing sorted lists of registered objects.
  * <p>
  * This data structure is the same as a vanilla {@link ObjectIndex} except that
- * each type list is kept in sorted order; hence, the items managed must
- * implement the {@link Comparable} interface. When adding a single item (i.e.,
- * with {@link #add(Object)}), a binary search is used to insert it in the
- * correct position (O(log n) + O(n) time per item). When adding multiple items
- * at once (i.e., with {@link #addAll(Collection)}), the items are appended and
- * the list is then resorted (O(n log n) time for all items).
+ * each type list is reported in sorted order; hence, the items managed must
+ * implement the {@link Comparable} interface. Objects of equal rank are
+ * reported in the order they were added. Sorting happens when a type list is
+ * first requested after a change, so adding many items in a row costs a single
+ * sort (O(n log n) time for all items, or O(n) if the list is nearly sorted).
  * </p>
  * 
  * @author Curtis Rueden
@@ -61,74 +59,11 @@ public SortedObjectIndex(final Class<E> baseClass) {
 		super(baseClass);
 	}
 
-	// -- Collection methods --
-
-	@Override
-	public boolean contains(final Object o) {
-		final int index = findInList(o, getAll());
-		return index < 0;
-	}
-
-	@Override
-	public boolean containsAll(final Collection<?> c) {
-		for (final Object o : c) {
-			if (!contains(o)) return false;
-		}
-		return true;
-	}
-
-	@Override
-	public boolean addAll(final Collection<? extends E> c) {
-		if (c.size() == 1) {
-			// add single item normally, to avoid resorting the lists
-			return add(c.iterator().next());
-		}
-		final boolean changed = super.addAll(c);
-		if (changed) sort();
-		return changed;
-	}
-
 	// -- Internal methods --
 
 	@Override
-	protected boolean addToList(final E obj, final List<E> list,
-		final boolean batch)
-	{
-		if (batch) {
-			// adding multiple values; append to end of list, and sort afterward
-			return super.addToList(obj, list, batch);
-		}
-
-		// search for the correct location to insert the object
-		final int result = Collections.binarySearch(list, obj);
-		// NB: The objects' natural ordering may not be consistent with equals.
-		// Hence, the index reported may indicate a match with an unequal object
-		// (i.e., obj.compareTo(match) == 0 but !obj.equals(match)).
-		// But since we allow duplicate items in the index, this situation is fine;
-		// either way, we want to insert the object at the given point.
-		final int index = result < 0 ? -result - 1 : result;
-
-		// insert object at the appropriate location
-		list.add(index, obj);
-		return true;
-	}
-
-	// -- Helper methods --
-
-	private void sort() {
-		for (final List<E> list : hoard.values()) {
-			Collections.sort(list);
-		}
-	}
-
-	private int findInList(final Object o, final List<E> list) {
-		if (!getBaseClass().isAssignableFrom(o.getClass())) {
-			// wrong type
-			return list.size();
-		}
-		@SuppressWarnings("unchecked")
-		final E typedObj = (E) o;
-		return Collections.binarySearch(list, typedObj);
+	protected void sort(final List<E> list) {
+		Collections.sort(list);
 	}
 
 }
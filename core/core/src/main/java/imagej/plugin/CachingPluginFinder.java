@@ -0,0 +1,388 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.plugin;
+
+import imagej.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link PluginFinder} which remembers the plugins discovered by another
+ * finder in a file on disk, and reuses them as long as the plugin indices on
+ * the classpath do not change.
+ * <p>
+ * The cache is keyed on the location and CRC-32 checksum of every SezPoz index
+ * of @{@link Plugin} annotations visible to the class loader. Reading those
+ * indices is cheap compared to deserializing them and building the annotation
+ * proxies, which is what the cache saves. Whenever a JAR file or class folder
+ * containing plugins is added, removed or rebuilt, the checksums change and
+ * the plugins are discovered afresh (and the cache rewritten).
+ * </p>
+ * <p>
+ * Plugin classes are still not loaded: the @{@link Plugin} annotation of each
+ * cached {@link PluginInfo} is a lightweight proxy backed by the cached
+ * attribute values.
+ * </p>
+ * 
+ * @author agent
+ */
+public class CachingPluginFinder implements PluginFinder {
+
+	/**
+	 * System property naming the cache file used by
+	 * {@link PluginIndex#discover()}. If the property is not set, plugins are
+	 * discovered without a cache.
+	 */
+	public static final String CACHE_PROPERTY = "imagej.plugin.cache";
+
+	/** Version of the cache file format. */
+	private static final int VERSION = 1;
+
+	/** Path to the SezPoz index of @{@link Plugin} annotations. */
+	private static final String INDEX_RESOURCE = "META-INF/annotations/" +
+		Plugin.class.getName();
+
+	/** Finder used to discover the plugins when the cache is out of date. */
+	private final PluginFinder finder;
+
+	/** Class loader whose plugin indices are checked. */
+	private final ClassLoader classLoader;
+
+	/** File in which the discovered plugins are cached. */
+	private final File cacheFile;
+
+	// -- Constructors --
+
+	public CachingPluginFinder(final File cacheFile) {
+		this(new DefaultPluginFinder(), null, cacheFile);
+	}
+
+	/**
+	 * Creates a caching plugin finder.
+	 * 
+	 * @param finder The finder used to discover plugins when the cache is
+	 *          missing or out of date.
+	 * @param classLoader The class loader searched by the finder, or null for
+	 *          the default one.
+	 * @param cacheFile The file in which to cache the discovered plugins.
+	 */
+	public CachingPluginFinder(final PluginFinder finder,
+		final ClassLoader classLoader, final File cacheFile)
+	{
+		this.finder = finder;
+		this.classLoader = classLoader;
+		this.cacheFile = cacheFile;
+	}
+
+	// -- PluginFinder methods --
+
+	@Override
+	public void findPlugins(final List<PluginInfo<?>> plugins) {
+		final String fingerprint = fingerprint();
+		if (fingerprint != null) {
+			final List<PluginInfo<?>> cached = readCache(fingerprint);
+			if (cached != null) {
+				plugins.addAll(cached);
+				Log.info("Found " + cached.size() + " plugins (cached).");
+				return;
+			}
+		}
+
+		final int oldSize = plugins.size();
+		finder.findPlugins(plugins);
+		if (fingerprint != null) {
+			writeCache(fingerprint, plugins.subList(oldSize, plugins.size()));
+		}
+	}
+
+	// -- Helper methods --
+
+	private ClassLoader getClassLoader() {
+		if (classLoader != null) return classLoader;
+		final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		return loader == null ? getClass().getClassLoader() : loader;
+	}
+
+	/**
+	 * Computes a string identifying the current set of plugin indices, or null
+	 * if they cannot be read.
+	 */
+	private String fingerprint() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(VERSION);
+		try {
+			final Enumeration<URL> indices =
+				getClassLoader().getResources(INDEX_RESOURCE);
+			final byte[] buffer = new byte[8192];
+			while (indices.hasMoreElements()) {
+				final URL url = indices.nextElement();
+				final CRC32 crc = new CRC32();
+				final InputStream in = url.openStream();
+				try {
+					while (true) {
+						final int r = in.read(buffer);
+						if (r < 0) break;
+						crc.update(buffer, 0, r);
+					}
+				}
+				finally {
+					in.close();
+				}
+				sb.append("\n" + url + " " + Long.toHexString(crc.getValue()));
+			}
+		}
+		catch (final IOException e) {
+			Log.debug(e);
+			return null;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the cached plugins, or returns null if the cache is missing,
+	 * unreadable or out of date.
+	 */
+	private List<PluginInfo<?>> readCache(final String fingerprint) {
+		if (!cacheFile.exists()) return null;
+		try {
+			final ObjectInputStream in =
+				new ObjectInputStream(new BufferedInputStream(new FileInputStream(
+					cacheFile)));
+			try {
+				if (!fingerprint.equals(in.readObject())) return null;
+				final int count = in.readInt();
+				final List<PluginInfo<?>> plugins =
+					new ArrayList<PluginInfo<?>>(count);
+				for (int i = 0; i < count; i++) {
+					final String className = (String) in.readObject();
+					@SuppressWarnings("unchecked")
+					final Map<String, Object> values =
+						(Map<String, Object>) in.readObject();
+					final Plugin plugin = decode(Plugin.class, values);
+					@SuppressWarnings("unchecked")
+					final Class<ImageJPlugin> pluginType =
+						(Class<ImageJPlugin>) plugin.type();
+					plugins.add(new PluginInfo<ImageJPlugin>(className, pluginType,
+						plugin));
+				}
+				return plugins;
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final Exception e) {
+			// NB: Stale or corrupt cache; discover the plugins afresh.
+			Log.debug(e);
+			return null;
+		}
+	}
+
+	/** Writes the given plugins to the cache file, if possible. */
+	private void writeCache(final String fingerprint,
+		final List<PluginInfo<?>> plugins)
+	{
+		for (final PluginInfo<?> info : plugins) {
+			// NB: Only plugins described entirely by their annotation can be cached.
+			if (info.getClass() != PluginInfo.class) return;
+			if (info.getAnnotation() == null) return;
+		}
+
+		// NB: Write to a temporary file first, so that concurrently starting
+		// applications never read a partially written cache.
+		final File dir = cacheFile.getAbsoluteFile().getParentFile();
+		File tmpFile = null;
+		try {
+			if (!dir.exists()) dir.mkdirs();
+			tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+			final ObjectOutputStream out =
+				new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(
+					tmpFile)));
+			try {
+				out.writeObject(fingerprint);
+				out.writeInt(plugins.size());
+				for (final PluginInfo<?> info : plugins) {
+					out.writeObject(info.getClassName());
+					out.writeObject(encode(info.getAnnotation()));
+				}
+			}
+			finally {
+				out.close();
+			}
+			if (cacheFile.exists()) cacheFile.delete();
+			if (tmpFile.renameTo(cacheFile)) tmpFile = null;
+		}
+		catch (final Exception e) {
+			Log.warn("Cannot write plugin cache: " + cacheFile, e);
+		}
+		finally {
+			if (tmpFile != null) tmpFile.delete();
+		}
+	}
+
+	/** Converts the given annotation to a map of serializable values. */
+	private HashMap<String, Object> encode(final Annotation annotation)
+		throws IllegalAccessException, InvocationTargetException
+	{
+		final HashMap<String, Object> values = new HashMap<String, Object>();
+		for (final Method m : annotation.annotationType().getDeclaredMethods()) {
+			values.put(m.getName(), encodeValue(m.invoke(annotation)));
+		}
+		return values;
+	}
+
+	private Object encodeValue(final Object value)
+		throws IllegalAccessException, InvocationTargetException
+	{
+		if (value instanceof Class) return ((Class<?>) value).getName();
+		if (value instanceof Annotation) return encode((Annotation) value);
+		if (value instanceof Annotation[]) {
+			final Annotation[] array = (Annotation[]) value;
+			final ArrayList<Object> list = new ArrayList<Object>(array.length);
+			for (final Annotation a : array) {
+				list.add(encode(a));
+			}
+			return list;
+		}
+		return value;
+	}
+
+	/** Creates an annotation of the given type from the encoded values. */
+	private <A extends Annotation> A decode(final Class<A> type,
+		final Map<String, Object> values) throws ClassNotFoundException
+	{
+		final HashMap<String, Object> decoded = new HashMap<String, Object>();
+		for (final Method m : type.getDeclaredMethods()) {
+			if (!values.containsKey(m.getName())) continue;
+			decoded.put(m.getName(), decodeValue(m.getReturnType(), values.get(m
+				.getName())));
+		}
+		final Object proxy =
+			Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				new AnnotationHandler(type, decoded));
+		return type.cast(proxy);
+	}
+
+	private Object decodeValue(final Class<?> type, final Object value)
+		throws ClassNotFoundException
+	{
+		if (type == Class.class) {
+			return Class.forName((String) value, false, getClassLoader());
+		}
+		if (type.isAnnotation()) {
+			@SuppressWarnings("unchecked")
+			final Map<String, Object> map = (Map<String, Object>) value;
+			return decode(type.asSubclass(Annotation.class), map);
+		}
+		if (type.isArray() && type.getComponentType().isAnnotation()) {
+			final List<?> list = (List<?>) value;
+			final Object array = Array.newInstance(type.getComponentType(), list
+				.size());
+			for (int i = 0; i < list.size(); i++) {
+				Array.set(array, i, decodeValue(type.getComponentType(), list.get(i)));
+			}
+			return array;
+		}
+		return value;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Backs an annotation proxy with a map of attribute values, falling back to
+	 * the declared default value of any attribute not in the map.
+	 */
+	private static class AnnotationHandler implements InvocationHandler {
+
+		private final Class<? extends Annotation> type;
+		private final Map<String, Object> values;
+
+		public AnnotationHandler(final Class<? extends Annotation> type,
+			final Map<String, Object> values)
+		{
+			this.type = type;
+			this.values = values;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method,
+			final Object[] args)
+		{
+			final String name = method.getName();
+			if (args != null && args.length > 0) {
+				// equals(Object) is the only annotation method with arguments
+				return proxy == args[0];
+			}
+			if (name.equals("annotationType")) return type;
+			if (name.equals("hashCode")) return System.identityHashCode(proxy);
+			if (name.equals("toString")) return "@" + type.getName() + values;
+			final Object value =
+				values.containsKey(name) ? values.get(name) : method.getDefaultValue();
+			if (value != null && value.getClass().isArray()) {
+				// NB: Annotation arrays are defensively copied.
+				final int length = Array.getLength(value);
+				final Object copy =
+					Array.newInstance(value.getClass().getComponentType(), length);
+				System.arraycopy(value, 0, copy, 0, length);
+				return copy;
+			}
+			return value;
+		}
+
+	}
+
+}
@@ -35,8 +35,10 @@
 
 package imagej.plugin;
 
+import imagej.StartupProfile;
 import imagej.object.SortedObjectIndex;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -72,18 +74,55 @@ public PluginIndex() {
 
 	// -- PluginIndex methods --
 
-	/** Discovers plugins available on the classpath. */
+	/**
+	 * Discovers plugins available on the classpath. If the
+	 * {@link CachingPluginFinder#CACHE_PROPERTY} system property is set, the
+	 * discovered plugins are cached in the file it names.
+	 */
 	public void discover() {
-		discover(new DefaultPluginFinder());
+		discover((StartupProfile) null);
+	}
+
+	/**
+	 * Discovers plugins available on the classpath, recording the time taken in
+	 * the given profile.
+	 * 
+	 * @see #discover()
+	 */
+	public void discover(final StartupProfile profile) {
+		final String cachePath =
+			System.getProperty(CachingPluginFinder.CACHE_PROPERTY);
+		final PluginFinder pluginFinder;
+		if (cachePath == null || cachePath.isEmpty()) {
+			pluginFinder = new DefaultPluginFinder();
+		}
+		else pluginFinder = new CachingPluginFinder(new File(cachePath));
+		discover(pluginFinder, profile);
 	}
 
 	/**
 	 * Discovers available plugins, using the given {@link PluginFinder} instance.
 	 */
 	public void discover(final PluginFinder pluginFinder) {
+		discover(pluginFinder, null);
+	}
+
+	/**
+	 * Discovers available plugins, using the given {@link PluginFinder}
+	 * instance, and recording the time taken in the given profile (if non-null).
+	 */
+	public void discover(final PluginFinder pluginFinder,
+		final StartupProfile profile)
+	{
+		final long start = System.nanoTime();
 		final ArrayList<PluginInfo<?>> plugins = new ArrayList<PluginInfo<?>>();
 		pluginFinder.findPlugins(plugins);
+		final long found = System.nanoTime();
 		addAll(plugins);
+		if (profile != null) {
+			profile.record(StartupProfile.PLUGIN_DISCOVERY, found - start);
+			profile.record(StartupProfile.PLUGIN_INDEXING, System.nanoTime() - found);
+		}
 	}
 
 	/**
@@ -37,6 +37,7 @@
 
 import imagej.AbstractContextual;
 import imagej.ImageJ;
+import imagej.StartupProfile;
 import imagej.event.EventService;
 import imagej.log.LogService;
 import imagej.plugin.Parameter;
@@ -47,29 +48,71 @@
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Helper class for discovering and instantiating available services.
+ * <p>
+ * Services can be instantiated all at once with {@link #loadServices()}, or
+ * one at a time on demand with {@link #loadAvailableService(Class)}, as lazy
+ * application contexts do (see {@link ImageJ#createLazyContext()}). Either
+ * way, the helper records which services were actually created, and how long
+ * each took; see {@link #getLoadTimes()}.
+ * </p>
+ * <p>
+ * The discovered service classes are only loaded as needed to resolve the
+ * requested services. Each service is created at most once, even when several
+ * threads request it at the same time; however, no lock is held while a
+ * service initializes, so that a service may publish events (which other
+ * threads may handle by requesting further services) as it does so.
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public class ServiceHelper extends AbstractContextual {
 
+	/** Discovered service plugins, sorted by priority. */
+	private final List<PluginInfo<Service>> serviceInfos;
+
 	/**
-	 * Classes to scan when searching for dependencies. Data structure is a map
+	 * Priority of each service class loaded so far. Data structure is a map
 	 * with keys being relevant classes, and values being associated priorities.
 	 */
-	private final Map<Class<? extends Service>, Double> classPoolMap;
+	private final Map<Class<? extends Service>, Double> classPoolMap =
+		new HashMap<Class<? extends Service>, Double>();
 
-	/** Classes to scan when searching for dependencies, sorted by priority. */
-	private final List<Class<? extends Service>> classPoolList;
+	/** Discovered service plugins whose classes could not be loaded. */
+	private final Set<PluginInfo<Service>> invalidInfos =
+		new HashSet<PluginInfo<Service>>();
 
 	/** Classes to instantiate as services. */
 	private final List<Class<? extends Service>> serviceClasses;
 
+	/**
+	 * Cache of the first class in the class pool compatible with each requested
+	 * service type, to avoid rescanning the pool for every dependency. Types
+	 * with no compatible class map to null.
+	 */
+	private final Map<Class<?>, Class<? extends Service>> resolvedClasses =
+		new HashMap<Class<?>, Class<? extends Service>>();
+
+	/** Services currently being created, keyed on service class. */
+	private final Map<Class<? extends Service>, Creation> creations =
+		new HashMap<Class<? extends Service>, Creation>();
+
+	/** Time taken to create each service, in order of creation. */
+	private final Map<Class<? extends Service>, Long> loadTimes =
+		new LinkedHashMap<Class<? extends Service>, Long>();
+
 	/**
 	 * Creates a new service helper for discovering and instantiating services.
 	 * 
@@ -90,13 +133,12 @@ public ServiceHelper(final ImageJ context,
 		final Collection<Class<? extends Service>> serviceClasses)
 	{
 		setContext(context);
-		classPoolMap = new HashMap<Class<? extends Service>, Double>();
-		classPoolList = new ArrayList<Class<? extends Service>>();
-		findServiceClasses(classPoolMap, classPoolList);
+		// ask the plugin index for the (sorted) list of available services
+		serviceInfos = context.getPluginIndex().getPlugins(Service.class);
 		this.serviceClasses = new ArrayList<Class<? extends Service>>();
 		if (serviceClasses == null) {
 			// load all discovered services
-			this.serviceClasses.addAll(classPoolList);
+			this.serviceClasses.addAll(getServiceClasses());
 		}
 		else {
 			// load only the services that were explicitly specified
@@ -111,9 +153,12 @@ public ServiceHelper(final ImageJ context,
 	 * and instantiating compatible services as needed.
 	 */
 	public void loadServices() {
+		final long start = System.nanoTime();
 		for (final Class<? extends Service> serviceClass : serviceClasses) {
 			loadService(serviceClass);
 		}
+		getContext().getStartupProfile().record(
+			StartupProfile.SERVICE_INITIALIZATION, System.nanoTime() - start);
 		final EventService eventService =
 			getContext().getService(EventService.class);
 		if (eventService != null) eventService.publish(new ServicesLoadedEvent());
@@ -132,17 +177,52 @@ public <S extends Service> S loadService(final Class<S> c) {
 		final S service = getContext().getServiceIndex().getService(c);
 		if (service != null) return service;
 
-		// scan the class pool for a suitable match
-		for (final Class<? extends Service> serviceClass : classPoolList) {
-			if (c.isAssignableFrom(serviceClass)) {
-				// found a match; now instantiate it
-				@SuppressWarnings("unchecked")
-				final S result = (S) createExactService(serviceClass);
-				return result;
-			}
+		// look in the class pool for a suitable match, then instantiate it
+		final Class<? extends Service> serviceClass = findServiceClass(c);
+		@SuppressWarnings("unchecked")
+		final S result = (S) createOnce(serviceClass == null ? c : serviceClass);
+		return result;
+	}
+
+	/**
+	 * Obtains a service compatible with the given class, instantiating one of
+	 * the discovered service classes (and registering it in the index) if
+	 * necessary. Unlike {@link #loadService(Class)}, this method does not try to
+	 * instantiate the given class itself.
+	 * 
+	 * @return an existing compatible service if one is registered, or else the
+	 *         newly created service, or null if no discovered service class is
+	 *         compatible
+	 */
+	public <S extends Service> S loadAvailableService(final Class<S> c) {
+		final S service = getContext().getServiceIndex().getService(c);
+		if (service != null) return service;
+		if (findServiceClass(c) == null) return null;
+		return loadService(c);
+	}
+
+	/**
+	 * Gets the discovered service classes, sorted by priority. Any discovered
+	 * classes not yet loaded are loaded by this method.
+	 */
+	public synchronized List<Class<? extends Service>> getServiceClasses() {
+		final List<Class<? extends Service>> classes =
+			new ArrayList<Class<? extends Service>>();
+		for (final PluginInfo<Service> info : serviceInfos) {
+			final Class<? extends Service> c = loadClass(info);
+			if (c != null) classes.add(c);
 		}
+		return Collections.unmodifiableList(classes);
+	}
 
-		return createExactService(c);
+	/**
+	 * Gets the services created by this helper so far, in order of creation,
+	 * along with the time taken to create each one (including the creation of
+	 * any services it depends upon), in nanoseconds.
+	 */
+	public synchronized Map<Class<? extends Service>, Long> getLoadTimes() {
+		return Collections.unmodifiableMap(
+			new LinkedHashMap<Class<? extends Service>, Long>(loadTimes));
 	}
 
 	/**
@@ -152,11 +232,16 @@ public <S extends Service> S loadService(final Class<S> c) {
 	 *         instantiated
 	 */
 	public <S extends Service> S createExactService(final Class<S> c) {
-		final LogService log = getContext().getService(LogService.class);
+		final LogService log =
+			getContext().getServiceIndex().getService(LogService.class);
 		if (log != null) log.debug("Creating service: " + c.getName());
 		try {
+			final long start = System.nanoTime();
 			final S service = createService(c);
 			getContext().getServiceIndex().add(service);
+			synchronized (this) {
+				loadTimes.put(c, System.nanoTime() - start);
+			}
 			if (log != null) log.info("Created service: " + c.getName());
 			return service;
 		}
@@ -168,6 +253,85 @@ public <S extends Service> S createExactService(final Class<S> c) {
 
 	// -- Helper methods --
 
+	/** Gets the first class in the class pool compatible with the given type. */
+	private synchronized Class<? extends Service> findServiceClass(
+		final Class<?> c)
+	{
+		if (resolvedClasses.containsKey(c)) return resolvedClasses.get(c);
+		Class<? extends Service> match = null;
+		for (final PluginInfo<Service> info : serviceInfos) {
+			final Class<? extends Service> serviceClass = loadClass(info);
+			if (serviceClass != null && c.isAssignableFrom(serviceClass)) {
+				match = serviceClass;
+				break;
+			}
+		}
+		resolvedClasses.put(c, match);
+		return match;
+	}
+
+	/**
+	 * Loads the class of a discovered service, recording its priority.
+	 * 
+	 * @return the class, or null if it cannot be loaded
+	 */
+	private synchronized Class<? extends Service> loadClass(
+		final PluginInfo<Service> info)
+	{
+		if (invalidInfos.contains(info)) return null;
+		try {
+			final Class<? extends Service> c = info.loadClass();
+			if (!classPoolMap.containsKey(c)) classPoolMap.put(c, info.getPriority());
+			return c;
+		}
+		catch (final Throwable e) {
+			invalidInfos.add(info);
+			final LogService log =
+				getContext().getServiceIndex().getService(LogService.class);
+			if (log != null) {
+				log.error("Invalid service: " + info, e);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Instantiates a service of the given class, unless one is already
+	 * registered in the index. If another thread is already creating such a
+	 * service, waits for it to finish instead.
+	 */
+	private Service createOnce(final Class<? extends Service> c) {
+		final Creation creation;
+		final boolean creator;
+		synchronized (this) {
+			final Service service = getContext().getServiceIndex().getService(c);
+			if (service != null) return service;
+			final Creation pending = creations.get(c);
+			creator = pending == null;
+			if (creator) {
+				creation = new Creation(c);
+				creations.put(c, creation);
+			}
+			else creation = pending;
+		}
+		if (creator) {
+			// NB: The service initializes without holding the helper's lock.
+			try {
+				creation.run();
+			}
+			finally {
+				synchronized (this) {
+					creations.remove(c);
+				}
+			}
+		}
+		else if (creation.thread == Thread.currentThread()) {
+			throw new IllegalArgumentException("Circular dependency on service: " +
+				c.getName());
+		}
+		return creation.getService();
+	}
+
 	/** Instantiates a service using the given constructor. */
 	private <S extends Service> S createService(final Class<S> c)
 		throws InstantiationException, IllegalAccessException
@@ -176,7 +340,10 @@ private <S extends Service> S createService(final Class<S> c)
 		service.setContext(getContext());
 
 		// propagate priority if known
-		final Double priority = classPoolMap.get(c);
+		final Double priority;
+		synchronized (this) {
+			priority = classPoolMap.get(c);
+		}
 		if (priority != null) service.setPriority(priority);
 
 		// populate service parameters
@@ -203,29 +370,47 @@ private <S extends Service> S createService(final Class<S> c)
 		return service;
 	}
 
-	/** Asks the plugin index for all available service implementations. */
-	private void findServiceClasses(
-		final Map<Class<? extends Service>, Double> serviceMap,
-		final List<Class<? extends Service>> serviceList)
-	{
-		// ask the plugin index for the (sorted) list of available services
-		final List<PluginInfo<Service>> services =
-			getContext().getPluginIndex().getPlugins(Service.class);
+	// -- Helper classes --
+
+	/** The creation of a service, by the thread which first requested it. */
+	private class Creation extends FutureTask<Service> {
+
+		private final Thread thread = Thread.currentThread();
 
-		for (final PluginInfo<Service> info : services) {
+		public Creation(final Class<? extends Service> c) {
+			super(new Callable<Service>() {
+
+				@Override
+				public Service call() {
+					return createExactService(c);
+				}
+			});
+		}
+
+		/** Waits for the service to be created, then gets it. */
+		public Service getService() {
+			boolean interrupted = false;
 			try {
-				final Class<? extends Service> c = info.loadClass();
-				final double priority = info.getPriority();
-				serviceMap.put(c, priority);
-				serviceList.add(c);
-			}
-			catch (final Throwable e) {
-				final LogService log = getContext().getService(LogService.class);
-				if (log != null) {
-					log.error("Invalid service: " + info, e);
+				while (true) {
+					try {
+						return get();
+					}
+					catch (final InterruptedException exc) {
+						interrupted = true;
+					}
 				}
 			}
+			catch (final ExecutionException exc) {
+				final Throwable cause = exc.getCause();
+				if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+				if (cause instanceof Error) throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
+			finally {
+				if (interrupted) Thread.currentThread().interrupt();
+			}
 		}
+
 	}
 
 }
@@ -38,14 +38,32 @@
 import imagej.object.SortedObjectIndex;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Data structure for tracking registered services.
+ * <p>
+ * The result of each {@link #getService(Class)} lookup is cached until the
+ * index next changes, so that repeated lookups of the same service are a
+ * single map read.
+ * </p>
  * 
  * @author Curtis Rueden
  */
 public class ServiceIndex extends SortedObjectIndex<Service> {
 
+	/** Marker for cached lookups which found no service. */
+	private static final Object NONE = new Object();
+
+	/** Cache of the service resolved for each class, or {@link #NONE}. */
+	private final Map<Class<?>, Object> serviceCache =
+		new ConcurrentHashMap<Class<?>, Object>();
+
+	/** Number of changes made to the index, for detecting stale lookups. */
+	private final AtomicInteger modCount = new AtomicInteger();
+
 	public ServiceIndex() {
 		super(Service.class);
 	}
@@ -54,11 +72,54 @@ public ServiceIndex() {
 
 	/** Gets the first available service compatible with the given class. */
 	public <S extends Service> S getService(final Class<S> c) {
-		final List<Service> list = get(c);
-		if (list.isEmpty()) return null;
+		Object service = serviceCache.get(c);
+		if (service == null) {
+			final int stamp = modCount.get();
+			final List<Service> list = get(c);
+			service = list.isEmpty() ? NONE : list.get(0);
+			serviceCache.put(c, service);
+			// NB: Discard the lookup if the index changed while it was made.
+			if (modCount.get() != stamp) serviceCache.clear();
+		}
+		if (service == NONE) return null;
 		@SuppressWarnings("unchecked")
-		final S service = (S) list.get(0);
-		return service;
+		final S typedService = (S) service;
+		return typedService;
+	}
+
+	// -- Collection methods --
+
+	@Override
+	public void clear() {
+		super.clear();
+		invalidate();
+	}
+
+	// -- Internal methods --
+
+	@Override
+	protected boolean add(final Service o, final Class<?> type,
+		final boolean batch)
+	{
+		final boolean result = super.add(o, type, batch);
+		invalidate();
+		return result;
+	}
+
+	@Override
+	protected boolean remove(final Object o, final Class<?> type,
+		final boolean batch)
+	{
+		final boolean result = super.remove(o, type, batch);
+		invalidate();
+		return result;
+	}
+
+	// -- Helper methods --
+
+	private void invalidate() {
+		modCount.incrementAndGet();
+		serviceCache.clear();
 	}
 
 }
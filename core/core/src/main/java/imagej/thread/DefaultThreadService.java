@@ -42,12 +42,34 @@
 import java.awt.EventQueue;
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Default service for managing active ImageJ threads.
+ * <p>
+ * Work is executed by two bounded thread pools: a worker pool for general
+ * tasks such as running modules, with {@link Priority priority lanes}, and a
+ * data-parallel pool with one thread per processor. Idle threads of either
+ * pool are retired after a minute. The size of the worker pool and the length
+ * of its queue can be configured with the {@value #MAX_THREADS_PROPERTY} and
+ * {@value #MAX_QUEUED_PROPERTY} system properties.
+ * </p>
+ * <p>
+ * The worker pool rejects a task when its queue is full, and also when the
+ * task is submitted by one of the pool's own threads while every thread of the
+ * pool already has a task to run: otherwise, tasks waiting on the tasks they
+ * submit could take up every thread of the pool and deadlock it. A rejected
+ * task is executed on the submitting thread, except on the dispatch thread,
+ * which must not be held up and whose tasks are always queued.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -56,20 +78,62 @@ public final class DefaultThreadService extends AbstractService implements
 	ThreadService
 {
 
-	private ExecutorService executor;
+	/** System property defining the maximum number of worker pool threads. */
+	public static final String MAX_THREADS_PROPERTY = "imagej.threads";
 
-	private int nextThread = 0;
+	/** System property defining the maximum length of the worker pool queue. */
+	public static final String MAX_QUEUED_PROPERTY = "imagej.threads.queue";
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static final int DEFAULT_MAX_QUEUED = 1024;
+
+	private Pool workers;
+
+	private Pool computers;
+
+	private final AtomicInteger nextThread = new AtomicInteger();
 
 	// -- ThreadService methods --
 
 	@Override
 	public <V> Future<V> run(final Callable<V> code) {
-		return executor.submit(code);
+		return run(code, Priority.NORMAL);
 	}
 
 	@Override
 	public Future<?> run(final Runnable code) {
-		return executor.submit(code);
+		return run(code, Priority.NORMAL);
+	}
+
+	@Override
+	public <V> Future<V> run(final Callable<V> code, final Priority priority) {
+		return workers.submit(code, priority, false);
+	}
+
+	@Override
+	public Future<?> run(final Runnable code, final Priority priority) {
+		return workers.submit(Executors.callable(code), priority, false);
+	}
+
+	@Override
+	public <V> Future<V> compute(final Callable<V> code) {
+		return computers.submit(code, Priority.NORMAL, true);
+	}
+
+	@Override
+	public Future<?> compute(final Runnable code) {
+		return computers.submit(Executors.callable(code), Priority.NORMAL, true);
+	}
+
+	@Override
+	public PoolStatistics getStatistics() {
+		return workers.getStatistics();
+	}
+
+	@Override
+	public PoolStatistics getComputeStatistics() {
+		return computers.getStatistics();
 	}
 
 	@Override
@@ -100,17 +164,178 @@ public void queue(final Runnable code) {
 
 	@Override
 	public void initialize() {
-		executor = Executors.newCachedThreadPool(this);
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		final int maxThreads =
+			Integer.getInteger(MAX_THREADS_PROPERTY, Math.max(16, 4 * cpus));
+		final int maxQueued =
+			Integer.getInteger(MAX_QUEUED_PROPERTY, DEFAULT_MAX_QUEUED);
+		workers = new Pool("Thread", maxThreads, maxQueued);
+		computers = new Pool("Compute", cpus, Integer.MAX_VALUE);
 	}
 
 	// -- ThreadFactory methods --
 
 	@Override
 	public Thread newThread(final Runnable r) {
+		return new Thread(r, threadName("Thread"));
+	}
+
+	// -- Helper methods --
+
+	private String threadName(final String kind) {
 		final String contextHash = Integer.toHexString(getContext().hashCode());
-		final String threadName =
-			"ImageJ-" + contextHash + "-Thread-" + nextThread++;
-		return new Thread(r, threadName);
+		return "ImageJ-" + contextHash + "-" + kind + "-" +
+			nextThread.getAndIncrement();
+	}
+
+	// -- Helper classes --
+
+	/** A bounded thread pool with a bounded priority queue. */
+	private class Pool implements ThreadFactory {
+
+		private final int maxThreads;
+		private final int maxQueued;
+		private final String kind;
+		private final ThreadPoolExecutor executor;
+		private final AtomicLong sequence = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+
+		/** Number of accepted tasks, running or queued, not yet done. */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		public Pool(final String kind, final int maxThreads, final int maxQueued)
+		{
+			this.kind = kind;
+			this.maxThreads = Math.max(1, maxThreads);
+			this.maxQueued = Math.max(0, maxQueued);
+			executor =
+				new ThreadPoolExecutor(this.maxThreads, this.maxThreads,
+					KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new PriorityBlockingQueue<Runnable>(), this);
+			executor.allowCoreThreadTimeOut(true);
+		}
+
+		/**
+		 * Submits a task to the pool.
+		 * 
+		 * @param inline Whether a task submitted by one of the pool's own threads
+		 *          is always executed directly on that thread. If false, such a
+		 *          task is queued when some thread of the pool has no task to run
+		 *          yet, and rejected otherwise.
+		 */
+		public <V> Future<V> submit(final Callable<V> code,
+			final Priority priority, final boolean inline)
+		{
+			final PriorityTask<V> task =
+				new PriorityTask<V>(code, priority, sequence.getAndIncrement());
+			final boolean poolThread = isPoolThread();
+			if (poolThread && inline) {
+				task.run();
+				return task;
+			}
+			// NB: A task submitted by a pool thread is only accepted if a thread is
+			// left for it, so that the submitter can safely wait on its result.
+			final int limit =
+				poolThread ? maxThreads : (int) Math.min(Integer.MAX_VALUE,
+					(long) maxThreads + maxQueued);
+			if (reserve(limit)) accept(task);
+			else if (isDispatchThread()) {
+				pending.incrementAndGet();
+				accept(task);
+			}
+			else {
+				rejected.incrementAndGet();
+				task.run();
+			}
+			return task;
+		}
+
+		public PoolStatistics getStatistics() {
+			return new PoolStatistics(maxThreads, executor.getPoolSize(), executor
+				.getLargestPoolSize(), executor.getActiveCount(), executor.getQueue()
+				.size(), executor.getCompletedTaskCount(), rejected.get());
+		}
+
+		/**
+		 * Counts a new pending task, unless there are already the given number of
+		 * them.
+		 * 
+		 * @return True if the task was counted.
+		 */
+		private boolean reserve(final int limit) {
+			while (true) {
+				final int n = pending.get();
+				if (n >= limit) return false;
+				if (pending.compareAndSet(n, n + 1)) return true;
+			}
+		}
+
+		/** Queues a task already counted as pending. */
+		private void accept(final PriorityTask<?> task) {
+			task.pool = this;
+			executor.execute(task);
+		}
+
+		private boolean isPoolThread() {
+			final Thread thread = Thread.currentThread();
+			return thread instanceof PoolThread && ((PoolThread) thread).pool == this;
+		}
+
+		// -- ThreadFactory methods --
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			return new PoolThread(this, r, threadName(kind));
+		}
+
+	}
+
+	/** A thread belonging to a {@link Pool}. */
+	private static class PoolThread extends Thread {
+
+		private final Pool pool;
+
+		public PoolThread(final Pool pool, final Runnable r, final String name) {
+			super(r, name);
+			this.pool = pool;
+		}
+
+	}
+
+	/** A task ordered by priority, then by submission order. */
+	private static class PriorityTask<V> extends FutureTask<V> implements
+		Comparable<PriorityTask<?>>
+	{
+
+		private final Priority priority;
+		private final long sequence;
+
+		/** The pool which accepted the task, if any. */
+		private volatile Pool pool;
+
+		public PriorityTask(final Callable<V> code, final Priority priority,
+			final long sequence)
+		{
+			super(code);
+			this.priority = priority == null ? Priority.NORMAL : priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		protected void done() {
+			// the task is no longer pending, whether it completed or was cancelled
+			final Pool p = pool;
+			if (p != null) p.pending.decrementAndGet();
+		}
+
+		@Override
+		public int compareTo(final PriorityTask<?> other) {
+			final int c = priority.compareTo(other.priority);
+			if (c != 0) return c;
+			return sequence < other.sequence ? -1 : sequence > other.sequence ? 1
+				: 0;
+		}
+
 	}
 
 }
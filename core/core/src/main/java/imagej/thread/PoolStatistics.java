@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.thread;
+
+/**
+ * A snapshot of the state of one of the {@link ThreadService}'s thread pools.
+ * 
+ * @author agent
+ */
+public class PoolStatistics {
+
+	private final int maxThreads;
+	private final int threads;
+	private final int largestThreads;
+	private final int active;
+	private final int queued;
+	private final long completed;
+	private final long rejected;
+
+	public PoolStatistics(final int maxThreads, final int threads,
+		final int largestThreads, final int active, final int queued,
+		final long completed, final long rejected)
+	{
+		this.maxThreads = maxThreads;
+		this.threads = threads;
+		this.largestThreads = largestThreads;
+		this.active = active;
+		this.queued = queued;
+		this.completed = completed;
+		this.rejected = rejected;
+	}
+
+	/** Gets the maximum number of threads the pool may have. */
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	/** Gets the number of threads currently in the pool. */
+	public int getThreads() {
+		return threads;
+	}
+
+	/** Gets the largest number of threads the pool has ever had at once. */
+	public int getLargestThreads() {
+		return largestThreads;
+	}
+
+	/** Gets the approximate number of threads actively executing tasks. */
+	public int getActive() {
+		return active;
+	}
+
+	/** Gets the number of tasks waiting in the queue. */
+	public int getQueued() {
+		return queued;
+	}
+
+	/** Gets the approximate number of tasks the pool has completed. */
+	public long getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Gets the number of tasks the pool did not accept, because its queue was
+	 * full or because they were submitted from the pool's own threads while all
+	 * of them were taken, and which were therefore executed on the submitting
+	 * thread.
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return "threads = " + threads + "/" + maxThreads + " (largest " +
+			largestThreads + "), active = " + active + ", queued = " + queued +
+			", completed = " + completed + ", rejected = " + rejected;
+	}
+
+}
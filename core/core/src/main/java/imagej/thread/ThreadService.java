@@ -49,6 +49,20 @@
  */
 public interface ThreadService extends Service, ThreadFactory {
 
+	/**
+	 * Priority lanes of the worker pool. Queued tasks of a higher priority are
+	 * started before those of a lower one; tasks of equal priority are started
+	 * in the order they were submitted.
+	 */
+	enum Priority {
+		/** For work a user is waiting on, such as a command run from a menu. */
+		INTERACTIVE,
+		/** The default priority. */
+		NORMAL,
+		/** For background work such as scripted batch processing. */
+		BATCH
+	}
+
 	/**
 	 * Asynchronously executes the given code in a new thread, as decided by the
 	 * thread service. Typically this means that the service allocates a thread
@@ -74,6 +88,56 @@ public interface ThreadService extends Service, ThreadFactory {
 	 */
 	Future<?> run(Runnable code);
 
+	/**
+	 * Asynchronously executes the given code in the worker pool, with the given
+	 * priority. The pool has a bounded number of threads and a bounded queue.
+	 * If the queue is full, or if this method is called from one of the pool's
+	 * own threads while all of them are taken (which might otherwise deadlock
+	 * waiting on a queued task), the code is executed directly on the calling
+	 * thread before this method returns. Code submitted from the dispatch thread
+	 * is always queued.
+	 * 
+	 * @param code The code to execute.
+	 * @param priority The priority lane in which to queue the code.
+	 * @return A {@link Future} that will contain the result once the execution
+	 *         has finished.
+	 */
+	<V> Future<V> run(Callable<V> code, Priority priority);
+
+	/**
+	 * Asynchronously executes the given code in the worker pool, with the given
+	 * priority.
+	 * 
+	 * @see #run(Callable, Priority)
+	 */
+	Future<?> run(Runnable code, Priority priority);
+
+	/**
+	 * Asynchronously executes the given piece of data-parallel work, such as
+	 * one tile of an image computation. Such work is executed by a separate pool
+	 * with one thread per processor, so that splitting a computation into many
+	 * pieces does not oversubscribe the machine. Pieces submitted from one of
+	 * that pool's own threads are executed directly on the calling thread.
+	 * 
+	 * @param code The code to execute.
+	 * @return A {@link Future} that will contain the result once the execution
+	 *         has finished.
+	 */
+	<V> Future<V> compute(Callable<V> code);
+
+	/**
+	 * Asynchronously executes the given piece of data-parallel work.
+	 * 
+	 * @see #compute(Callable)
+	 */
+	Future<?> compute(Runnable code);
+
+	/** Gets the current statistics of the worker pool. */
+	PoolStatistics getStatistics();
+
+	/** Gets the current statistics of the data-parallel pool. */
+	PoolStatistics getComputeStatistics();
+
 	/**
 	 * Gets whether the current thread is a dispatch thread for use with
 	 * {@link #invoke} and {@link #queue}.
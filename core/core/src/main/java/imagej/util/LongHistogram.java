@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of nonnegative {@code long} values, such as durations in
+ * nanoseconds or numbers of bytes. Safe for concurrent updates.
+ * <p>
+ * Values are counted in log-linear buckets: each power of two is divided into
+ * {@link #SUB_BUCKETS} buckets of equal width, so that quantiles are resolved
+ * to within a relative error of 1/{@link #SUB_BUCKETS}, regardless of the
+ * magnitude of the values. Values smaller than {@link #SUB_BUCKETS} are counted
+ * exactly.
+ * </p>
+ * 
+ * @author agent
+ */
+public class LongHistogram {
+
+	/** Number of bits used to divide each power of two into buckets. */
+	private static final int SUB_BITS = 5;
+
+	/** Number of buckets into which each power of two is divided. */
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/** Total number of buckets, enough for any nonnegative long. */
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	// -- LongHistogram methods --
+
+	/** Gets the number of recorded values. */
+	public long getCount() {
+		return count.get();
+	}
+
+	/** Gets the sum of the recorded values. */
+	public long getTotal() {
+		return total.get();
+	}
+
+	/** Gets the largest recorded value. */
+	public long getMax() {
+		return max.get();
+	}
+
+	/** Gets the mean of the recorded values. */
+	public double getMean() {
+		final long n = getCount();
+		return n == 0 ? 0 : (double) getTotal() / n;
+	}
+
+	/**
+	 * Gets an upper bound on the given quantile of the recorded values. The
+	 * bound exceeds the true value by at most 1/{@link #SUB_BUCKETS} of it.
+	 * 
+	 * @param q The quantile, between 0 and 1.
+	 */
+	public long getQuantile(final double q) {
+		final long n = getCount();
+		if (n == 0) return 0;
+		final long rank = Math.max(1, (long) Math.ceil(q * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) return Math.min(upperBound(i), getMax());
+		}
+		return getMax();
+	}
+
+	/** Records the given value; negative values are recorded as 0. */
+	public void record(final long value) {
+		final long v = Math.max(value, 0);
+		count.incrementAndGet();
+		total.addAndGet(v);
+		long m = max.get();
+		while (v > m && !max.compareAndSet(m, v)) {
+			m = max.get();
+		}
+		buckets.incrementAndGet(bucket(v));
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return "count " + getCount() + ", mean " + Math.round(getMean()) +
+			", p50 " + getQuantile(0.5) + ", p99 " + getQuantile(0.99) + ", max " +
+			getMax() + ", total " + getTotal();
+	}
+
+	// -- Helper methods --
+
+	/** Gets the index of the bucket counting the given nonnegative value. */
+	private static int bucket(final long v) {
+		if (v < SUB_BUCKETS) return (int) v;
+		// the bucket width is 2^shift, where v is in [2^(shift + SUB_BITS),
+		// 2^(shift + SUB_BITS + 1))
+		final int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+		final int sub = (int) (v >>> shift) - SUB_BUCKETS;
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+
+	/** Gets the largest value counted in the given bucket. */
+	private static long upperBound(final int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long sub = bucket % SUB_BUCKETS;
+		final long lower = (SUB_BUCKETS + sub) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+}
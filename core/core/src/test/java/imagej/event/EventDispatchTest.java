@@ -0,0 +1,284 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests which threads {@link DefaultEventService} delivers events on, and the
+ * coalescing of queued events.
+ * 
+ * @author agent
+ */
+public class EventDispatchTest {
+
+	private ImageJ context;
+	private EventService eventService;
+
+	/** Latch holding the dispatch thread busy until released. */
+	private CountDownLatch edtBlocked;
+
+	@Before
+	public void setUp() throws Exception {
+		@SuppressWarnings("unchecked")
+		final ImageJ c =
+			ImageJ.createContext(EventService.class, EventHistory.class);
+		context = c;
+		eventService = context.getService(EventService.class);
+		edtBlocked = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		// never leave the dispatch thread blocked
+		edtBlocked.countDown();
+	}
+
+	/**
+	 * Tests that an event published on a worker thread, whose subscribers do
+	 * not require the dispatch thread, is delivered without involving the
+	 * dispatch thread at all, even while the event history is recording.
+	 */
+	@Test
+	public void testWorkerThreadDelivery() throws Exception {
+		final EventHistory eventHistory = context.getService(EventHistory.class);
+		final List<EventDetails> recorded =
+			Collections.synchronizedList(new ArrayList<EventDetails>());
+		eventHistory.addListener(new EventHistoryListener() {
+
+			@Override
+			public void eventOccurred(final EventDetails details) {
+				if (details.getEventType() == TestEvent.class) recorded.add(details);
+			}
+		});
+
+		final AnyThreadSubscriber subscriber = new AnyThreadSubscriber();
+		eventService.subscribe(subscriber);
+
+		blockDispatchThread();
+		final Thread worker = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				eventService.publish(new TestEvent(null));
+			}
+		});
+		worker.start();
+		// if delivery needed the dispatch thread, the worker would stay blocked
+		worker.join(5000);
+		assertFalse(worker.isAlive());
+
+		assertEquals(1, subscriber.events.size());
+		assertSame(worker, subscriber.threads.get(0));
+		assertEquals(1, recorded.size());
+	}
+
+	/** Tests that a dispatch thread subscriber is still invoked on it. */
+	@Test
+	public void testDispatchThreadDelivery() throws Exception {
+		final DispatchThreadSubscriber subscriber = new DispatchThreadSubscriber();
+		eventService.subscribe(subscriber);
+
+		final Thread worker = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				eventService.publish(new TestEvent(null));
+			}
+		});
+		worker.start();
+		worker.join(5000);
+		assertFalse(worker.isAlive());
+
+		assertEquals(1, subscriber.events.size());
+		assertTrue(subscriber.onDispatchThread.get(0));
+	}
+
+	/** Tests that queued events sharing a coalescing key are delivered once. */
+	@Test
+	public void testCoalescing() throws Exception {
+		final DispatchThreadSubscriber subscriber = new DispatchThreadSubscriber();
+		eventService.subscribe(subscriber);
+		final EventStatistics statistics = eventService.getStatistics();
+		final long coalesced = statistics.getCoalescedCount();
+
+		// keep the events pending until all of them are published
+		blockDispatchThread();
+		final TestEvent a1 = new TestEvent("a");
+		eventService.publishLater(a1);
+		eventService.publishLater(new TestEvent("a"));
+		eventService.publishLater(new TestEvent("a"));
+		final TestEvent b = new TestEvent("b");
+		eventService.publishLater(b);
+		final TestEvent unkeyed1 = new TestEvent(null);
+		final TestEvent unkeyed2 = new TestEvent(null);
+		eventService.publishLater(unkeyed1);
+		eventService.publishLater(unkeyed2);
+		edtBlocked.countDown();
+		flushDispatchThread();
+
+		assertEquals(4, subscriber.events.size());
+		assertSame(a1, subscriber.events.get(0));
+		assertSame(b, subscriber.events.get(1));
+		assertSame(unkeyed1, subscriber.events.get(2));
+		assertSame(unkeyed2, subscriber.events.get(3));
+		assertEquals(coalesced + 2, statistics.getCoalescedCount());
+
+		// once delivered, an event no longer absorbs later ones
+		eventService.publishLater(new TestEvent("a"));
+		flushDispatchThread();
+		assertEquals(5, subscriber.events.size());
+	}
+
+	// -- Helper methods --
+
+	/** Occupies the dispatch thread until {@link #edtBlocked} is released. */
+	private void blockDispatchThread() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		EventQueue.invokeLater(new Runnable() {
+
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					edtBlocked.await(10, TimeUnit.SECONDS);
+				}
+				catch (final InterruptedException exc) {
+					// NB: proceed to unblock
+				}
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+	}
+
+	/** Waits until everything queued on the dispatch thread has run. */
+	private void flushDispatchThread() throws Exception {
+		EventQueue.invokeAndWait(new Runnable() {
+
+			@Override
+			public void run() {
+				// NB: no action needed
+			}
+		});
+	}
+
+	// -- Helper classes --
+
+	/** An event which coalesces with other events of the same key. */
+	public static class TestEvent extends ImageJEvent {
+
+		private final Object key;
+
+		public TestEvent(final Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public Object getCoalescingKey() {
+			return key == null ? null : new Key(key);
+		}
+
+	}
+
+	/** Coalescing key, scoped to {@link TestEvent}s. */
+	private static class Key {
+
+		private final Object key;
+
+		public Key(final Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof Key && ((Key) o).key.equals(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode();
+		}
+
+	}
+
+	/** Subscriber which may be invoked on any thread. */
+	public static class AnyThreadSubscriber {
+
+		private final List<TestEvent> events =
+			Collections.synchronizedList(new ArrayList<TestEvent>());
+		private final List<Thread> threads =
+			Collections.synchronizedList(new ArrayList<Thread>());
+
+		@EventHandler(dispatchThread = false)
+		protected void onEvent(final TestEvent event) {
+			events.add(event);
+			threads.add(Thread.currentThread());
+		}
+
+	}
+
+	/** Subscriber which must be invoked on the dispatch thread. */
+	public static class DispatchThreadSubscriber {
+
+		private final List<TestEvent> events =
+			Collections.synchronizedList(new ArrayList<TestEvent>());
+		private final List<Boolean> onDispatchThread =
+			Collections.synchronizedList(new ArrayList<Boolean>());
+
+		@EventHandler
+		protected void onEvent(final TestEvent event) {
+			events.add(event);
+			onDispatchThread.add(EventQueue.isDispatchThread());
+		}
+
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link EventStatistics}.
+ * 
+ * @author agent
+ */
+public class EventStatisticsTest {
+
+	@Test
+	public void testDelivery() {
+		final EventStatistics stats = new EventStatistics();
+		stats.setEnabled(true);
+		stats.published(ImageJEvent.class);
+		final long previous = stats.startDelivery(1000);
+		stats.delivered(ImageJEvent.class, "handler", 3000, 3500);
+		stats.endDelivery(previous);
+
+		final EventStatistics.EventTiming eventTiming =
+			stats.getEventTimings().get(ImageJEvent.class);
+		assertEquals(1, eventTiming.getPublishCount());
+		assertEquals(1, eventTiming.getCount());
+		assertEquals(2000, eventTiming.getMax());
+		assertEquals(500, stats.getHandlerTimings().get("handler").getMax());
+
+		stats.reset();
+		assertTrue(stats.getEventTimings().isEmpty());
+		assertTrue(stats.getHandlerTimings().isEmpty());
+	}
+
+	@Test
+	public void testQueueDepth() {
+		final EventStatistics stats = new EventStatistics();
+		stats.queued();
+		stats.queued();
+		stats.dequeued();
+		stats.coalesced();
+		assertEquals(1, stats.getQueueDepth());
+		assertEquals(2, stats.getMaxQueueDepth());
+		assertEquals(1, stats.getCoalescedCount());
+	}
+
+}
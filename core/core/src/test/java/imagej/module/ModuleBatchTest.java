@@ -0,0 +1,277 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link ModuleBatch}.
+ * 
+ * @author agent
+ */
+public class ModuleBatchTest {
+
+	private ImageJ context;
+	private DefaultModuleInfo info;
+
+	@Before
+	public void setUp() {
+		context = ImageJ.createContext(ModuleService.class);
+		info = new DefaultModuleInfo();
+		info.setModuleClass(DoublingModule.class);
+	}
+
+	@Test
+	public void testResults() {
+		final ModuleBatch batch = createBatch(inputs(0, 20), 3);
+		final Set<Object> results = new HashSet<Object>();
+		while (batch.hasNext()) {
+			results.add(batch.next().getOutput("result"));
+		}
+		assertEquals(20, results.size());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(results.contains(2 * i));
+		}
+		assertEquals(20, batch.getCompletedCount());
+		assertEquals(0, batch.getFailedCount());
+		assertFalse(batch.hasNext());
+	}
+
+	@Test
+	public void testFailures() {
+		final List<Map<String, Object>> inputs = inputs(0, 5);
+		inputs.add(1, input(-1));
+		inputs.add(input(-2));
+		final ModuleBatch batch = createBatch(inputs, 2);
+		assertEquals(5, batch.finish());
+
+		final List<ModuleBatch.Failure> failures = batch.getFailures();
+		assertEquals(2, failures.size());
+		final Set<Object> failed = new HashSet<Object>();
+		for (final ModuleBatch.Failure failure : failures) {
+			failed.add(failure.getInputs().get("value"));
+			assertTrue(failure.getError() instanceof IllegalArgumentException);
+		}
+		assertTrue(failed.contains(-1));
+		assertTrue(failed.contains(-2));
+	}
+
+	/** Tests that workers wait for the consumer instead of running ahead. */
+	@Test
+	public void testBackPressure() throws InterruptedException {
+		final AtomicInteger consumed = new AtomicInteger();
+		final Iterable<Map<String, Object>> inputs =
+			new Iterable<Map<String, Object>>() {
+
+				@Override
+				public Iterator<Map<String, Object>> iterator() {
+					final Iterator<Map<String, Object>> iter =
+						inputs(0, 100).iterator();
+					return new Iterator<Map<String, Object>>() {
+
+						@Override
+						public boolean hasNext() {
+							return iter.hasNext();
+						}
+
+						@Override
+						public Map<String, Object> next() {
+							consumed.incrementAndGet();
+							return iter.next();
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		final ModuleBatch batch = createBatch(inputs, 1);
+		batch.start();
+		Thread.sleep(500);
+
+		// one module per queue slot, plus one waiting for room in the queue
+		assertTrue(consumed.get() <= 3);
+		assertEquals(100, batch.finish());
+		assertEquals(100, consumed.get());
+	}
+
+	/** Tests that a batch can be finished after it is canceled. */
+	@Test(timeout = 10000)
+	public void testCancel() throws InterruptedException {
+		final ModuleBatch batch = createBatch(inputs(0, 1000), 2);
+		assertTrue(batch.hasNext());
+		batch.next();
+		batch.cancel();
+		assertTrue(batch.isCanceled());
+		assertFalse(batch.hasNext());
+		assertTrue(batch.finish() < 1000);
+	}
+
+	/** Tests canceling a batch whose workers have all finished already. */
+	@Test(timeout = 10000)
+	public void testCancelFinished() throws InterruptedException {
+		final ModuleBatch batch = createBatch(inputs(0, 2), 1);
+		batch.start();
+		while (batch.getCompletedCount() < 2) {
+			Thread.sleep(10);
+		}
+		batch.cancel();
+		assertFalse(batch.hasNext());
+		assertEquals(2, batch.finish());
+	}
+
+	/** Tests that a worker replaces its chain after a preprocessor cancels. */
+	@Test
+	public void testPreprocessorCancel() {
+		final AtomicInteger chains = new AtomicInteger();
+		final ModuleBatch batch =
+			new ModuleBatch(context, info, inputs(0, 5), 1) {
+
+				@Override
+				protected List<? extends ModulePreprocessor> createPreprocessors() {
+					chains.incrementAndGet();
+					return Collections.singletonList(new CancelingPreprocessor(2));
+				}
+			};
+		batch.setPublishingEvents(false);
+
+		final Map<Object, Object> results = new HashMap<Object, Object>();
+		while (batch.hasNext()) {
+			final Module module = batch.next();
+			results.put(module.getInput("value"), module.getOutput("result"));
+		}
+
+		// canceled executions are included, without outputs
+		assertEquals(5, results.size());
+		assertNull(results.get(2));
+		assertEquals(0, results.get(0));
+		assertEquals(2, results.get(1));
+		assertEquals(6, results.get(3));
+		assertEquals(8, results.get(4));
+		assertEquals(2, chains.get());
+	}
+
+	// -- Helper methods --
+
+	private ModuleBatch createBatch(
+		final Iterable<? extends Map<String, Object>> inputs, final int threads)
+	{
+		final ModuleBatch batch = new ModuleBatch(context, info, inputs, threads);
+		batch.setPublishingEvents(false);
+		return batch;
+	}
+
+	private List<Map<String, Object>> inputs(final int start, final int end) {
+		final List<Map<String, Object>> inputs =
+			new ArrayList<Map<String, Object>>();
+		for (int i = start; i < end; i++) {
+			inputs.add(input(i));
+		}
+		return inputs;
+	}
+
+	private Map<String, Object> input(final int value) {
+		final Map<String, Object> input = new HashMap<String, Object>();
+		input.put("value", value);
+		return input;
+	}
+
+	// -- Helper classes --
+
+	/** A module which doubles its input, and rejects negative ones. */
+	public static class DoublingModule extends DefaultModule {
+
+		public DoublingModule() {
+			addInput("value", Integer.class);
+			addOutput("result", Integer.class);
+		}
+
+		@Override
+		public void run() {
+			final int value = (Integer) getInput("value");
+			if (value < 0) throw new IllegalArgumentException("negative: " + value);
+			setOutput("result", 2 * value);
+		}
+
+	}
+
+	/** A preprocessor which cancels the execution for one input value. */
+	private static class CancelingPreprocessor implements ModulePreprocessor {
+
+		private final int value;
+		private boolean canceled;
+
+		public CancelingPreprocessor(final int value) {
+			this.value = value;
+		}
+
+		@Override
+		public void process(final Module module) {
+			if (module.getInput("value").equals(value)) canceled = true;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		@Override
+		public String getCancelReason() {
+			return canceled ? "value " + value : null;
+		}
+
+	}
+
+}
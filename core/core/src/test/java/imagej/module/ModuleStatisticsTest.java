@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import imagej.plugin.DebugPreprocessor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ModuleStatistics}.
+ * 
+ * @author agent
+ */
+public class ModuleStatisticsTest {
+
+	@Test
+	public void testDisabled() {
+		final ModuleStatistics stats = new ModuleStatistics();
+		stats.setEnabled(false);
+		assertNull(stats.start());
+		stats.preprocessed(new DebugPreprocessor(), null);
+		assertTrue(stats.getPreprocessorTimings().isEmpty());
+	}
+
+	@Test
+	public void testProcessors() {
+		final ModuleStatistics stats = new ModuleStatistics();
+		stats.setEnabled(true);
+		final DebugPreprocessor p = new DebugPreprocessor();
+		for (int i = 0; i < 3; i++) {
+			stats.preprocessed(p, stats.start());
+		}
+
+		final ModuleStatistics.ExecutionTiming timing =
+			stats.getPreprocessorTimings().get(DebugPreprocessor.class.getName());
+		assertEquals(3, timing.getCount());
+		assertTrue(timing.getWallTime().getMax() >= 0);
+		assertTrue(stats.getModuleTimings().isEmpty());
+
+		stats.reset();
+		assertTrue(stats.getPreprocessorTimings().isEmpty());
+	}
+
+	@Test
+	public void testModules() {
+		final ModuleStatistics stats = new ModuleStatistics();
+		stats.setEnabled(true);
+		final DefaultModule blur = new DefaultModule();
+		blur.getInfo().setLabel("Gaussian Blur...");
+		final DefaultModule median = new DefaultModule();
+		median.getInfo().setLabel("Median...");
+		stats.executed(blur, stats.start());
+		stats.executed(blur, stats.start());
+		stats.executed(median, stats.start());
+		stats.executed(new DefaultModule(), stats.start());
+
+		// modules sharing a delegate class are told apart by their titles
+		final String className = DefaultModule.class.getName();
+		final Map<String, ModuleStatistics.ExecutionTiming> timings =
+			stats.getModuleTimings();
+		assertEquals(3, timings.size());
+		assertEquals(2, timings.get(className + " [Gaussian Blur...]").getCount());
+		assertEquals(1, timings.get(className + " [Median...]").getCount());
+		assertEquals(1, timings.get(className).getCount());
+	}
+
+	@Test
+	public void testExport() throws IOException {
+		final ModuleStatistics stats = new ModuleStatistics();
+		stats.setEnabled(true);
+		stats.preprocessed(new DebugPreprocessor(), stats.start());
+
+		final File file = File.createTempFile("ModuleStatisticsTest", ".txt");
+		try {
+			stats.export(file);
+			final BufferedReader in = new BufferedReader(new FileReader(file));
+			try {
+				final String[] header = in.readLine().split("\t");
+				assertEquals("kind", header[0]);
+				assertEquals("wall_p95", header[5]);
+				final String[] row = in.readLine().split("\t");
+				assertEquals(header.length, row.length);
+				assertEquals("preprocessor", row[0]);
+				assertEquals(DebugPreprocessor.class.getName(), row[1]);
+				assertEquals("1", row[2]);
+				assertNull(in.readLine());
+			}
+			finally {
+				in.close();
+			}
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+}
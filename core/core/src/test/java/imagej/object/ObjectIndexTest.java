@@ -116,6 +116,27 @@ public void testContains() {
 		assertFalse(objectIndex.contains(o1));
 	}
 
+	@Test
+	public void testDuplicates() {
+		final ObjectIndex<Object> objectIndex =
+			new ObjectIndex<Object>(Object.class);
+		final Object o1 = new Integer(5);
+		final Object o2 = new Integer(5); // equal to o1, but not identical
+		objectIndex.add(o1);
+		objectIndex.add(o2);
+		objectIndex.add(o1);
+		assertEquals(3, objectIndex.size());
+		objectIndex.remove(o1);
+		final List<Object> integers = objectIndex.get(Integer.class);
+		assertEquals(2, integers.size());
+		assertSame(o2, integers.get(0));
+		assertSame(o1, integers.get(1));
+		objectIndex.remove(o1);
+		assertFalse(objectIndex.contains(o1));
+		assertTrue(objectIndex.contains(o2));
+		assertSame(o2, objectIndex.getAll().get(0));
+	}
+
 	@Test
 	public void testIterator() {
 		final ObjectIndex<Object> objectIndex =
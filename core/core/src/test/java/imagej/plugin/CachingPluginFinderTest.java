@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import imagej.command.Command;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link CachingPluginFinder}.
+ * 
+ * @author agent
+ */
+public class CachingPluginFinderTest {
+
+	/**
+	 * Tests that plugins read back from the cache match the ones originally
+	 * discovered, without consulting the underlying finder again.
+	 */
+	@Test
+	public void testCache() throws IOException {
+		final File cacheFile = File.createTempFile("plugins", ".cache");
+		cacheFile.delete();
+		try {
+			final CountingFinder finder = new CountingFinder();
+
+			// first discovery populates the cache
+			final List<PluginInfo<?>> plugins = find(finder, cacheFile);
+			assertEquals(1, finder.count);
+			assertTrue(cacheFile.exists());
+			assertEquals(1, plugins.size());
+
+			// second discovery reads the cache
+			final List<PluginInfo<?>> cached = find(finder, cacheFile);
+			assertEquals(1, finder.count);
+			assertEquals(1, cached.size());
+
+			final PluginInfo<?> info = cached.get(0);
+			assertEquals(FooBar.class.getName(), info.getClassName());
+			assertEquals(Command.class, info.getPluginType());
+			assertEquals("Foo Bar", info.getLabel());
+			assertEquals(42.0, info.getPriority(), 0);
+			assertEquals(true, info.getAnnotation().headless());
+			assertEquals(Plugin.APPLICATION_MENU_ROOT, info.getAnnotation()
+				.menuRoot());
+
+			final Menu[] menu = info.getAnnotation().menu();
+			assertEquals(2, menu.length);
+			assertEquals("Foo", menu[0].label());
+			assertEquals('f', menu[0].mnemonic());
+			assertEquals("Bar", menu[1].label());
+			assertEquals(7.0, menu[1].weight(), 0);
+			assertEquals("Foo > Bar", info.getMenuPath().getMenuString());
+		}
+		finally {
+			cacheFile.delete();
+		}
+	}
+
+	/** Tests that a corrupt cache file is ignored and overwritten. */
+	@Test
+	public void testCorruptCache() throws IOException {
+		final File cacheFile = File.createTempFile("plugins", ".cache");
+		final FileWriter out = new FileWriter(cacheFile);
+		out.write("This is not a plugin cache.");
+		out.close();
+		try {
+			final CountingFinder finder = new CountingFinder();
+			final List<PluginInfo<?>> plugins = find(finder, cacheFile);
+			assertEquals(1, finder.count);
+			assertEquals(1, plugins.size());
+
+			find(finder, cacheFile);
+			assertEquals(1, finder.count);
+		}
+		finally {
+			cacheFile.delete();
+		}
+	}
+
+	// -- Helper methods --
+
+	private List<PluginInfo<?>> find(final PluginFinder finder,
+		final File cacheFile)
+	{
+		final List<PluginInfo<?>> plugins = new ArrayList<PluginInfo<?>>();
+		new CachingPluginFinder(finder, null, cacheFile).findPlugins(plugins);
+		return plugins;
+	}
+
+	// -- Helper classes --
+
+	/** A plugin finder which reports a single plugin. */
+	private static class CountingFinder implements PluginFinder {
+
+		private int count;
+
+		@Override
+		public void findPlugins(final List<PluginInfo<?>> plugins) {
+			count++;
+			final Plugin annotation = FooBar.class.getAnnotation(Plugin.class);
+			plugins.add(new PluginInfo<Command>(FooBar.class.getName(),
+				Command.class, annotation));
+		}
+
+	}
+
+	/** A dummy plugin for testing the cache. */
+	@Plugin(label = "Foo Bar", priority = 42, headless = true, menu = {
+		@Menu(label = "Foo", mnemonic = 'f'), @Menu(label = "Bar", weight = 7) })
+	public static class FooBar implements Command {
+
+		@Override
+		public void run() {
+			// This method intentionally left blank.
+		}
+	}
+
+}
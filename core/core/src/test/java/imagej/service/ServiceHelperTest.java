@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+import imagej.command.CommandService;
+import imagej.command.DefaultCommandService;
+import imagej.event.DefaultEventService;
+import imagej.event.EventService;
+import imagej.module.ModuleService;
+import imagej.thread.ThreadService;
+
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ServiceHelper}.
+ * 
+ * @author agent
+ */
+public class ServiceHelperTest {
+
+	/** Tests that a lazy context creates only the services it is asked for. */
+	@Test
+	public void testLazyContext() {
+		final ImageJ context = ImageJ.createLazyContext();
+		assertTrue(context.getServiceIndex().getAll().isEmpty());
+
+		final EventService eventService = context.getService(EventService.class);
+		assertNotNull(eventService);
+		assertSame(eventService, context.getService(EventService.class));
+
+		// the services it depends upon are created along with it
+		assertNotNull(context.getServiceIndex().getService(ThreadService.class));
+
+		// other services are not
+		assertNull(context.getServiceIndex().getService(CommandService.class));
+		final Map<Class<? extends Service>, Long> loadTimes =
+			context.getServiceHelper().getLoadTimes();
+		assertTrue(loadTimes.containsKey(DefaultEventService.class));
+		assertFalse(loadTimes.containsKey(DefaultCommandService.class));
+
+		// services are still created on request later on
+		assertNotNull(context.getService(CommandService.class));
+		assertSame(eventService, context.getService(EventService.class));
+	}
+
+	/** Tests that concurrent requests for a service create it only once. */
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		final ImageJ context = ImageJ.createLazyContext();
+		final int threadCount = 8;
+		final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+		final Service[] services = new Service[threadCount];
+		final Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						barrier.await();
+					}
+					catch (final Exception exc) {
+						return;
+					}
+					services[index] = context.getService(ModuleService.class);
+				}
+			};
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertNotNull(services[0]);
+		for (final Service service : services) {
+			assertSame(services[0], service);
+		}
+		assertEquals(1, context.getServiceIndex().get(ModuleService.class).size());
+		assertEquals(1, context.getServiceIndex().get(EventService.class).size());
+	}
+
+}
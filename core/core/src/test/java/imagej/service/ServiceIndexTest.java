@@ -36,8 +36,10 @@
 package imagej.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import imagej.ImageJ;
+import imagej.Priority;
 import imagej.command.DefaultCommandService;
 import imagej.event.DefaultEventService;
 import imagej.log.StderrLogService;
@@ -75,4 +77,41 @@ public void testGetAll() {
 		assertSame(StderrLogService.class, all.get(7).getClass());
 	}
 
+	/** Tests that cached service lookups reflect changes to the index. */
+	@Test
+	public void testGetService() {
+		final ServiceIndex serviceIndex = new ServiceIndex();
+		assertNull(serviceIndex.getService(FooService.class));
+
+		final FooService foo = new FooService();
+		serviceIndex.add(foo);
+		assertSame(foo, serviceIndex.getService(FooService.class));
+		assertSame(foo, serviceIndex.getService(Service.class));
+
+		final BarService bar = new BarService();
+		bar.setPriority(Priority.HIGH_PRIORITY);
+		serviceIndex.add(bar);
+		assertSame(foo, serviceIndex.getService(FooService.class));
+		assertSame(bar, serviceIndex.getService(Service.class));
+
+		serviceIndex.remove(foo);
+		assertNull(serviceIndex.getService(FooService.class));
+		assertSame(bar, serviceIndex.getService(Service.class));
+
+		serviceIndex.clear();
+		assertNull(serviceIndex.getService(Service.class));
+	}
+
+	// -- Helper classes --
+
+	/** A dummy service for testing the service index. */
+	public static class FooService extends AbstractService {
+		// NB: No implementation needed.
+	}
+
+	/** Another dummy service for testing the service index. */
+	public static class BarService extends AbstractService {
+		// NB: No implementation needed.
+	}
+
 }
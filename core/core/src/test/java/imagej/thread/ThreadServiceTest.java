@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link DefaultThreadService}.
+ * 
+ * @author agent
+ */
+public class ThreadServiceTest {
+
+	@After
+	public void tearDown() {
+		System.clearProperty(DefaultThreadService.MAX_THREADS_PROPERTY);
+		System.clearProperty(DefaultThreadService.MAX_QUEUED_PROPERTY);
+	}
+
+	/** Tests that a task waiting on a nested task cannot deadlock the pool. */
+	@Test
+	public void testNestedRun() throws Exception {
+		final ThreadService threadService = createThreadService(1, 16);
+
+		final Future<Thread[]> outer = threadService.run(new Callable<Thread[]>() {
+
+			@Override
+			public Thread[] call() throws Exception {
+				final Future<Thread> inner = threadService.run(currentThread());
+				return new Thread[] { Thread.currentThread(), inner.get() };
+			}
+		});
+		final Thread[] threads = outer.get(5, TimeUnit.SECONDS);
+
+		// no thread was left, so the nested task ran on the submitting thread
+		assertSame(threads[0], threads[1]);
+		assertEquals(1, threadService.getStatistics().getRejected());
+	}
+
+	/** Tests that a nested task is queued while a thread is left for it. */
+	@Test
+	public void testNestedQueued() throws Exception {
+		final ThreadService threadService = createThreadService(2, 16);
+
+		final Future<Thread[]> outer = threadService.run(new Callable<Thread[]>() {
+
+			@Override
+			public Thread[] call() throws Exception {
+				final Future<Thread> inner = threadService.run(currentThread());
+				return new Thread[] { Thread.currentThread(), inner.get() };
+			}
+		});
+		final Thread[] threads = outer.get(5, TimeUnit.SECONDS);
+
+		assertNotSame(threads[0], threads[1]);
+		assertEquals(0, threadService.getStatistics().getRejected());
+	}
+
+	/** Tests that tasks beyond the queue bound run on the submitting thread. */
+	@Test
+	public void testQueueBound() throws Exception {
+		final ThreadService threadService = createThreadService(1, 1);
+
+		// occupy the only thread, then fill the queue
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final Future<?> busy = threadService.run(new Runnable() {
+
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (final InterruptedException exc) {
+					// NB: proceed to finish
+				}
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		final Future<Thread> queued = threadService.run(currentThread());
+		assertFalse(queued.isDone());
+
+		final Future<Thread> rejected = threadService.run(currentThread());
+		assertTrue(rejected.isDone());
+		assertSame(Thread.currentThread(), rejected.get());
+		assertEquals(1, threadService.getStatistics().getRejected());
+
+		release.countDown();
+		busy.get(5, TimeUnit.SECONDS);
+		assertNotSame(Thread.currentThread(), queued.get(5, TimeUnit.SECONDS));
+	}
+
+	// -- Helper methods --
+
+	private ThreadService createThreadService(final int maxThreads,
+		final int maxQueued)
+	{
+		System.setProperty(DefaultThreadService.MAX_THREADS_PROPERTY, "" +
+			maxThreads);
+		System.setProperty(DefaultThreadService.MAX_QUEUED_PROPERTY, "" +
+			maxQueued);
+		final ImageJ context = ImageJ.createContext(ThreadService.class);
+		return context.getService(ThreadService.class);
+	}
+
+	private Callable<Thread> currentThread() {
+		return new Callable<Thread>() {
+
+			@Override
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		};
+	}
+
+}
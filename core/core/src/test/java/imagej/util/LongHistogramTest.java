@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LongHistogram}.
+ * 
+ * @author agent
+ */
+public class LongHistogramTest {
+
+	@Test
+	public void testStatistics() {
+		final LongHistogram histogram = new LongHistogram();
+		assertEquals(0, histogram.getQuantile(0.5));
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050000, histogram.getTotal());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50500, histogram.getMean(), 0);
+		assertEquals(100000, histogram.getQuantile(1));
+	}
+
+	@Test
+	public void testQuantileAccuracy() {
+		final LongHistogram histogram = new LongHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000);
+		}
+		for (final int percent : new int[] { 1, 50, 95, 99 }) {
+			final long expected = percent * 1000;
+			final long actual = histogram.getQuantile(percent / 100.0);
+			assertTrue(actual >= expected);
+			assertTrue(actual <= expected + expected / LongHistogram.SUB_BUCKETS);
+		}
+	}
+
+	@Test
+	public void testSmallValues() {
+		final LongHistogram histogram = new LongHistogram();
+		for (int i = 0; i < LongHistogram.SUB_BUCKETS; i++) {
+			histogram.record(i);
+		}
+		histogram.record(-5);
+		assertEquals(LongHistogram.SUB_BUCKETS + 1, histogram.getCount());
+		// values below the sub-bucket count are resolved exactly
+		assertEquals(0, histogram.getQuantile(0));
+		assertEquals(15, histogram.getQuantile(0.5));
+		assertEquals(LongHistogram.SUB_BUCKETS - 1, histogram.getQuantile(1));
+	}
+
+	@Test
+	public void testLargeValues() {
+		final LongHistogram histogram = new LongHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(1L << 40);
+		assertEquals(1L << 40, histogram.getQuantile(0.5), (1L << 40) /
+			LongHistogram.SUB_BUCKETS);
+		assertEquals(Long.MAX_VALUE, histogram.getQuantile(1));
+	}
+
+}
@@ -43,6 +43,9 @@
 import imagej.data.event.DatasetTypeChangedEvent;
 import imagej.data.event.DatasetUpdatedEvent;
 import imagej.log.LogService;
+
+import java.lang.reflect.Array;
+
 import net.imglib2.Cursor;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
@@ -635,10 +638,27 @@ else if (newPlane instanceof double[]) {
 		return null;
 	}
 
-	// NB - assumes the two images are of the exact same dimensions
 	private void copyDataValues(final Img<? extends RealType<?>> input,
 		final Img<? extends RealType<?>> output)
 	{
+		// NB - the faster paths assume the two images have the same dimensions
+		if (sameDimensions(input, output)) {
+			// copy the backing arrays directly when possible
+			if (copyPlanes(unwrap(input), unwrap(output))) return;
+
+			if (input.equalIterationOrder(output)) {
+				// step through both images in lockstep
+				final Cursor<? extends RealType<?>> inputCursor = input.cursor();
+				final Cursor<? extends RealType<?>> outputCursor = output.cursor();
+				while (outputCursor.hasNext()) {
+					inputCursor.fwd();
+					outputCursor.fwd();
+					outputCursor.get().setReal(inputCursor.get().getRealDouble());
+				}
+				return;
+			}
+		}
+
 		final long[] position = new long[output.numDimensions()];
 		final Cursor<? extends RealType<?>> outputCursor =
 			output.localizingCursor();
@@ -653,7 +673,75 @@ private void copyDataValues(final Img<? extends RealType<?>> input,
 		}
 	}
 
+	/**
+	 * Copies the data values of two images plane by plane, through the
+	 * primitive arrays that back them. Planes of the same storage type are
+	 * copied in bulk; otherwise the values are converted a row at a time.
+	 * 
+	 * @return false if the planes of either image cannot be accessed by
+	 *         reference, in which case nothing is copied
+	 */
+	private boolean copyPlanes(final Img<? extends RealType<?>> input,
+		final Img<? extends RealType<?>> output)
+	{
+		final long planeCount = PrimitivePlane.planeCount(output);
+		if (planeCount > Integer.MAX_VALUE) return false;
+		final PrimitivePlane[] inputPlanes = new PrimitivePlane[(int) planeCount];
+		final PrimitivePlane[] outputPlanes =
+			new PrimitivePlane[(int) planeCount];
+		for (int p = 0; p < planeCount; p++) {
+			inputPlanes[p] = PrimitivePlane.get(input, p);
+			outputPlanes[p] = PrimitivePlane.get(output, p);
+			if (inputPlanes[p] == null || outputPlanes[p] == null) return false;
+		}
+		final int rowSize = (int) output.dimension(0);
+		double[] row = null;
+		for (int p = 0; p < planeCount; p++) {
+			final PrimitivePlane src = inputPlanes[p];
+			final PrimitivePlane dest = outputPlanes[p];
+			if (dest.isCompatible(src)) {
+				dest.copyFrom(src);
+				continue;
+			}
+			if (row == null) row = new double[rowSize];
+			for (int i = 0; i < dest.size(); i += rowSize) {
+				src.read(i, row, 0, rowSize);
+				dest.write(i, row, 0, rowSize);
+			}
+		}
+		return true;
+	}
+
+	/** Tells whether two images have the same dimensions. */
+	private boolean sameDimensions(final Img<?> a, final Img<?> b) {
+		if (a.numDimensions() != b.numDimensions()) return false;
+		for (int d = 0; d < a.numDimensions(); d++) {
+			if (a.dimension(d) != b.dimension(d)) return false;
+		}
+		return true;
+	}
+
+	/** Gets the image wrapped by the given {@link ImgPlus}, if any. */
+	private Img<? extends RealType<?>> unwrap(
+		final Img<? extends RealType<?>> img)
+	{
+		if (img instanceof ImgPlus) {
+			return unwrap(((ImgPlus<? extends RealType<?>>) img).getImg());
+		}
+		return img;
+	}
+
 	private Object copyOfPlane(final int planeNum) {
+		// copy the backing array directly when possible
+		final PrimitivePlane plane = PrimitivePlane.get(imgPlus.getImg(), planeNum);
+		if (plane != null) {
+			final Object array = plane.getArray();
+			final Object copy =
+				Array.newInstance(array.getClass().getComponentType(), plane.size());
+			System.arraycopy(array, plane.getOffset(), copy, 0, plane.size());
+			return copy;
+		}
+
 		final long[] dimensions = new long[imgPlus.numDimensions()];
 		imgPlus.dimensions(dimensions);
 		final long w = dimensions[0];
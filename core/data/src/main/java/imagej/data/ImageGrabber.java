@@ -66,31 +66,60 @@ public ImageGrabber(DatasetService service) {
 	 */
 	public Dataset grab(DatasetView view, String outputName) {
 		ARGBScreenImage screenImage = view.getScreenImage();
-		long[] dims = new long[3];
-		screenImage.dimensions(dims);  // fill X count & Y count
-		dims[2] = 3;  // fill CHANNEL count
-		if (dims[0] * dims[1] > Integer.MAX_VALUE)
+		long xSize = screenImage.dimension(0);
+		long ySize = screenImage.dimension(1);
+		if (xSize * ySize > Integer.MAX_VALUE)
 			throw new IllegalArgumentException("image is too big to fit into memory");
-		int xSize = (int) dims[0];
-		int ySize = (int) dims[1];
-		int[] argbPixels = view.getScreenImage().getData();
+		return grab(screenImage.getData(), (int) xSize, (int) ySize, outputName);
+	}
+
+	/**
+	 * Creates a merged color {@link Dataset} from an array of packed ARGB
+	 * pixels, in row-major order. This method uses the provided String name for
+	 * the output {@link Dataset}.
+	 */
+	public Dataset grab(int[] argbPixels, int xSize, int ySize,
+		String outputName)
+	{
+		long[] dims = new long[] { xSize, ySize, 3 };
 		Dataset dataset = 
 				service.create(new UnsignedByteType(), dims, outputName,
 												new Axes[]{Axes.X, Axes.Y, Axes.CHANNEL});
-		ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
-		RandomAccess<? extends RealType<?>> accessor = imgPlus.randomAccess();
-		for (int x = 0; x < xSize; x++) {
-			accessor.setPosition(x, 0);
+		PrimitivePlane[] planes = new PrimitivePlane[3];
+		for (int c = 0; c < 3; c++) {
+			planes[c] = PrimitivePlane.get(dataset, c);
+		}
+		if (planes[0] != null && planes[1] != null && planes[2] != null) {
+			// copy each row directly into the backing arrays
+			double[][] rows = new double[3][xSize];
+			for (int y = 0; y < ySize; y++) {
+				int offset = y * xSize;
+				for (int x = 0; x < xSize; x++) {
+					int pixel = argbPixels[offset + x];
+					rows[0][x] = (pixel >> 16) & 0xff;
+					rows[1][x] = (pixel >>  8) & 0xff;
+					rows[2][x] = (pixel >>  0) & 0xff;
+				}
+				for (int c = 0; c < 3; c++) {
+					planes[c].write(offset, rows[c], 0, xSize);
+				}
+			}
+		}
+		else {
+			ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
+			RandomAccess<? extends RealType<?>> accessor = imgPlus.randomAccess();
 			for (int y = 0; y < ySize; y++) {
 				accessor.setPosition(y, 1);
-				int index = y*xSize + x; 
-				int pixel = argbPixels[index];
-				accessor.setPosition(0, 2);
-				accessor.get().setReal((pixel >> 16) & 0xff);
-				accessor.setPosition(1, 2);
-				accessor.get().setReal((pixel >>  8) & 0xff);
-				accessor.setPosition(2, 2);
-				accessor.get().setReal((pixel >>  0) & 0xff);
+				for (int x = 0; x < xSize; x++) {
+					accessor.setPosition(x, 0);
+					int pixel = argbPixels[y*xSize + x];
+					accessor.setPosition(0, 2);
+					accessor.get().setReal((pixel >> 16) & 0xff);
+					accessor.setPosition(1, 2);
+					accessor.get().setReal((pixel >>  8) & 0xff);
+					accessor.setPosition(2, 2);
+					accessor.get().setReal((pixel >>  0) & 0xff);
+				}
 			}
 		}
 		dataset.setRGBMerged(true);
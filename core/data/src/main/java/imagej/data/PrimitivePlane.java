@@ -0,0 +1,600 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import net.imglib2.Interval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Direct access to one XY plane of a {@link Dataset} through the primitive
+ * array that backs it. Values are read and written as doubles with the same
+ * semantics as {@link RealType#getRealDouble()} and
+ * {@link RealType#setReal(double)}, but without the per pixel overhead of a
+ * {@link net.imglib2.RandomAccess}.
+ * <p>
+ * Planes can only be obtained by reference from planar images and from array
+ * images. Bit packed types (1-bit, 12-bit, etc.) are not supported. When a
+ * plane is not accessible the factory methods return null and callers are
+ * expected to fall back to generic ImgLib access.
+ * </p>
+ * 
+ * @author agent
+ */
+public abstract class PrimitivePlane {
+
+	// -- instance variables --
+
+	private final Object array;
+	private final int offset;
+	private final int size;
+
+	// -- constructor --
+
+	protected PrimitivePlane(final Object array, final int offset,
+		final int size)
+	{
+		this.array = array;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	// -- PrimitivePlane methods --
+
+	/** Returns the primitive array that backs this plane. */
+	public Object getArray() {
+		return array;
+	}
+
+	/** Returns the index within the backing array of the plane's first value. */
+	public int getOffset() {
+		return offset;
+	}
+
+	/** Returns the number of values in the plane. */
+	public int size() {
+		return size;
+	}
+
+	/** Gets the value at the given index of the plane. */
+	public abstract double getReal(int index);
+
+	/** Sets the value at the given index of the plane. */
+	public abstract void setReal(int index, double value);
+
+	/**
+	 * Reads a run of values from the plane.
+	 * 
+	 * @param index Index within the plane of the first value to read
+	 * @param dest The array to read values into
+	 * @param destPos The starting position within the destination array
+	 * @param length The number of values to read
+	 */
+	public abstract void read(int index, double[] dest, int destPos, int length);
+
+	/**
+	 * Writes a run of values into the plane.
+	 * 
+	 * @param index Index within the plane of the first value to write
+	 * @param src The array to write values from
+	 * @param srcPos The starting position within the source array
+	 * @param length The number of values to write
+	 */
+	public abstract void
+		write(int index, double[] src, int srcPos, int length);
+
+	/**
+	 * Returns true if the given plane holds values of exactly the same storage
+	 * type as this one, so that the backing arrays can be copied directly.
+	 */
+	public boolean isCompatible(final PrimitivePlane other) {
+		return getClass() == other.getClass();
+	}
+
+	/** Copies all the values of another compatible plane into this one. */
+	public void copyFrom(final PrimitivePlane other) {
+		if (!isCompatible(other) || other.size() != size) {
+			throw new IllegalArgumentException("Incompatible planes");
+		}
+		System.arraycopy(other.getArray(), other.getOffset(), array, offset, size);
+	}
+
+	// -- static utility methods --
+
+	/**
+	 * Returns the number of XY planes in the given {@link Dataset} or
+	 * {@link Img}.
+	 */
+	public static long planeCount(final Interval interval) {
+		long count = 1;
+		for (int d = 2; d < interval.numDimensions(); d++) {
+			count *= interval.dimension(d);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets a plane of a {@link Dataset} by reference.
+	 * 
+	 * @param ds The Dataset whose plane is desired
+	 * @param planeIndex The index of the plane, as in {@link Dataset#getPlane}
+	 * @return The plane or null if it cannot be accessed by reference
+	 */
+	public static PrimitivePlane get(final Dataset ds, final int planeIndex) {
+		return get(ds.getImgPlus().getImg(), planeIndex);
+	}
+
+	/**
+	 * Gets a plane of an {@link Img} by reference.
+	 * 
+	 * @param img The Img whose plane is desired
+	 * @param planeIndex The index of the plane
+	 * @return The plane or null if it cannot be accessed by reference
+	 */
+	public static PrimitivePlane get(final Img<? extends RealType<?>> img,
+		final int planeIndex)
+	{
+		if (img.numDimensions() < 2) return null;
+		final long planeSize = img.dimension(0) * img.dimension(1);
+		if (planeSize > Integer.MAX_VALUE) return null;
+		final RealType<?> type = img.firstElement();
+		if (img instanceof PlanarAccess) {
+			final Object plane = ((PlanarAccess<?>) img).getPlane(planeIndex);
+			if (!(plane instanceof ArrayDataAccess)) return null;
+			final Object array =
+				((ArrayDataAccess<?>) plane).getCurrentStorageArray();
+			return wrap(array, 0, (int) planeSize, type);
+		}
+		if (img instanceof ArrayImg) {
+			final Object access = ((ArrayImg<?, ?>) img).update(null);
+			if (!(access instanceof ArrayDataAccess)) return null;
+			final long offset = planeIndex * planeSize;
+			if (offset + planeSize > Integer.MAX_VALUE) return null;
+			final Object array =
+				((ArrayDataAccess<?>) access).getCurrentStorageArray();
+			return wrap(array, (int) offset, (int) planeSize, type);
+		}
+		return null;
+	}
+
+	/**
+	 * Wraps a run of a primitive array as a plane holding values of the given
+	 * {@link RealType}.
+	 * 
+	 * @return The plane or null if the array does not directly hold values of
+	 *         the given type (e.g. bit packed types)
+	 */
+	public static PrimitivePlane wrap(final Object array, final int offset,
+		final int size, final RealType<?> type)
+	{
+		final int bits = type.getBitsPerPixel();
+		final boolean signed = type.getMinValue() < 0;
+		if (array instanceof byte[] && bits == 8) {
+			return signed ? new BytePlane((byte[]) array, offset, size)
+				: new UnsignedBytePlane((byte[]) array, offset, size);
+		}
+		if (array instanceof short[] && bits == 16) {
+			return signed ? new ShortPlane((short[]) array, offset, size)
+				: new UnsignedShortPlane((short[]) array, offset, size);
+		}
+		if (array instanceof int[] && bits == 32) {
+			return signed ? new IntPlane((int[]) array, offset, size)
+				: new UnsignedIntPlane((int[]) array, offset, size);
+		}
+		if (array instanceof long[] && bits == 64 && signed) {
+			return new LongPlane((long[]) array, offset, size);
+		}
+		if (array instanceof float[] && bits == 32) {
+			return new FloatPlane((float[]) array, offset, size);
+		}
+		if (array instanceof double[] && bits == 64) {
+			return new DoublePlane((double[]) array, offset, size);
+		}
+		return null;
+	}
+
+	// -- helper methods --
+
+	/** Rounds as ImgLib's integer types do in {@link RealType#setReal}. */
+	protected static long round(final double value) {
+		return (long) (value < 0 ? value - 0.5 : value + 0.5);
+	}
+
+	// -- helper classes --
+
+	private static class BytePlane extends PrimitivePlane {
+
+		private final byte[] a;
+		private final int o;
+
+		public BytePlane(final byte[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index];
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (byte) round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i];
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (byte) round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class UnsignedBytePlane extends PrimitivePlane {
+
+		private final byte[] a;
+		private final int o;
+
+		public UnsignedBytePlane(final byte[] a, final int offset, final int size)
+		{
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index] & 0xff;
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (byte) round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i] & 0xff;
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (byte) round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class ShortPlane extends PrimitivePlane {
+
+		private final short[] a;
+		private final int o;
+
+		public ShortPlane(final short[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index];
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (short) round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i];
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (short) round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class UnsignedShortPlane extends PrimitivePlane {
+
+		private final short[] a;
+		private final int o;
+
+		public UnsignedShortPlane(final short[] a, final int offset,
+			final int size)
+		{
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index] & 0xffff;
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (short) round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i] & 0xffff;
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (short) round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class IntPlane extends PrimitivePlane {
+
+		private final int[] a;
+		private final int o;
+
+		public IntPlane(final int[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index];
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (int) round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i];
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (int) round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class UnsignedIntPlane extends PrimitivePlane {
+
+		private final int[] a;
+		private final int o;
+
+		public UnsignedIntPlane(final int[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index] & 0xffffffffL;
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (int) round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i] & 0xffffffffL;
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (int) round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class LongPlane extends PrimitivePlane {
+
+		private final long[] a;
+		private final int o;
+
+		public LongPlane(final long[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index];
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = round(value);
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i];
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = round(src[srcPos + i]);
+			}
+		}
+	}
+
+	private static class FloatPlane extends PrimitivePlane {
+
+		private final float[] a;
+		private final int o;
+
+		public FloatPlane(final float[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index];
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = (float) value;
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				dest[destPos + i] = a[o + index + i];
+			}
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			for (int i = 0; i < length; i++) {
+				a[o + index + i] = (float) src[srcPos + i];
+			}
+		}
+	}
+
+	private static class DoublePlane extends PrimitivePlane {
+
+		private final double[] a;
+		private final int o;
+
+		public DoublePlane(final double[] a, final int offset, final int size) {
+			super(a, offset, size);
+			this.a = a;
+			this.o = offset;
+		}
+
+		@Override
+		public double getReal(final int index) {
+			return a[o + index];
+		}
+
+		@Override
+		public void setReal(final int index, final double value) {
+			a[o + index] = value;
+		}
+
+		@Override
+		public void read(final int index, final double[] dest, final int destPos,
+			final int length)
+		{
+			System.arraycopy(a, o + index, dest, destPos, length);
+		}
+
+		@Override
+		public void write(final int index, final double[] src, final int srcPos,
+			final int length)
+		{
+			System.arraycopy(src, srcPos, a, o + index, length);
+		}
+	}
+
+}
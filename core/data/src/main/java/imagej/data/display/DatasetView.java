@@ -39,6 +39,7 @@
 import imagej.data.Dataset;
 import imagej.display.Display;
 import imagej.util.ColorRGB;
+import imagej.util.RealRect;
 
 import java.util.List;
 
@@ -58,8 +59,33 @@
  */
 public interface DatasetView extends DataView {
 
+	/**
+	 * Gets the image of the whole current plane. When rendering a viewport at a
+	 * time, the image is allocated and rendered on demand.
+	 */
 	ARGBScreenImage getScreenImage();
 
+	/**
+	 * Gets whether this view renders only the visible region of its planes (see
+	 * {@link #render}), rather than mapping each whole plane into the
+	 * {@link #getScreenImage() screen image} as it changes. By default this is
+	 * true for very large planes.
+	 */
+	boolean isViewportRendering();
+
+	/** Sets whether this view renders only the visible region of its planes. */
+	void setViewportRendering(boolean enabled);
+
+	/**
+	 * Renders a region of the current plane into the given image, scaling the
+	 * region to fill the image. When the image is smaller than the region,
+	 * values are averaged via an {@link ImagePyramid}.
+	 * 
+	 * @param region The region to render, in data coordinates
+	 * @param target The image to render into
+	 */
+	void render(RealRect region, ARGBScreenImage target);
+
 	int getCompositeDimIndex();
 
 	CompositeXYProjector<? extends RealType<?>> getProjector();
@@ -48,7 +48,10 @@
 import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.plugin.Plugin;
+import imagej.thread.ThreadService;
+import imagej.thread.ThreadService.Priority;
 import imagej.util.ColorRGB;
+import imagej.util.RealRect;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -78,6 +81,18 @@
 public class DefaultDatasetView extends AbstractDataView implements DatasetView
 {
 
+	/**
+	 * Planes with more pixels than this are rendered a viewport at a time by
+	 * default (see {@link #setViewportRendering(boolean)}).
+	 */
+	public static final long VIEWPORT_RENDERING_THRESHOLD = 4096L * 4096;
+
+	/** Number of planes prefetched ahead of the direction of movement. */
+	private static final int PREFETCH_AHEAD = 2;
+
+	/** Number of planes prefetched behind the direction of movement. */
+	private static final int PREFETCH_BEHIND = 1;
+
 	/** The dimensional index representing channels, for compositing. */
 	private int channelDimIndex;
 
@@ -89,8 +104,25 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 
 	private ARGBScreenImage screenImage;
 
+	/** Whether {@link #screenImage} needs to be mapped again. */
+	private boolean screenImageStale;
+
+	/** Whether only the visible region is rendered, or null for automatic. */
+	private Boolean viewportRendering;
+
+	/** Whether the view was last built to render a viewport at a time. */
+	private boolean viewportMode;
+
 	private CompositeXYProjector<? extends RealType<?>> projector;
 
+	private ViewportProjector viewportProjector;
+
+	/** Recently rendered planes, when mapping whole planes. */
+	private RenderedPlaneCache planeCache;
+
+	/** Number of prefetches requested, so that outdated ones can stop early. */
+	private volatile long prefetchCount;
+
 	private final ArrayList<RealLUTConverter<? extends RealType<?>>> converters =
 		new ArrayList<RealLUTConverter<? extends RealType<?>>>();
 
@@ -104,9 +136,41 @@ public int getChannelCount() {
 
 	@Override
 	public ARGBScreenImage getScreenImage() {
+		if (viewportMode && isInitialized()) {
+			// NB - the full plane is only rendered when explicitly requested
+			if (screenImage == null) {
+				screenImage =
+					new ARGBScreenImage(getPreferredWidth(), getPreferredHeight());
+				screenImageStale = true;
+			}
+			if (screenImageStale) {
+				render(new RealRect(0, 0, getPreferredWidth(), getPreferredHeight()),
+					screenImage);
+				screenImageStale = false;
+			}
+		}
 		return screenImage;
 	}
 
+	@Override
+	public boolean isViewportRendering() {
+		return viewportMode;
+	}
+
+	@Override
+	public void setViewportRendering(final boolean enabled) {
+		if (viewportRendering != null && viewportRendering == enabled) return;
+		viewportRendering = enabled;
+		if (isInitialized()) rebuild();
+	}
+
+	@Override
+	public void render(final RealRect region, final ARGBScreenImage target) {
+		if (!isInitialized()) return;
+		viewportProjector.map(getCurrentPosition(), channelDimIndex, projector
+			.isComposite(), converters, region, target);
+	}
+
 	@Override
 	public int getCompositeDimIndex() {
 		return channelDimIndex;
@@ -232,7 +296,7 @@ public void setColorMode(final ColorMode colorMode) {
 
 		resetColorTables(colorMode == ColorMode.GRAYSCALE);
 		projector.setComposite(colorMode == ColorMode.COMPOSITE);
-		projector.map();
+		mapPlane();
 	}
 
 	// TODO - add this kind of mapping code to the Imglib Projector classes. Here
@@ -304,16 +368,18 @@ public Dataset getData() {
 
 	@Override
 	public int getPreferredWidth() {
-		return getScreenImage().image().getWidth(null);
+		return (int) getData().dimension(0);
 	}
 
 	@Override
 	public int getPreferredHeight() {
-		return getScreenImage().image().getHeight(null);
+		return (int) getData().dimension(1);
 	}
 
 	@Override
 	public void update() {
+		// NB - the converters may have been changed via getProjector()
+		if (viewportMode) screenImageStale = true;
 		publish(new DataViewUpdatedEvent(this));
 	}
 
@@ -334,14 +400,41 @@ public void rebuild() {
 			resetColorTables(false);
 		}
 
-		final int width = (int) img.dimension(0);
-		final int height = (int) img.dimension(1);
-		screenImage = new ARGBScreenImage(width, height);
+		final long planeSize = img.dimension(0) * img.dimension(1);
+		viewportMode =
+			viewportRendering == null ? planeSize > VIEWPORT_RENDERING_THRESHOLD
+				: viewportRendering;
+		viewportProjector = new ViewportProjector(getData());
+		final ARGBScreenImage target;
+		if (viewportMode) {
+			// NB - the projector only tracks the position; the screen image is
+			// allocated and rendered on demand (see getScreenImage)
+			screenImage = null;
+			target = new ARGBScreenImage(1, 1);
+		}
+		else {
+			final int width = (int) img.dimension(0);
+			final int height = (int) img.dimension(1);
+			screenImage = new ARGBScreenImage(width, height);
+			target = screenImage;
+		}
 
-		initializeView(isComposite());
+		initializeView(isComposite(), target);
+		// NB - release the planes of the previous cache from the shared budget
+		if (planeCache != null) planeCache.clear();
+		planeCache = createPlaneCache();
+		prefetchCount++;
 
 		updateLUTs();
-		projector.map();
+		mapPlane();
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		// NB - release the cached planes from the shared budget
+		final RenderedPlaneCache cache = planeCache;
+		if (cache != null) cache.clear();
 	}
 
 	// -- PositionableByAxis methods --
@@ -377,7 +470,8 @@ public void setPosition(final long position, final AxisType axis) {
 			updateLUTs();
 		}
 
-		projector.map();
+		mapPlane();
+		if (!viewportMode) prefetch(dim, position > currentValue ? 1 : -1);
 
 		super.setPosition(position, axis);
 	}
@@ -409,7 +503,9 @@ protected void onEvent(final DatasetUpdatedEvent event) {
 		}
 		if (getData() == event.getObject()) {
 			if (event.isMetaDataOnly()) return;
-			projector.map();
+			viewportProjector.getPyramid().clear();
+			planeCache.clear();
+			mapPlane();
 		}
 	}
 
@@ -427,15 +523,33 @@ private boolean isInitialized() {
 		return projector != null;
 	}
 
+	private RenderedPlaneCache createPlaneCache() {
+		final ImageJ context = getContext();
+		final ImageDisplayService imageDisplayService =
+			context == null ? null : context.getService(ImageDisplayService.class);
+		if (imageDisplayService != null) {
+			return imageDisplayService.createPlaneCache();
+		}
+		return new RenderedPlaneCache(Runtime.getRuntime().maxMemory() / 8);
+	}
+
+	private ThreadService getThreadService() {
+		final ImageJ context = getContext();
+		if (context == null) return null;
+		return context.getService(ThreadService.class);
+	}
+
 	/** Uninitializes the view. */
 	private void uninitializeView() {
 		converters.clear();
 		projector = null;
 	}
 
-	/** Initializes the view. */
+	/** Initializes the view, with the projector mapping into the given image. */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private void initializeView(final boolean composite) {
+	private void initializeView(final boolean composite,
+		final ARGBScreenImage target)
+	{
 		converters.clear();
 		final int channelCount = getChannelCount();
 		for (int c = 0; c < channelCount; c++) {
@@ -446,11 +560,157 @@ private void initializeView(final boolean composite) {
 			converters.add(converter);
 		}
 		projector =
-			new CompositeXYProjector(getData().getImgPlus(), screenImage, converters,
-				channelDimIndex);
+			new ParallelCompositeXYProjector(getData(), target, converters,
+				channelDimIndex, getThreadService());
 		projector.setComposite(composite);
 	}
 
+	/**
+	 * Maps the current plane into the screen image, or marks the screen image
+	 * as stale when rendering a viewport at a time. Planes rendered before with
+	 * the same color tables and display ranges are copied from the plane cache.
+	 */
+	private void mapPlane() {
+		if (viewportMode) {
+			screenImageStale = true;
+			return;
+		}
+		final long epoch = planeCache.getEpoch();
+		final RenderedPlaneCache.Key key =
+			createKey(getCurrentPosition(), converters, projector.isComposite());
+		final int[] pixels = screenImage.getData();
+		final int[] cached = planeCache.get(key);
+		if (cached != null) {
+			System.arraycopy(cached, 0, pixels, 0, pixels.length);
+			return;
+		}
+		projector.map();
+		planeCache.put(key, pixels.clone(), epoch);
+	}
+
+	/**
+	 * Renders neighboring planes along the given dimension in the background,
+	 * so that they can be shown quickly if the position keeps moving that way.
+	 */
+	private void prefetch(final int dim, final int step) {
+		final ThreadService threadService = getThreadService();
+		if (threadService == null) return;
+
+		final long[] current = getCurrentPosition();
+		final List<long[]> positions = new ArrayList<long[]>();
+		for (int i = 1; i <= PREFETCH_AHEAD; i++) {
+			addNeighbor(positions, current, dim, step * i);
+		}
+		for (int i = 1; i <= PREFETCH_BEHIND; i++) {
+			addNeighbor(positions, current, dim, -step * i);
+		}
+		if (positions.isEmpty()) return;
+
+		final long request = ++prefetchCount;
+		final RenderedPlaneCache cache = planeCache;
+		final long epoch = cache.getEpoch();
+		final boolean composite = projector.isComposite();
+		final int channelIndex = channelDimIndex;
+		final List<List<RealLUTConverter<? extends RealType<?>>>> converterSets =
+			new ArrayList<List<RealLUTConverter<? extends RealType<?>>>>();
+		for (final long[] pos : positions) {
+			converterSets.add(copyConverters(pos));
+		}
+		threadService.run(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < positions.size(); i++) {
+					if (request != prefetchCount) return; // outdated
+					final long[] pos = positions.get(i);
+					final List<RealLUTConverter<? extends RealType<?>>> convs =
+						converterSets.get(i);
+					final RenderedPlaneCache.Key key =
+						createKey(pos, convs, composite);
+					if (cache.contains(key)) continue;
+					cache.put(key, renderPlane(pos, convs, composite, channelIndex),
+						epoch);
+				}
+			}
+		}, Priority.BATCH);
+	}
+
+	/** Adds the position offset along a dimension, if it is within bounds. */
+	private void addNeighbor(final List<long[]> positions, final long[] pos,
+		final int dim, final long offset)
+	{
+		final long value = pos[dim] + offset;
+		if (value < 0 || value >= getData().dimension(dim)) return;
+		final long[] neighbor = pos.clone();
+		neighbor[dim] = value;
+		positions.add(neighbor);
+	}
+
+	/** Renders a whole plane independently of the view's own projector. */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private int[] renderPlane(final long[] pos,
+		final List<RealLUTConverter<? extends RealType<?>>> convs,
+		final boolean composite, final int channelIndex)
+	{
+		final ImgPlus<? extends RealType<?>> img = getData().getImgPlus();
+		final ARGBScreenImage image =
+			new ARGBScreenImage((int) img.dimension(0), (int) img.dimension(1));
+		// NB - maps serially, to leave the processors to interactive rendering
+		final CompositeXYProjector p =
+			new ParallelCompositeXYProjector(getData(), image, new ArrayList(convs),
+				channelIndex, null);
+		p.setComposite(composite);
+		for (int d = 2; d < pos.length; d++) {
+			p.setPosition(pos[d], d);
+		}
+		p.map();
+		return image.getData();
+	}
+
+	/**
+	 * Copies the converters, with the color tables of the planes at the given
+	 * position.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private List<RealLUTConverter<? extends RealType<?>>> copyConverters(
+		final long[] pos)
+	{
+		final List<RealLUTConverter<? extends RealType<?>>> copies =
+			new ArrayList<RealLUTConverter<? extends RealType<?>>>();
+		for (int c = 0; c < converters.size(); c++) {
+			final RealLUTConverter<? extends RealType<?>> converter =
+				converters.get(c);
+			copies.add(new RealLUTConverter(converter.getMin(), converter.getMax(),
+				getLUT(pos, c)));
+		}
+		return copies;
+	}
+
+	/** Gets the position of the current plane, with zero for X and Y. */
+	private long[] getCurrentPosition() {
+		final long[] pos = new long[getData().numDimensions()];
+		for (int d = 2; d < pos.length && d < projector.numDimensions(); d++) {
+			pos[d] = projector.getLongPosition(d);
+		}
+		return pos;
+	}
+
+	private RenderedPlaneCache.Key createKey(final long[] pos,
+		final List<RealLUTConverter<? extends RealType<?>>> convs,
+		final boolean composite)
+	{
+		final ColorTable[] luts = new ColorTable[convs.size()];
+		final double[] mins = new double[convs.size()];
+		final double[] maxs = new double[convs.size()];
+		for (int c = 0; c < luts.length; c++) {
+			final RealLUTConverter<? extends RealType<?>> converter = convs.get(c);
+			luts[c] = converter.getLUT();
+			mins[c] = converter.getMin();
+			maxs[c] = converter.getMax();
+		}
+		return new RenderedPlaneCache.Key(pos, luts, mins, maxs, composite);
+	}
+
 	private void updateLUTs() {
 		if (!isInitialized()) return;
 
@@ -468,7 +728,14 @@ private void updateLUTs() {
 	}
 
 	private ColorTable getCurrentLUT(final int cPos) {
+		return getLUT(getCurrentPosition(), cPos);
+	}
+
+	private ColorTable getLUT(final long[] position, final int cPos) {
 		final Position pos = getPlanePosition();
+		for (int d = 2; d < position.length; d++) {
+			pos.setPosition(position[d], d - 2);
+		}
 		if (channelDimIndex >= 0) {
 			pos.setPosition(cPos, channelDimIndex - 2);
 		}
@@ -68,6 +68,10 @@ public final class DefaultImageDisplayService extends AbstractService
 	@Parameter
 	private DisplayService displayService;
 
+	/** Memory budget shared by the rendered plane caches of all views. */
+	private final RenderedPlaneCache.Budget planeCacheBudget =
+		new RenderedPlaneCache.Budget(Runtime.getRuntime().maxMemory() / 8);
+
 	// -- ImageDisplayService methods --
 
 	@Override
@@ -137,4 +141,9 @@ public List<ImageDisplay> getImageDisplays() {
 		return displayService.getDisplaysOfType(ImageDisplay.class);
 	}
 
+	@Override
+	public RenderedPlaneCache createPlaneCache() {
+		return new RenderedPlaneCache(planeCacheBudget);
+	}
+
 }
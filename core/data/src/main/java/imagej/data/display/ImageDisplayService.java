@@ -98,4 +98,11 @@ public interface ImageDisplayService extends Service {
 	/** Gets a list of all available {@link ImageDisplay}s. */
 	List<ImageDisplay> getImageDisplays();
 
+	/**
+	 * Creates a cache of rendered planes for a {@link DatasetView}. All caches
+	 * created by the service share a single memory budget, so that the rendered
+	 * planes of many open views do not exhaust the heap.
+	 */
+	RenderedPlaneCache createPlaneCache();
+
 }
@@ -0,0 +1,291 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import imagej.data.Dataset;
+import imagej.data.PrimitivePlane;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A multiresolution representation of the XY planes of a {@link Dataset}, for
+ * rendering planes much larger than the screen. Level <code>k</code> of a
+ * plane holds the mean value of each 2^k x 2^k block of pixels of the original
+ * plane (level 0). Levels are computed lazily when first requested, and are
+ * retained for a limited number of planes at a time.
+ * <p>
+ * The pyramid does not track changes to the Dataset; its owner must call
+ * {@link #clear()} when the data changes.
+ * </p>
+ * 
+ * @author agent
+ */
+public class ImagePyramid {
+
+	/**
+	 * Maximum number of pixels in a stored level. Finer levels are never built;
+	 * callers must sample the original plane instead.
+	 */
+	public static final long MAX_LEVEL_SIZE = 2048 * 2048;
+
+	/** Maximum number of planes whose levels are retained. */
+	private static final int MAX_PLANES = 8;
+
+	// -- instance variables --
+
+	private final Dataset dataset;
+
+	/** Table of computed levels, indexed by plane, in access order. */
+	private final Map<Long, Level[]> planes =
+		new LinkedHashMap<Long, Level[]>(16, 0.75f, true);
+
+	// -- constructor --
+
+	public ImagePyramid(final Dataset dataset) {
+		this.dataset = dataset;
+	}
+
+	// -- ImagePyramid methods --
+
+	/** Gets the {@link Dataset} whose planes are represented. */
+	public Dataset getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Gets the coarsest level whose resolution is at least the given scale, where
+	 * a scale of 1 corresponds to level 0.
+	 */
+	public static int getLevelIndex(final double scale) {
+		int level = 0;
+		while (level < 30 && scale * (1L << (level + 1)) <= 1) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Gets a level of a plane, computing it if necessary.
+	 * 
+	 * @param planeIndex The index of the plane, as in {@link Dataset#getPlane}
+	 * @param level The level, from 1 upward
+	 * @return The level, or null if the level is 0 or has more than
+	 *         {@link #MAX_LEVEL_SIZE} pixels
+	 */
+	public synchronized Level getLevel(final long planeIndex, final int level) {
+		if (level <= 0 || level > 30) return null;
+		final long factor = 1L << level;
+		final long width = (dataset.dimension(0) + factor - 1) / factor;
+		final long height = (dataset.dimension(1) + factor - 1) / factor;
+		if (width * height > MAX_LEVEL_SIZE) return null;
+
+		Level[] levels = planes.get(planeIndex);
+		if (levels == null) {
+			levels = new Level[31];
+			planes.put(planeIndex, levels);
+			if (planes.size() > MAX_PLANES) {
+				// discard the least recently used plane
+				final Iterator<Long> iter = planes.keySet().iterator();
+				iter.next();
+				iter.remove();
+			}
+		}
+		if (levels[level] == null) {
+			levels[level] = buildLevel(planeIndex, levels, level);
+		}
+		return levels[level];
+	}
+
+	/** Discards all computed levels. */
+	public synchronized void clear() {
+		planes.clear();
+	}
+
+	// -- helper methods --
+
+	/**
+	 * Computes a level of a plane from the finest level already available,
+	 * which is the original plane if no other level has been computed.
+	 */
+	private Level buildLevel(final long planeIndex, final Level[] levels,
+		final int level)
+	{
+		Level source = null;
+		for (int l = level - 1; l > 0 && source == null; l--) {
+			source = levels[l];
+		}
+		final int srcFactor = source == null ? 1 : source.factor;
+		final int srcWidth =
+			source == null ? (int) dataset.dimension(0) : source.width;
+		final int srcHeight =
+			source == null ? (int) dataset.dimension(1) : source.height;
+
+		final int factor = 1 << level;
+		final int ratio = factor / srcFactor;
+		final int width = (srcWidth + ratio - 1) / ratio;
+		final int height = (srcHeight + ratio - 1) / ratio;
+		final float[] values = new float[width * height];
+
+		final RowReader reader =
+			source == null ? new PlaneRowReader(planeIndex) : null;
+		final double[] row = new double[srcWidth];
+		final double[] sums = new double[width];
+		final int[] counts = new int[width];
+		for (int y = 0; y < height; y++) {
+			Arrays.fill(sums, 0);
+			Arrays.fill(counts, 0);
+			final int srcEnd = Math.min(srcHeight, (y + 1) * ratio);
+			for (int srcY = y * ratio; srcY < srcEnd; srcY++) {
+				if (reader == null) {
+					final int offset = srcY * srcWidth;
+					for (int x = 0; x < srcWidth; x++) {
+						row[x] = source.values[offset + x];
+					}
+				}
+				else reader.read(srcY, row);
+				for (int srcX = 0; srcX < srcWidth; srcX++) {
+					sums[srcX / ratio] += row[srcX];
+					counts[srcX / ratio]++;
+				}
+			}
+			final int offset = y * width;
+			for (int x = 0; x < width; x++) {
+				values[offset + x] = (float) (sums[x] / counts[x]);
+			}
+		}
+		return new Level(factor, width, height, values);
+	}
+
+	// -- helper classes --
+
+	/** One level of the pyramid, for a single plane. */
+	public static class Level {
+
+		private final int factor;
+		private final int width;
+		private final int height;
+		private final float[] values;
+
+		public Level(final int factor, final int width, final int height,
+			final float[] values)
+		{
+			this.factor = factor;
+			this.width = width;
+			this.height = height;
+			this.values = values;
+		}
+
+		/** Gets the number of original pixels per level pixel, along X and Y. */
+		public int getFactor() {
+			return factor;
+		}
+
+		/** Gets the width of the level, in level pixels. */
+		public int getWidth() {
+			return width;
+		}
+
+		/** Gets the height of the level, in level pixels. */
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * Gets the value of the block containing the given pixel, in the
+		 * coordinates of the original plane.
+		 */
+		public double getValue(final long x, final long y) {
+			return values[(int) (y / factor) * width + (int) (x / factor)];
+		}
+
+	}
+
+	/** Reads rows of pixels of an original plane. */
+	private interface RowReader {
+
+		void read(int y, double[] row);
+	}
+
+	/**
+	 * Reads rows of a plane of the {@link Dataset}, from its backing array when
+	 * possible.
+	 */
+	private class PlaneRowReader implements RowReader {
+
+		private final PrimitivePlane plane;
+		private final RandomAccess<? extends RealType<?>> accessor;
+		private final int width;
+
+		public PlaneRowReader(final long planeIndex) {
+			width = (int) dataset.dimension(0);
+			plane =
+				planeIndex > Integer.MAX_VALUE ? null : PrimitivePlane.get(dataset,
+					(int) planeIndex);
+			if (plane != null) {
+				accessor = null;
+				return;
+			}
+			accessor = dataset.getImgPlus().randomAccess();
+			long index = planeIndex;
+			for (int d = 2; d < dataset.numDimensions(); d++) {
+				final long dim = dataset.dimension(d);
+				accessor.setPosition(index % dim, d);
+				index /= dim;
+			}
+		}
+
+		@Override
+		public void read(final int y, final double[] row) {
+			if (plane != null) {
+				plane.read(y * width, row, 0, width);
+				return;
+			}
+			accessor.setPosition(y, 1);
+			for (int x = 0; x < width; x++) {
+				accessor.setPosition(x, 0);
+				row[x] = accessor.get().getRealDouble();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,353 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import imagej.data.Dataset;
+import imagej.data.PrimitivePlane;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.CompositeXYProjector;
+import net.imglib2.display.RealLUTConverter;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A {@link CompositeXYProjector} that maps planes of a {@link Dataset} with
+ * several threads, reading each channel directly from its backing array. The
+ * screen image is split into bands of rows, which are mapped in parallel on
+ * the {@link ThreadService}. For 8-bit and 16-bit data, the color of every
+ * possible value is looked up once per channel into a table, instead of once
+ * per pixel.
+ * <p>
+ * Planes that cannot be accessed by reference (see {@link PrimitivePlane}), or
+ * converters other than {@link RealLUTConverter}s, are mapped serially as by
+ * the superclass.
+ * </p>
+ * 
+ * @author agent
+ */
+public class ParallelCompositeXYProjector<A extends RealType<A>> extends
+	CompositeXYProjector<A>
+{
+
+	/** Minimum number of rows mapped by each thread. */
+	private static final int MIN_BAND_ROWS = 32;
+
+	// -- instance variables --
+
+	private final Dataset dataset;
+	private final ARGBScreenImage target;
+	private final List<Converter<A, ARGBType>> converters;
+	private final int dimIndex;
+	private final ThreadService threadService;
+
+	/** Color lookup tables of each channel, from the latest mapping. */
+	private final List<LookupTable> tables = new ArrayList<LookupTable>();
+
+	// -- constructor --
+
+	/**
+	 * Creates a projector for the given {@link Dataset}.
+	 * 
+	 * @param dataset The Dataset to project
+	 * @param target The image to map planes into
+	 * @param converters The converter of each channel
+	 * @param dimIndex The index of the channel dimension, or -1 if none
+	 * @param threadService The service used to map bands of rows in parallel,
+	 *          or null to map serially
+	 */
+	@SuppressWarnings("unchecked")
+	public ParallelCompositeXYProjector(final Dataset dataset,
+		final ARGBScreenImage target,
+		final ArrayList<Converter<A, ARGBType>> converters, final int dimIndex,
+		final ThreadService threadService)
+	{
+		super((RandomAccessibleInterval<A>) dataset.getImgPlus(), target,
+			converters, dimIndex);
+		this.dataset = dataset;
+		this.target = target;
+		this.converters = converters;
+		this.dimIndex = dimIndex;
+		this.threadService = threadService;
+	}
+
+	// -- Projector methods --
+
+	@Override
+	public void map() {
+		final ChannelPlane[] channels = getChannelPlanes();
+		if (channels == null) {
+			super.map();
+			return;
+		}
+		final int width = (int) target.dimension(0);
+		final int height = (int) target.dimension(1);
+		final int[] pixels = target.getData();
+
+		final int bandCount =
+			threadService == null ? 1 : Math.max(1, Math.min(Runtime.getRuntime()
+				.availableProcessors(), height / MIN_BAND_ROWS));
+		if (bandCount == 1) {
+			mapRows(channels, pixels, 0, width * height);
+			return;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int b = 0; b < bandCount; b++) {
+			final int start = (int) ((long) b * height / bandCount) * width;
+			final int end = (int) ((long) (b + 1) * height / bandCount) * width;
+			futures.add(threadService.compute(new Runnable() {
+
+				@Override
+				public void run() {
+					mapRows(channels, pixels, start, end);
+				}
+			}));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during projection", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Error during projection", e
+				.getCause());
+		}
+	}
+
+	// -- helper methods --
+
+	/**
+	 * Gets the planes of the channels to map at the current position, or null
+	 * if they cannot all be mapped directly.
+	 */
+	private ChannelPlane[] getChannelPlanes() {
+		if (target.dimension(0) != dataset.dimension(0) ||
+			target.dimension(1) != dataset.dimension(1))
+		{
+			return null;
+		}
+		final int first, last;
+		if (dimIndex < 0) {
+			first = last = 0;
+		}
+		else if (isComposite()) {
+			first = 0;
+			last = (int) dataset.dimension(dimIndex) - 1;
+		}
+		else {
+			first = last = (int) getLongPosition(dimIndex);
+		}
+		final boolean signed = dataset.getType().getMinValue() < 0;
+		final ChannelPlane[] channels = new ChannelPlane[last - first + 1];
+		for (int c = first; c <= last; c++) {
+			if (c >= converters.size()) return null;
+			final Converter<A, ARGBType> converter = converters.get(c);
+			if (!(converter instanceof RealLUTConverter)) return null;
+			final long planeIndex = getPlaneIndex(c);
+			if (planeIndex > Integer.MAX_VALUE) return null;
+			final PrimitivePlane plane =
+				PrimitivePlane.get(dataset, (int) planeIndex);
+			if (plane == null) return null;
+			final RealLUTConverter<?> lutConverter = (RealLUTConverter<?>) converter;
+			channels[c - first] =
+				new ChannelPlane(plane, lutConverter, getTable(c, plane, lutConverter,
+					signed));
+		}
+		return channels;
+	}
+
+	/**
+	 * Gets the color lookup table of a channel, reusing the previous one when
+	 * the color table and display range are unchanged.
+	 * 
+	 * @return The table, or null if the plane is neither 8-bit nor 16-bit, or
+	 *         too small to be worth building a table for
+	 */
+	private int[] getTable(final int c, final PrimitivePlane plane,
+		final RealLUTConverter<?> converter, final boolean signed)
+	{
+		final int bits;
+		if (plane.getArray() instanceof byte[]) bits = 8;
+		else if (plane.getArray() instanceof short[]) bits = 16;
+		else return null;
+
+		while (tables.size() <= c) {
+			tables.add(null);
+		}
+		final ColorTable lut = converter.getLUT();
+		final double min = converter.getMin();
+		final double max = converter.getMax();
+		final LookupTable table = tables.get(c);
+		if (table != null && table.matches(lut, min, max, bits, signed)) {
+			return table.values;
+		}
+		if (plane.size() < (1 << bits)) return null;
+		final LookupTable newTable = new LookupTable(lut, min, max, bits, signed);
+		tables.set(c, newTable);
+		return newTable.values;
+	}
+
+	/** Gets the index of the plane of the given channel, at this position. */
+	private long getPlaneIndex(final int c) {
+		long index = 0;
+		long stride = 1;
+		for (int d = 2; d < dataset.numDimensions(); d++) {
+			final long pos = d == dimIndex ? c : getLongPosition(d);
+			index += pos * stride;
+			stride *= dataset.dimension(d);
+		}
+		return index;
+	}
+
+	/** Maps the pixels in the given range of indices. */
+	private void mapRows(final ChannelPlane[] channels, final int[] pixels,
+		final int start, final int end)
+	{
+		if (channels.length == 1) {
+			final ChannelPlane channel = channels[0];
+			for (int i = start; i < end; i++) {
+				pixels[i] = channel.lookup(i);
+			}
+			return;
+		}
+		final int length = end - start;
+		final int[] r = new int[length];
+		final int[] g = new int[length];
+		final int[] b = new int[length];
+		for (final ChannelPlane channel : channels) {
+			for (int i = 0; i < length; i++) {
+				final int argb = channel.lookup(start + i);
+				r[i] += (argb >> 16) & 0xff;
+				g[i] += (argb >> 8) & 0xff;
+				b[i] += argb & 0xff;
+			}
+		}
+		for (int i = 0; i < length; i++) {
+			pixels[start + i] =
+				0xff000000 | (Math.min(255, r[i]) << 16) |
+					(Math.min(255, g[i]) << 8) | Math.min(255, b[i]);
+		}
+	}
+
+	// -- helper classes --
+
+	/** The colors of every possible 8-bit or 16-bit value of a channel. */
+	private static class LookupTable {
+
+		private final ColorTable lut;
+		private final double min;
+		private final double max;
+		private final int bits;
+		private final boolean signed;
+		private final int[] values;
+
+		public LookupTable(final ColorTable lut, final double min,
+			final double max, final int bits, final boolean signed)
+		{
+			this.lut = lut;
+			this.min = min;
+			this.max = max;
+			this.bits = bits;
+			this.signed = signed;
+			values = new int[1 << bits];
+			for (int i = 0; i < values.length; i++) {
+				// NB - entries are indexed by the unsigned bits of the stored value
+				final int value;
+				if (!signed) value = i;
+				else value = bits == 8 ? (byte) i : (short) i;
+				values[i] = lut.lookupARGB(min, max, value);
+			}
+		}
+
+		public boolean matches(final ColorTable otherLUT, final double otherMin,
+			final double otherMax, final int otherBits, final boolean otherSigned)
+		{
+			return lut == otherLUT && min == otherMin && max == otherMax &&
+				bits == otherBits && signed == otherSigned;
+		}
+
+	}
+
+	/** The plane of one channel, with the means to color its values. */
+	private static class ChannelPlane {
+
+		private final PrimitivePlane plane;
+		private final ColorTable lut;
+		private final double min;
+		private final double max;
+		private final int[] table;
+		private final byte[] bytes;
+		private final short[] shorts;
+		private final int offset;
+
+		public ChannelPlane(final PrimitivePlane plane,
+			final RealLUTConverter<?> converter, final int[] table)
+		{
+			this.plane = plane;
+			lut = converter.getLUT();
+			min = converter.getMin();
+			max = converter.getMax();
+			this.table = table;
+			final Object array = plane.getArray();
+			bytes = table != null && array instanceof byte[] ? (byte[]) array : null;
+			shorts =
+				table != null && array instanceof short[] ? (short[]) array : null;
+			offset = plane.getOffset();
+		}
+
+		/** Gets the color of the value at the given index of the plane. */
+		public int lookup(final int index) {
+			if (bytes != null) return table[bytes[offset + index] & 0xff];
+			if (shorts != null) return table[shorts[offset + index] & 0xffff];
+			return lut.lookupARGB(min, max, plane.getReal(index));
+		}
+
+	}
+
+}
@@ -0,0 +1,303 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.imglib2.display.ColorTable;
+
+/**
+ * A cache of rendered ARGB planes, for quickly redisplaying planes of a
+ * {@link DatasetView} when scrubbing or animating through its non-XY axes.
+ * Each plane is keyed by everything that affects its rendering (see
+ * {@link Key}).
+ * <p>
+ * The memory used by the cache is limited by a {@link Budget}, which may be
+ * shared by several caches (see {@link ImageDisplayService#createPlaneCache()}
+ * ): once the total size of the planes of all caches sharing a budget exceeds
+ * it, the least recently used planes are discarded, whichever cache they
+ * belong to.
+ * </p>
+ * <p>
+ * The cache does not track changes to the data; its owner must call
+ * {@link #clear()} when the data changes, and when the cache is no longer
+ * needed so that its planes stop counting against the budget. Planes rendered
+ * concurrently with such a change (e.g., by a background prefetch) are
+ * discarded by passing the {@link #getEpoch() epoch} at which their rendering
+ * began to {@link #put(Key, int[], long)}.
+ * </p>
+ * 
+ * @author agent
+ */
+public class RenderedPlaneCache {
+
+	// -- instance variables --
+
+	private final Budget budget;
+
+	/** Bytes of pixel data held by this cache; guarded by the budget. */
+	private long bytes;
+
+	/** Number of times this cache has been cleared; guarded by the budget. */
+	private long epoch;
+
+	// -- constructors --
+
+	/**
+	 * Creates a cache holding at most the given number of bytes of pixel data,
+	 * with a budget of its own.
+	 */
+	public RenderedPlaneCache(final long maxBytes) {
+		this(new Budget(maxBytes));
+	}
+
+	/** Creates a cache whose pixel data counts against the given budget. */
+	public RenderedPlaneCache(final Budget budget) {
+		this.budget = budget;
+	}
+
+	// -- RenderedPlaneCache methods --
+
+	/** Gets the budget limiting the pixel data held by the cache. */
+	public Budget getBudget() {
+		return budget;
+	}
+
+	/** Gets the number of bytes of pixel data currently held by the cache. */
+	public long getBytes() {
+		synchronized (budget) {
+			return bytes;
+		}
+	}
+
+	/** Gets the number of times the cache has been cleared. */
+	public long getEpoch() {
+		synchronized (budget) {
+			return epoch;
+		}
+	}
+
+	/**
+	 * Gets the pixels of the plane with the given key, or null if the plane is
+	 * not cached. The returned array must not be modified.
+	 */
+	public int[] get(final Key key) {
+		synchronized (budget) {
+			return budget.planes.get(new Slot(this, key));
+		}
+	}
+
+	/** Returns true if the plane with the given key is cached. */
+	public boolean contains(final Key key) {
+		synchronized (budget) {
+			return budget.planes.containsKey(new Slot(this, key));
+		}
+	}
+
+	/**
+	 * Caches the pixels of a plane. The array is stored as is, and must not be
+	 * modified afterward.
+	 * 
+	 * @param key The key of the plane
+	 * @param pixels The rendered ARGB pixels of the plane
+	 * @param renderEpoch The {@link #getEpoch() epoch} at which rendering of the
+	 *          plane began; if the cache has been cleared since then, the plane
+	 *          is not cached
+	 */
+	public void put(final Key key, final int[] pixels, final long renderEpoch) {
+		synchronized (budget) {
+			if (renderEpoch != epoch) return;
+			budget.put(new Slot(this, key), pixels);
+		}
+	}
+
+	/** Discards all the planes of this cache. */
+	public void clear() {
+		synchronized (budget) {
+			final Iterator<Map.Entry<Slot, int[]>> iter =
+				budget.planes.entrySet().iterator();
+			while (iter.hasNext()) {
+				final Map.Entry<Slot, int[]> entry = iter.next();
+				if (entry.getKey().cache != this) continue;
+				budget.release(entry.getKey(), entry.getValue());
+				iter.remove();
+			}
+			epoch++;
+		}
+	}
+
+	// -- helper classes --
+
+	/**
+	 * A limit on the total size of the planes held by one or more
+	 * {@link RenderedPlaneCache}s, which are discarded in least recently used
+	 * order to stay within it.
+	 */
+	public static class Budget {
+
+		private final long maxBytes;
+
+		private long bytes;
+
+		/** Table of the rendered planes of all caches, in access order. */
+		private final Map<Slot, int[]> planes =
+			new LinkedHashMap<Slot, int[]>(16, 0.75f, true);
+
+		/** Creates a budget of the given number of bytes of pixel data. */
+		public Budget(final long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		/** Gets the maximum number of bytes of pixel data held by all caches. */
+		public long getMaxBytes() {
+			return maxBytes;
+		}
+
+		/** Gets the number of bytes of pixel data held by all caches. */
+		public synchronized long getBytes() {
+			return bytes;
+		}
+
+		// -- Helper methods --
+
+		private void put(final Slot slot, final int[] pixels) {
+			final long size = 4L * pixels.length;
+			if (size > maxBytes) return;
+			final int[] old = planes.put(slot, pixels);
+			if (old != null) release(slot, old);
+			bytes += size;
+			slot.cache.bytes += size;
+			// discard the least recently used planes
+			final Iterator<Map.Entry<Slot, int[]>> iter =
+				planes.entrySet().iterator();
+			while (bytes > maxBytes && iter.hasNext()) {
+				final Map.Entry<Slot, int[]> entry = iter.next();
+				release(entry.getKey(), entry.getValue());
+				iter.remove();
+			}
+		}
+
+		private void release(final Slot slot, final int[] pixels) {
+			final long size = 4L * pixels.length;
+			bytes -= size;
+			slot.cache.bytes -= size;
+		}
+
+	}
+
+	/** Identifies a plane of one of the caches sharing a budget. */
+	private static class Slot {
+
+		private final RenderedPlaneCache cache;
+		private final Key key;
+
+		public Slot(final RenderedPlaneCache cache, final Key key) {
+			this.cache = cache;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Slot)) return false;
+			final Slot other = (Slot) o;
+			return cache == other.cache && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(cache) + key.hashCode();
+		}
+
+	}
+
+	/**
+	 * Identifies a rendered plane by its position, the color table and display
+	 * range of each channel, and whether channels are composited. Color tables
+	 * are compared by identity.
+	 */
+	public static class Key {
+
+		private final long[] position;
+		private final ColorTable[] luts;
+		private final double[] mins;
+		private final double[] maxs;
+		private final boolean composite;
+		private final int hashCode;
+
+		public Key(final long[] position, final ColorTable[] luts,
+			final double[] mins, final double[] maxs, final boolean composite)
+		{
+			this.position = position.clone();
+			this.luts = luts.clone();
+			this.mins = mins.clone();
+			this.maxs = maxs.clone();
+			this.composite = composite;
+			int hash = Arrays.hashCode(this.position);
+			for (final ColorTable lut : this.luts) {
+				hash = 31 * hash + System.identityHashCode(lut);
+			}
+			hash = 31 * hash + Arrays.hashCode(this.mins);
+			hash = 31 * hash + Arrays.hashCode(this.maxs);
+			hashCode = 31 * hash + (composite ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			final Key other = (Key) o;
+			if (hashCode != other.hashCode) return false;
+			if (composite != other.composite) return false;
+			if (!Arrays.equals(position, other.position)) return false;
+			if (luts.length != other.luts.length) return false;
+			for (int i = 0; i < luts.length; i++) {
+				if (luts[i] != other.luts[i]) return false;
+			}
+			return Arrays.equals(mins, other.mins) &&
+				Arrays.equals(maxs, other.maxs);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+	}
+
+}
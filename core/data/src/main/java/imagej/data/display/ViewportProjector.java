@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import imagej.data.Dataset;
+import imagej.util.RealRect;
+
+import java.util.List;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.display.ARGBScreenImage;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.CompositeXYProjector;
+import net.imglib2.display.RealLUTConverter;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Maps a region of a plane of a {@link Dataset} to ARGB pixels at a given
+ * scale, with the same results as a {@link CompositeXYProjector}. Only the
+ * pixels of the output image are computed, so the cost is proportional to the
+ * size of the output rather than to the size of the plane. When the output is
+ * at less than half the resolution of the data, values are taken from an
+ * {@link ImagePyramid} so that they are averaged rather than decimated.
+ * 
+ * @author agent
+ */
+public class ViewportProjector {
+
+	// -- instance variables --
+
+	private final Dataset dataset;
+	private final ImagePyramid pyramid;
+
+	// -- constructor --
+
+	public ViewportProjector(final Dataset dataset) {
+		this.dataset = dataset;
+		pyramid = new ImagePyramid(dataset);
+	}
+
+	// -- ViewportProjector methods --
+
+	/** Gets the {@link ImagePyramid} used when rendering at reduced scale. */
+	public ImagePyramid getPyramid() {
+		return pyramid;
+	}
+
+	/**
+	 * Maps a region of a plane into the given image, scaling it to fill the
+	 * image. Output pixels that fall outside the plane are set to 0.
+	 * 
+	 * @param position The position of the plane; the X and Y coordinates are
+	 *          ignored, as is the channel coordinate when compositing
+	 * @param channelDimIndex The index of the channel dimension, or -1 if none
+	 * @param composite Whether to sum the colors of all channels (rather than
+	 *          show the channel at the given position)
+	 * @param converters The converter of each channel, which give the display
+	 *          range and color table used
+	 * @param region The region of the plane to map, in data coordinates
+	 * @param target The image to fill
+	 */
+	public void map(final long[] position, final int channelDimIndex,
+		final boolean composite,
+		final List<RealLUTConverter<? extends RealType<?>>> converters,
+		final RealRect region, final ARGBScreenImage target)
+	{
+		final int width = (int) target.dimension(0);
+		final int height = (int) target.dimension(1);
+		final int[] pixels = target.getData();
+		final double scaleX = width / region.width;
+		final double scaleY = height / region.height;
+		final int level = ImagePyramid.getLevelIndex(Math.min(scaleX, scaleY));
+
+		// find the data coordinates of each output column and row
+		final long[] xs = new long[width];
+		for (int x = 0; x < width; x++) {
+			xs[x] = coordinate(region.x, x, scaleX, dataset.dimension(0));
+		}
+		final long[] ys = new long[height];
+		for (int y = 0; y < height; y++) {
+			ys[y] = coordinate(region.y, y, scaleY, dataset.dimension(1));
+		}
+
+		final int firstChannel, lastChannel;
+		if (channelDimIndex < 0) {
+			firstChannel = lastChannel = 0;
+		}
+		else if (composite) {
+			firstChannel = 0;
+			lastChannel = (int) dataset.dimension(channelDimIndex) - 1;
+		}
+		else {
+			firstChannel = lastChannel = (int) position[channelDimIndex];
+		}
+
+		final int[] sums = composite ? new int[3 * width * height] : null;
+		final long[] pos = position.clone();
+		for (int c = firstChannel; c <= lastChannel; c++) {
+			if (channelDimIndex >= 0) pos[channelDimIndex] = c;
+			final RealLUTConverter<? extends RealType<?>> converter =
+				converters.get(c);
+			final double min = converter.getMin();
+			final double max = converter.getMax();
+			final ColorTable lut = converter.getLUT();
+
+			final ImagePyramid.Level values =
+				pyramid.getLevel(planeIndex(pos), level);
+			final RandomAccess<? extends RealType<?>> accessor =
+				values == null ? dataset.getImgPlus().randomAccess() : null;
+			if (accessor != null) accessor.setPosition(pos);
+
+			for (int y = 0; y < height; y++) {
+				final long dataY = ys[y];
+				if (accessor != null && dataY >= 0) accessor.setPosition(dataY, 1);
+				for (int x = 0; x < width; x++) {
+					final int index = y * width + x;
+					final long dataX = xs[x];
+					if (dataX < 0 || dataY < 0) {
+						pixels[index] = 0;
+						continue;
+					}
+					final double value;
+					if (accessor == null) value = values.getValue(dataX, dataY);
+					else {
+						accessor.setPosition(dataX, 0);
+						value = accessor.get().getRealDouble();
+					}
+					final int argb = lut.lookupARGB(min, max, value);
+					if (sums == null) pixels[index] = argb;
+					else {
+						sums[3 * index] += (argb >> 16) & 0xff;
+						sums[3 * index + 1] += (argb >> 8) & 0xff;
+						sums[3 * index + 2] += argb & 0xff;
+					}
+				}
+			}
+		}
+
+		if (sums == null) return;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (xs[x] < 0 || ys[y] < 0) continue;
+				final int index = y * width + x;
+				final int r = Math.min(255, sums[3 * index]);
+				final int g = Math.min(255, sums[3 * index + 1]);
+				final int b = Math.min(255, sums[3 * index + 2]);
+				pixels[index] = 0xff000000 | (r << 16) | (g << 8) | b;
+			}
+		}
+	}
+
+	// -- helper methods --
+
+	/**
+	 * Gets the data coordinate sampled by an output pixel, or -1 if the pixel
+	 * falls outside the data.
+	 */
+	private long coordinate(final double origin, final int pixel,
+		final double scale, final long size)
+	{
+		final long coord = (long) Math.floor(origin + (pixel + 0.5) / scale);
+		return coord < 0 || coord >= size ? -1 : coord;
+	}
+
+	/** Gets the index of the plane at the given position. */
+	private long planeIndex(final long[] pos) {
+		long index = 0;
+		long stride = 1;
+		for (int d = 2; d < pos.length; d++) {
+			index += pos[d] * stride;
+			stride *= dataset.dimension(d);
+		}
+		return index;
+	}
+
+}
@@ -37,6 +37,9 @@
 
 import imagej.data.display.ImageDisplay;
 import imagej.display.event.DisplayEvent;
+
+import java.util.Arrays;
+
 import net.imglib2.meta.AxisType;
 
 /**
@@ -64,6 +67,13 @@ public AxisType getAxis() {
 		return axis;
 	}
 
+	// -- ImageJEvent methods --
+
+	@Override
+	public Object getCoalescingKey() {
+		return Arrays.asList(getClass(), getDisplay(), axis);
+	}
+
 	// -- Object methods --
 
 	@Override
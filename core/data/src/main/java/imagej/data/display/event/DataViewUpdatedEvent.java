@@ -37,6 +37,8 @@
 
 import imagej.data.display.DataView;
 
+import java.util.Arrays;
+
 /**
  * This event signals that the data view's appearance has changed.
  * 
@@ -48,4 +50,11 @@ public DataViewUpdatedEvent(final DataView view) {
 		super(view);
 	}
 
+	// -- ImageJEvent methods --
+
+	@Override
+	public Object getCoalescingKey() {
+		return Arrays.asList(getClass(), getView());
+	}
+
 }
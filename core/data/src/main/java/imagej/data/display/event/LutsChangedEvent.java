@@ -37,6 +37,8 @@
 
 import imagej.data.display.DataView;
 
+import java.util.Arrays;
+
 /**
  * An event indicating a change in the composition of color tables of a view.
  * 
@@ -48,4 +50,11 @@ public LutsChangedEvent(DataView view) {
 		super(view);
 	}
 
+	// -- ImageJEvent methods --
+
+	@Override
+	public Object getCoalescingKey() {
+		return Arrays.asList(getClass(), getView());
+	}
+
 }
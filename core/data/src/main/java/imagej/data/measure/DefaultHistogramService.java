@@ -0,0 +1,443 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import imagej.data.Dataset;
+import imagej.data.PrimitivePlane;
+import imagej.data.event.DatasetDeletedEvent;
+import imagej.data.event.DatasetRestructuredEvent;
+import imagej.data.event.DatasetTypeChangedEvent;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.event.EventHandler;
+import imagej.event.EventService;
+import imagej.plugin.Parameter;
+import imagej.plugin.Plugin;
+import imagej.service.AbstractService;
+import imagej.service.Service;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Default service for computing the histograms and value ranges of
+ * {@link Dataset}s. Stale planes are measured in parallel on the
+ * {@link ThreadService}, reading rows directly from their backing arrays where
+ * possible; the results are cached per plane, so that histograms of the whole
+ * Dataset, of a channel or of a single plane can all be served from one pass.
+ * 
+ * @author agent
+ */
+@Plugin(type = Service.class)
+public class DefaultHistogramService extends AbstractService implements
+	HistogramService
+{
+
+	// -- Parameters --
+
+	@Parameter
+	private EventService eventService;
+
+	@Parameter
+	private ThreadService threadService;
+
+	// -- instance variables --
+
+	/** Table of the cached plane histograms of each Dataset. */
+	private final Map<Dataset, Entry> entries = new WeakHashMap<Dataset, Entry>();
+
+	// -- HistogramService methods --
+
+	@Override
+	public HistogramResult getHistogram(final Dataset ds) {
+		return getHistogram(ds, DEFAULT_BINS);
+	}
+
+	@Override
+	public HistogramResult getHistogram(final Dataset ds, final int bins) {
+		return merge(ds, Arrays.asList(getPlaneStats(ds, bins)), bins);
+	}
+
+	@Override
+	public HistogramResult getChannelHistogram(final Dataset ds,
+		final long channel, final int bins)
+	{
+		final int chIndex = ds.getAxisIndex(Axes.CHANNEL);
+		if (chIndex == 0 || chIndex == 1) {
+			throw new IllegalArgumentException(
+				"Channel histograms of a Dataset whose channels vary along X or Y " +
+					"are not supported");
+		}
+		final PlaneStats[] planes = getPlaneStats(ds, bins);
+		final List<PlaneStats> selected = new ArrayList<PlaneStats>();
+		for (int p = 0; p < planes.length; p++) {
+			if (chIndex < 0 || getPosition(ds, p, chIndex) == channel) {
+				selected.add(planes[p]);
+			}
+		}
+		return merge(ds, selected, bins);
+	}
+
+	@Override
+	public HistogramResult getPlaneHistogram(final Dataset ds,
+		final long planeIndex, final int bins)
+	{
+		final PlaneStats[] planes = getPlaneStats(ds, bins);
+		final List<PlaneStats> selected = new ArrayList<PlaneStats>();
+		selected.add(planes[(int) planeIndex]);
+		return merge(ds, selected, bins);
+	}
+
+	@Override
+	public synchronized void planeChanged(final Dataset ds,
+		final long planeIndex)
+	{
+		final Entry entry = entries.get(ds);
+		if (entry == null) return;
+		if (entry.changedPlanes == null) entry.changedPlanes = new HashSet<Long>();
+		entry.changedPlanes.add(planeIndex);
+	}
+
+	@Override
+	public synchronized void invalidate(final Dataset ds) {
+		entries.remove(ds);
+	}
+
+	// -- Service methods --
+
+	@Override
+	public void initialize() {
+		subscribeToEvents(eventService);
+	}
+
+	// -- Event handlers --
+
+	// NB - the handlers only touch the synchronized cache and do no user
+	// interface work, so need not wait for the dispatch thread.
+
+	@EventHandler(dispatchThread = false)
+	protected void onEvent(final DatasetUpdatedEvent event) {
+		if (event.isMetaDataOnly()) return;
+		final Dataset ds = event.getObject();
+		if (event instanceof DatasetTypeChangedEvent) {
+			invalidate(ds);
+			return;
+		}
+		synchronized (this) {
+			final Entry entry = entries.get(ds);
+			if (entry == null) return;
+			entry.epoch++;
+			if (entry.changedPlanes == null) {
+				// NB - the changes are unknown, so all planes are stale
+				entries.remove(ds);
+				return;
+			}
+			for (final long p : entry.changedPlanes) {
+				if (p >= 0 && p < entry.planes.length) entry.planes[(int) p] = null;
+			}
+			entry.changedPlanes = null;
+		}
+	}
+
+	@EventHandler(dispatchThread = false)
+	protected void onEvent(final DatasetRestructuredEvent event) {
+		invalidate(event.getObject());
+	}
+
+	@EventHandler(dispatchThread = false)
+	protected void onEvent(final DatasetDeletedEvent event) {
+		invalidate(event.getObject());
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Gets the histogram of every plane of a {@link Dataset}, measuring the
+	 * planes that are not cached.
+	 */
+	private PlaneStats[] getPlaneStats(final Dataset ds, final int bins) {
+		final double histMin = ds.getType().getMinValue();
+		final double histMax = ds.getType().getMaxValue();
+		final long planeCount = PrimitivePlane.planeCount(ds);
+		if (planeCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many planes: " + planeCount);
+		}
+
+		final Entry entry;
+		final PlaneStats[] planes;
+		final long epoch;
+		synchronized (this) {
+			Entry e = entries.get(ds);
+			if (e == null || !e.matches(bins, histMin, histMax, planeCount)) {
+				e = new Entry(bins, histMin, histMax, (int) planeCount);
+				entries.put(ds, e);
+			}
+			entry = e;
+			planes = entry.planes.clone();
+			epoch = entry.epoch;
+		}
+
+		final List<Integer> stale = new ArrayList<Integer>();
+		for (int p = 0; p < planes.length; p++) {
+			if (planes[p] == null) stale.add(p);
+		}
+		if (stale.isEmpty()) return planes;
+
+		measure(ds, stale, planes, bins, histMin, histMax);
+
+		synchronized (this) {
+			// NB - discard the results if the data changed while measuring
+			if (entry.epoch == epoch) {
+				for (final int p : stale) {
+					entry.planes[p] = planes[p];
+				}
+			}
+		}
+		return planes;
+	}
+
+	/**
+	 * Measures the given planes of a {@link Dataset}, splitting them into bands
+	 * of rows when there are fewer planes than processors.
+	 */
+	private void measure(final Dataset ds, final List<Integer> stale,
+		final PlaneStats[] planes, final int bins, final double histMin,
+		final double histMax)
+	{
+		final int height = (int) ds.dimension(1);
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		final int bandsPerPlane =
+			Math.max(1, Math.min(height, (cpus + stale.size() - 1) / stale.size()));
+		final List<List<Future<PlaneStats>>> futures =
+			new ArrayList<List<Future<PlaneStats>>>();
+		for (final int p : stale) {
+			final List<Future<PlaneStats>> bands =
+				new ArrayList<Future<PlaneStats>>();
+			for (int b = 0; b < bandsPerPlane; b++) {
+				final int start = (int) ((long) b * height / bandsPerPlane);
+				final int end = (int) ((long) (b + 1) * height / bandsPerPlane);
+				bands.add(threadService.compute(new BandAccumulator(ds, p, start, end,
+					bins, histMin, histMax)));
+			}
+			futures.add(bands);
+		}
+		try {
+			for (int i = 0; i < stale.size(); i++) {
+				final PlaneStats stats = new PlaneStats(bins);
+				for (final Future<PlaneStats> band : futures.get(i)) {
+					stats.merge(band.get());
+				}
+				planes[stale.get(i)] = stats;
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during histogram", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Error during histogram", e.getCause());
+		}
+	}
+
+	/** Combines the histograms of some planes. */
+	private HistogramResult merge(final Dataset ds,
+		final List<PlaneStats> planes, final int bins)
+	{
+		final long[] counts = new long[bins];
+		long count = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (final PlaneStats plane : planes) {
+			for (int i = 0; i < bins; i++) {
+				counts[i] += plane.counts[i];
+			}
+			count += plane.count;
+			if (plane.min < min) min = plane.min;
+			if (plane.max > max) max = plane.max;
+		}
+		if (min > max) min = max = Double.NaN;
+		return new HistogramResult(ds.getType().getMinValue(), ds.getType()
+			.getMaxValue(), counts, count, min, max);
+	}
+
+	/**
+	 * Gets the position along a dimension of the plane with the given index.
+	 * The dimension must not be X or Y (0 or 1), along which every plane spans.
+	 */
+	private static long getPosition(final Dataset ds, final long planeIndex,
+		final int dim)
+	{
+		long index = planeIndex;
+		for (int d = 2; d < dim; d++) {
+			index /= ds.dimension(d);
+		}
+		return index % ds.dimension(dim);
+	}
+
+	// -- Helper classes --
+
+	/** The cached plane histograms of one {@link Dataset}. */
+	private static class Entry {
+
+		private final int bins;
+		private final double histMin;
+		private final double histMax;
+
+		/** The histogram of each plane, or null for planes not yet measured. */
+		private final PlaneStats[] planes;
+
+		/** Number of times the Dataset has been updated. */
+		private long epoch;
+
+		/** Planes reported changed since the last update, or null if none. */
+		private Set<Long> changedPlanes;
+
+		public Entry(final int bins, final double histMin, final double histMax,
+			final int planeCount)
+		{
+			this.bins = bins;
+			this.histMin = histMin;
+			this.histMax = histMax;
+			planes = new PlaneStats[planeCount];
+		}
+
+		public boolean matches(final int otherBins, final double otherMin,
+			final double otherMax, final long planeCount)
+		{
+			return bins == otherBins && histMin == otherMin &&
+				histMax == otherMax && planes.length == planeCount;
+		}
+
+	}
+
+	/** The histogram and value range of (part of) a plane. */
+	private static class PlaneStats {
+
+		private final int[] counts;
+		private long count;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+
+		public PlaneStats(final int bins) {
+			counts = new int[bins];
+		}
+
+		public void merge(final PlaneStats other) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += other.counts[i];
+			}
+			count += other.count;
+			if (other.min < min) min = other.min;
+			if (other.max > max) max = other.max;
+		}
+
+	}
+
+	/** Measures a band of rows of one plane of a {@link Dataset}. */
+	private static class BandAccumulator implements Callable<PlaneStats> {
+
+		private final Dataset ds;
+		private final int planeIndex;
+		private final int yStart;
+		private final int yEnd;
+		private final int bins;
+		private final double histMin;
+		private final double histMax;
+
+		public BandAccumulator(final Dataset ds, final int planeIndex,
+			final int yStart, final int yEnd, final int bins, final double histMin,
+			final double histMax)
+		{
+			this.ds = ds;
+			this.planeIndex = planeIndex;
+			this.yStart = yStart;
+			this.yEnd = yEnd;
+			this.bins = bins;
+			this.histMin = histMin;
+			this.histMax = histMax;
+		}
+
+		@Override
+		public PlaneStats call() {
+			final PlaneStats stats = new PlaneStats(bins);
+			final int width = (int) ds.dimension(0);
+			final double[] row = new double[width];
+			final PrimitivePlane plane = PrimitivePlane.get(ds, planeIndex);
+			RandomAccess<? extends RealType<?>> accessor = null;
+			if (plane == null) {
+				accessor = ds.getImgPlus().randomAccess();
+				for (int d = 2; d < ds.numDimensions(); d++) {
+					accessor.setPosition(getPosition(ds, planeIndex, d), d);
+				}
+			}
+			final double scale = (bins - 1) / (histMax - histMin);
+			for (int y = yStart; y < yEnd; y++) {
+				if (plane != null) plane.read(y * width, row, 0, width);
+				else {
+					accessor.setPosition(y, 1);
+					for (int x = 0; x < width; x++) {
+						accessor.setPosition(x, 0);
+						row[x] = accessor.get().getRealDouble();
+					}
+				}
+				for (int x = 0; x < width; x++) {
+					double v = row[x];
+					if (v < stats.min) stats.min = v;
+					if (v > stats.max) stats.max = v;
+					if (v < histMin) v = histMin;
+					if (v > histMax) v = histMax;
+					stats.counts[(int) (scale * (v - histMin))]++;
+				}
+				stats.count += width;
+			}
+			return stats;
+		}
+
+	}
+
+}
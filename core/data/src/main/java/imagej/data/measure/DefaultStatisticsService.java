@@ -36,9 +36,21 @@
 package imagej.data.measure;
 
 import imagej.data.Dataset;
+import imagej.plugin.Parameter;
 import imagej.plugin.Plugin;
 import imagej.service.AbstractService;
 import imagej.service.Service;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.ops.function.Function;
 import net.imglib2.ops.function.real.RealAlphaTrimmedMeanFunction;
@@ -68,20 +80,16 @@
 import net.imglib2.ops.function.real.RealWeightedSumFunction;
 import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
 
-// TODO - make MeasurementService smarter. Compute values without always
-// revisiting the pixels. This current impl goes over pixels once for each
-// measurement. I will mock something up soon. BDZ
+// NOTE - the single statistic methods below each revisit the pixels. Use
+// statistics() to gather any number of Statistics in one pass.
 
 // TODO - this service is limited to only the kinds of stats it knows. It can't
 // measure a user provided statistic. This can be done by calling the
 // MeasurementService more directly.
-// Also this service calcs one measure at a time. Our future MeasurementService
-// should be able to batch them together. It also might be nice to be able to
-// specify to this service gather min,var,stdev,median in an array of output
-// doubles.
 
 // TODO - see what IJ1 calculates and provide such methods here and in OPS
 
@@ -97,8 +105,14 @@ public class DefaultStatisticsService extends AbstractService implements
 	StatisticsService
 {
 
+	/** Number of tiles per available processor used for parallel measures. */
+	private static final int TILES_PER_CPU = 4;
+
 	// -- Parameters --
 
+	@Parameter
+	private ThreadService threadService;
+
 	// later
 	// @Parameter
 	// private MeasurementService mSrv;
@@ -418,6 +432,57 @@ public double weightedSum(final Dataset ds, final PointSet region,
 		return measure(func, region);
 	}
 
+	@Override
+	public StatisticsResult statistics(final Dataset ds, final PointSet region,
+		final Set<Statistic> stats)
+	{
+		final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final PointSetIterator iter = region.iterator();
+		while (iter.hasNext()) {
+			accessor.setPosition(iter.next());
+			acc.add(accessor.get().getRealDouble());
+		}
+		return new StatisticsResult(acc, stats);
+	}
+
+	@Override
+	public StatisticsResult statistics(final Dataset ds,
+		final Set<Statistic> stats)
+	{
+		final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+		final Cursor<? extends RealType<?>> cursor = ds.getImgPlus().cursor();
+		while (cursor.hasNext()) {
+			acc.add(cursor.next().getRealDouble());
+		}
+		return new StatisticsResult(acc, stats);
+	}
+
+	@Override
+	public StatisticsResult parallelStatistics(final Dataset ds,
+		final PointSet region, final Set<Statistic> stats)
+	{
+		final long[] min = new long[region.numDimensions()];
+		final long[] max = new long[region.numDimensions()];
+		region.min(min);
+		region.max(max);
+		// a hypervolume is exactly its bounding box; no need to test membership
+		final boolean box = region instanceof HyperVolumePointSet;
+		return parallelMeasure(ds, box ? null : region, min, max, stats);
+	}
+
+	@Override
+	public StatisticsResult parallelStatistics(final Dataset ds,
+		final Set<Statistic> stats)
+	{
+		final long[] max = ds.getDims();
+		for (int i = 0; i < max.length; i++) {
+			max[i]--;
+		}
+		return parallelMeasure(ds, null, new long[max.length], max, stats);
+	}
+
 	@Override
 	public PointSet allOf(final Dataset ds) {
 		return new HyperVolumePointSet(ds.getDims());
@@ -431,6 +496,52 @@ private RealImageFunction<?, DoubleType> imgFunc(final Dataset ds) {
 		return new RealImageFunction(imgPlus, new DoubleType());
 	}
 
+	/**
+	 * Splits the given bounding box into tiles along its last nontrivial
+	 * dimension, accumulates each tile on the {@link ThreadService} and merges
+	 * the partial results.
+	 */
+	private StatisticsResult parallelMeasure(final Dataset ds,
+		final PointSet region, final long[] min, final long[] max,
+		final Set<Statistic> stats)
+	{
+		int splitDim = max.length - 1;
+		while (splitDim > 0 && max[splitDim] == min[splitDim]) {
+			splitDim--;
+		}
+		final long span = max[splitDim] - min[splitDim] + 1;
+		final long tileCount =
+			Math.min(span, Runtime.getRuntime().availableProcessors() *
+				TILES_PER_CPU);
+		final List<Future<StatisticsAccumulator>> futures =
+			new ArrayList<Future<StatisticsAccumulator>>();
+		for (long t = 0; t < tileCount; t++) {
+			final long[] tileMin = min.clone();
+			final long[] tileMax = max.clone();
+			tileMin[splitDim] = min[splitDim] + t * span / tileCount;
+			tileMax[splitDim] = min[splitDim] + (t + 1) * span / tileCount - 1;
+			final PointSet tile = new HyperVolumePointSet(tileMin, tileMax);
+			final PointSet filter = region == null ? null : region.copy();
+			futures.add(threadService.compute(new TileAccumulator(ds, tile, filter,
+				stats)));
+		}
+		final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+		try {
+			for (final Future<StatisticsAccumulator> future : futures) {
+				acc.merge(future.get());
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during measurement", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Error during measurement", e
+				.getCause());
+		}
+		return new StatisticsResult(acc, stats);
+	}
+
 	private double measure(final Function<PointSet, DoubleType> func,
 		final PointSet region)
 	{
@@ -439,4 +550,42 @@ private double measure(final Function<PointSet, DoubleType> func,
 		return output.getRealDouble();
 	}
 
+	// -- Helper classes --
+
+	/** Accumulates the statistics of one tile of a {@link Dataset}. */
+	private static class TileAccumulator implements
+		Callable<StatisticsAccumulator>
+	{
+
+		private final Dataset ds;
+		private final PointSet tile;
+		private final PointSet filter;
+		private final Set<Statistic> stats;
+
+		public TileAccumulator(final Dataset ds, final PointSet tile,
+			final PointSet filter, final Set<Statistic> stats)
+		{
+			this.ds = ds;
+			this.tile = tile;
+			this.filter = filter;
+			this.stats = stats;
+		}
+
+		@Override
+		public StatisticsAccumulator call() {
+			final StatisticsAccumulator acc = new StatisticsAccumulator(stats);
+			final RandomAccess<? extends RealType<?>> accessor =
+				ds.getImgPlus().randomAccess();
+			final PointSetIterator iter = tile.iterator();
+			while (iter.hasNext()) {
+				final long[] pos = iter.next();
+				if (filter != null && !filter.includes(pos)) continue;
+				accessor.setPosition(pos);
+				acc.add(accessor.get().getRealDouble());
+			}
+			return acc;
+		}
+
+	}
+
 }
@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+/**
+ * The histogram and value range of some of the values of a
+ * {@link imagej.data.Dataset}, as computed by a {@link HistogramService}.
+ * Value <code>v</code> is counted in bin
+ * <code>(bins - 1) * (v - histMin) / (histMax - histMin)</code>, after being
+ * clamped to the histogram range.
+ * 
+ * @author agent
+ */
+public class HistogramResult {
+
+	private final double histMin;
+	private final double histMax;
+	private final long[] counts;
+	private final long count;
+	private final double min;
+	private final double max;
+
+	public HistogramResult(final double histMin, final double histMax,
+		final long[] counts, final long count, final double min, final double max)
+	{
+		this.histMin = histMin;
+		this.histMax = histMax;
+		this.counts = counts.clone();
+		this.count = count;
+		this.min = min;
+		this.max = max;
+	}
+
+	/** Gets the value counted in the first bin. */
+	public double getHistogramMin() {
+		return histMin;
+	}
+
+	/** Gets the value counted in the last bin. */
+	public double getHistogramMax() {
+		return histMax;
+	}
+
+	/** Gets the number of bins. */
+	public int getBinCount() {
+		return counts.length;
+	}
+
+	/** Gets the number of values counted in each bin. */
+	public long[] getCounts() {
+		return counts.clone();
+	}
+
+	/** Gets the total number of values. */
+	public long getCount() {
+		return count;
+	}
+
+	/** Gets the smallest value, or NaN if there are no values. */
+	public double getMin() {
+		return min;
+	}
+
+	/** Gets the largest value, or NaN if there are no values. */
+	public double getMax() {
+		return max;
+	}
+
+}
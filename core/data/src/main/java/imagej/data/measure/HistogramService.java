@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import imagej.data.Dataset;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.service.Service;
+
+/**
+ * A service for computing the histograms and value ranges of {@link Dataset}s.
+ * The values of each plane are binned over the full range of the Dataset's
+ * type, in a single pass over all planes, and the results are cached per plane
+ * until the Dataset changes.
+ * 
+ * @author agent
+ */
+public interface HistogramService extends Service {
+
+	/** The number of bins used when none is specified. */
+	int DEFAULT_BINS = 256;
+
+	/**
+	 * Gets the histogram of all the values of a {@link Dataset}, with
+	 * {@link #DEFAULT_BINS} bins.
+	 */
+	HistogramResult getHistogram(Dataset ds);
+
+	/**
+	 * Gets the histogram of all the values of a {@link Dataset}.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param bins The number of bins, spanning the range of the Dataset's type
+	 */
+	HistogramResult getHistogram(Dataset ds, int bins);
+
+	/**
+	 * Gets the histogram of the values of one channel of a {@link Dataset}. If
+	 * the Dataset has no channel axis, this is the histogram of all its values.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param channel The index of the channel
+	 * @param bins The number of bins, spanning the range of the Dataset's type
+	 * @throws IllegalArgumentException if the channel axis of the Dataset is X
+	 *           or Y, since histograms are cached per XY plane
+	 */
+	HistogramResult getChannelHistogram(Dataset ds, long channel, int bins);
+
+	/**
+	 * Gets the histogram of the values of one plane of a {@link Dataset}.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param planeIndex The index of the plane, as in {@link Dataset#getPlane}
+	 * @param bins The number of bins, spanning the range of the Dataset's type
+	 */
+	HistogramResult getPlaneHistogram(Dataset ds, long planeIndex, int bins);
+
+	/**
+	 * Records that the values of one plane of a {@link Dataset} have changed.
+	 * When the next {@link DatasetUpdatedEvent} for the Dataset follows such
+	 * calls, only the recorded planes are measured again; otherwise every plane
+	 * of a Dataset is measured again after it is updated.
+	 */
+	void planeChanged(Dataset ds, long planeIndex);
+
+	/** Discards the cached histograms of a {@link Dataset}. */
+	void invalidate(Dataset ds);
+
+}
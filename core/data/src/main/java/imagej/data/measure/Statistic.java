@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+/**
+ * The kinds of statistics the {@link StatisticsService} can compute in a
+ * single pass over a region of a {@link imagej.data.Dataset}.
+ * 
+ * @author agent
+ */
+public enum Statistic {
+
+	ARITHMETIC_MEAN(false),
+	GEOMETRIC_MEAN(false),
+	HARMONIC_MEAN(false),
+	MAXIMUM(false),
+	MEDIAN(true),
+	MIDPOINT(false),
+	MINIMUM(false),
+	POPULATION_KURTOSIS(false),
+	POPULATION_KURTOSIS_EXCESS(false),
+	POPULATION_SKEW(false),
+	POPULATION_STD_DEV(false),
+	POPULATION_VARIANCE(false),
+	PRODUCT(false),
+	SAMPLE_KURTOSIS(false),
+	SAMPLE_KURTOSIS_EXCESS(false),
+	SAMPLE_SKEW(false),
+	SAMPLE_STD_DEV(false),
+	SAMPLE_VARIANCE(false),
+	SUM(false),
+	SUM_OF_SQUARED_DEVIATIONS(false);
+
+	private final boolean orderStatistic;
+
+	private Statistic(final boolean orderStatistic) {
+		this.orderStatistic = orderStatistic;
+	}
+
+	/**
+	 * Returns true if the statistic depends upon the ordering of the sampled
+	 * values (e.g. the median) and thus cannot be computed from running moments
+	 * alone.
+	 */
+	public boolean isOrderStatistic() {
+		return orderStatistic;
+	}
+
+}
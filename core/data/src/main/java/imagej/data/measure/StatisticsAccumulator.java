@@ -0,0 +1,444 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import imagej.util.DoubleArray;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates all the {@link Statistic}s of a stream of values in one pass.
+ * <p>
+ * Central moments are updated incrementally (after Welford and Terriberry) so
+ * that variance, skew and kurtosis remain numerically stable even for large
+ * sample counts and large data offsets. Order statistics such as the median
+ * require the sampled values to be retained; they are only recorded when such
+ * a statistic is requested.
+ * </p>
+ * <p>
+ * Two accumulators can be merged (after Chan et al.), which allows partial
+ * results computed on separate portions of the data to be combined. Retained
+ * values are not copied when merging; order statistics are selected across the
+ * values of all the merged accumulators instead.
+ * </p>
+ * 
+ * @author agent
+ */
+public class StatisticsAccumulator {
+
+	// -- instance variables --
+
+	private final boolean keepValues;
+	private final DoubleArray values;
+
+	/** Values retained by the accumulators merged into this one. */
+	private final List<DoubleArray> mergedValues;
+
+	private long n;
+	private double mean;
+	private double m2, m3, m4;
+	private double min, max;
+	private double sum;
+	private double product;
+	private double sumOfLogs;
+	private double sumOfReciprocals;
+
+	// -- constructors --
+
+	/**
+	 * Creates an accumulator able to compute all of the given {@link Statistic}
+	 * s.
+	 */
+	public StatisticsAccumulator(final Set<Statistic> stats) {
+		this(needsValues(stats));
+	}
+
+	/**
+	 * Creates an accumulator.
+	 * 
+	 * @param keepValues Whether to retain the sampled values so that order
+	 *          statistics can be computed.
+	 */
+	public StatisticsAccumulator(final boolean keepValues) {
+		this.keepValues = keepValues;
+		values = keepValues ? new DoubleArray() : null;
+		mergedValues = keepValues ? new ArrayList<DoubleArray>() : null;
+		reset();
+	}
+
+	// -- StatisticsAccumulator methods --
+
+	/** Clears all accumulated state. */
+	public void reset() {
+		n = 0;
+		mean = m2 = m3 = m4 = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		sum = 0;
+		product = 1;
+		sumOfLogs = 0;
+		sumOfReciprocals = 0;
+		if (values != null) values.clear();
+		if (mergedValues != null) mergedValues.clear();
+	}
+
+	/** Adds a value to the accumulated sample. */
+	public void add(final double value) {
+		final double n1 = n;
+		n++;
+		final double dn = n;
+		final double delta = value - mean;
+		final double deltaN = delta / dn;
+		final double deltaN2 = deltaN * deltaN;
+		final double term1 = delta * deltaN * n1;
+		mean += deltaN;
+		m4 +=
+			term1 * deltaN2 * (dn * dn - 3 * dn + 3) + 6 * deltaN2 * m2 - 4 *
+				deltaN * m3;
+		m3 += term1 * deltaN * (dn - 2) - 3 * deltaN * m2;
+		m2 += term1;
+		if (value < min) min = value;
+		if (value > max) max = value;
+		sum += value;
+		product *= value;
+		sumOfLogs += Math.log(value);
+		sumOfReciprocals += 1 / value;
+		if (keepValues) values.addValue(value);
+	}
+
+	/**
+	 * Merges the state of another accumulator into this one. Afterwards this
+	 * accumulator reports the statistics of the union of both samples.
+	 * <p>
+	 * The values retained by the other accumulator are shared rather than
+	 * copied, so it must not be changed afterwards.
+	 * </p>
+	 */
+	public void merge(final StatisticsAccumulator other) {
+		if (other.n == 0) return;
+		if (n == 0) {
+			copyMoments(other);
+		}
+		else {
+			final double na = n, nb = other.n;
+			final double nx = na + nb;
+			final double delta = other.mean - mean;
+			final double delta2 = delta * delta;
+			final double delta3 = delta * delta2;
+			final double delta4 = delta2 * delta2;
+			final double newM4 =
+				m4 + other.m4 + delta4 * na * nb * (na * na - na * nb + nb * nb) /
+					(nx * nx * nx) + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) /
+					(nx * nx) + 4 * delta * (na * other.m3 - nb * m3) / nx;
+			final double newM3 =
+				m3 + other.m3 + delta3 * na * nb * (na - nb) / (nx * nx) + 3 * delta *
+					(na * other.m2 - nb * m2) / nx;
+			final double newM2 = m2 + other.m2 + delta2 * na * nb / nx;
+			mean += delta * nb / nx;
+			m2 = newM2;
+			m3 = newM3;
+			m4 = newM4;
+			n += other.n;
+			if (other.min < min) min = other.min;
+			if (other.max > max) max = other.max;
+			sum += other.sum;
+			product *= other.product;
+			sumOfLogs += other.sumOfLogs;
+			sumOfReciprocals += other.sumOfReciprocals;
+		}
+		if (keepValues) {
+			if (other.values == null) {
+				throw new IllegalArgumentException(
+					"merge(): other accumulator did not retain its values");
+			}
+			mergedValues.add(other.values);
+			mergedValues.addAll(other.mergedValues);
+		}
+	}
+
+	/** Returns the number of values accumulated so far. */
+	public long getCount() {
+		return n;
+	}
+
+	/** Returns the value of the given {@link Statistic} for the sample. */
+	public double getValue(final Statistic stat) {
+		switch (stat) {
+			case ARITHMETIC_MEAN:
+				return n == 0 ? 0 : mean;
+			case GEOMETRIC_MEAN:
+				return n == 0 ? 0 : Math.exp(sumOfLogs / n);
+			case HARMONIC_MEAN:
+				return n == 0 ? 0 : n / sumOfReciprocals;
+			case MAXIMUM:
+				return max;
+			case MEDIAN:
+				return median();
+			case MIDPOINT:
+				return (min + max) / 2;
+			case MINIMUM:
+				return min;
+			case POPULATION_KURTOSIS:
+				return populationKurtosis();
+			case POPULATION_KURTOSIS_EXCESS:
+				return populationKurtosis() - 3;
+			case POPULATION_SKEW:
+				return populationSkew();
+			case POPULATION_STD_DEV:
+				return Math.sqrt(populationVariance());
+			case POPULATION_VARIANCE:
+				return populationVariance();
+			case PRODUCT:
+				return product;
+			case SAMPLE_KURTOSIS:
+				return sampleKurtosisExcess() + 3;
+			case SAMPLE_KURTOSIS_EXCESS:
+				return sampleKurtosisExcess();
+			case SAMPLE_SKEW:
+				return sampleSkew();
+			case SAMPLE_STD_DEV:
+				return Math.sqrt(sampleVariance());
+			case SAMPLE_VARIANCE:
+				return sampleVariance();
+			case SUM:
+				return sum;
+			case SUM_OF_SQUARED_DEVIATIONS:
+				return m2;
+			default:
+				throw new IllegalArgumentException("Unknown statistic: " + stat);
+		}
+	}
+
+	/** Returns the values of the given {@link Statistic}s for the sample. */
+	public Map<Statistic, Double> getValues(final Set<Statistic> stats) {
+		final Map<Statistic, Double> result =
+			new EnumMap<Statistic, Double>(Statistic.class);
+		for (final Statistic stat : stats) {
+			result.put(stat, getValue(stat));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if computing any of the given {@link Statistic}s requires the
+	 * sampled values to be retained.
+	 */
+	public static boolean needsValues(final Set<Statistic> stats) {
+		for (final Statistic stat : stats) {
+			if (stat.isOrderStatistic()) return true;
+		}
+		return false;
+	}
+
+	// -- private helpers --
+
+	private void copyMoments(final StatisticsAccumulator other) {
+		n = other.n;
+		mean = other.mean;
+		m2 = other.m2;
+		m3 = other.m3;
+		m4 = other.m4;
+		min = other.min;
+		max = other.max;
+		sum = other.sum;
+		product = other.product;
+		sumOfLogs = other.sumOfLogs;
+		sumOfReciprocals = other.sumOfReciprocals;
+	}
+
+	private double populationVariance() {
+		return n == 0 ? 0 : m2 / n;
+	}
+
+	private double sampleVariance() {
+		return n <= 1 ? 0 : m2 / (n - 1);
+	}
+
+	private double populationSkew() {
+		if (m2 == 0) return 0;
+		return Math.sqrt(n) * m3 / Math.pow(m2, 1.5);
+	}
+
+	private double populationKurtosis() {
+		if (m2 == 0) return 0;
+		return n * m4 / (m2 * m2);
+	}
+
+	private double sampleSkew() {
+		if (n <= 2) return 0;
+		final double dn = n;
+		return populationSkew() * Math.sqrt(dn * (dn - 1)) / (dn - 2);
+	}
+
+	private double sampleKurtosisExcess() {
+		if (n <= 3) return 0;
+		final double dn = n;
+		final double g2 = populationKurtosis() - 3;
+		return ((dn + 1) * g2 + 6) * (dn - 1) / ((dn - 2) * (dn - 3));
+	}
+
+	private double median() {
+		if (values == null) {
+			throw new IllegalStateException(
+				"median(): accumulator did not retain its values");
+		}
+		final List<DoubleArray> segments = new ArrayList<DoubleArray>();
+		segments.add(values);
+		segments.addAll(mergedValues);
+		long size = 0;
+		for (final DoubleArray segment : segments) {
+			size += segment.size();
+		}
+		if (size == 0) return 0;
+		final double upper = select(segments, size / 2);
+		if (size % 2 == 1) return upper;
+		return (select(segments, size / 2 - 1) + upper) / 2;
+	}
+
+	/**
+	 * Finds the k-th smallest of the values of several arrays in expected linear
+	 * time, without gathering them into one. Each round partitions the remaining
+	 * window of every array around a common pivot, then narrows the windows to
+	 * the part which holds the result. The arrays are partially reordered in the
+	 * process.
+	 */
+	private static double select(final List<DoubleArray> segments, long k) {
+		final int count = segments.size();
+		final int[] lo = new int[count];
+		final int[] hi = new int[count];
+		final int[] lt = new int[count];
+		final int[] gt = new int[count];
+		for (int s = 0; s < count; s++) {
+			hi[s] = segments.get(s).size();
+		}
+		while (true) {
+			// pivot on the middle value of the widest window
+			int widest = 0;
+			for (int s = 1; s < count; s++) {
+				if (hi[s] - lo[s] > hi[widest] - lo[widest]) widest = s;
+			}
+			final double pivot =
+				segments.get(widest).getArray()[(lo[widest] + hi[widest]) >>> 1];
+
+			// split each window into values less than, equal to and greater than
+			// the pivot
+			long less = 0, equal = 0;
+			for (int s = 0; s < count; s++) {
+				final double[] data = segments.get(s).getArray();
+				int l = lo[s], i = lo[s], g = hi[s];
+				while (i < g) {
+					final double value = data[i];
+					if (value < pivot) {
+						data[i++] = data[l];
+						data[l++] = value;
+					}
+					else if (value > pivot) {
+						data[i] = data[--g];
+						data[g] = value;
+					}
+					else i++;
+				}
+				lt[s] = l;
+				gt[s] = g;
+				less += l - lo[s];
+				equal += g - l;
+			}
+
+			if (k < less) {
+				System.arraycopy(lt, 0, hi, 0, count);
+			}
+			else if (k < less + equal) {
+				return pivot;
+			}
+			else {
+				k -= less + equal;
+				System.arraycopy(gt, 0, lo, 0, count);
+			}
+		}
+	}
+
+	// -- static utility methods --
+
+	/**
+	 * Finds the median of the first n values of the given array in expected
+	 * linear time. The array is partially reordered in the process.
+	 */
+	public static double median(final double[] data, final int n) {
+		final double upper = select(data, n, n / 2);
+		if (n % 2 == 1) return upper;
+		// after selection all values below n/2 are <= upper
+		double lower = data[0];
+		for (int i = 1; i < n / 2; i++) {
+			if (data[i] > lower) lower = data[i];
+		}
+		return (lower + upper) / 2;
+	}
+
+	/**
+	 * Finds the k-th smallest of the first n values of the given array in
+	 * expected linear time (Hoare's quickselect). The array is partially
+	 * reordered in the process such that all values before index k are no
+	 * greater than the result.
+	 */
+	public static double select(final double[] data, final int n, final int k)
+	{
+		int lo = 0, hi = n - 1;
+		while (lo < hi) {
+			final double pivot = data[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (data[i] < pivot) i++;
+				while (data[j] > pivot) j--;
+				if (i <= j) {
+					final double tmp = data[i];
+					data[i] = data[j];
+					data[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) hi = j;
+			else if (k >= i) lo = i;
+			else break;
+		}
+		return data[k];
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The set of {@link Statistic}s computed by the {@link StatisticsService} in a
+ * single pass over a region of a {@link imagej.data.Dataset}.
+ * 
+ * @author agent
+ */
+public class StatisticsResult {
+
+	// -- instance variables --
+
+	private final Map<Statistic, Double> values;
+	private final long count;
+
+	// -- constructors --
+
+	/**
+	 * Creates a result holding the given {@link Statistic}s as computed by an
+	 * accumulator.
+	 */
+	public StatisticsResult(final StatisticsAccumulator accumulator,
+		final Set<Statistic> stats)
+	{
+		values =
+			Collections.unmodifiableMap(new EnumMap<Statistic, Double>(accumulator
+				.getValues(stats)));
+		count = accumulator.getCount();
+	}
+
+	// -- StatisticsResult methods --
+
+	/** Returns the number of values that were measured. */
+	public long getCount() {
+		return count;
+	}
+
+	/** Returns the set of {@link Statistic}s contained in this result. */
+	public Set<Statistic> getStatistics() {
+		return values.keySet();
+	}
+
+	/** Returns true if this result contains the given {@link Statistic}. */
+	public boolean contains(final Statistic stat) {
+		return values.containsKey(stat);
+	}
+
+	/**
+	 * Returns the measured value of the given {@link Statistic}.
+	 * 
+	 * @throws IllegalArgumentException if the statistic was not requested
+	 */
+	public double get(final Statistic stat) {
+		final Double value = values.get(stat);
+		if (value == null) {
+			throw new IllegalArgumentException("Statistic not computed: " + stat);
+		}
+		return value;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+
+}
@@ -37,19 +37,17 @@
 
 import imagej.data.Dataset;
 import imagej.service.Service;
+
+import java.util.Set;
+
 import net.imglib2.ops.pointset.PointSet;
 
-// TODO - make MeasurementService smarter. Compute values without always
-// revisiting the pixels. This current impl goes over pixels once for each
-// measurement. I will mock something up soon. BDZ
+// NOTE - the single statistic methods below each revisit the pixels. Use
+// statistics() to gather any number of Statistics in one pass.
 
 // TODO - this service is limited to only the kinds of stats it knows. It can't
 // measure a user provided statistic. This can be done by calling the
 // MeasurementService more directly.
-// Also this service calcs one measure at a time. Our future MeasurementService
-// should be able to batch them together. It also might be nice to be able to
-// specify to this service gather min,var,stdev,median in an array of output
-// doubles.
 
 // TODO - see what IJ1 calculates and provide such methods here and in OPS
 
@@ -511,6 +509,54 @@ public interface StatisticsService extends Service {
 	 */
 	double weightedSum(Dataset ds, PointSet region, double[] weights);
 
+	/**
+	 * Computes a set of {@link Statistic}s of the values within a
+	 * {@link PointSet} region of a {@link Dataset}. All the statistics are
+	 * gathered in a single pass over the region.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param stats The Statistics to compute
+	 * @return The measured values
+	 */
+	StatisticsResult statistics(Dataset ds, PointSet region,
+		Set<Statistic> stats);
+
+	/**
+	 * Computes a set of {@link Statistic}s of the values of a {@link Dataset}.
+	 * All the statistics are gathered in a single pass over the data.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param stats The Statistics to compute
+	 * @return The measured values
+	 */
+	StatisticsResult statistics(Dataset ds, Set<Statistic> stats);
+
+	/**
+	 * Computes a set of {@link Statistic}s of the values within a
+	 * {@link PointSet} region of a {@link Dataset} using multiple threads. The
+	 * bounding box of the region is split into tiles whose partial results are
+	 * computed in parallel and then merged.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param stats The Statistics to compute
+	 * @return The measured values
+	 */
+	StatisticsResult parallelStatistics(Dataset ds, PointSet region,
+		Set<Statistic> stats);
+
+	/**
+	 * Computes a set of {@link Statistic}s of the values of a {@link Dataset}
+	 * using multiple threads. The Dataset is split into tiles whose partial
+	 * results are computed in parallel and then merged.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param stats The Statistics to compute
+	 * @return The measured values
+	 */
+	StatisticsResult parallelStatistics(Dataset ds, Set<Statistic> stats);
+
 	/**
 	 * A convenience function for defining a {@link PointSet} that encompasses all
 	 * the points within a {@link Dataset}.
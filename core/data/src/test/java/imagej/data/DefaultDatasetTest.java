@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.ImageJ;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link DefaultDataset#copyInto} and
+ * {@link DefaultDataset#copyDataFrom} copy the same values, whether they go
+ * through the backing arrays or fall back to cursors.
+ * 
+ * @author agent
+ */
+public class DefaultDatasetTest {
+
+	private static final long[] DIMS = { 7, 5, 3, 2 };
+
+	private final ImageJ context = ImageJ.createEmptyContext();
+
+	@Test
+	public void testSameType() {
+		assertCopyInto(new PlanarImgFactory<ShortType>(), new ShortType(),
+			new PlanarImgFactory<ShortType>(), new ShortType());
+		assertCopyInto(new ArrayImgFactory<FloatType>(), new FloatType(),
+			new ArrayImgFactory<FloatType>(), new FloatType());
+	}
+
+	@Test
+	public void testFloatToUnsignedByte() {
+		assertCopyInto(new PlanarImgFactory<FloatType>(), new FloatType(),
+			new PlanarImgFactory<UnsignedByteType>(), new UnsignedByteType());
+	}
+
+	@Test
+	public void testSignedToUnsigned() {
+		assertCopyInto(new PlanarImgFactory<ByteType>(), new ByteType(),
+			new PlanarImgFactory<UnsignedByteType>(), new UnsignedByteType());
+		assertCopyInto(new ArrayImgFactory<ShortType>(), new ShortType(),
+			new PlanarImgFactory<UnsignedShortType>(), new UnsignedShortType());
+	}
+
+	@Test
+	public void testPlanarAndArray() {
+		assertCopyInto(new PlanarImgFactory<UnsignedShortType>(),
+			new UnsignedShortType(), new ArrayImgFactory<UnsignedShortType>(),
+			new UnsignedShortType());
+		assertCopyInto(new ArrayImgFactory<FloatType>(), new FloatType(),
+			new PlanarImgFactory<ShortType>(), new ShortType());
+	}
+
+	@Test
+	public void testBitType() {
+		// bit packed planes cannot be accessed by reference
+		final Img<BitType> bits =
+			new ArrayImgFactory<BitType>().create(DIMS, new BitType());
+		assertNull(PrimitivePlane.get(bits, 0));
+		assertCopyInto(new ArrayImgFactory<BitType>(), new BitType(),
+			new PlanarImgFactory<UnsignedByteType>(), new UnsignedByteType());
+		assertCopyInto(new PlanarImgFactory<UnsignedByteType>(),
+			new UnsignedByteType(), new ArrayImgFactory<BitType>(), new BitType());
+	}
+
+	@Test
+	public void testCellImg() {
+		assertCopyInto(new CellImgFactory<ShortType>(), new ShortType(),
+			new PlanarImgFactory<FloatType>(), new FloatType());
+	}
+
+	@Test
+	public void testSmallerTarget() {
+		// planes of different sizes must not be copied in bulk
+		final long[] dims = { 5, 4, 3, 2 };
+		final Dataset source =
+			dataset(new PlanarImgFactory<ShortType>(), new ShortType());
+		final Dataset sameType =
+			dataset(new PlanarImgFactory<ShortType>(), new ShortType(), dims);
+		source.copyInto(sameType);
+		assertConverted(source.getImgPlus(), sameType.getImgPlus(),
+			new ShortType());
+		final Dataset otherType =
+			dataset(new PlanarImgFactory<FloatType>(), new FloatType(), dims);
+		source.copyInto(otherType);
+		assertConverted(source.getImgPlus(), otherType.getImgPlus(),
+			new FloatType());
+	}
+
+	@Test
+	public void testCopyDataFrom() {
+		final Dataset source =
+			dataset(new PlanarImgFactory<ShortType>(), new ShortType());
+		final Dataset target =
+			dataset(new ArrayImgFactory<UnsignedByteType>(), new UnsignedByteType());
+		target.copyDataFrom(source);
+
+		// the data and type of the source are kept, in the target's storage
+		assertTrue(unwrap(target) instanceof ArrayImg);
+		assertSame(ShortType.class, target.getType().getClass());
+		assertConverted(source.getImgPlus(), target.getImgPlus(), new ShortType());
+	}
+
+	// -- helper methods --
+
+	private <S extends RealType<S> & NativeType<S>,
+		T extends RealType<T> & NativeType<T>> void assertCopyInto(
+		final ImgFactory<S> sourceFactory, final S sourceType,
+		final ImgFactory<T> targetFactory, final T targetType)
+	{
+		final Dataset source = dataset(sourceFactory, sourceType);
+		final Dataset target = dataset(targetFactory, targetType);
+		source.copyInto(target);
+		assertConverted(source.getImgPlus(), target.getImgPlus(), targetType);
+	}
+
+	/**
+	 * Asserts that each value of the target is the corresponding value of the
+	 * source, as converted by {@link RealType#setReal} of the target's type.
+	 */
+	private <T extends RealType<T>> void assertConverted(
+		final Img<? extends RealType<?>> source,
+		final Img<? extends RealType<?>> target, final T targetType)
+	{
+		final String label =
+			source.firstElement().getClass().getSimpleName() + " to " +
+				target.firstElement().getClass().getSimpleName();
+		final T expected = targetType.createVariable();
+		final RandomAccess<? extends RealType<?>> access = source.randomAccess();
+		final Cursor<? extends RealType<?>> cursor = target.localizingCursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			expected.setReal(access.get().getRealDouble());
+			assertEquals(label, expected.getRealDouble(), cursor.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private <T extends RealType<T> & NativeType<T>> Dataset dataset(
+		final ImgFactory<T> factory, final T type)
+	{
+		return dataset(factory, type, DIMS);
+	}
+
+	private <T extends RealType<T> & NativeType<T>> Dataset dataset(
+		final ImgFactory<T> factory, final T type, final long[] dims)
+	{
+		final Img<T> img = factory.create(dims, type);
+		final Random random = new Random(11);
+		final double min = Math.max(type.getMinValue(), -1000);
+		final double max = Math.min(type.getMaxValue(), 1000);
+		for (final T t : img) {
+			t.setReal(min + (max - min) * random.nextDouble());
+		}
+		return new DefaultDataset(context, new ImgPlus<T>(img));
+	}
+
+	private Img<?> unwrap(final Dataset ds) {
+		return ds.getImgPlus().getImg();
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link PrimitivePlane}s read and write values exactly as ImgLib's
+ * own types do.
+ * 
+ * @author agent
+ */
+public class PrimitivePlaneTest {
+
+	private static final long[] DIMS = { 6, 5, 3 };
+
+	@Test
+	public void testSignedTypes() {
+		assertRoundTrips(new ByteType());
+		assertRoundTrips(new ShortType());
+		assertRoundTrips(new IntType());
+		assertRoundTrips(new LongType());
+	}
+
+	@Test
+	public void testUnsignedTypes() {
+		assertRoundTrips(new UnsignedByteType());
+		assertRoundTrips(new UnsignedShortType());
+		assertRoundTrips(new UnsignedIntType());
+	}
+
+	@Test
+	public void testRealTypes() {
+		assertRoundTrips(new FloatType());
+		assertRoundTrips(new DoubleType());
+	}
+
+	@Test
+	public void testBitType() {
+		final Img<BitType> img =
+			new ArrayImgFactory<BitType>().create(DIMS, new BitType());
+		assertNull(PrimitivePlane.get(img, 0));
+	}
+
+	@Test
+	public void testPlaneCount() {
+		final Img<ByteType> img =
+			new ArrayImgFactory<ByteType>().create(DIMS, new ByteType());
+		assertEquals(3, PrimitivePlane.planeCount(img));
+	}
+
+	// -- helper methods --
+
+	private <T extends RealType<T> & NativeType<T>> void assertRoundTrips(
+		final T type)
+	{
+		assertRoundTrips(new ArrayImgFactory<T>(), type);
+		assertRoundTrips(new PlanarImgFactory<T>(), type);
+	}
+
+	private <T extends RealType<T> & NativeType<T>> void assertRoundTrips(
+		final ImgFactory<T> factory, final T type)
+	{
+		final String label =
+			type.getClass().getSimpleName() + " in " +
+				factory.getClass().getSimpleName();
+		final double[] values = values(type);
+		final int w = (int) DIMS[0];
+		final int planeSize = (int) (DIMS[0] * DIMS[1]);
+		assertTrue(values.length <= planeSize);
+
+		for (int p = 0; p < DIMS[2]; p++) {
+			final Img<T> img = factory.create(DIMS, type);
+			final PrimitivePlane plane = PrimitivePlane.get(img, p);
+			assertNotNull(label, plane);
+			assertEquals(label, planeSize, plane.size());
+			final RandomAccess<T> access = img.randomAccess();
+			access.setPosition(p, 2);
+
+			// values written by ImgLib are read the same through the plane
+			for (int i = 0; i < values.length; i++) {
+				access.setPosition(i % w, 0);
+				access.setPosition(i / w, 1);
+				access.get().setReal(values[i]);
+				assertEquals(label, access.get().getRealDouble(), plane.getReal(i),
+					0);
+			}
+			final double[] read = new double[values.length];
+			plane.read(0, read, 0, values.length);
+			for (int i = 0; i < values.length; i++) {
+				assertEquals(label, plane.getReal(i), read[i], 0);
+			}
+
+			// values written through the plane are rounded the same as by ImgLib
+			final T expected = type.createVariable();
+			for (int i = 0; i < values.length; i++) {
+				plane.setReal(i, values[i]);
+				expected.setReal(values[i]);
+				access.setPosition(i % w, 0);
+				access.setPosition(i / w, 1);
+				assertEquals(label, expected.getRealDouble(), access.get()
+					.getRealDouble(), 0);
+			}
+			plane.write(1, values, 0, values.length - 1);
+			for (int i = 0; i < values.length - 1; i++) {
+				expected.setReal(values[i]);
+				assertEquals(label, expected.getRealDouble(), plane.getReal(i + 1), 0);
+			}
+
+			// other planes are left untouched
+			for (int q = 0; q < DIMS[2]; q++) {
+				if (q == p) continue;
+				final PrimitivePlane other = PrimitivePlane.get(img, q);
+				for (int i = 0; i < planeSize; i++) {
+					assertEquals(label, 0, other.getReal(i), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets values within the range of the given type, including its extremes
+	 * and fractions which integer types must round.
+	 */
+	private double[] values(final RealType<?> type) {
+		final double min = type.getMinValue();
+		final double max = type.getMaxValue();
+		final double[] candidates =
+			{ 0, 1, -1, 0.4, 0.5, -0.5, 1.5, -1.5, 2.5, -2.5, 99.7, -99.7, 127,
+				-128, 255, 32767, -32768, 65535, 1e9, -1e9, 4e9, min, max };
+		final List<Double> values = new ArrayList<Double>();
+		for (final double v : candidates) {
+			if (v >= min && v <= max) values.add(v);
+		}
+		final double[] result = new double[values.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = values.get(i);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import net.imglib2.display.ColorTable;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RenderedPlaneCache}.
+ * 
+ * @author agent
+ */
+public class RenderedPlaneCacheTest {
+
+	@Test
+	public void testGetAndPut() {
+		final RenderedPlaneCache cache = new RenderedPlaneCache(1024);
+		final int[] pixels = { 1, 2, 3, 4 };
+		assertNull(cache.get(key(0)));
+		cache.put(key(0), pixels, cache.getEpoch());
+		assertTrue(cache.contains(key(0)));
+		assertArrayEquals(pixels, cache.get(key(0)));
+		assertFalse(cache.contains(key(1)));
+		assertEquals(16, cache.getBytes());
+		assertEquals(16, cache.getBudget().getBytes());
+	}
+
+	@Test
+	public void testStaleEpoch() {
+		final RenderedPlaneCache cache = new RenderedPlaneCache(1024);
+		final long epoch = cache.getEpoch();
+		cache.clear();
+		cache.put(key(0), new int[4], epoch);
+		assertFalse(cache.contains(key(0)));
+		assertEquals(0, cache.getBytes());
+	}
+
+	@Test
+	public void testSharedBudget() {
+		// room for three planes of four pixels
+		final RenderedPlaneCache.Budget budget = new RenderedPlaneCache.Budget(48);
+		final RenderedPlaneCache cache1 = new RenderedPlaneCache(budget);
+		final RenderedPlaneCache cache2 = new RenderedPlaneCache(budget);
+
+		// the same key identifies different planes in each cache
+		cache1.put(key(0), new int[4], cache1.getEpoch());
+		cache2.put(key(0), new int[4], cache2.getEpoch());
+		cache1.put(key(1), new int[4], cache1.getEpoch());
+		assertEquals(32, cache1.getBytes());
+		assertEquals(16, cache2.getBytes());
+		assertEquals(48, budget.getBytes());
+
+		// the least recently used plane is evicted, whichever cache holds it
+		cache1.get(key(0));
+		cache1.put(key(2), new int[4], cache1.getEpoch());
+		assertFalse(cache2.contains(key(0)));
+		assertTrue(cache1.contains(key(0)));
+		assertTrue(cache1.contains(key(1)));
+		assertTrue(cache1.contains(key(2)));
+		assertEquals(0, cache2.getBytes());
+		assertEquals(48, budget.getBytes());
+
+		// clearing a cache releases only its own planes
+		cache2.put(key(3), new int[4], cache2.getEpoch());
+		cache1.clear();
+		assertFalse(cache1.contains(key(0)));
+		assertFalse(cache1.contains(key(2)));
+		assertTrue(cache2.contains(key(3)));
+		assertEquals(0, cache1.getBytes());
+		assertEquals(16, budget.getBytes());
+	}
+
+	@Test
+	public void testOversizedPlane() {
+		final RenderedPlaneCache cache = new RenderedPlaneCache(32);
+		cache.put(key(0), new int[4], cache.getEpoch());
+		cache.put(key(1), new int[9], cache.getEpoch());
+		assertFalse(cache.contains(key(1)));
+		assertTrue(cache.contains(key(0)));
+		assertEquals(16, cache.getBytes());
+	}
+
+	// -- Helper methods --
+
+	private RenderedPlaneCache.Key key(final long z) {
+		return new RenderedPlaneCache.Key(new long[] { z }, new ColorTable[0],
+			new double[0], new double[0], false);
+	}
+
+}
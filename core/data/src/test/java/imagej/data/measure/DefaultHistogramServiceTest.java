@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DefaultDataset;
+import imagej.data.PrimitivePlane;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.event.EventService;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DefaultHistogramService}.
+ * 
+ * @author agent
+ */
+public class DefaultHistogramServiceTest {
+
+	// NB - unsigned bytes binned into 256 bins: each value has its own bin
+	private static final int BINS = 256;
+
+	private final ImageJ context = ImageJ.createContext(HistogramService.class);
+
+	private final HistogramService histogramService =
+		context.getService(HistogramService.class);
+
+	@Test
+	public void testHistogram() {
+		final Dataset ds = dataset(new long[] { 8, 6, 3 }, 10, 20, 30);
+		final HistogramResult result = histogramService.getHistogram(ds, BINS);
+		assertEquals(144, result.getCount());
+		assertEquals(10, result.getMin(), 0);
+		assertEquals(30, result.getMax(), 0);
+		assertCounts(result, 10, 48, 20, 48, 30, 48);
+		assertCounts(histogramService.getPlaneHistogram(ds, 1, BINS), 20, 48);
+	}
+
+	@Test
+	public void testPlaneChanged() {
+		final Dataset ds = dataset(new long[] { 8, 6, 3 }, 10, 20, 30);
+		histogramService.getHistogram(ds, BINS);
+
+		// as the legacy harmonizer does, report the one plane it changed
+		fill(ds, 1, 21);
+		histogramService.planeChanged(ds, 1);
+		// NB - plane 0 also changes, unreported, to prove it is not measured again
+		fill(ds, 0, 11);
+		ds.update();
+		assertCounts(histogramService.getHistogram(ds, BINS), 10, 48, 21, 48, 30,
+			48);
+
+		// an update without reported planes measures every plane again
+		ds.update();
+		assertCounts(histogramService.getHistogram(ds, BINS), 11, 48, 21, 48, 30,
+			48);
+	}
+
+	@Test
+	public void testMetadataUpdate() {
+		final Dataset ds = dataset(new long[] { 8, 6 }, 10);
+		histogramService.getHistogram(ds, BINS);
+		fill(ds, 0, 11);
+		// NB - the values did not change as far as the service knows
+		context.getService(EventService.class).publish(
+			new DatasetUpdatedEvent(ds, true));
+		assertCounts(histogramService.getHistogram(ds, BINS), 10, 48);
+		histogramService.invalidate(ds);
+		assertCounts(histogramService.getHistogram(ds, BINS), 11, 48);
+	}
+
+	@Test
+	public void testOverlappingUpdate() {
+		// NB - a single row, so that the plane is measured in a single band
+		final UpdatingDataset ds = new UpdatingDataset(image(64, 1));
+		fill(ds, 0, 10);
+
+		// the values change while the plane is being measured...
+		ds.armed = true;
+		assertCounts(histogramService.getHistogram(ds, BINS), 10, 64);
+		assertEquals(false, ds.armed);
+
+		// ...so the measurement of the old values must not be cached
+		assertCounts(histogramService.getHistogram(ds, BINS), 99, 64);
+	}
+
+	@Test
+	public void testChannelHistogram() {
+		final Img<UnsignedByteType> img = image(8, 6, 2, 3);
+		final AxisType[] axes = { Axes.X, Axes.Y, Axes.Z, Axes.CHANNEL };
+		final Dataset ds =
+			new DefaultDataset(context, new ImgPlus<UnsignedByteType>(img, "test",
+				axes));
+		// planes are ordered by Z, then channel
+		for (int p = 0; p < 6; p++) {
+			fill(ds, p, 10 * (p / 2) + p % 2);
+		}
+		assertCounts(histogramService.getChannelHistogram(ds, 0, BINS), 0, 48, 1,
+			48);
+		assertCounts(histogramService.getChannelHistogram(ds, 1, BINS), 10, 48,
+			11, 48);
+		assertCounts(histogramService.getChannelHistogram(ds, 2, BINS), 20, 48,
+			21, 48);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testChannelAlongX() {
+		final AxisType[] axes = { Axes.CHANNEL, Axes.Y };
+		final Dataset ds =
+			new DefaultDataset(context, new ImgPlus<UnsignedByteType>(image(3, 4),
+				"test", axes));
+		histogramService.getChannelHistogram(ds, 0, BINS);
+	}
+
+	// -- helper methods --
+
+	private Img<UnsignedByteType> image(final long... dims) {
+		return new PlanarImgFactory<UnsignedByteType>().create(dims,
+			new UnsignedByteType());
+	}
+
+	/** Creates a Dataset whose planes are filled with the given values. */
+	private Dataset dataset(final long[] dims, final int... planeValues) {
+		final Dataset ds =
+			new DefaultDataset(context, new ImgPlus<UnsignedByteType>(image(dims)));
+		for (int p = 0; p < planeValues.length; p++) {
+			fill(ds, p, planeValues[p]);
+		}
+		return ds;
+	}
+
+	private void fill(final Dataset ds, final int planeIndex, final int value) {
+		final PrimitivePlane plane = PrimitivePlane.get(ds, planeIndex);
+		for (int i = 0; i < plane.size(); i++) {
+			plane.setReal(i, value);
+		}
+	}
+
+	/**
+	 * Asserts that the histogram has the given counts for the given values,
+	 * passed as value-count pairs, and no counts for any other value.
+	 */
+	private void assertCounts(final HistogramResult result,
+		final int... valueCounts)
+	{
+		final long[] expected = new long[BINS];
+		for (int i = 0; i < valueCounts.length; i += 2) {
+			expected[valueCounts[i]] = valueCounts[i + 1];
+		}
+		final long[] counts = result.getCounts();
+		for (int v = 0; v < BINS; v++) {
+			assertEquals("count of " + v, expected[v], counts[v]);
+		}
+	}
+
+	// -- helper classes --
+
+	/**
+	 * A Dataset whose values change as soon as a measuring thread starts reading
+	 * them. The thread reads a snapshot of the old values, as if it had read
+	 * them all just before the update.
+	 */
+	private class UpdatingDataset extends DefaultDataset {
+
+		private final Thread owner = Thread.currentThread();
+		private volatile boolean armed;
+
+		public UpdatingDataset(final Img<UnsignedByteType> img) {
+			super(context, new ImgPlus<UnsignedByteType>(img));
+		}
+
+		@Override
+		public ImgPlus<? extends RealType<?>> getImgPlus() {
+			if (!armed || Thread.currentThread() == owner) return super.getImgPlus();
+			armed = false;
+			final ImgPlus<? extends RealType<?>> snapshot = super.getImgPlus().copy();
+			fill(this, 0, 99);
+			histogramService.planeChanged(this, 0);
+			update();
+			return snapshot;
+		}
+
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DefaultDataset;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgPlus;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.ops.condition.Condition;
+import net.imglib2.ops.pointset.ConditionalPointSet;
+import net.imglib2.ops.pointset.HyperVolumePointSet;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests that the parallel statistics of {@link DefaultStatisticsService} equal
+ * its serial statistics.
+ * 
+ * @author agent
+ */
+public class DefaultStatisticsServiceTest {
+
+	private final ImageJ context = ImageJ.createContext(StatisticsService.class);
+
+	private final StatisticsService statisticsService =
+		context.getService(StatisticsService.class);
+
+	private final Set<Statistic> stats = EnumSet.allOf(Statistic.class);
+
+	@Test
+	public void testWholeDataset() {
+		for (final long[] dims : new long[][] { { 31, 17 }, { 12, 9, 5, 2 },
+			{ 40, 1 }, { 1, 1 } })
+		{
+			final Dataset ds = dataset(dims);
+			assertSame(statisticsService.statistics(ds, stats), statisticsService
+				.parallelStatistics(ds, stats));
+		}
+	}
+
+	@Test
+	public void testBoxRegion() {
+		final Dataset ds = dataset(new long[] { 21, 14, 6 });
+		final PointSet box =
+			new HyperVolumePointSet(new long[] { 2, 3, 1 }, new long[] { 17, 9, 4 });
+		assertSame(statisticsService.statistics(ds, box, stats), statisticsService
+			.parallelStatistics(ds, box, stats));
+	}
+
+	@Test
+	public void testConditionalRegion() {
+		final Dataset ds = dataset(new long[] { 19, 23 });
+		final PointSet region =
+			new ConditionalPointSet(new HyperVolumePointSet(new long[] { 1, 2 },
+				new long[] { 15, 20 }), new Condition<long[]>() {
+
+				@Override
+				public boolean isTrue(final long[] pos) {
+					return (pos[0] + 2 * pos[1]) % 3 != 0;
+				}
+
+				@Override
+				public Condition<long[]> copy() {
+					return this;
+				}
+			});
+		assertSame(statisticsService.statistics(ds, region, stats),
+			statisticsService.parallelStatistics(ds, region, stats));
+	}
+
+	// -- helper methods --
+
+	private Dataset dataset(final long[] dims) {
+		final Img<FloatType> img =
+			new PlanarImgFactory<FloatType>().create(dims, new FloatType());
+		final Random random = new Random(17);
+		for (final FloatType t : img) {
+			// NB - keep the product of all values within range
+			t.setReal(0.9 + 0.2 * random.nextDouble());
+		}
+		return new DefaultDataset(context, new ImgPlus<FloatType>(img));
+	}
+
+	private void assertSame(final StatisticsResult expected,
+		final StatisticsResult actual)
+	{
+		assertEquals(expected.getCount(), actual.getCount());
+		for (final Statistic stat : stats) {
+			final double e = expected.get(stat);
+			final double tol = 1e-9 * Math.max(1, Math.abs(e));
+			assertEquals(stat.toString(), e, actual.get(stat), tol);
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StatisticsAccumulator}.
+ * 
+ * @author agent
+ */
+public class StatisticsAccumulatorTest {
+
+	private static final double TOL = 1e-9;
+
+	private static final double[] DATA = { 2, 4, 4, 4, 5, 5, 7, 9 };
+
+	@Test
+	public void testMoments() {
+		final StatisticsAccumulator acc = fill(DATA, false);
+		assertEquals(8, acc.getCount());
+		assertEquals(5, acc.getValue(Statistic.ARITHMETIC_MEAN), TOL);
+		assertEquals(40, acc.getValue(Statistic.SUM), TOL);
+		assertEquals(32, acc.getValue(Statistic.SUM_OF_SQUARED_DEVIATIONS), TOL);
+		assertEquals(4, acc.getValue(Statistic.POPULATION_VARIANCE), TOL);
+		assertEquals(2, acc.getValue(Statistic.POPULATION_STD_DEV), TOL);
+		assertEquals(32.0 / 7, acc.getValue(Statistic.SAMPLE_VARIANCE), TOL);
+		assertEquals(2, acc.getValue(Statistic.MINIMUM), TOL);
+		assertEquals(9, acc.getValue(Statistic.MAXIMUM), TOL);
+		assertEquals(5.5, acc.getValue(Statistic.MIDPOINT), TOL);
+		assertEquals(reference(DATA, 3) / 8 / 8,
+			acc.getValue(Statistic.POPULATION_SKEW), TOL);
+		assertEquals(reference(DATA, 4) / 8 / 16,
+			acc.getValue(Statistic.POPULATION_KURTOSIS), TOL);
+	}
+
+	@Test
+	public void testMedian() {
+		final StatisticsAccumulator acc =
+			new StatisticsAccumulator(EnumSet.of(Statistic.MEDIAN));
+		for (final double v : DATA) {
+			acc.add(v);
+		}
+		assertEquals(4.5, acc.getValue(Statistic.MEDIAN), TOL);
+		acc.add(1);
+		assertEquals(4, acc.getValue(Statistic.MEDIAN), TOL);
+	}
+
+	@Test
+	public void testStaticMedian() {
+		final double[] data = { 9, 1, 7, 3, 5, 100 };
+		// only the first n values are considered
+		assertEquals(5, StatisticsAccumulator.median(data.clone(), 5), TOL);
+		assertEquals(6, StatisticsAccumulator.median(data.clone(), 6), TOL);
+		assertEquals(1, StatisticsAccumulator.select(data.clone(), 5, 0), TOL);
+		assertEquals(9, StatisticsAccumulator.select(data.clone(), 5, 4), TOL);
+	}
+
+	@Test
+	public void testMerge() {
+		final StatisticsAccumulator whole = fill(DATA, true);
+		final StatisticsAccumulator a = fill(new double[] { 2, 4, 4 }, true);
+		final StatisticsAccumulator b = fill(new double[] { 4, 5, 5, 7, 9 }, true);
+		a.merge(b);
+		assertEquals(whole.getCount(), a.getCount());
+		for (final Statistic stat : Statistic.values()) {
+			assertEquals(stat.toString(), whole.getValue(stat), a.getValue(stat),
+				TOL);
+		}
+	}
+
+	@Test
+	public void testMergedMedian() {
+		// the median is selected across all merged samples
+		final StatisticsAccumulator acc = fill(new double[] { 9, 4 }, true);
+		acc.merge(fill(new double[0], true));
+		final StatisticsAccumulator b = fill(new double[] { 5, 2, 7 }, true);
+		b.merge(fill(new double[] { 4, 5 }, true));
+		acc.merge(b);
+		acc.add(4);
+		assertEquals(8, acc.getCount());
+		assertEquals(4.5, acc.getValue(Statistic.MEDIAN), TOL);
+		acc.add(1);
+		assertEquals(4, acc.getValue(Statistic.MEDIAN), TOL);
+	}
+
+	@Test
+	public void testLargeOffset() {
+		final double offset = 1e9;
+		final double[] shifted = new double[DATA.length];
+		for (int i = 0; i < DATA.length; i++) {
+			shifted[i] = DATA[i] + offset;
+		}
+		final StatisticsAccumulator acc = fill(shifted, false);
+		assertEquals(4, acc.getValue(Statistic.POPULATION_VARIANCE), 1e-6);
+	}
+
+	// -- helper methods --
+
+	private StatisticsAccumulator fill(final double[] data,
+		final boolean keepValues)
+	{
+		final StatisticsAccumulator acc = new StatisticsAccumulator(keepValues);
+		for (final double v : data) {
+			acc.add(v);
+		}
+		return acc;
+	}
+
+	/** Sum of the given power of deviations from the mean. */
+	private double reference(final double[] data, final int power) {
+		double mean = 0;
+		for (final double v : data) {
+			mean += v;
+		}
+		mean /= data.length;
+		double sum = 0;
+		for (final double v : data) {
+			sum += Math.pow(v - mean, power);
+		}
+		return sum;
+	}
+
+}
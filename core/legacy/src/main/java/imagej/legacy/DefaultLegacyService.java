@@ -38,6 +38,7 @@
 import ij.IJ;
 import ij.ImagePlus;
 import ij.WindowManager;
+import imagej.StartupProfile;
 import imagej.command.CommandService;
 import imagej.core.options.OptionsMisc;
 import imagej.data.Dataset;
@@ -93,8 +94,16 @@ public final class DefaultLegacyService extends AbstractService implements
 	LegacyService
 {
 
+	/**
+	 * Time taken to inject the legacy hooks, in nanoseconds, until it is
+	 * recorded in the startup profile of the first legacy service initialized.
+	 */
+	private static long injectionTime;
+
 	static {
+		final long start = System.nanoTime();
 		new LegacyInjector().injectHooks();
+		injectionTime = System.nanoTime() - start;
 	}
 
 	@Parameter
@@ -225,6 +234,15 @@ public void syncColors() {
 
 	@Override
 	public void initialize() {
+		synchronized (DefaultLegacyService.class) {
+			// NB: The hooks are injected only once per JVM.
+			if (injectionTime > 0) {
+				getContext().getStartupProfile().record(
+					StartupProfile.LEGACY_INJECTION, injectionTime);
+				injectionTime = 0;
+			}
+		}
+
 		imageMap = new LegacyImageMap(getContext());
 		optionsSynchronizer = new OptionsSynchronizer(optionsService);
 
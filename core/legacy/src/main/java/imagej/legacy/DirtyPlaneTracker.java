@@ -0,0 +1,235 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.legacy;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import imagej.ImageJ;
+import imagej.data.Data;
+import imagej.data.Dataset;
+import imagej.data.display.ImageDisplay;
+import imagej.data.display.ImageDisplayService;
+import imagej.data.event.DataModifiedEvent;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.event.EventHandler;
+import imagej.event.EventService;
+import imagej.event.EventSubscriber;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps track of which pixels have changed since an {@link ImageDisplay} and
+ * its {@link ImagePlus} were last synchronized, so that legacy commands only
+ * harmonize the data that actually needs copying.
+ * <p>
+ * On the IJ2 side, a display is dirty from the moment its {@link Dataset}
+ * publishes a {@link DataModifiedEvent} (other than a metadata only
+ * {@link DatasetUpdatedEvent}) until it is marked clean after harmonization.
+ * Since those events do not say which planes changed, all planes of the
+ * Dataset are considered dirty.
+ * </p>
+ * <p>
+ * On the IJ1 side, there is no notification when an ImageProcessor is
+ * modified. Instead, changed planes are detected by taking a fingerprint of
+ * each plane's pixels before a legacy command runs (see {@link #fingerprint})
+ * and comparing afterwards (see {@link #getChangedPlanes}).
+ * </p>
+ * 
+ * @author agent
+ */
+public class DirtyPlaneTracker {
+
+	// -- Fields --
+
+	private final ImageDisplayService imageDisplayService;
+
+	/**
+	 * Table of the displays whose {@link ImagePlus} matches each
+	 * {@link Dataset}. Both keys and values are weakly referenced.
+	 */
+	private final Map<Dataset, Set<ImageDisplay>> cleanDisplays =
+		new WeakHashMap<Dataset, Set<ImageDisplay>>();
+
+	/** List of event subscribers, to avoid garbage collection. */
+	@SuppressWarnings("unused")
+	private final List<EventSubscriber<?>> subscribers;
+
+	// -- Constructor --
+
+	public DirtyPlaneTracker(final ImageJ context) {
+		imageDisplayService = context.getService(ImageDisplayService.class);
+		final EventService eventService = context.getService(EventService.class);
+		subscribers = eventService.subscribe(this);
+	}
+
+	// -- DirtyPlaneTracker methods --
+
+	/**
+	 * Returns true if the pixels of the given display's active {@link Dataset}
+	 * may have changed since the display was last marked clean.
+	 */
+	public synchronized boolean isDirty(final ImageDisplay display) {
+		final Dataset ds = imageDisplayService.getActiveDataset(display);
+		if (ds == null) return true;
+		final Set<ImageDisplay> displays = cleanDisplays.get(ds);
+		return displays == null || !displays.contains(display);
+	}
+
+	/**
+	 * Records that the given display's {@link ImagePlus} has just been
+	 * synchronized with the pixels of its active {@link Dataset}.
+	 */
+	public synchronized void markClean(final ImageDisplay display) {
+		final Dataset ds = imageDisplayService.getActiveDataset(display);
+		if (ds == null) return;
+		Set<ImageDisplay> displays = cleanDisplays.get(ds);
+		if (displays == null) {
+			displays =
+				Collections.newSetFromMap(new WeakHashMap<ImageDisplay, Boolean>());
+			cleanDisplays.put(ds, displays);
+		}
+		displays.add(display);
+	}
+
+	/** Forgets that any display is in sync with the given {@link Dataset}. */
+	public synchronized void markDirty(final Dataset ds) {
+		cleanDisplays.remove(ds);
+	}
+
+	/**
+	 * Forgets that the given display's {@link ImagePlus} is in sync with its
+	 * active {@link Dataset}, e.g. because the ImagePlus may have been modified.
+	 */
+	public synchronized void markDirty(final ImageDisplay display) {
+		final Dataset ds = imageDisplayService.getActiveDataset(display);
+		if (ds == null) return;
+		final Set<ImageDisplay> displays = cleanDisplays.get(ds);
+		if (displays != null) displays.remove(display);
+	}
+
+	/**
+	 * Computes a fingerprint of each plane of the given {@link ImagePlus}, in
+	 * stack order.
+	 * 
+	 * @return The fingerprints, or null if they are too costly to compute (as
+	 *         for virtual stacks)
+	 */
+	public static long[] fingerprint(final ImagePlus imp) {
+		if (imp == null) return null;
+		final ImageStack stack = imp.getStack();
+		if (stack.isVirtual()) return null;
+		final long[] fingerprints = new long[stack.getSize()];
+		for (int i = 0; i < fingerprints.length; i++) {
+			fingerprints[i] = hash(stack.getPixels(i + 1));
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * Determines which planes of an {@link ImagePlus} have changed since the
+	 * given fingerprints were taken.
+	 * 
+	 * @return Flags indicating which planes have changed, in stack order, or null
+	 *         if the planes cannot be compared (because there are no
+	 *         fingerprints or the number of planes has changed)
+	 */
+	public static boolean[] getChangedPlanes(final long[] fingerprints,
+		final ImagePlus imp)
+	{
+		final long[] current = fingerprint(imp);
+		if (fingerprints == null || current == null) return null;
+		if (fingerprints.length != current.length) return null;
+		final boolean[] changed = new boolean[current.length];
+		for (int i = 0; i < current.length; i++) {
+			changed[i] = current[i] != fingerprints[i];
+		}
+		return changed;
+	}
+
+	// -- Event handlers --
+
+	// NB: The tracker's state is synchronized, so there is no need to make
+	// publishers wait for the dispatch thread.
+
+	@EventHandler(dispatchThread = false)
+	protected void onEvent(final DataModifiedEvent event) {
+		if (event instanceof DatasetUpdatedEvent &&
+			((DatasetUpdatedEvent) event).isMetaDataOnly())
+		{
+			return;
+		}
+		final Data data = event.getObject();
+		if (data instanceof Dataset) markDirty((Dataset) data);
+	}
+
+	// -- Helper methods --
+
+	/** Computes a 64-bit FNV-1a hash of the values of a pixel array. */
+	private static long hash(final Object pixels) {
+		long h = 0xcbf29ce484222325L;
+		final long prime = 0x100000001b3L;
+		if (pixels instanceof byte[]) {
+			for (final byte v : (byte[]) pixels) {
+				h = (h ^ v) * prime;
+			}
+		}
+		else if (pixels instanceof short[]) {
+			for (final short v : (short[]) pixels) {
+				h = (h ^ v) * prime;
+			}
+		}
+		else if (pixels instanceof int[]) {
+			for (final int v : (int[]) pixels) {
+				h = (h ^ v) * prime;
+			}
+		}
+		else if (pixels instanceof float[]) {
+			for (final float v : (float[]) pixels) {
+				h = (h ^ Float.floatToRawIntBits(v)) * prime;
+			}
+		}
+		else if (pixels != null) {
+			// unknown pixel type; assume it always changes
+			h = System.nanoTime();
+		}
+		return h;
+	}
+
+}
@@ -96,6 +96,12 @@ public class LegacyImageMap {
 	 */
 	private final DefaultImageTranslator imageTranslator;
 
+	/**
+	 * The {@link DirtyPlaneTracker} recording which {@link ImageDisplay}s are
+	 * in sync with their corresponding {@link ImagePlus}.
+	 */
+	private final DirtyPlaneTracker dirtyPlaneTracker;
+
 	/** List of event subscribers, to avoid garbage collection. */
 	@SuppressWarnings("unused")
 	private final List<EventSubscriber<?>> subscribers;
@@ -106,12 +112,21 @@ public LegacyImageMap(final ImageJ context) {
 		imagePlusTable = new ConcurrentHashMap<ImageDisplay, ImagePlus>();
 		displayTable = new ConcurrentHashMap<ImagePlus, ImageDisplay>();
 		imageTranslator = new DefaultImageTranslator(context);
+		dirtyPlaneTracker = new DirtyPlaneTracker(context);
 		final EventService eventService = context.getService(EventService.class);
 		subscribers = eventService.subscribe(this);
 	}
 
 	// -- LegacyImageMap methods --
 
+	/**
+	 * Gets the {@link DirtyPlaneTracker} used to avoid needlessly harmonizing
+	 * unchanged images.
+	 */
+	public DirtyPlaneTracker getDirtyPlaneTracker() {
+		return dirtyPlaneTracker;
+	}
+
 	/**
 	 * Gets the {@link ImageDisplay} corresponding to the given {@link ImagePlus},
 	 * or null if there is no existing table entry.
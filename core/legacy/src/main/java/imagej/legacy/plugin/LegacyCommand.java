@@ -44,6 +44,7 @@
 import imagej.data.Dataset;
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
+import imagej.legacy.DirtyPlaneTracker;
 import imagej.legacy.LegacyImageMap;
 import imagej.legacy.LegacyOutputTracker;
 import imagej.legacy.LegacyService;
@@ -60,6 +61,7 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -152,7 +154,12 @@ private class LegacyCommandThread extends Thread {
 		final private ThreadGroup group;
 		final private LegacyImageMap map;
 		final private Harmonizer harmonizer;
-		
+		final private DirtyPlaneTracker tracker;
+
+		// the active ImagePlus when the plugin started, and a fingerprint of each
+		// of its planes (when its pixels are not shared with its Dataset)
+		private ImagePlus activeImp;
+		private long[] activeFingerprints;
 
 		// NB - BDZ
 		// In order to keep threads from waiting on each other unnecessarily when
@@ -167,6 +174,7 @@ public LegacyCommandThread() {
 			final ImageTranslator imageTranslator =
 				new DefaultImageTranslator(context);
 			this.harmonizer = new Harmonizer(context, imageTranslator);
+			this.tracker = map.getDirtyPlaneTracker();
 		}
 
 		@Override
@@ -181,7 +189,7 @@ public void run() {
 
 			harmonizer.resetTypeTracking();
 
-			updateImagePlusesFromDisplays();
+			updateImagePlusesFromDisplays(false);
 
 			//reportStackIssues("Before IJ1 plugin run");
 			
@@ -191,6 +199,9 @@ public void run() {
 
 			// set ImageJ1's active image
 			legacyService.syncActiveImage();
+
+			// remember the active image's planes to detect which ones change
+			fingerprintActiveImage();
 			
 			// set ImageJ1's colors
 			legacyService.syncColors();
@@ -231,7 +242,7 @@ public void run() {
 				log.error(msg, e);
 				notifyUser(msg);
 				// make sure our ImagePluses are in sync with original Datasets
-				updateImagePlusesFromDisplays();
+				updateImagePlusesFromDisplays(true);
 				// return no outputs
 				outputs = new ArrayList<ImageDisplay>();
 			}
@@ -240,6 +251,8 @@ public void run() {
 				harmonizer.resetTypeTracking();
 				outputSet.clear();
 				closedSet.clear();
+				activeImp = null;
+				activeFingerprints = null;
 			}
 			
 			rtHarmonizer.setIJ2ResultsTable();
@@ -331,9 +344,15 @@ private boolean whitelisted(final Thread thread) {
 		// when its not. Put in tests to address this situation rather than having
 		// harmonization or something else fail.
 
-		private void updateImagePlusesFromDisplays() {
-			// TODO - track events and keep a dirty bit, then only harmonize those
-			// displays that have changed. See ticket #546.
+		/**
+		 * Harmonizes the ImagePlus of each display with its Dataset.
+		 * 
+		 * @param all Whether to copy the pixels of every display, rather than
+		 *          only those of displays whose Dataset has changed since the
+		 *          last harmonization (e.g. because the ImagePluses may have been
+		 *          left inconsistent by a failed plugin)
+		 */
+		private void updateImagePlusesFromDisplays(final boolean all) {
 			final List<ImageDisplay> imageDisplays =
 				imageDisplayService.getImageDisplays();
 			for (final ImageDisplay display : imageDisplays) {
@@ -349,16 +368,25 @@ private void updateImagePlusesFromDisplays() {
 					// ImagePlus in a locked state. Make sure its unlocked going forward.
 					imp.unlock();
 				}
-				harmonizer.updateLegacyImage(display, imp);
+				final boolean pixelsChanged = all || tracker.isDirty(display);
+				harmonizer.updateLegacyImage(display, imp, pixelsChanged);
 				harmonizer.registerType(imp);
+				tracker.markClean(display);
 			}
 		}
 
+		private void fingerprintActiveImage() {
+			activeImp = WindowManager.getCurrentImage();
+			activeFingerprints = null;
+			final ImageDisplay display = map.lookupDisplay(activeImp);
+			if (display == null) return;
+			if (!harmonizer.copiesPixels(display, activeImp)) return;
+			activeFingerprints = DirtyPlaneTracker.fingerprint(activeImp);
+		}
+
 		private List<ImageDisplay> updateDisplaysFromImagePluses() {
-			// TODO - check the changes flag for each ImagePlus that already has a
-			// ImageDisplay and only harmonize those that have changed. Maybe changes
-			// flag does not track everything (such as metadata changes?) and thus
-			// we might still have to do some minor harmonization. Investigate.
+			// NB - metadata is always harmonized, but only the pixels of those
+			// planes of the active image that the plugin changed are copied
 
 			final Set<ImagePlus> imps = LegacyOutputTracker.getOutputImps();
 			final ImagePlus currImp = WindowManager.getCurrentImage();
@@ -369,15 +397,21 @@ private List<ImageDisplay> updateDisplaysFromImagePluses() {
 			// the IJ1 plugin may not have any outputs but just changes current
 			// ImagePlus make sure we catch any changes via harmonization
 			final List<ImageDisplay> displays = new ArrayList<ImageDisplay>();
+			final Set<ImageDisplay> harmonized = new HashSet<ImageDisplay>();
 			if (currImp != null) {
 				ImageDisplay display = map.lookupDisplay(currImp);
 				if (display != null) {
-					harmonizer.updateDisplay(display, currImp);
+					final boolean[] changedPlanes = currImp == activeImp ?
+						DirtyPlaneTracker.getChangedPlanes(activeFingerprints, currImp)
+						: null;
+					harmonizer.updateDisplay(display, currImp, changedPlanes);
 				}
 				else {
 					display = map.registerLegacyImage(currImp);
 					displays.add(display);
 				}
+				tracker.markClean(display);
+				harmonized.add(display);
 			}
 
 			// also harmonize any outputs
@@ -402,10 +436,20 @@ private List<ImageDisplay> updateDisplaysFromImagePluses() {
 						}
 						else harmonizer.updateDisplay(display, imp);
 					}
+					tracker.markClean(display);
+					harmonized.add(display);
 					displays.add(display);
 				}
 			}
 
+			// NB - the plugin may also have changed the pixels of other images,
+			// which were not compared with their displays; make sure they are
+			// copied from their Datasets again before the next legacy command
+			for (final ImageDisplay display : imageDisplayService.getImageDisplays())
+			{
+				if (!harmonized.contains(display)) tracker.markDirty(display);
+			}
+
 			return displays;
 		}
 
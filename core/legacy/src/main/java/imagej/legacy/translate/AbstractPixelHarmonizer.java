@@ -0,0 +1,390 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.legacy.translate;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import imagej.data.Dataset;
+import imagej.data.PrimitivePlane;
+import imagej.data.measure.HistogramService;
+import imagej.thread.ThreadService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+
+/**
+ * Base class for the {@link DataHarmonizer}s that copy pixel values between
+ * the planes of an {@link ImagePlus} and a {@link Dataset}. Each plane is
+ * divided into bands of rows, and the bands are copied in parallel on the
+ * {@link ThreadService} when the destination allows it. Subclasses copy a
+ * band a row at a time, directly upon the primitive arrays of both images
+ * where their layouts allow (see {@link #getPlane}, {@link #readRow} and
+ * {@link #writeRow}).
+ * 
+ * @author agent
+ */
+public abstract class AbstractPixelHarmonizer implements DataHarmonizer {
+
+	/** Images with fewer pixels than this are copied on the calling thread. */
+	private static final long PARALLEL_THRESHOLD = 256 * 256;
+
+	/** Whether this harmonizer may copy bands concurrently. */
+	private boolean parallel = true;
+
+	// -- AbstractPixelHarmonizer methods --
+
+	/**
+	 * Sets whether bands of rows may be copied concurrently. This is true by
+	 * default.
+	 */
+	public void setParallel(final boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/** Gets whether bands of rows may be copied concurrently. */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Assigns the data values of some planes of a {@link Dataset} from a paired
+	 * {@link ImagePlus}, in the same way as {@link #updateDataset}. Planes that
+	 * are not flagged are left untouched, and if no plane is flagged the
+	 * Dataset is not updated at all.
+	 * 
+	 * @param planes Flags indicating which IJ1 planes to copy, in stack order,
+	 *          or null to copy all planes
+	 */
+	public void updateDataset(final Dataset ds, final ImagePlus imp,
+		final boolean[] planes)
+	{
+		if (planes != null && !anyFlagged(planes)) return;
+		final boolean primitive =
+			getPlane(ds, new long[ds.numDimensions()]) != null;
+		copyBands(ds, imp, true, primitive, planes);
+		if (planes != null) reportChangedPlanes(ds, imp, planes);
+		ds.update();
+	}
+
+	// -- Internal methods --
+
+	/**
+	 * Assigns a band of rows of a {@link Dataset} from the paired plane of an
+	 * {@link ImagePlus}.
+	 * 
+	 * @param ds The Dataset being updated
+	 * @param proc The processor of the IJ1 plane
+	 * @param c The IJ1 channel index of the plane
+	 * @param z The IJ1 slice index of the plane
+	 * @param t The IJ1 frame index of the plane
+	 * @param yStart The first row of the band
+	 * @param yEnd The row after the last row of the band
+	 */
+	protected abstract void updateDatasetBand(Dataset ds, ImageProcessor proc,
+		int c, int z, int t, int yStart, int yEnd);
+
+	/**
+	 * Assigns a band of rows of a plane of an {@link ImagePlus} from the paired
+	 * {@link Dataset}. The parameters are as for {@link #updateDatasetBand}.
+	 */
+	protected abstract void updateLegacyBand(Dataset ds, ImageProcessor proc,
+		int c, int z, int t, int yStart, int yEnd);
+
+	/**
+	 * Copies every band of every plane of the given {@link ImagePlus}, by
+	 * calling {@link #updateDatasetBand} or {@link #updateLegacyBand}.
+	 * 
+	 * @param toDataset Whether the values are copied into the Dataset (rather
+	 *          than into the ImagePlus)
+	 * @param concurrent Whether the bands may be copied concurrently. Writes to
+	 *          a {@link Dataset} are only safe to do concurrently when its planes
+	 *          are primitive arrays, since bit packed types share storage
+	 *          between neighboring pixels.
+	 * @param planes Flags indicating which IJ1 planes to copy, in stack order,
+	 *          or null to copy all planes
+	 */
+	protected void copyBands(final Dataset ds, final ImagePlus imp,
+		final boolean toDataset, final boolean concurrent, final boolean[] planes)
+	{
+		final ImageStack stack = imp.getStack();
+		final int cSize = imp.getNChannels();
+		final int zSize = imp.getNSlices();
+		final int tSize = imp.getNFrames();
+		final int ySize = imp.getHeight();
+		final int planeCount = cSize * zSize * tSize;
+		final long pixelCount = (long) imp.getWidth() * ySize * planeCount;
+
+		final ThreadService threadService =
+			ds.getContext().getService(ThreadService.class);
+		if (!parallel || !concurrent || threadService == null ||
+			stack.isVirtual() || pixelCount < PARALLEL_THRESHOLD)
+		{
+			// copy each plane in turn on the calling thread
+			int planeNum = 1;
+			for (int t = 0; t < tSize; t++) {
+				for (int z = 0; z < zSize; z++) {
+					for (int c = 0; c < cSize; c++) {
+						final int plane = planeNum++;
+						if (!isFlagged(planes, plane)) continue;
+						final ImageProcessor proc = stack.getProcessor(plane);
+						copyBand(ds, proc, c, z, t, 0, ySize, toDataset);
+					}
+				}
+			}
+			return;
+		}
+
+		// split planes into bands of rows to keep all processors busy
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		final int bandsPerPlane =
+			Math.max(1, Math.min(ySize, (cpus + planeCount - 1) / planeCount));
+		final List<Band> bands = new ArrayList<Band>();
+		int planeNum = 1;
+		for (int t = 0; t < tSize; t++) {
+			for (int z = 0; z < zSize; z++) {
+				for (int c = 0; c < cSize; c++) {
+					final int plane = planeNum++;
+					if (!isFlagged(planes, plane)) continue;
+					// NB - obtain processors on this thread; stacks are not thread safe
+					final ImageProcessor proc = stack.getProcessor(plane);
+					for (int b = 0; b < bandsPerPlane; b++) {
+						final int start = (int) ((long) b * ySize / bandsPerPlane);
+						final int end = (int) ((long) (b + 1) * ySize / bandsPerPlane);
+						if (start == end) continue;
+						bands.add(new Band(proc, c, z, t, start, end));
+					}
+				}
+			}
+		}
+
+		final int workerCount = Math.min(cpus, bands.size());
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int k = 0; k < workerCount; k++) {
+			final int first = k;
+			futures.add(threadService.compute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int b = first; b < bands.size(); b += workerCount) {
+						final Band band = bands.get(b);
+						copyBand(ds, band.proc, band.c, band.z, band.t, band.yStart,
+							band.yEnd, toDataset);
+					}
+				}
+			}));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Pixel harmonization interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Pixel harmonization failed", e
+				.getCause());
+		}
+	}
+
+	/**
+	 * Gets the XY plane of a {@link Dataset} at the given position by reference.
+	 * 
+	 * @param pos A position within the plane; its X and Y coordinates are
+	 *          ignored
+	 * @return The plane, or null if it cannot be accessed by reference (e.g.
+	 *         because X and Y are not the first two axes of the Dataset)
+	 */
+	protected PrimitivePlane getPlane(final Dataset ds, final long[] pos) {
+		if (ds.getAxisIndex(Axes.X) != 0 || ds.getAxisIndex(Axes.Y) != 1) {
+			return null;
+		}
+		long planeIndex = 0;
+		long stride = 1;
+		for (int d = 2; d < pos.length; d++) {
+			planeIndex += pos[d] * stride;
+			stride *= ds.dimension(d);
+		}
+		if (planeIndex > Integer.MAX_VALUE) return null;
+		return PrimitivePlane.get(ds, (int) planeIndex);
+	}
+
+	/**
+	 * Reads a row of values from an {@link ImageProcessor}, with the same
+	 * results as {@link ImageProcessor#getf(int, int)}.
+	 */
+	protected static void readRow(final ImageProcessor proc, final int y,
+		final double[] row)
+	{
+		final int w = proc.getWidth();
+		final int offset = y * w;
+		final Object pixels = proc.getPixels();
+		if (pixels instanceof byte[]) {
+			final byte[] p = (byte[]) pixels;
+			for (int x = 0; x < w; x++) {
+				row[x] = p[offset + x] & 0xff;
+			}
+		}
+		else if (pixels instanceof short[]) {
+			final short[] p = (short[]) pixels;
+			for (int x = 0; x < w; x++) {
+				row[x] = p[offset + x] & 0xffff;
+			}
+		}
+		else if (pixels instanceof float[]) {
+			final float[] p = (float[]) pixels;
+			for (int x = 0; x < w; x++) {
+				row[x] = p[offset + x];
+			}
+		}
+		else {
+			for (int x = 0; x < w; x++) {
+				row[x] = proc.getf(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Writes a row of values into an {@link ImageProcessor}, with the same
+	 * results as {@link ImageProcessor#setf(int, int, float)}.
+	 */
+	protected static void writeRow(final ImageProcessor proc, final int y,
+		final double[] row)
+	{
+		final int w = proc.getWidth();
+		final int offset = y * w;
+		final Object pixels = proc.getPixels();
+		if (pixels instanceof byte[]) {
+			final byte[] p = (byte[]) pixels;
+			for (int x = 0; x < w; x++) {
+				p[offset + x] = (byte) (float) row[x];
+			}
+		}
+		else if (pixels instanceof short[]) {
+			final short[] p = (short[]) pixels;
+			for (int x = 0; x < w; x++) {
+				p[offset + x] = (short) (float) row[x];
+			}
+		}
+		else if (pixels instanceof float[]) {
+			final float[] p = (float[]) pixels;
+			for (int x = 0; x < w; x++) {
+				p[offset + x] = (float) row[x];
+			}
+		}
+		else {
+			for (int x = 0; x < w; x++) {
+				proc.setf(x, y, (float) row[x]);
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Tells the {@link HistogramService} which planes of a {@link Dataset} are
+	 * about to be updated, so that the histograms of the other planes are kept.
+	 */
+	private void reportChangedPlanes(final Dataset ds, final ImagePlus imp,
+		final boolean[] planes)
+	{
+		final HistogramService histogramService =
+			ds.getContext().getService(HistogramService.class);
+		if (histogramService == null) return;
+		if (ds.getAxisIndex(Axes.X) != 0 || ds.getAxisIndex(Axes.Y) != 1) return;
+		final long[] dims = ds.getDims();
+		final AxisType[] axes = ds.getAxes();
+		int planeNum = 1;
+		for (int t = 0; t < imp.getNFrames(); t++) {
+			for (int z = 0; z < imp.getNSlices(); z++) {
+				for (int c = 0; c < imp.getNChannels(); c++) {
+					if (!isFlagged(planes, planeNum++)) continue;
+					histogramService.planeChanged(ds, LegacyUtils.ij2PlaneIndex(dims,
+						axes, c, z, t));
+				}
+			}
+		}
+	}
+
+	private boolean isFlagged(final boolean[] planes, final int planeNum) {
+		return planes == null || planeNum > planes.length || planes[planeNum - 1];
+	}
+
+	private boolean anyFlagged(final boolean[] planes) {
+		for (final boolean flag : planes) {
+			if (flag) return true;
+		}
+		return false;
+	}
+
+	private void copyBand(final Dataset ds, final ImageProcessor proc,
+		final int c, final int z, final int t, final int yStart, final int yEnd,
+		final boolean toDataset)
+	{
+		if (toDataset) updateDatasetBand(ds, proc, c, z, t, yStart, yEnd);
+		else updateLegacyBand(ds, proc, c, z, t, yStart, yEnd);
+	}
+
+	// -- Helper classes --
+
+	/** A band of rows of one IJ1 plane. */
+	private static class Band {
+
+		private final ImageProcessor proc;
+		private final int c, z, t;
+		private final int yStart, yEnd;
+
+		public Band(final ImageProcessor proc, final int c, final int z,
+			final int t, final int yStart, final int yEnd)
+		{
+			this.proc = proc;
+			this.c = c;
+			this.z = z;
+			this.t = t;
+			this.yStart = yStart;
+			this.yEnd = yEnd;
+		}
+
+	}
+
+}
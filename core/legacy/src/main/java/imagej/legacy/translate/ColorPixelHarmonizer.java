@@ -38,6 +38,7 @@
 import ij.ImagePlus;
 import ij.process.ImageProcessor;
 import imagej.data.Dataset;
+import imagej.data.PrimitivePlane;
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
 import net.imglib2.type.numeric.RealType;
@@ -48,110 +49,148 @@
  * 
  * @author Barry DeZonia
  */
-public class ColorPixelHarmonizer implements DataHarmonizer {
+public class ColorPixelHarmonizer extends AbstractPixelHarmonizer {
 
 	/**
 	 * Assigns the data values of a color {@link Dataset} from a paired
 	 * {@link ImagePlus}. Assumes the Dataset and ImagePlus have compatible
-	 * dimensions and are both of type color. Gets values via
-	 * {@link ImageProcessor}::get(). Does not change the Dataset's metadata.
+	 * dimensions and are both of type color. Reads the processors' int pixel
+	 * arrays directly. Does not change the Dataset's metadata.
 	 */
 	@Override
 	public void updateDataset(final Dataset ds, final ImagePlus imp) {
-		final int xIndex = ds.getAxisIndex(Axes.X);
-		final int yIndex = ds.getAxisIndex(Axes.Y);
-		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
-		final int zIndex = ds.getAxisIndex(Axes.Z);
-		final int tIndex = ds.getAxisIndex(Axes.TIME);
-		final int x = imp.getWidth();
-		final int y = imp.getHeight();
-		final int c = imp.getNChannels();
-		final int z = imp.getNSlices();
-		final int t = imp.getNFrames();
-		int imagejPlaneNumber = 1;
-		final RandomAccess<? extends RealType<?>> accessor =
-			ds.getImgPlus().randomAccess();
-		for (int ti = 0; ti < t; ti++) {
-			if (tIndex >= 0) accessor.setPosition(ti, tIndex);
-			for (int zi = 0; zi < z; zi++) {
-				if (zIndex >= 0) accessor.setPosition(zi, zIndex);
-				for (int ci = 0; ci < c; ci++) {
-					final ImageProcessor proc =
-						imp.getStack().getProcessor(imagejPlaneNumber++);
-					for (int yi = 0; yi < y; yi++) {
-						accessor.setPosition(yi, yIndex);
-						for (int xi = 0; xi < x; xi++) {
-							accessor.setPosition(xi, xIndex);
-							final int value = proc.get(xi, yi);
-							final int rValue = (value >> 16) & 0xff;
-							final int gValue = (value >> 8) & 0xff;
-							final int bValue = (value >> 0) & 0xff;
-							accessor.setPosition(ci * 3 + 0, cIndex);
-							accessor.get().setReal(rValue);
-							accessor.setPosition(ci * 3 + 1, cIndex);
-							accessor.get().setReal(gValue);
-							accessor.setPosition(ci * 3 + 2, cIndex);
-							accessor.get().setReal(bValue);
-						}
-					}
-				}
-			}
-		}
-		ds.update();
+		updateDataset(ds, imp, null);
 	}
 
 	/**
 	 * Assigns the data values of a color {@link ImagePlus} from a paired
 	 * {@link Dataset}. Assumes the Dataset and ImagePlus have compatible
 	 * dimensions and that the data planes are not directly mapped. Also assumes
-	 * that the Dataset has isRGBMerged() true. Sets values via
-	 * {@link ImageProcessor}::set(). Does not change the ImagePlus' metadata.
+	 * that the Dataset has isRGBMerged() true. Writes the processors' int pixel
+	 * arrays directly. Does not change the ImagePlus' metadata.
 	 */
 	@Override
 	public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
+		copyBands(ds, imp, false, true, null);
+	}
+
+	// -- AbstractPixelHarmonizer methods --
+
+	@Override
+	protected void updateDatasetBand(final Dataset ds,
+		final ImageProcessor proc, final int c, final int z, final int t,
+		final int yStart, final int yEnd)
+	{
+		final int xSize = proc.getWidth();
+		final int[] pixels = (int[]) proc.getPixels();
+		final PrimitivePlane[] planes = getPlanes(ds, c, z, t);
+		if (planes != null) {
+			final double[][] rows = new double[3][xSize];
+			for (int y = yStart; y < yEnd; y++) {
+				for (int x = 0; x < xSize; x++) {
+					final int value = pixels[y * xSize + x];
+					rows[0][x] = (value >> 16) & 0xff;
+					rows[1][x] = (value >> 8) & 0xff;
+					rows[2][x] = (value >> 0) & 0xff;
+				}
+				for (int i = 0; i < 3; i++) {
+					planes[i].write(y * xSize, rows[i], 0, xSize);
+				}
+			}
+			return;
+		}
 		final int xIndex = ds.getAxisIndex(Axes.X);
 		final int yIndex = ds.getAxisIndex(Axes.Y);
 		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
-		final int zIndex = ds.getAxisIndex(Axes.Z);
-		final int tIndex = ds.getAxisIndex(Axes.TIME);
-		final int x = imp.getWidth();
-		final int y = imp.getHeight();
-		final int c = imp.getNChannels();
-		final int z = imp.getNSlices();
-		final int t = imp.getNFrames();
-		int imagejPlaneNumber = 1;
 		final RandomAccess<? extends RealType<?>> accessor =
 			ds.getImgPlus().randomAccess();
-		for (int ti = 0; ti < t; ti++) {
-			if (tIndex >= 0) accessor.setPosition(ti, tIndex);
-			for (int zi = 0; zi < z; zi++) {
-				if (zIndex >= 0) accessor.setPosition(zi, zIndex);
-				for (int ci = 0; ci < c; ci++) {
-					final ImageProcessor proc =
-						imp.getStack().getProcessor(imagejPlaneNumber++);
-					for (int yi = 0; yi < y; yi++) {
-						accessor.setPosition(yi, yIndex);
-						for (int xi = 0; xi < x; xi++) {
-							accessor.setPosition(xi, xIndex);
-
-							accessor.setPosition(3 * ci + 0, cIndex);
-							final int rValue = ((int) accessor.get().getRealDouble()) & 0xff;
-
-							accessor.setPosition(3 * ci + 1, cIndex);
-							final int gValue = ((int) accessor.get().getRealDouble()) & 0xff;
-
-							accessor.setPosition(3 * ci + 2, cIndex);
-							final int bValue = ((int) accessor.get().getRealDouble()) & 0xff;
-
-							final int intValue =
-								(0xff << 24) | (rValue << 16) | (gValue << 8) | (bValue);
+		accessor.setPosition(position(ds, z, t));
+		for (int y = yStart; y < yEnd; y++) {
+			accessor.setPosition(y, yIndex);
+			for (int x = 0; x < xSize; x++) {
+				accessor.setPosition(x, xIndex);
+				final int value = pixels[y * xSize + x];
+				final int rValue = (value >> 16) & 0xff;
+				final int gValue = (value >> 8) & 0xff;
+				final int bValue = (value >> 0) & 0xff;
+				accessor.setPosition(c * 3 + 0, cIndex);
+				accessor.get().setReal(rValue);
+				accessor.setPosition(c * 3 + 1, cIndex);
+				accessor.get().setReal(gValue);
+				accessor.setPosition(c * 3 + 2, cIndex);
+				accessor.get().setReal(bValue);
+			}
+		}
+	}
 
-							proc.set(xi, yi, intValue);
-						}
+	@Override
+	protected void updateLegacyBand(final Dataset ds, final ImageProcessor proc,
+		final int c, final int z, final int t, final int yStart, final int yEnd)
+	{
+		final int xSize = proc.getWidth();
+		final int[] pixels = (int[]) proc.getPixels();
+		final PrimitivePlane[] planes = getPlanes(ds, c, z, t);
+		final double[][] rows = new double[3][xSize];
+		final int xIndex = ds.getAxisIndex(Axes.X);
+		final int yIndex = ds.getAxisIndex(Axes.Y);
+		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
+		final RandomAccess<? extends RealType<?>> accessor =
+			planes == null ? ds.getImgPlus().randomAccess() : null;
+		if (accessor != null) accessor.setPosition(position(ds, z, t));
+		for (int y = yStart; y < yEnd; y++) {
+			if (planes != null) {
+				for (int i = 0; i < 3; i++) {
+					planes[i].read(y * xSize, rows[i], 0, xSize);
+				}
+			}
+			else {
+				accessor.setPosition(y, yIndex);
+				for (int x = 0; x < xSize; x++) {
+					accessor.setPosition(x, xIndex);
+					for (int i = 0; i < 3; i++) {
+						accessor.setPosition(3 * c + i, cIndex);
+						rows[i][x] = accessor.get().getRealDouble();
 					}
 				}
 			}
+			for (int x = 0; x < xSize; x++) {
+				final int rValue = ((int) rows[0][x]) & 0xff;
+				final int gValue = ((int) rows[1][x]) & 0xff;
+				final int bValue = ((int) rows[2][x]) & 0xff;
+				pixels[y * xSize + x] =
+					(0xff << 24) | (rValue << 16) | (gValue << 8) | (bValue);
+			}
 		}
 	}
 
+	// -- Helper methods --
+
+	/**
+	 * Gets the red, green and blue Dataset planes paired with the given IJ1
+	 * plane, or null if they cannot be accessed by reference.
+	 */
+	private PrimitivePlane[] getPlanes(final Dataset ds, final int c,
+		final int z, final int t)
+	{
+		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
+		final long[] pos = position(ds, z, t);
+		final PrimitivePlane[] planes = new PrimitivePlane[3];
+		for (int i = 0; i < 3; i++) {
+			pos[cIndex] = 3 * c + i;
+			planes[i] = getPlane(ds, pos);
+			if (planes[i] == null) return null;
+		}
+		return planes;
+	}
+
+	/** Gets the position of the Dataset planes at the given slice and frame. */
+	private long[] position(final Dataset ds, final int z, final int t) {
+		final int zIndex = ds.getAxisIndex(Axes.Z);
+		final int tIndex = ds.getAxisIndex(Axes.TIME);
+		final long[] pos = new long[ds.numDimensions()];
+		if (tIndex >= 0) pos[tIndex] = t;
+		if (zIndex >= 0) pos[zIndex] = z;
+		return pos;
+	}
+
 }
@@ -36,9 +36,9 @@
 package imagej.legacy.translate;
 
 import ij.ImagePlus;
-import ij.ImageStack;
 import ij.process.ImageProcessor;
 import imagej.data.Dataset;
+import imagej.data.PrimitivePlane;
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
@@ -54,7 +54,7 @@
  * 
  * @author Barry DeZonia
  */
-public class GrayPixelHarmonizer implements DataHarmonizer {
+public class GrayPixelHarmonizer extends AbstractPixelHarmonizer {
 
 	/**
 	 * Assigns the data values of a {@link Dataset} from a paired
@@ -66,49 +66,7 @@ public class GrayPixelHarmonizer implements DataHarmonizer {
 	 */
 	@Override
 	public void updateDataset(final Dataset ds, final ImagePlus imp) {
-		final RealType<?> type = ds.getType();
-		final double typeMin = type.getMinValue();
-		final double typeMax = type.getMaxValue();
-		final boolean signed16BitData = type instanceof ShortType;
-		final RandomAccess<? extends RealType<?>> accessor =
-			ds.getImgPlus().randomAccess();
-		final long[] dims = ds.getDims();
-		final AxisType[] axes = ds.getAxes();
-		final int xIndex = ds.getAxisIndex(Axes.X);
-		final int yIndex = ds.getAxisIndex(Axes.Y);
-		final int zIndex = ds.getAxisIndex(Axes.Z);
-		final int tIndex = ds.getAxisIndex(Axes.TIME);
-		final int xSize = imp.getWidth();
-		final int ySize = imp.getHeight();
-		final int zSize = imp.getNSlices();
-		final int tSize = imp.getNFrames();
-		final int cSize = imp.getNChannels();
-		final ImageStack stack = imp.getStack();
-		int planeNum = 1;
-		final long[] pos = new long[dims.length];
-		for (int t = 0; t < tSize; t++) {
-			if (tIndex >= 0) pos[tIndex] = t;
-			for (int z = 0; z < zSize; z++) {
-				if (zIndex >= 0) pos[zIndex] = z;
-				for (int c = 0; c < cSize; c++) {
-					LegacyUtils.fillChannelIndices(dims, axes, c, pos);
-					final ImageProcessor proc = stack.getProcessor(planeNum++);
-					for (int x = 0; x < xSize; x++) {
-						if (xIndex >= 0) pos[xIndex] = x;
-						for (int y = 0; y < ySize; y++) {
-							if (yIndex >= 0) pos[yIndex] = y;
-							accessor.setPosition(pos);
-							double value = proc.getf(x, y);
-							if (signed16BitData) value -= 32768.0;
-							if (value < typeMin) value = typeMin;
-							else if (value > typeMax) value = typeMax;
-							accessor.get().setReal(value);
-						}
-					}
-				}
-			}
-		}
-		ds.update();
+		updateDataset(ds, imp, null);
 	}
 
 	/**
@@ -121,46 +79,105 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 	 */
 	@Override
 	public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
+		copyBands(ds, imp, false, true, null);
+	}
+
+	// -- AbstractPixelHarmonizer methods --
+
+	@Override
+	protected void updateDatasetBand(final Dataset ds,
+		final ImageProcessor proc, final int c, final int z, final int t,
+		final int yStart, final int yEnd)
+	{
 		final RealType<?> type = ds.getType();
+		final double typeMin = type.getMinValue();
+		final double typeMax = type.getMaxValue();
 		final boolean signed16BitData = type instanceof ShortType;
-		final boolean bitData = type instanceof BitType;
+		final long[] pos = position(ds, c, z, t);
+		final int xSize = proc.getWidth();
+		final double[] row = new double[xSize];
+		final PrimitivePlane plane = getPlane(ds, pos);
+		if (plane != null) {
+			for (int y = yStart; y < yEnd; y++) {
+				readRow(proc, y, row);
+				for (int x = 0; x < xSize; x++) {
+					double value = row[x];
+					if (signed16BitData) value -= 32768.0;
+					if (value < typeMin) value = typeMin;
+					else if (value > typeMax) value = typeMax;
+					row[x] = value;
+				}
+				plane.write(y * xSize, row, 0, xSize);
+			}
+			return;
+		}
+		final int xIndex = ds.getAxisIndex(Axes.X);
+		final int yIndex = ds.getAxisIndex(Axes.Y);
 		final RandomAccess<? extends RealType<?>> accessor =
 			ds.getImgPlus().randomAccess();
-		final long[] dims = ds.getDims();
-		final AxisType[] axes = ds.getAxes();
+		accessor.setPosition(pos);
+		for (int y = yStart; y < yEnd; y++) {
+			if (yIndex >= 0) accessor.setPosition(y, yIndex);
+			readRow(proc, y, row);
+			for (int x = 0; x < xSize; x++) {
+				if (xIndex >= 0) accessor.setPosition(x, xIndex);
+				double value = row[x];
+				if (signed16BitData) value -= 32768.0;
+				if (value < typeMin) value = typeMin;
+				else if (value > typeMax) value = typeMax;
+				accessor.get().setReal(value);
+			}
+		}
+	}
+
+	@Override
+	protected void updateLegacyBand(final Dataset ds, final ImageProcessor proc,
+		final int c, final int z, final int t, final int yStart, final int yEnd)
+	{
+		final RealType<?> type = ds.getType();
+		final boolean signed16BitData = type instanceof ShortType;
+		final boolean bitData = type instanceof BitType;
+		final long[] pos = position(ds, c, z, t);
+		final int xSize = proc.getWidth();
+		final double[] row = new double[xSize];
+		final PrimitivePlane plane = getPlane(ds, pos);
 		final int xIndex = ds.getAxisIndex(Axes.X);
 		final int yIndex = ds.getAxisIndex(Axes.Y);
-		final int zIndex = ds.getAxisIndex(Axes.Z);
-		final int tIndex = ds.getAxisIndex(Axes.TIME);
-		final int xSize = imp.getWidth();
-		final int ySize = imp.getHeight();
-		final int zSize = imp.getNSlices();
-		final int tSize = imp.getNFrames();
-		final int cSize = imp.getNChannels();
-		final ImageStack stack = imp.getStack();
-		int planeNum = 1;
-		final long[] pos = new long[dims.length];
-		for (int t = 0; t < tSize; t++) {
-			if (tIndex >= 0) pos[tIndex] = t;
-			for (int z = 0; z < zSize; z++) {
-				if (zIndex >= 0) pos[zIndex] = z;
-				for (int c = 0; c < cSize; c++) {
-					LegacyUtils.fillChannelIndices(dims, axes, c, pos);
-					final ImageProcessor proc = stack.getProcessor(planeNum++);
-					for (int x = 0; x < xSize; x++) {
-						if (xIndex >= 0) pos[xIndex] = x;
-						for (int y = 0; y < ySize; y++) {
-							if (yIndex >= 0) pos[yIndex] = y;
-							accessor.setPosition(pos);
-							double value = accessor.get().getRealDouble();
-							if (signed16BitData) value += 32768.0;
-							else if (bitData) if (value > 0) value = 255;
-							proc.setf(x, y, (float)value);
-						}
-					}
+		final RandomAccess<? extends RealType<?>> accessor =
+			plane == null ? ds.getImgPlus().randomAccess() : null;
+		if (accessor != null) accessor.setPosition(pos);
+		for (int y = yStart; y < yEnd; y++) {
+			if (plane != null) plane.read(y * xSize, row, 0, xSize);
+			else {
+				if (yIndex >= 0) accessor.setPosition(y, yIndex);
+				for (int x = 0; x < xSize; x++) {
+					if (xIndex >= 0) accessor.setPosition(x, xIndex);
+					row[x] = accessor.get().getRealDouble();
 				}
 			}
+			for (int x = 0; x < xSize; x++) {
+				if (signed16BitData) row[x] += 32768.0;
+				else if (bitData) if (row[x] > 0) row[x] = 255;
+			}
+			writeRow(proc, y, row);
 		}
 	}
 
+	// -- Helper methods --
+
+	/** Gets the position of the Dataset plane paired with the given IJ1 plane. */
+	private long[] position(final Dataset ds, final int c, final int z,
+		final int t)
+	{
+		final long[] dims = ds.getDims();
+		final AxisType[] axes = ds.getAxes();
+		final int zIndex = ds.getAxisIndex(Axes.Z);
+		final int tIndex = ds.getAxisIndex(Axes.TIME);
+		final long[] pos = new long[dims.length];
+		if (tIndex >= 0) pos[tIndex] = t;
+		if (zIndex >= 0) pos[zIndex] = z;
+		LegacyUtils.fillChannelIndices(dims, axes, c, pos);
+		return pos;
+	}
+
 }
@@ -104,6 +104,21 @@ public Harmonizer(final ImageJ context, final ImageTranslator trans) {
 	 */
 	public void
 		updateLegacyImage(final ImageDisplay display, final ImagePlus imp)
+	{
+		updateLegacyImage(display, imp, true);
+	}
+
+	/**
+	 * Changes the data within an {@link ImagePlus} to match data in a
+	 * {@link ImageDisplay}, optionally skipping the copy of pixel values. See
+	 * {@link #updateLegacyImage(ImageDisplay, ImagePlus)}.
+	 * 
+	 * @param pixelsChanged Whether the pixels of the display's Dataset may
+	 *          differ from those of the ImagePlus. If false, the pixels are only
+	 *          copied when the ImagePlus must be rebuilt.
+	 */
+	public void updateLegacyImage(final ImageDisplay display,
+		final ImagePlus imp, final boolean pixelsChanged)
 	{
 		final ImageDisplayService imageDisplayService =
 			context.getService(ImageDisplayService.class);
@@ -126,6 +141,9 @@ else if (ds.getType() instanceof UnsignedByteType) {
 			{
 				rebuildImagePlusData(display, imp);
 			}
+			else if (!pixelsChanged) {
+				// pixels are already in sync
+			}
 			else if (imp.getType() == ImagePlus.COLOR_RGB) {
 				colorPixelHarmonizer.updateLegacyImage(ds, imp);
 			}
@@ -147,6 +165,20 @@ else if (LegacyUtils.datasetIsIJ1Compatible(ds)) {
 	 * data (an empty stack).
 	 */
 	public void updateDisplay(final ImageDisplay display, final ImagePlus imp) {
+		updateDisplay(display, imp, null);
+	}
+
+	/**
+	 * Changes the data within a {@link ImageDisplay} to match data in an
+	 * {@link ImagePlus}, as {@link #updateDisplay(ImageDisplay, ImagePlus)}
+	 * does, copying only the pixel values of the given planes.
+	 * 
+	 * @param changedPlanes Flags indicating which planes of the ImagePlus have
+	 *          changed, in stack order, or null if any of them may have changed
+	 */
+	public void updateDisplay(final ImageDisplay display, final ImagePlus imp,
+		final boolean[] changedPlanes)
+	{
 
 		// NB - if ImagePlus is degenerate the following code can fail. This is
 		// because imglib cannot represent an empty data container. So we catch
@@ -183,12 +215,12 @@ public void updateDisplay(final ImageDisplay display, final ImagePlus imp) {
 		}
 		else { // ImagePlus type and shape unchanged
 			if (imp.getType() == ImagePlus.COLOR_RGB) {
-				colorPixelHarmonizer.updateDataset(ds, imp);
+				colorPixelHarmonizer.updateDataset(ds, imp, changedPlanes);
 			}
 			else if (LegacyUtils.datasetIsIJ1Compatible(ds)) {
 				planeHarmonizer.updateDataset(ds, imp);
 			}
-			else grayPixelHarmonizer.updateDataset(ds, imp);
+			else grayPixelHarmonizer.updateDataset(ds, imp, changedPlanes);
 		}
 		metadataHarmonizer.updateDataset(ds, imp);
 		compositeHarmonizer.updateDataset(ds, imp);
@@ -207,6 +239,20 @@ else if (LegacyUtils.datasetIsIJ1Compatible(ds)) {
 		//ds.update();
 	}
 
+	/**
+	 * Returns true if pixel values are copied between the given
+	 * {@link ImageDisplay} and {@link ImagePlus} when they are harmonized,
+	 * rather than being shared by reference.
+	 */
+	public boolean copiesPixels(final ImageDisplay display, final ImagePlus imp)
+	{
+		final ImageDisplayService imageDisplayService =
+			context.getService(ImageDisplayService.class);
+		final Dataset ds = imageDisplayService.getActiveDataset(display);
+		return imp.getType() == ImagePlus.COLOR_RGB ||
+			!LegacyUtils.datasetIsIJ1Compatible(ds);
+	}
+
 	/**
 	 * Remembers the type of an {@link ImagePlus}. This type can be checked after
 	 * a call to a plugin to see if the ImagePlus underwent a type change.
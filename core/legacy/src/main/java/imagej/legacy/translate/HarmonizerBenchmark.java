@@ -0,0 +1,265 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.legacy.translate;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import imagej.command.Command;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.module.ItemIO;
+import imagej.plugin.Parameter;
+import imagej.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Measures how long the {@link GrayPixelHarmonizer} takes to synchronize the
+ * pixels of a 16-bit stack in each direction, comparing the straightforward
+ * per pixel copy with the row-wise copy on one thread and on all processors.
+ * The results of each approach are checked against each other.
+ * 
+ * @author agent
+ */
+@Plugin(menuPath = "Plugins>Debug>Legacy Harmonizer Benchmark",
+	headless = true)
+public class HarmonizerBenchmark implements Command {
+
+	// -- Constants --
+
+	private static final String NL = System.getProperty("line.separator");
+
+	// -- Parameters --
+
+	@Parameter
+	private DatasetService datasetService;
+
+	@Parameter(label = "Width", min = "1")
+	private int width = 1024;
+
+	@Parameter(label = "Height", min = "1")
+	private int height = 1024;
+
+	@Parameter(label = "Slices", min = "1")
+	private int slices = 16;
+
+	@Parameter(label = "Iterations", min = "1")
+	private int iterations = 5;
+
+	@Parameter(label = "Harmonizer Benchmark", type = ItemIO.OUTPUT)
+	private String report;
+
+	// -- HarmonizerBenchmark methods --
+
+	public String getReport() {
+		return report;
+	}
+
+	// -- Runnable methods --
+
+	@Override
+	public void run() {
+		final Dataset ds =
+			datasetService.create(new long[] { width, height, slices },
+				"Benchmark", new AxisType[] { Axes.X, Axes.Y, Axes.Z }, 16, false,
+				false);
+		final ImagePlus imp = createImagePlus();
+		final GrayPixelHarmonizer harmonizer = new GrayPixelHarmonizer();
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append(width + " x " + height + " x " + slices + " pixels, " +
+			iterations + " iterations" + NL);
+
+		// ImagePlus to Dataset
+		final double expected = sum(imp);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			updateDatasetPerPixel(ds, imp);
+		}
+		append(sb, "To Dataset, per pixel", System.nanoTime() - start);
+		check(sb, sum(ds), expected);
+
+		for (final boolean parallel : new boolean[] { false, true }) {
+			clear(ds);
+			harmonizer.setParallel(parallel);
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				harmonizer.updateDataset(ds, imp);
+			}
+			append(sb, "To Dataset, " + (parallel ? "parallel" : "row-wise"),
+				System.nanoTime() - start);
+			check(sb, sum(ds), expected);
+		}
+
+		// Dataset to ImagePlus
+		clear(imp);
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			updateLegacyImagePerPixel(ds, imp);
+		}
+		append(sb, "To ImagePlus, per pixel", System.nanoTime() - start);
+		check(sb, sum(imp), expected);
+
+		for (final boolean parallel : new boolean[] { false, true }) {
+			clear(imp);
+			harmonizer.setParallel(parallel);
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				harmonizer.updateLegacyImage(ds, imp);
+			}
+			append(sb, "To ImagePlus, " + (parallel ? "parallel" : "row-wise"),
+				System.nanoTime() - start);
+			check(sb, sum(imp), expected);
+		}
+
+		report = sb.toString();
+	}
+
+	// -- Helper methods --
+
+	private ImagePlus createImagePlus() {
+		final Random random = new Random(0);
+		final ImageStack stack = new ImageStack(width, height);
+		for (int z = 0; z < slices; z++) {
+			final short[] pixels = new short[width * height];
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] = (short) random.nextInt(65536);
+			}
+			stack.addSlice("" + (z + 1), new ShortProcessor(width, height, pixels,
+				null));
+		}
+		final ImagePlus imp = new ImagePlus("Benchmark", stack);
+		imp.setDimensions(1, slices, 1);
+		return imp;
+	}
+
+	/** Copies an ImagePlus into a Dataset one pixel at a time. */
+	private void updateDatasetPerPixel(final Dataset ds, final ImagePlus imp) {
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final long[] pos = new long[ds.numDimensions()];
+		for (int z = 0; z < slices; z++) {
+			pos[2] = z;
+			final ImageProcessor proc = imp.getStack().getProcessor(z + 1);
+			for (int x = 0; x < width; x++) {
+				pos[0] = x;
+				for (int y = 0; y < height; y++) {
+					pos[1] = y;
+					accessor.setPosition(pos);
+					accessor.get().setReal(proc.getf(x, y));
+				}
+			}
+		}
+	}
+
+	/** Copies a Dataset into an ImagePlus one pixel at a time. */
+	private void updateLegacyImagePerPixel(final Dataset ds,
+		final ImagePlus imp)
+	{
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final long[] pos = new long[ds.numDimensions()];
+		for (int z = 0; z < slices; z++) {
+			pos[2] = z;
+			final ImageProcessor proc = imp.getStack().getProcessor(z + 1);
+			for (int x = 0; x < width; x++) {
+				pos[0] = x;
+				for (int y = 0; y < height; y++) {
+					pos[1] = y;
+					accessor.setPosition(pos);
+					proc.setf(x, y, (float) accessor.get().getRealDouble());
+				}
+			}
+		}
+	}
+
+	private void clear(final Dataset ds) {
+		final Cursor<? extends RealType<?>> cursor = ds.getImgPlus().cursor();
+		while (cursor.hasNext()) {
+			cursor.next().setZero();
+		}
+	}
+
+	private void clear(final ImagePlus imp) {
+		for (int z = 0; z < slices; z++) {
+			Arrays.fill((short[]) imp.getStack().getPixels(z + 1), (short) 0);
+		}
+	}
+
+	private double sum(final Dataset ds) {
+		double sum = 0;
+		final Cursor<? extends RealType<?>> cursor = ds.getImgPlus().cursor();
+		while (cursor.hasNext()) {
+			sum += cursor.next().getRealDouble();
+		}
+		return sum;
+	}
+
+	private double sum(final ImagePlus imp) {
+		double sum = 0;
+		for (int z = 0; z < slices; z++) {
+			final ImageProcessor proc = imp.getStack().getProcessor(z + 1);
+			for (int i = 0; i < proc.getPixelCount(); i++) {
+				sum += proc.getf(i);
+			}
+		}
+		return sum;
+	}
+
+	private void check(final StringBuilder sb, final double actual,
+		final double expected)
+	{
+		if (actual != expected) sb.append("\tMISMATCH: checksum " + actual +
+			" != " + expected + NL);
+	}
+
+	private void append(final StringBuilder sb, final String label,
+		final long time)
+	{
+		final double ms = time / 1e6 / iterations;
+		sb.append(String.format("%s: %.2f ms per image", label, ms) + NL);
+	}
+
+}
@@ -304,14 +304,45 @@ static void assertXYPlanesCorrectlyOriented(final int[] dimIndices) {
 
 	/**
 	 * Returns true if a {@link Dataset} can be represented by reference in IJ1.
+	 * This requires planar storage of an IJ1 type with X and Y as the first two
+	 * axes. Any axes other than XYZT are encoded as IJ1 channels, with each
+	 * plane still shared by reference (see {@link #ij2PlaneIndex}).
 	 */
 	static boolean datasetIsIJ1Compatible(final Dataset ds) {
 		if (ds == null) return true;
-		final AxisType[] axes = ds.getAxes();
-		if (LegacyUtils.hasNonIJ1Axes(axes)) return false;
+		if (ds.getAxisIndex(Axes.X) != 0) return false;
+		if (ds.getAxisIndex(Axes.Y) != 1) return false;
 		return ij1StorageCompatible(ds) && ij1TypeCompatible(ds);
 	}
 
+	/**
+	 * Calculates the index of the plane of a {@link Dataset} that corresponds to
+	 * a plane of an IJ1 {@link ImageStack}. Assumes X and Y are the first two
+	 * axes of the Dataset. The IJ1 channel is decoded into the Dataset's non
+	 * XYZT axes as in {@link #fillChannelIndices}.
+	 * 
+	 * @param dims - the dimensions of the IJ2 Dataset
+	 * @param axes - the axes labels that match the Dataset dimensions
+	 * @param c - the channel index in IJ1
+	 * @param z - the slice index in IJ1
+	 * @param t - the frame index in IJ1
+	 */
+	static long ij2PlaneIndex(final long[] dims, final AxisType[] axes,
+		final long c, final long z, final long t)
+	{
+		final long[] pos = new long[dims.length];
+		fillChannelIndices(dims, axes, c, pos);
+		long planeIndex = 0;
+		long stride = 1;
+		for (int i = 2; i < dims.length; i++) {
+			if (axes[i] == Axes.Z) pos[i] = z;
+			else if (axes[i] == Axes.TIME) pos[i] = t;
+			planeIndex += pos[i] * stride;
+			stride *= dims[i];
+		}
+		return planeIndex;
+	}
+
 	/**
 	 * Fills IJ1 incompatible indices of a position array. The channel from IJ1 is
 	 * rasterized into potentially multiple indices in IJ2's position array. For
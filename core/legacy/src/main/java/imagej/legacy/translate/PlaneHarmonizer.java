@@ -39,10 +39,8 @@
 import ij.ImageStack;
 import imagej.ImageJ;
 import imagej.data.Dataset;
-import imagej.data.Extents;
-import imagej.data.Position;
 import imagej.log.LogService;
-import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
 
 /**
  * Synchronizes internal plane reference values between a {@link Dataset} and an
@@ -62,7 +60,8 @@ public PlaneHarmonizer(ImageJ context) {
 	/**
 	 * Assigns a planar {@link Dataset}'s plane references to match those of a
 	 * given {@link ImagePlus}. Assumes input Dataset and ImagePlus match in
-	 * dimensions and backing type.
+	 * dimensions and backing type. Planes that are already shared are left
+	 * alone, and the Dataset is only updated if some plane reference changed.
 	 */
 	@Override
 	public void updateDataset(final Dataset ds, final ImagePlus imp) {
@@ -70,15 +69,8 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		final int z = imp.getNSlices();
 		final int t = imp.getNFrames();
 
-		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
-		final int zIndex = ds.getAxisIndex(Axes.Z);
-		final int tIndex = ds.getAxisIndex(Axes.TIME);
-
-		final long[] fullDims = ds.getDims();
-		final long[] planeDims = new long[fullDims.length - 2];
-		for (int i = 0; i < planeDims.length; i++)
-			planeDims[i] = fullDims[i + 2];
-		final Position planePos = new Extents(planeDims).createPosition();
+		final long[] dims = ds.getDims();
+		final AxisType[] axes = ds.getAxes();
 
 		// copy planes by reference
 		boolean changes = false;
@@ -86,19 +78,18 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 			changes |= ds.setPlaneSilently(0, imp.getProcessor().getPixels());
 		}
 		else {
+			final ImageStack stack = imp.getStack();
 			int stackPosition = 1;
 			for (int ti = 0; ti < t; ti++) {
-				if (tIndex >= 0) planePos.setPosition(ti, tIndex - 2);
 				for (int zi = 0; zi < z; zi++) {
-					if (zIndex >= 0) planePos.setPosition(zi, zIndex - 2);
 					for (int ci = 0; ci < c; ci++) {
-						if (cIndex >= 0) planePos.setPosition(ci, cIndex - 2);
-						final Object plane = imp.getStack().getPixels(stackPosition++);
+						final Object plane = stack.getPixels(stackPosition++);
 						if (plane == null) {
 							log.error("Could not extract plane from ImageStack: " +
 								(stackPosition - 1));
 						}
-						final int planeNum = (int) planePos.getIndex();
+						final int planeNum =
+							(int) LegacyUtils.ij2PlaneIndex(dims, axes, ci, zi, ti);
 						changes |= ds.setPlaneSilently(planeNum, plane);
 					}
 				}
@@ -111,7 +102,8 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 	 * Assigns the plane references of an {@link ImagePlus}' {@link ImageStack} to
 	 * match those of a given {@link Dataset}. Assumes input Dataset and ImagePlus
 	 * match in dimensions and backing type. Throws an exception if Dataset axis 0
-	 * is not X or Dataset axis 1 is not Y.
+	 * is not X or Dataset axis 1 is not Y. Axes other than XYZT are encoded as
+	 * IJ1 channels.
 	 */
 	@Override
 	public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
@@ -120,39 +112,33 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		LegacyUtils.getImagePlusDims(ds, dimIndices, dimValues);
 		LegacyUtils.assertXYPlanesCorrectlyOriented(dimIndices);
 
-		final int cIndex = dimIndices[2];
-		final int zIndex = dimIndices[3];
-		final int tIndex = dimIndices[4];
-
 		final int cCount = dimValues[2];
 		final int zCount = dimValues[3];
 		final int tCount = dimValues[4];
 
 		final ImageStack stack = imp.getStack();
 
-		final long[] fullDims = ds.getDims();
-		final long[] planeDims = new long[fullDims.length - 2];
-		for (int i = 0; i < planeDims.length; i++)
-			planeDims[i] = fullDims[i + 2];
-		final Extents extents = new Extents(planeDims);
-		final Position planePos = extents.createPosition();
+		final long[] dims = ds.getDims();
+		final AxisType[] axes = ds.getAxes();
 
 		// copy planes by reference
 
 		Object plane = null;
 		int stackPosition = 1;
 		for (int t = 0; t < tCount; t++) {
-			if (tIndex >= 0) planePos.setPosition(t, tIndex - 2);
 			for (int z = 0; z < zCount; z++) {
-				if (zIndex >= 0) planePos.setPosition(z, zIndex - 2);
 				for (int c = 0; c < cCount; c++) {
-					if (cIndex >= 0) planePos.setPosition(c, cIndex - 2);
-					final int planeNum = (int) planePos.getIndex();
+					final int planeNum =
+						(int) LegacyUtils.ij2PlaneIndex(dims, axes, c, z, t);
 					plane = ds.getPlane(planeNum, false);
 					if (plane == null) {
 						log.error(message("Can't extract plane from Dataset ", c, z, t));
 					}
-					stack.setPixels(plane, stackPosition++);
+					// NB - skip planes that are already shared
+					if (stack.getPixels(stackPosition) != plane) {
+						stack.setPixels(plane, stackPosition);
+					}
+					stackPosition++;
 				}
 			}
 		}
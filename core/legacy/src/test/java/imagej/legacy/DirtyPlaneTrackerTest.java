@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.legacy;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import ij.ImagePlus;
+import ij.ImageStack;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.display.ImageDisplay;
+import imagej.data.display.ImageDisplayService;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.display.DisplayService;
+import imagej.event.EventService;
+
+import java.util.Arrays;
+
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DirtyPlaneTracker}.
+ * 
+ * @author agent
+ */
+public class DirtyPlaneTrackerTest {
+
+	@Test
+	public void testChangedPlanes() {
+		final ImageStack stack = new ImageStack(2, 2);
+		stack.addSlice("0", new byte[] { 1, 2, 3, 4 });
+		stack.addSlice("1", new byte[] { 5, 6, 7, 8 });
+		stack.addSlice("2", new byte[] { 9, 10, 11, 12 });
+		final ImagePlus imp = new ImagePlus("bytes", stack);
+		final long[] fingerprints = DirtyPlaneTracker.fingerprint(imp);
+
+		assertChanged(new boolean[3], fingerprints, imp);
+
+		((byte[]) imp.getStack().getPixels(2))[3] = 0;
+		assertChanged(new boolean[] { false, true, false }, fingerprints, imp);
+
+		// planes cannot be compared once the stack changes size
+		imp.getStack().deleteLastSlice();
+		assertNull(DirtyPlaneTracker.getChangedPlanes(fingerprints, imp));
+		assertNull(DirtyPlaneTracker.getChangedPlanes(null, imp));
+	}
+
+	@Test
+	public void testChangedPlaneTypes() {
+		final Object[][] planes =
+			{ { new short[] { 1, 2 }, new short[] { 3, 4 } },
+				{ new float[] { 1, 2 }, new float[] { 3, 4 } },
+				{ new int[] { 1, 2 }, new int[] { 3, 4 } } };
+		for (final Object[] pair : planes) {
+			final ImageStack stack = new ImageStack(2, 1);
+			stack.addSlice("0", pair[0]);
+			stack.addSlice("1", pair[1]);
+			final ImagePlus imp = new ImagePlus("plane", stack);
+			final long[] fingerprints = DirtyPlaneTracker.fingerprint(imp);
+			if (pair[0] instanceof short[]) ((short[]) pair[0])[1] = 7;
+			else if (pair[0] instanceof float[]) ((float[]) pair[0])[1] = 7;
+			else ((int[]) pair[0])[1] = 7;
+			assertChanged(new boolean[] { true, false }, fingerprints, imp);
+		}
+	}
+
+	@Test
+	public void testCleanAndDirty() {
+		@SuppressWarnings("unchecked")
+		final ImageJ context =
+			ImageJ.createContext(ImageDisplayService.class, DatasetService.class);
+		final DatasetService datasetService =
+			context.getService(DatasetService.class);
+		final Dataset ds =
+			datasetService.create(new long[] { 2, 2 }, "dirty", new AxisType[] {
+				Axes.X, Axes.Y }, 8, false, false);
+		final ImageDisplay display =
+			(ImageDisplay) context.getService(DisplayService.class).createDisplay(
+				"dirty", ds);
+		final DirtyPlaneTracker tracker = new DirtyPlaneTracker(context);
+
+		assertTrue(tracker.isDirty(display));
+		tracker.markClean(display);
+		assertFalse(tracker.isDirty(display));
+
+		// a change to the pixels makes the display dirty
+		ds.update();
+		assertTrue(tracker.isDirty(display));
+		tracker.markClean(display);
+
+		// but a change to the metadata only does not
+		context.getService(EventService.class).publish(
+			new DatasetUpdatedEvent(ds, true));
+		assertFalse(tracker.isDirty(display));
+
+		tracker.markDirty(display);
+		assertTrue(tracker.isDirty(display));
+		tracker.markClean(display);
+		tracker.markDirty(ds);
+		assertTrue(tracker.isDirty(display));
+	}
+
+	// -- Helper methods --
+
+	private void assertChanged(final boolean[] expected,
+		final long[] fingerprints, final ImagePlus imp)
+	{
+		final boolean[] changed =
+			DirtyPlaneTracker.getChangedPlanes(fingerprints, imp);
+		assertTrue(Arrays.toString(changed), Arrays.equals(expected, changed));
+	}
+
+}
@@ -36,14 +36,24 @@
 package imagej.legacy.translate;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import ij.ImagePlus;
 import ij.ImageStack;
 import ij.process.ByteProcessor;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
 import imagej.data.Extents;
 import imagej.data.Position;
+
+import java.util.Arrays;
+
+import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
 
 import org.junit.Test;
 
@@ -116,4 +126,93 @@ public void testRasterization() {
 		}
 	}
 
+	/*
+	 * Makes sure each IJ1 plane maps to the IJ2 plane whose channel position
+	 * is decoded by fillChannelIndices, with the right Z and T positions.
+	 */
+	@Test
+	public void testIJ2PlaneIndex() {
+		final AxisType[][] axesList =
+			{ { Axes.X, Axes.Y, Axes.CHANNEL, Axes.Z, Axes.TIME },
+				{ Axes.X, Axes.Y, Axes.Z, Axes.CHANNEL, Axes.TIME },
+				{ Axes.X, Axes.Y, Axes.SPECTRA, Axes.CHANNEL } };
+		final long[][] dimsList =
+			{ { 2, 2, 3, 4, 5 }, { 2, 2, 4, 3, 2 }, { 2, 2, 3, 2 } };
+		for (int n = 0; n < axesList.length; n++) {
+			final AxisType[] axes = axesList[n];
+			final long[] dims = dimsList[n];
+			long numChannels = 1, numZ = 1, numT = 1;
+			for (int i = 2; i < dims.length; i++) {
+				if (axes[i] == Axes.Z) numZ = dims[i];
+				else if (axes[i] == Axes.TIME) numT = dims[i];
+				else numChannels *= dims[i];
+			}
+			final Extents planeExtents =
+				new Extents(Arrays.copyOfRange(dims, 2, dims.length));
+			final Position planePos = planeExtents.createPosition();
+			final boolean[] seen = new boolean[(int) planeExtents.numElements()];
+			final long[] channelPos = new long[dims.length];
+			for (long t = 0; t < numT; t++) {
+				for (long z = 0; z < numZ; z++) {
+					for (long c = 0; c < numChannels; c++) {
+						final long index = LegacyUtils.ij2PlaneIndex(dims, axes, c, z, t);
+						assertFalse(seen[(int) index]);
+						seen[(int) index] = true;
+						planePos.setIndex(index);
+						LegacyUtils.fillChannelIndices(dims, axes, c, channelPos);
+						for (int i = 2; i < dims.length; i++) {
+							final long expected =
+								axes[i] == Axes.Z ? z : axes[i] == Axes.TIME ? t
+									: channelPos[i];
+							assertEquals(expected, planePos.getLongPosition(i - 2));
+						}
+					}
+				}
+			}
+			for (final boolean s : seen) {
+				assertTrue(s);
+			}
+		}
+	}
+
+	@Test
+	public void testDatasetIsIJ1Compatible() {
+		final ImageJ context = ImageJ.createContext(DatasetService.class);
+		final DatasetService datasetService =
+			context.getService(DatasetService.class);
+		final long[] dims = { 2, 2, 3, 2 };
+
+		assertTrue(LegacyUtils.datasetIsIJ1Compatible(null));
+
+		// planar data of an IJ1 type, whatever the axes beyond X and Y
+		assertTrue(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(dims,
+			"xycz", axes(Axes.CHANNEL, Axes.Z), 8, false, false)));
+		assertTrue(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(dims,
+			"xyzc", axes(Axes.Z, Axes.CHANNEL), 16, false, false)));
+		assertTrue(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(dims,
+			"xysc", axes(Axes.SPECTRA, Axes.CHANNEL), 32, true, true)));
+
+		// X and Y must come first
+		assertFalse(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(
+			dims, "xcyz", new AxisType[] { Axes.X, Axes.CHANNEL, Axes.Y, Axes.Z },
+			8, false, false)));
+
+		// types without an IJ1 equivalent
+		assertFalse(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(
+			dims, "signed", axes(Axes.CHANNEL, Axes.Z), 8, true, false)));
+		assertFalse(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(
+			dims, "double", axes(Axes.CHANNEL, Axes.Z), 64, true, true)));
+
+		// storage other than planes
+		assertFalse(LegacyUtils.datasetIsIJ1Compatible(datasetService.create(
+			new ArrayImgFactory<UnsignedByteType>(), new UnsignedByteType(), dims,
+			"array", axes(Axes.CHANNEL, Axes.Z))));
+	}
+
+	// -- Helper methods --
+
+	private AxisType[] axes(final AxisType third, final AxisType fourth) {
+		return new AxisType[] { Axes.X, Axes.Y, third, fourth };
+	}
+
 }
@@ -0,0 +1,406 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2012 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+
+package imagej.legacy.translate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import imagej.ImageJ;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.thread.ThreadService;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ShortType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GrayPixelHarmonizer} and {@link ColorPixelHarmonizer}.
+ * Each harmonizer is checked against a plain per pixel copy done via
+ * {@link ImageProcessor#getf}/{@link ImageProcessor#setf} (or
+ * {@link ImageProcessor#get}/{@link ImageProcessor#set} for color data),
+ * both serially and with bands of rows copied in parallel.
+ * 
+ * @author agent
+ */
+public class PixelHarmonizerTest {
+
+	// NB - 8 planes of this size are enough to be copied in parallel
+	private static final int WIDTH = 128;
+	private static final int HEIGHT = 64;
+
+	private static final AxisType[] XYCZT = { Axes.X, Axes.Y, Axes.CHANNEL,
+		Axes.Z, Axes.TIME };
+
+	private DatasetService datasetService;
+
+	@Before
+	public void setUp() {
+		@SuppressWarnings("unchecked")
+		final ImageJ context =
+			ImageJ.createContext(DatasetService.class, ThreadService.class);
+		datasetService = context.getService(DatasetService.class);
+	}
+
+	@Test
+	public void testByteStack() {
+		checkGray(new long[] { WIDTH, HEIGHT, 2, 2, 2 }, XYCZT, 8, false, false);
+	}
+
+	@Test
+	public void testShortStack() {
+		checkGray(new long[] { WIDTH, HEIGHT, 2, 2, 2 }, XYCZT, 16, false, false);
+	}
+
+	@Test
+	public void testFloatStack() {
+		checkGray(new long[] { WIDTH, HEIGHT, 2, 2, 2 }, XYCZT, 32, true, true);
+	}
+
+	@Test
+	public void testSigned16BitDataset() {
+		checkGray(new long[] { WIDTH, HEIGHT, 2, 2, 2 }, XYCZT, 16, true, false);
+	}
+
+	@Test
+	public void testNonXYFirstDataset() {
+		final AxisType[] axes = { Axes.X, Axes.Z, Axes.Y, Axes.CHANNEL };
+		checkGray(new long[] { WIDTH, 2, HEIGHT, 4 }, axes, 8, false, false);
+	}
+
+	@Test
+	public void testRGBStack() {
+		final long[] dims = { WIDTH, HEIGHT, 3, 4, 2 };
+		for (final boolean parallel : new boolean[] { false, true }) {
+			final ColorPixelHarmonizer harmonizer = new ColorPixelHarmonizer();
+			harmonizer.setParallel(parallel);
+
+			// IJ1 to IJ2
+			final ImagePlus imp = createImagePlus(1, 4, 2, 24, new Random(13));
+			final Dataset expected = createDataset(dims, XYCZT, 8, false, false);
+			final Dataset actual = createDataset(dims, XYCZT, 8, false, false);
+			colorToDataset(expected, imp);
+			harmonizer.updateDataset(actual, imp);
+			assertSameData(expected, actual);
+
+			// IJ2 to IJ1
+			final ImagePlus expectedImp = createImagePlus(1, 4, 2, 24, null);
+			final ImagePlus actualImp = createImagePlus(1, 4, 2, 24, null);
+			colorToLegacy(expected, expectedImp);
+			harmonizer.updateLegacyImage(expected, actualImp);
+			assertSamePixels(expectedImp, actualImp);
+		}
+	}
+
+	// -- Helper methods --
+
+	private void checkGray(final long[] dims, final AxisType[] axes,
+		final int bitsPerPixel, final boolean signed, final boolean floating)
+	{
+		int cSize = 1, zSize = 1, tSize = 1;
+		for (int d = 0; d < dims.length; d++) {
+			if (axes[d] == Axes.X || axes[d] == Axes.Y) continue;
+			if (axes[d] == Axes.Z) zSize = (int) dims[d];
+			else if (axes[d] == Axes.TIME) tSize = (int) dims[d];
+			else cSize *= dims[d];
+		}
+		for (final boolean parallel : new boolean[] { false, true }) {
+			final GrayPixelHarmonizer harmonizer = new GrayPixelHarmonizer();
+			harmonizer.setParallel(parallel);
+
+			// IJ1 to IJ2
+			final ImagePlus imp =
+				createImagePlus(cSize, zSize, tSize, bitsPerPixel, new Random(7));
+			final Dataset expected =
+				createDataset(dims, axes, bitsPerPixel, signed, floating);
+			final Dataset actual =
+				createDataset(dims, axes, bitsPerPixel, signed, floating);
+			grayToDataset(expected, imp);
+			harmonizer.updateDataset(actual, imp);
+			assertSameData(expected, actual);
+
+			// IJ2 to IJ1
+			final ImagePlus expectedImp =
+				createImagePlus(cSize, zSize, tSize, bitsPerPixel, null);
+			final ImagePlus actualImp =
+				createImagePlus(cSize, zSize, tSize, bitsPerPixel, null);
+			grayToLegacy(expected, expectedImp);
+			harmonizer.updateLegacyImage(expected, actualImp);
+			assertSamePixels(expectedImp, actualImp);
+		}
+	}
+
+	private Dataset createDataset(final long[] dims, final AxisType[] axes,
+		final int bitsPerPixel, final boolean signed, final boolean floating)
+	{
+		return datasetService.create(dims, "test", axes, bitsPerPixel, signed,
+			floating);
+	}
+
+	/**
+	 * Creates an {@link ImagePlus} of the given dimensions, filled with random
+	 * values, or zeroes if no random number generator is given.
+	 */
+	private ImagePlus createImagePlus(final int cSize, final int zSize,
+		final int tSize, final int bitsPerPixel, final Random r)
+	{
+		final int count = WIDTH * HEIGHT;
+		final ImageStack stack = new ImageStack(WIDTH, HEIGHT);
+		for (int i = 0; i < cSize * zSize * tSize; i++) {
+			final Object pixels;
+			if (bitsPerPixel == 8) {
+				final byte[] p = new byte[count];
+				if (r != null) r.nextBytes(p);
+				pixels = p;
+			}
+			else if (bitsPerPixel == 16) {
+				final short[] p = new short[count];
+				for (int k = 0; r != null && k < count; k++) {
+					p[k] = (short) r.nextInt();
+				}
+				pixels = p;
+			}
+			else if (bitsPerPixel == 32) {
+				final float[] p = new float[count];
+				for (int k = 0; r != null && k < count; k++) {
+					p[k] = (float) (1000 * r.nextGaussian());
+				}
+				pixels = p;
+			}
+			else {
+				final int[] p = new int[count];
+				for (int k = 0; r != null && k < count; k++) {
+					p[k] = r.nextInt();
+				}
+				pixels = p;
+			}
+			stack.addSlice("" + i, pixels);
+		}
+		final ImagePlus imp = new ImagePlus("test", stack);
+		imp.setDimensions(cSize, zSize, tSize);
+		return imp;
+	}
+
+	private void assertSameData(final Dataset expected, final Dataset actual) {
+		final Cursor<? extends RealType<?>> cursor =
+			expected.getImgPlus().localizingCursor();
+		final RandomAccess<? extends RealType<?>> accessor =
+			actual.getImgPlus().randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			accessor.setPosition(cursor);
+			assertEquals(cursor.get().getRealDouble(), accessor.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private void assertSamePixels(final ImagePlus expected,
+		final ImagePlus actual)
+	{
+		final ImageStack expectedStack = expected.getStack();
+		final ImageStack actualStack = actual.getStack();
+		assertEquals(expectedStack.getSize(), actualStack.getSize());
+		for (int i = 1; i <= expectedStack.getSize(); i++) {
+			final Object e = expectedStack.getPixels(i);
+			final Object a = actualStack.getPixels(i);
+			if (e instanceof byte[]) {
+				assertTrue(Arrays.equals((byte[]) e, (byte[]) a));
+			}
+			else if (e instanceof short[]) {
+				assertTrue(Arrays.equals((short[]) e, (short[]) a));
+			}
+			else if (e instanceof float[]) {
+				assertTrue(Arrays.equals((float[]) e, (float[]) a));
+			}
+			else assertTrue(Arrays.equals((int[]) e, (int[]) a));
+		}
+	}
+
+	// -- Per pixel reference copies --
+
+	/** Copies IJ1 gray data into a {@link Dataset} one pixel at a time. */
+	private void grayToDataset(final Dataset ds, final ImagePlus imp) {
+		final RealType<?> type = ds.getType();
+		final double typeMin = type.getMinValue();
+		final double typeMax = type.getMaxValue();
+		final boolean signed16BitData = type instanceof ShortType;
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final ImageStack stack = imp.getStack();
+		int planeNum = 1;
+		for (int t = 0; t < imp.getNFrames(); t++) {
+			for (int z = 0; z < imp.getNSlices(); z++) {
+				for (int c = 0; c < imp.getNChannels(); c++) {
+					final long[] pos = grayPosition(ds, c, z, t);
+					final ImageProcessor proc = stack.getProcessor(planeNum++);
+					for (int y = 0; y < imp.getHeight(); y++) {
+						pos[ds.getAxisIndex(Axes.Y)] = y;
+						for (int x = 0; x < imp.getWidth(); x++) {
+							pos[ds.getAxisIndex(Axes.X)] = x;
+							accessor.setPosition(pos);
+							double value = proc.getf(x, y);
+							if (signed16BitData) value -= 32768.0;
+							if (value < typeMin) value = typeMin;
+							else if (value > typeMax) value = typeMax;
+							accessor.get().setReal(value);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/** Copies gray {@link Dataset} data into IJ1 one pixel at a time. */
+	private void grayToLegacy(final Dataset ds, final ImagePlus imp) {
+		final RealType<?> type = ds.getType();
+		final boolean signed16BitData = type instanceof ShortType;
+		final boolean bitData = type instanceof BitType;
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final ImageStack stack = imp.getStack();
+		int planeNum = 1;
+		for (int t = 0; t < imp.getNFrames(); t++) {
+			for (int z = 0; z < imp.getNSlices(); z++) {
+				for (int c = 0; c < imp.getNChannels(); c++) {
+					final long[] pos = grayPosition(ds, c, z, t);
+					final ImageProcessor proc = stack.getProcessor(planeNum++);
+					for (int y = 0; y < imp.getHeight(); y++) {
+						pos[ds.getAxisIndex(Axes.Y)] = y;
+						for (int x = 0; x < imp.getWidth(); x++) {
+							pos[ds.getAxisIndex(Axes.X)] = x;
+							accessor.setPosition(pos);
+							double value = accessor.get().getRealDouble();
+							if (signed16BitData) value += 32768.0;
+							else if (bitData) if (value > 0) value = 255;
+							proc.setf(x, y, (float) value);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/** Copies IJ1 color data into a {@link Dataset} one pixel at a time. */
+	private void colorToDataset(final Dataset ds, final ImagePlus imp) {
+		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final ImageStack stack = imp.getStack();
+		int planeNum = 1;
+		for (int t = 0; t < imp.getNFrames(); t++) {
+			for (int z = 0; z < imp.getNSlices(); z++) {
+				for (int c = 0; c < imp.getNChannels(); c++) {
+					final long[] pos = colorPosition(ds, z, t);
+					final ImageProcessor proc = stack.getProcessor(planeNum++);
+					for (int y = 0; y < imp.getHeight(); y++) {
+						pos[ds.getAxisIndex(Axes.Y)] = y;
+						for (int x = 0; x < imp.getWidth(); x++) {
+							pos[ds.getAxisIndex(Axes.X)] = x;
+							final int value = proc.get(x, y);
+							for (int i = 0; i < 3; i++) {
+								pos[cIndex] = 3 * c + i;
+								accessor.setPosition(pos);
+								accessor.get().setReal((value >> (16 - 8 * i)) & 0xff);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/** Copies color {@link Dataset} data into IJ1 one pixel at a time. */
+	private void colorToLegacy(final Dataset ds, final ImagePlus imp) {
+		final int cIndex = ds.getAxisIndex(Axes.CHANNEL);
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		final ImageStack stack = imp.getStack();
+		int planeNum = 1;
+		for (int t = 0; t < imp.getNFrames(); t++) {
+			for (int z = 0; z < imp.getNSlices(); z++) {
+				for (int c = 0; c < imp.getNChannels(); c++) {
+					final long[] pos = colorPosition(ds, z, t);
+					final ImageProcessor proc = stack.getProcessor(planeNum++);
+					for (int y = 0; y < imp.getHeight(); y++) {
+						pos[ds.getAxisIndex(Axes.Y)] = y;
+						for (int x = 0; x < imp.getWidth(); x++) {
+							pos[ds.getAxisIndex(Axes.X)] = x;
+							int value = 0xff << 24;
+							for (int i = 0; i < 3; i++) {
+								pos[cIndex] = 3 * c + i;
+								accessor.setPosition(pos);
+								final int v = ((int) accessor.get().getRealDouble()) & 0xff;
+								value |= v << (16 - 8 * i);
+							}
+							proc.set(x, y, value);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private long[] grayPosition(final Dataset ds, final int c, final int z,
+		final int t)
+	{
+		final long[] pos = colorPosition(ds, z, t);
+		LegacyUtils.fillChannelIndices(ds.getDims(), ds.getAxes(), c, pos);
+		return pos;
+	}
+
+	private long[] colorPosition(final Dataset ds, final int z, final int t) {
+		final long[] pos = new long[ds.numDimensions()];
+		final int zIndex = ds.getAxisIndex(Axes.Z);
+		final int tIndex = ds.getAxisIndex(Axes.TIME);
+		if (zIndex >= 0) pos[zIndex] = z;
+		if (tIndex >= 0) pos[tIndex] = t;
+		return pos;
+	}
+
+}
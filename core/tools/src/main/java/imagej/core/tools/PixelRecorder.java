@@ -50,6 +50,7 @@
 import imagej.util.Colors;
 import imagej.util.IntCoords;
 import imagej.util.RealCoords;
+import imagej.util.RealRect;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -153,10 +154,11 @@ public boolean record(final MsEvent evt) {
 		if (recordColor) {
 			final DatasetView view =
 					imageDisplayService.getActiveDatasetView(imageDisplay);
-			ARGBScreenImage screenImage = view.getScreenImage();
-			int[] argbPixels = view.getScreenImage().getData();
-			int pixelIndex = (int) (cy*screenImage.dimension(0) + cx);
-			int argb = argbPixels[pixelIndex];
+			// NB - render just the pixel rather than the whole screen image, which
+			// may be allocated and rendered on demand for very large planes
+			final ARGBScreenImage pixel = new ARGBScreenImage(1, 1);
+			view.render(new RealRect(cx, cy, 1, 1), pixel);
+			int argb = pixel.getData()[0];
 			int r = (argb >> 16) & 0xff;
 			int g = (argb >>  8) & 0xff;
 			int b = (argb >>  0) & 0xff;
@@ -40,6 +40,11 @@
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 
 /**
  * Convenience methods for working with AWT {@link Image}s.
@@ -66,6 +71,28 @@ public static BufferedImage createImage(final int width, final int height) {
 		return config.createCompatibleImage(width, height);
 	}
 
+	/**
+	 * Creates an RGB {@link BufferedImage} backed directly by the given array of
+	 * packed pixels, in row-major order. The alpha bits of each pixel are
+	 * ignored. No pixels are copied: later changes to the array show through to
+	 * the image.
+	 * 
+	 * @param pixels The packed (A)RGB pixels.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 */
+	public static BufferedImage createImage(final int[] pixels,
+		final int width, final int height)
+	{
+		final int[] masks = { 0xff0000, 0xff00, 0xff };
+		final DataBuffer buffer = new DataBufferInt(pixels, width * height);
+		final WritableRaster raster =
+			Raster.createPackedRaster(buffer, width, height, width, masks, null);
+		final DirectColorModel colorModel =
+			new DirectColorModel(24, masks[0], masks[1], masks[2]);
+		return new BufferedImage(colorModel, raster, false, null);
+	}
+
 	/**
 	 * Ensures that the given {@link Image} is a {@link BufferedImage}, converting
 	 * if necessary.
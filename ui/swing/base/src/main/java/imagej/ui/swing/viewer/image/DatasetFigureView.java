@@ -38,19 +38,28 @@
 import imagej.ImageJ;
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.display.ImageCanvas;
 import imagej.data.display.event.DataViewUpdatedEvent;
+import imagej.data.display.event.PanZoomEvent;
+import imagej.data.display.event.ViewportResizeEvent;
 import imagej.event.EventHandler;
 import imagej.event.EventService;
 import imagej.event.EventSubscriber;
 import imagej.log.LogService;
+import imagej.util.IntCoords;
+import imagej.util.RealCoords;
+import imagej.util.RealRect;
 import imagej.util.awt.AWTImageTools;
 
-import java.awt.Image;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.List;
 
+import net.imglib2.display.ARGBScreenImage;
+
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.ImageFigure;
 
@@ -63,8 +72,18 @@
  */
 public class DatasetFigureView implements FigureView {
 
+	private final SwingImageDisplayViewer displayViewer;
 	private final DatasetView datasetView;
-	private final ImageFigure figure;
+	private final ViewportImageFigure figure;
+
+	/** Pixels of the screen image shown by the figure. */
+	private int[] screenPixels;
+
+	/** Image of the visible region, when rendering a viewport at a time. */
+	private ARGBScreenImage viewportImage;
+
+	/** AWT image backed by the pixels of {@link #viewportImage}. */
+	private BufferedImage viewportBuffer;
 
 	@SuppressWarnings("unused")
 	private final List<EventSubscriber<?>> subscribers;
@@ -72,10 +91,11 @@ public class DatasetFigureView implements FigureView {
 	public DatasetFigureView(final SwingImageDisplayViewer displayViewer,
 		final DatasetView datasetView)
 	{
+		this.displayViewer = displayViewer;
 		this.datasetView = datasetView;
 		final JHotDrawImageCanvas canvas = displayViewer.getCanvas();
 		final Drawing drawing = canvas.getDrawing();
-		figure = new ImageFigure();
+		figure = new ViewportImageFigure();
 		figure.setSelectable(false);
 		figure.setTransformable(false);
 		final Dataset dataset = datasetView.getData();
@@ -96,16 +116,42 @@ protected void onDataViewUpdatedEvent(final DataViewUpdatedEvent event) {
 		if (event.getView() == datasetView) update();
 	}
 
+	@EventHandler
+	protected void onEvent(final PanZoomEvent event) {
+		if (event.getCanvas() != getCanvas()) return; // not this canvas
+		if (datasetView.isViewportRendering()) update();
+	}
+
+	@EventHandler
+	protected void onEvent(final ViewportResizeEvent event) {
+		if (event.getCanvas() != getCanvas()) return; // not this canvas
+		if (datasetView.isViewportRendering()) update();
+	}
+
 	@Override
 	public void update() {
 		final LogService log =
 			datasetView.getData().getContext().getService(LogService.class);
 		log.debug("Updating image figure: " + this);
-		final Image image = datasetView.getScreenImage().image();
-		final BufferedImage bufImage = AWTImageTools.makeBuffered(image);
-		figure.setBounds(new Rectangle2D.Double(0, 0, bufImage.getWidth(),
-			bufImage.getHeight()));
-		figure.setBufferedImage(bufImage);
+		if (datasetView.isViewportRendering()) {
+			updateViewport();
+			return;
+		}
+		viewportImage = null;
+		viewportBuffer = null;
+		figure.setRegion(null, null);
+		final ARGBScreenImage screenImage = datasetView.getScreenImage();
+		final int[] pixels = screenImage.getData();
+		if (pixels == screenPixels) {
+			// NB - the figure's image shares the pixels, so just repaint it
+			figure.pixelsChanged();
+			return;
+		}
+		screenPixels = pixels;
+		final int width = (int) screenImage.dimension(0);
+		final int height = (int) screenImage.dimension(1);
+		figure.setBounds(new Rectangle2D.Double(0, 0, width, height));
+		figure.setBufferedImage(AWTImageTools.createImage(pixels, width, height));
 	}
 
 	// -- FigureView methods --
@@ -125,4 +171,99 @@ public void dispose() {
 		getFigure().requestRemove();
 	}
 
+	// -- Helper methods --
+
+	private ImageCanvas getCanvas() {
+		return displayViewer.getDisplay().getCanvas();
+	}
+
+	/**
+	 * Renders only the region of the plane visible in the canvas, at no more
+	 * than the resolution of the screen.
+	 */
+	private void updateViewport() {
+		final int planeWidth = datasetView.getPreferredWidth();
+		final int planeHeight = datasetView.getPreferredHeight();
+		figure.setBounds(new Rectangle2D.Double(0, 0, planeWidth, planeHeight));
+
+		// find the visible region, in whole pixels
+		final ImageCanvas canvas = getCanvas();
+		final RealCoords topLeft = canvas.panelToDataCoords(new IntCoords(0, 0));
+		final RealCoords bottomRight =
+			canvas.panelToDataCoords(new IntCoords(canvas.getViewportWidth(), canvas
+				.getViewportHeight()));
+		final int x0 = clamp((int) Math.floor(topLeft.x), planeWidth);
+		final int y0 = clamp((int) Math.floor(topLeft.y), planeHeight);
+		final int x1 = clamp((int) Math.ceil(bottomRight.x), planeWidth);
+		final int y1 = clamp((int) Math.ceil(bottomRight.y), planeHeight);
+		final Rectangle region = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+		screenPixels = null;
+		if (region.isEmpty()) {
+			figure.setRegion(null, region);
+			return;
+		}
+
+		// NB - when zoomed in, let the drawing view enlarge the pixels
+		final double scale = Math.min(canvas.getZoomFactor(), 1);
+		final int w = Math.max(1, (int) Math.ceil(region.width * scale));
+		final int h = Math.max(1, (int) Math.ceil(region.height * scale));
+		if (viewportImage == null || viewportImage.dimension(0) != w ||
+			viewportImage.dimension(1) != h)
+		{
+			viewportImage = new ARGBScreenImage(w, h);
+			viewportBuffer =
+				AWTImageTools.createImage(viewportImage.getData(), w, h);
+		}
+		datasetView.render(new RealRect(region.x, region.y, region.width,
+			region.height), viewportImage);
+		figure.setRegion(viewportBuffer, region);
+	}
+
+	private int clamp(final int value, final int max) {
+		return Math.max(0, Math.min(max, value));
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * An {@link ImageFigure} that can draw an image of just a region of itself,
+	 * while keeping the bounds of the whole plane.
+	 */
+	private static class ViewportImageFigure extends ImageFigure {
+
+		private BufferedImage regionImage;
+		private Rectangle region;
+
+		/**
+		 * Sets the image of a region of the figure. If the region is null, the
+		 * figure's own image is drawn instead; if the image is null, nothing is
+		 * drawn.
+		 */
+		public void setRegion(final BufferedImage image, final Rectangle bounds) {
+			if (image == null && bounds == null && region == null) return;
+			willChange();
+			regionImage = image;
+			region = bounds;
+			changed();
+		}
+
+		/** Repaints the figure after the pixels of its image have changed. */
+		public void pixelsChanged() {
+			willChange();
+			changed();
+		}
+
+		@Override
+		public void draw(final Graphics2D g) {
+			if (region == null) {
+				super.draw(g);
+				return;
+			}
+			if (regionImage == null) return;
+			g.drawImage(regionImage, region.x, region.y, region.width,
+				region.height, null);
+		}
+
+	}
+
 }
@@ -38,6 +38,7 @@
 import imagej.ImageJ;
 import imagej.data.Dataset;
 import imagej.data.DatasetService;
+import imagej.data.ImageGrabber;
 import imagej.data.display.DataView;
 import imagej.data.display.DatasetView;
 import imagej.data.display.ImageCanvas;
@@ -68,12 +69,12 @@
 import imagej.util.IntCoords;
 import imagej.util.RealCoords;
 import imagej.util.RealRect;
+import imagej.util.awt.AWTImageTools;
 
 import java.awt.BorderLayout;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.AdjustmentEvent;
@@ -88,11 +89,9 @@
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 
-import net.imglib2.RandomAccess;
 import net.imglib2.display.ARGBScreenImage;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
-import net.imglib2.type.numeric.RealType;
 
 import org.jhotdraw.draw.DefaultDrawing;
 import org.jhotdraw.draw.DefaultDrawingEditor;
@@ -211,48 +210,24 @@ public Dataset capture() {
 		if (dsView == null) return null;
 
 		final ARGBScreenImage screenImage = dsView.getScreenImage();
-		final Image pixels = screenImage.image();
-
-		final int w = pixels.getWidth(null);
-		final int h = pixels.getHeight(null);
+		final int w = (int) screenImage.dimension(0);
+		final int h = (int) screenImage.dimension(1);
 
 		// draw the backdrop image info
-		final BufferedImage outputImage =
-			new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		final int[] pixels = screenImage.getData().clone();
+		final BufferedImage outputImage = AWTImageTools.createImage(pixels, w, h);
 		final Graphics2D outputGraphics = outputImage.createGraphics();
-		outputGraphics.drawImage(pixels, 0, 0, null);
 
 		// draw the overlay info
 		for (final FigureView view : figureViews) {
 			view.getFigure().draw(outputGraphics);
 		}
+		outputGraphics.dispose();
 
 		// create a dataset that has view data with overlay info on top
 		final DatasetService dss =
 			display.getContext().getService(DatasetService.class);
-		final Dataset dataset =
-			dss.create(new long[] { w, h, 3 }, "Captured view", new AxisType[] {
-				Axes.X, Axes.Y, Axes.CHANNEL }, 8, false, false);
-		dataset.setRGBMerged(true);
-		final RandomAccess<? extends RealType<?>> accessor =
-			dataset.getImgPlus().randomAccess();
-		for (int x = 0; x < w; x++) {
-			accessor.setPosition(x, 0);
-			for (int y = 0; y < h; y++) {
-				accessor.setPosition(y, 1);
-				final int rgb = outputImage.getRGB(x, y);
-				final int r = (rgb >> 16) & 0xff;
-				final int g = (rgb >> 8) & 0xff;
-				final int b = (rgb >> 0) & 0xff;
-				accessor.setPosition(0, 2);
-				accessor.get().setReal(r);
-				accessor.setPosition(1, 2);
-				accessor.get().setReal(g);
-				accessor.setPosition(2, 2);
-				accessor.get().setReal(b);
-			}
-		}
-		return dataset;
+		return new ImageGrabber(dss).grab(pixels, w, h, "Captured view");
 	}
 
 	// -- AdjustmentListener methods --
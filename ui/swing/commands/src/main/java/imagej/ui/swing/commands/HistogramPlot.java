@@ -41,6 +41,8 @@
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
 import imagej.data.display.OverlayService;
+import imagej.data.measure.HistogramResult;
+import imagej.data.measure.HistogramService;
 import imagej.plugin.Menu;
 import imagej.plugin.Parameter;
 import imagej.plugin.Plugin;
@@ -103,6 +105,9 @@ public class HistogramPlot extends ContextCommand implements Cancelable {
 	@Parameter
 	private OverlayService overlayService;
 
+	@Parameter
+	private HistogramService histogramService;
+
 	@Parameter
 	private ImageDisplay display;
 
@@ -117,7 +122,7 @@ public class HistogramPlot extends ContextCommand implements Cancelable {
 	double histMin;
 	double histMax;
 	double binWidth;
-	int pixels;
+	long pixels;
 
 	double min;
 	double max;
@@ -155,20 +160,15 @@ public void run() {
 		// bounds);
 //		HistogramComputer histoComputer = new HistogramComputer(display, dataset, bounds, 0, 4095);
 //		int[] histogram = histoComputer.get();
-		@SuppressWarnings({"rawtypes","unchecked"})
-		final StatisticsComputer statComputer =
-			new StatisticsComputer(dataset.getImgPlus());
-		histMin = dataset.getType().getMinValue();
-		histMax = dataset.getType().getMaxValue();
-		statComputer.setHistogramBinsMinMax(BINS, histMin, histMax);
+		final HistogramResult result = histogramService.getHistogram(dataset, BINS);
+		histMin = result.getHistogramMin();
+		histMax = result.getHistogramMax();
 		binWidth = (histMax - histMin) / (BINS - 1);
 		//
-		statComputer.process();
-		//
-		histogram = statComputer.getHistogram();
-		pixels = countPixels(histogram);
-		min = statComputer.getMin().getRealDouble();
-		max = statComputer.getMax().getRealDouble();
+		histogram = toInts(result.getCounts());
+		pixels = result.getCount();
+		min = result.getMin();
+		max = result.getMax();
 		//
 		asChart(histogram, true);
 	}
@@ -225,12 +225,12 @@ public JFreeChart asChart(final int[] d) {
 
 	// -- private interface --
 
-	private int countPixels(final int[] hist) {
-		int sum = 0;
-		for (final int v : hist) {
-			sum += v;
+	private int[] toInts(final long[] counts) {
+		final int[] ints = new int[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			ints[i] = (int) Math.min(Integer.MAX_VALUE, counts[i]);
 		}
-		return sum;
+		return ints;
 	}
 
 	private boolean inputOkay() {
@@ -292,7 +292,7 @@ private JPanel makeValuePanel() {
 	}
 
 	private void
-		addStr(final StringBuilder sb, final String label, final int num)
+		addStr(final StringBuilder sb, final String label, final long num)
 	{
 		sb.append(String.format("%10s:", label));
 		sb.append(String.format("%8d", num));
@@ -42,6 +42,7 @@
 import imagej.log.LogService;
 import imagej.plugin.Parameter;
 import imagej.plugin.Plugin;
+import imagej.thread.ThreadService;
 
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
@@ -62,6 +63,9 @@ public class WatchEvents implements Command, EventHistoryListener {
 	@Parameter
 	private LogService log;
 
+	@Parameter
+	private ThreadService threadService;
+
 	// -- Fields --
 
 	private WatchEventsFrame watchEventsFrame;
@@ -91,7 +95,14 @@ public void windowClosing(final WindowEvent e) {
 
 	@Override
 	public void eventOccurred(final EventDetails details) {
-		watchEventsFrame.append(details);
+		// NB: Events may be recorded on any thread.
+		threadService.queue(new Runnable() {
+
+			@Override
+			public void run() {
+				watchEventsFrame.append(details);
+			}
+		});
 	}
 
 }